@@ -70,12 +70,14 @@ public abstract class AbstractDaemon implements Service {
      * Submit work thread to thread pool.
      *
      * @param worker work thread
+     * @return the future completed once the worker returns
      */
-    public void submitWorker(Runnable worker) {
+    public CompletableFuture<?> submitWorker(Runnable worker) {
         CompletableFuture<?> future = CompletableFuture.runAsync(worker, WORKER_SERVICES);
         workerFutures.add(future);
         LOGGER.info("{} running worker number is {}", this.getClass().getName(),
                 workerFutures.size());
+        return future;
     }
 
     /**
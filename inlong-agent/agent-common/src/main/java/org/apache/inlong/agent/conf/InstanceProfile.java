@@ -18,6 +18,7 @@
 package org.apache.inlong.agent.conf;
 
 import org.apache.inlong.agent.constant.TaskConstants;
+import org.apache.inlong.agent.utils.ByteUtil;
 import org.apache.inlong.agent.utils.file.FileUtils;
 import org.apache.inlong.common.enums.InstanceStateEnum;
 import org.apache.inlong.common.pojo.dataproxy.DataProxyTopicInfo;
@@ -25,12 +26,20 @@ import org.apache.inlong.common.pojo.dataproxy.MQClusterInfo;
 
 import com.google.common.collect.ComparisonChain;
 import com.google.gson.Gson;
+import com.google.gson.JsonPrimitive;
 import com.google.gson.reflect.TypeToken;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 import static org.apache.inlong.agent.constant.CommonConstants.DEFAULT_PROXY_INLONG_GROUP_ID;
 import static org.apache.inlong.agent.constant.CommonConstants.DEFAULT_PROXY_INLONG_STREAM_ID;
@@ -48,6 +57,11 @@ public class InstanceProfile extends AbstractConfiguration implements Comparable
 
     private static final Logger LOGGER = LoggerFactory.getLogger(InstanceProfile.class);
     private static final Gson GSON = new Gson();
+    private static final byte BINARY_VERSION = 1;
+    private static final byte TYPE_STRING = 0;
+    private static final byte TYPE_BOOLEAN = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_DECIMAL = 3;
 
     /**
      * parse json string to configuration instance.
@@ -60,10 +74,88 @@ public class InstanceProfile extends AbstractConfiguration implements Comparable
         return conf;
     }
 
+    /**
+     * parse the binary form written by {@link InstanceProfile#toBytes()}.
+     *
+     * @return instance profile
+     */
+    public static InstanceProfile parseBytes(byte[] bytes) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte version = input.readByte();
+            if (version != BINARY_VERSION) {
+                throw new IllegalArgumentException("unknown instance profile version " + version);
+            }
+            InstanceProfile conf = new InstanceProfile();
+            Map<String, JsonPrimitive> storage = conf.getConfigStorage();
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = ByteUtil.readString(input);
+                byte type = input.readByte();
+                switch (type) {
+                    case TYPE_BOOLEAN:
+                        storage.put(key, new JsonPrimitive(input.readBoolean()));
+                        break;
+                    case TYPE_LONG:
+                        storage.put(key, new JsonPrimitive(input.readLong()));
+                        break;
+                    case TYPE_DECIMAL:
+                        storage.put(key, new JsonPrimitive(new BigDecimal(ByteUtil.readString(input))));
+                        break;
+                    default:
+                        storage.put(key, new JsonPrimitive(ByteUtil.readString(input)));
+                }
+            }
+            return conf;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("parse instance profile error", e);
+        }
+    }
+
     public String toJsonStr() {
         return GSON.toJson(getConfigStorage());
     }
 
+    /**
+     * binary form of the profile, each value keeps its json type.
+     */
+    public byte[] toBytes() {
+        Map<String, JsonPrimitive> storage = getConfigStorage();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(BINARY_VERSION);
+            output.writeInt(storage.size());
+            for (Map.Entry<String, JsonPrimitive> entry : storage.entrySet()) {
+                ByteUtil.writeString(output, entry.getKey());
+                JsonPrimitive value = entry.getValue();
+                if (value.isBoolean()) {
+                    output.writeByte(TYPE_BOOLEAN);
+                    output.writeBoolean(value.getAsBoolean());
+                } else if (value.isNumber() && isLong(value.getAsString())) {
+                    output.writeByte(TYPE_LONG);
+                    output.writeLong(value.getAsLong());
+                } else if (value.isNumber()) {
+                    output.writeByte(TYPE_DECIMAL);
+                    ByteUtil.writeString(output, value.getAsString());
+                } else {
+                    output.writeByte(TYPE_STRING);
+                    ByteUtil.writeString(output, value.getAsString());
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("write instance profile error", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static boolean isLong(String number) {
+        try {
+            Long.parseLong(number);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
     public void setInstanceClass(String className) {
         set(TaskConstants.INSTANCE_CLASS, className);
     }
@@ -47,6 +47,9 @@ public class AgentConstants {
     public static final String AGENT_LOCAL_DB_PATH_TASK = ".localdb/task";
     public static final String AGENT_LOCAL_DB_PATH_INSTANCE = ".localdb/instance";
     public static final String AGENT_LOCAL_DB_PATH_OFFSET = ".localdb/offset";
+    // keep writing the db entities as json during a rollout, so the former versions can still read them
+    public static final String AGENT_DB_JSON_FORMAT = "agent.db.json.format";
+    public static final boolean DEFAULT_AGENT_DB_JSON_FORMAT = false;
 
     public static final String AGENT_UNIQ_ID = "agent.uniq.id";
     public static final String AGENT_DB_INSTANCE_NAME = "agent.db.instance.name";
@@ -138,6 +141,14 @@ public class AgentConstants {
     public static final String AGENT_METRIC_LISTENER_CLASS_DEFAULT =
             "org.apache.inlong.agent.metrics.AgentPrometheusMetricListener";
 
+    // file source reading in a shared pool of reader loops instead of a thread per file
+    public static final String AGENT_FILE_SOURCE_SHARED_READER_ENABLE = "agent.file.source.shared.reader.enable";
+    public static final boolean DEFAULT_FILE_SOURCE_SHARED_READER_ENABLE = false;
+    public static final String AGENT_FILE_SOURCE_SHARED_READER_THREADS = "agent.file.source.shared.reader.threads";
+    public static final int DEFAULT_FILE_SOURCE_SHARED_READER_THREADS = 4;
+    public static final String AGENT_FILE_SOURCE_SHARED_READ_QUOTA = "agent.file.source.shared.read.quota";
+    public static final int DEFAULT_FILE_SOURCE_SHARED_READ_QUOTA = 256 * 1024;
+
     // pulsar sink config
     public static final String PULSAR_CLIENT_IO_TREHAD_NUM = "agent.sink.pulsar.client.io.thread.num";
     public static final int DEFAULT_PULSAR_CLIENT_IO_TREHAD_NUM = Math.max(1,
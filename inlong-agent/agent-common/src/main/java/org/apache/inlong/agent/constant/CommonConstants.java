@@ -93,6 +93,16 @@ public class CommonConstants {
     public static final String PROXY_RETRY_SLEEP = "proxy.retry.sleep";
     public static final long DEFAULT_PROXY_RETRY_SLEEP = 500;
 
+    // exponential backoff with jitter between the resends of a pack
+    public static final String PROXY_RETRY_BACKOFF_BASE_MS = "proxy.retry.backoff.base.ms";
+    public static final long DEFAULT_PROXY_RETRY_BACKOFF_BASE_MS = 100;
+    public static final String PROXY_RETRY_BACKOFF_MAX_MS = "proxy.retry.backoff.max.ms";
+    public static final long DEFAULT_PROXY_RETRY_BACKOFF_MAX_MS = 10000;
+
+    // encode and compress a pack once and keep it for the resends
+    public static final String PROXY_PACK_ONCE = "proxy.pack.once";
+    public static final boolean DEFAULT_PROXY_PACK_ONCE = true;
+
     public static final String FIELD_SPLITTER = "proxy.field.splitter";
     public static final String DEFAULT_FIELD_SPLITTER = "|";
 
@@ -80,4 +80,10 @@ public class FetcherConstants {
 
     public static final String AGENT_GLOBAL_WRITER_PERMIT = "agent.global.writer.permit";
     public static final int DEFAULT_AGENT_GLOBAL_WRITER_PERMIT = 96 * 1000 * 1000;
+
+    // the share of the global permits a task or an instance can hold while the others wait, in percent
+    public static final String AGENT_GLOBAL_PERMIT_TASK_PERCENT = "agent.global.permit.task.percent";
+    public static final int DEFAULT_AGENT_GLOBAL_PERMIT_TASK_PERCENT = 50;
+    public static final String AGENT_GLOBAL_PERMIT_INSTANCE_PERCENT = "agent.global.permit.instance.percent";
+    public static final int DEFAULT_AGENT_GLOBAL_PERMIT_INSTANCE_PERCENT = 25;
 }
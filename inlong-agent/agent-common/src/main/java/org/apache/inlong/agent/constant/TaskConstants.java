@@ -86,6 +86,14 @@ public class TaskConstants extends CommonConstants {
     public static final String FILE_SOURCE_EXTEND_CLASS = "task.fileTask.extendedClass";
     public static final String DEFAULT_FILE_SOURCE_EXTEND_CLASS =
             "org.apache.inlong.agent.plugin.sources.file.extend.ExtendedHandler";
+    // multi-line event assembly, the mode is one of start, continue and indent
+    public static final String TASK_FILE_MULTI_LINE_MODE = "task.fileTask.multiLine.mode";
+    public static final String TASK_FILE_MULTI_LINE_PATTERN = "task.fileTask.multiLine.pattern";
+    public static final String TASK_FILE_MULTI_LINE_MAX_LINES = "task.fileTask.multiLine.maxLines";
+    public static final int DEFAULT_TASK_FILE_MULTI_LINE_MAX_LINES = 500;
+    public static final String TASK_FILE_MULTI_LINE_MAX_BYTES = "task.fileTask.multiLine.maxBytes";
+    public static final String TASK_FILE_MULTI_LINE_FLUSH_TIMEOUT_MS = "task.fileTask.multiLine.flushTimeoutMs";
+    public static final long DEFAULT_TASK_FILE_MULTI_LINE_FLUSH_TIMEOUT_MS = 1000L;
 
     // Binlog job
     public static final String JOB_DATABASE_USER = "job.binlogJob.user";
@@ -105,15 +113,20 @@ public class TaskConstants extends CommonConstants {
     public static final String JOB_DATABASE_HISTORY_MONITOR_DDL = "job.binlogJob.ddl";
     public static final String JOB_DATABASE_PORT = "job.binlogJob.port";
 
-    // Kafka job
-    public static final String JOB_KAFKA_TOPIC = "job.kafkaJob.topic";
-    public static final String JOB_KAFKA_BOOTSTRAP_SERVERS = "job.kafkaJob.bootstrap.servers";
-    public static final String JOB_KAFKA_GROUP_ID = "job.kafkaJob.group.id";
-    public static final String JOB_KAFKA_RECORD_SPEED_LIMIT = "job.kafkaJob.recordSpeed.limit";
-    public static final String JOB_KAFKA_BYTE_SPEED_LIMIT = "job.kafkaJob.byteSpeed.limit";
-    public static final String JOB_KAFKA_OFFSET = "job.kafkaJob.partition.offset";
-    public static final String JOB_KAFKA_READ_TIMEOUT = "job.kafkaJob.read.timeout";
-    public static final String JOB_KAFKA_AUTO_COMMIT_OFFSET_RESET = "job.kafkaJob.autoOffsetReset";
+    // Kafka job, flattened from the kafka job of the task profile
+    public static final String JOB_KAFKA_TOPIC = "task.kafkaJob.topic";
+    public static final String JOB_KAFKA_BOOTSTRAP_SERVERS = "task.kafkaJob.bootstrap.servers";
+    public static final String JOB_KAFKA_GROUP_ID = "task.kafkaJob.group.id";
+    public static final String JOB_KAFKA_RECORD_SPEED_LIMIT = "task.kafkaJob.recordSpeed.limit";
+    public static final String JOB_KAFKA_BYTE_SPEED_LIMIT = "task.kafkaJob.byteSpeed.limit";
+    public static final String JOB_KAFKA_OFFSET = "task.kafkaJob.partition.offset";
+    public static final String JOB_KAFKA_READ_TIMEOUT = "task.kafkaJob.read.timeout";
+    public static final String JOB_KAFKA_AUTO_COMMIT_OFFSET_RESET = "task.kafkaJob.autoOffsetReset";
+    // poll in batches, the partitions are spread over the lanes and the offsets are committed after the sink ack
+    public static final String JOB_KAFKA_BATCH_MODE = "task.kafkaJob.batchMode";
+    public static final String JOB_KAFKA_PARTITION_LANES = "task.kafkaJob.partition.lanes";
+    public static final String JOB_KAFKA_POLL_MAX_RECORDS = "task.kafkaJob.pollMaxRecords";
+    public static final String JOB_KAFKA_MAX_INFLIGHT = "task.kafkaJob.maxInflight";
 
     public static final String JOB_MONGO_HOSTS = "job.mongoJob.hosts";
     public static final String JOB_MONGO_USER = "job.mongoJob.user";
@@ -145,6 +158,10 @@ public class TaskConstants extends CommonConstants {
     public static final String JOB_MONGO_POLL_INTERVAL = "job.mongoJob.pollIntervalInMs";
 
     public static final Long JOB_KAFKA_DEFAULT_OFFSET = 0L;
+    public static final boolean DEFAULT_JOB_KAFKA_BATCH_MODE = false;
+    public static final int DEFAULT_JOB_KAFKA_PARTITION_LANES = Runtime.getRuntime().availableProcessors();
+    public static final int DEFAULT_JOB_KAFKA_POLL_MAX_RECORDS = 2000;
+    public static final int DEFAULT_JOB_KAFKA_MAX_INFLIGHT = 100000;
 
     // job type, delete/add
     public static final String JOB_TYPE = "job.type";
@@ -59,6 +59,14 @@ public interface Db extends Closeable {
      */
     KeyValueEntity put(KeyValueEntity entity);
 
+    /**
+     * store keyValues in one batch, the existing ones are overwritten.
+     *
+     * @param entities key/value list
+     * @throws NullPointerException entities should not be null.
+     */
+    void putAll(List<KeyValueEntity> entities);
+
     /**
      * remove keyValue by key.
      *
@@ -63,8 +63,12 @@ public class InstanceDb {
         if (instance.allRequiredKeyExist()) {
             String keyName = getKeyByTaskAndInstanceId(instance.get(TaskConstants.TASK_ID),
                     instance.get(TaskConstants.INSTANCE_ID));
-            KeyValueEntity entity = new KeyValueEntity(keyName,
-                    instance.toJsonStr(), instance.get(TaskConstants.INSTANCE_ID));
+            KeyValueEntity entity;
+            if (KeyValueEntityCodec.isJsonFormat()) {
+                entity = new KeyValueEntity(keyName, instance.toJsonStr(), instance.get(TaskConstants.INSTANCE_ID));
+            } else {
+                entity = new KeyValueEntity(keyName, instance.toBytes(), instance.get(TaskConstants.INSTANCE_ID));
+            }
             db.put(entity);
         } else {
             LOGGER.error("instance profile invalid!");
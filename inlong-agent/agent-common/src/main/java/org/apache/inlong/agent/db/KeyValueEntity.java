@@ -23,7 +23,7 @@ import org.apache.inlong.agent.conf.OffsetProfile;
 import org.apache.inlong.agent.conf.TaskProfile;
 
 /**
- * key value entity. key is string and value is a json
+ * key value entity. key is string and value is a json, or a typed binary value such as the offsets and instances
  */
 public class KeyValueEntity {
 
@@ -38,10 +38,19 @@ public class KeyValueEntity {
 
     private String jsonValue;
 
+    private byte[] binaryValue;
+
     private KeyValueEntity() {
 
     }
 
+    public KeyValueEntity(String key, byte[] binaryValue, String fileName) {
+        this.key = key;
+        this.binaryValue = binaryValue;
+        this.stateSearchKey = StateSearchKey.ACCEPTED;
+        this.fileName = fileName;
+    }
+
     public KeyValueEntity(String key, String jsonValue, String fileName) {
         this.key = key;
         this.jsonValue = jsonValue;
@@ -72,9 +81,14 @@ public class KeyValueEntity {
 
     public KeyValueEntity setJsonValue(String jsonValue) {
         this.jsonValue = jsonValue;
+        this.binaryValue = null;
         return this;
     }
 
+    public byte[] getBinaryValue() {
+        return binaryValue;
+    }
+
     /**
      * convert keyValue to job profile
      *
@@ -89,6 +103,9 @@ public class KeyValueEntity {
      * convert keyValue to offset profile
      */
     public OffsetProfile getAsOffsetProfile() {
+        if (binaryValue != null) {
+            return OffsetProfile.parseBytes(binaryValue);
+        }
         return OffsetProfile.parseJsonStr(getJsonValue());
     }
 
@@ -103,6 +120,9 @@ public class KeyValueEntity {
      * convert keyValue to instance profile
      */
     public InstanceProfile getAsInstanceProfile() {
+        if (binaryValue != null) {
+            return InstanceProfile.parseBytes(binaryValue);
+        }
         return InstanceProfile.parseJsonStr(getJsonValue());
     }
 
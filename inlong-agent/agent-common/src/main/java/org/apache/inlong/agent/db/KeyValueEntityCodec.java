@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.db;
+
+import org.apache.inlong.agent.conf.AgentConfiguration;
+import org.apache.inlong.agent.utils.ByteUtil;
+
+import com.google.gson.Gson;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.apache.inlong.agent.constant.AgentConstants.AGENT_DB_JSON_FORMAT;
+import static org.apache.inlong.agent.constant.AgentConstants.DEFAULT_AGENT_DB_JSON_FORMAT;
+
+/**
+ * Binary encoding of the key value entities stored in rocks db.
+ *
+ * The layout is the format version, the state, the key, the file name, the value type
+ * and the value. The entities written as json by the former versions start with '{',
+ * they are still decoded and reported as legacy, so they can be rewritten.
+ *
+ * The former versions cannot read the binary form, an agent downgraded after writing it
+ * loses its tasks, instances and offsets. Set agent.db.json.format to keep writing json,
+ * and leave the legacy entities as they are, until the rollout can no more be reverted.
+ */
+class KeyValueEntityCodec {
+
+    private static final Gson GSON = new Gson();
+    private static final byte VERSION = 1;
+    private static final byte JSON_START = '{';
+    private static final byte VALUE_JSON = 0;
+    private static final byte VALUE_BINARY = 1;
+    private static final StateSearchKey[] STATES = StateSearchKey.values();
+
+    private KeyValueEntityCodec() {
+    }
+
+    /**
+     * whether the entities are written in the json form of the former versions
+     */
+    static boolean isJsonFormat() {
+        return AgentConfiguration.getAgentConf().getBoolean(AGENT_DB_JSON_FORMAT, DEFAULT_AGENT_DB_JSON_FORMAT);
+    }
+
+    static byte[] encode(KeyValueEntity entity) {
+        if (entity.getBinaryValue() == null && isJsonFormat()) {
+            return GSON.toJson(entity).getBytes(StandardCharsets.UTF_8);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(VERSION);
+            output.writeByte(entity.getStateSearchKey().ordinal());
+            ByteUtil.writeString(output, entity.getKey());
+            ByteUtil.writeString(output, entity.getFileName());
+            byte[] binaryValue = entity.getBinaryValue();
+            if (binaryValue != null) {
+                output.writeByte(VALUE_BINARY);
+                output.writeInt(binaryValue.length);
+                output.write(binaryValue);
+            } else {
+                output.writeByte(VALUE_JSON);
+                ByteUtil.writeString(output, entity.getJsonValue());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("encode key value entity error", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static KeyValueEntity decode(byte[] bytes) {
+        if (isLegacy(bytes)) {
+            return GSON.fromJson(new String(bytes, StandardCharsets.UTF_8), KeyValueEntity.class);
+        }
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte version = input.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("unknown key value entity version " + version);
+            }
+            StateSearchKey state = STATES[input.readByte()];
+            String key = ByteUtil.readString(input);
+            String fileName = ByteUtil.readString(input);
+            KeyValueEntity entity;
+            if (input.readByte() == VALUE_BINARY) {
+                byte[] binaryValue = new byte[input.readInt()];
+                input.readFully(binaryValue);
+                entity = new KeyValueEntity(key, binaryValue, fileName);
+            } else {
+                entity = new KeyValueEntity(key, ByteUtil.readString(input), fileName);
+            }
+            return entity.setStateSearchKey(state);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("decode key value entity error", e);
+        }
+    }
+
+    /**
+     * whether the entity is in the json form of the former versions
+     */
+    static boolean isLegacy(byte[] bytes) {
+        return bytes.length > 0 && bytes[0] == JSON_START;
+    }
+}
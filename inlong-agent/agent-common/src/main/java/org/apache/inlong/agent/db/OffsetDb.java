@@ -26,6 +26,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -75,14 +77,29 @@ public class OffsetDb {
     }
 
     public void setOffset(OffsetProfile offsetProfile) {
-        offsetProfile.setLastUpdateTime(AgentUtils.getCurrentTime());
-        if (offsetProfile.allRequiredKeyExist()) {
-            String keyName = getKey(offsetProfile.getTaskId(),
-                    offsetProfile.getInstanceId());
-            KeyValueEntity entity = new KeyValueEntity(keyName,
-                    offsetProfile.toJsonStr(), offsetProfile.get(TaskConstants.INSTANCE_ID));
-            db.put(entity);
+        setOffsets(Collections.singletonList(offsetProfile));
+    }
+
+    /**
+     * store the offsets in one batch
+     */
+    public void setOffsets(Collection<OffsetProfile> offsetProfiles) {
+        List<KeyValueEntity> entities = new ArrayList<>(offsetProfiles.size());
+        for (OffsetProfile offsetProfile : offsetProfiles) {
+            offsetProfile.setLastUpdateTime(AgentUtils.getCurrentTime());
+            if (offsetProfile.allRequiredKeyExist()) {
+                String keyName = getKey(offsetProfile.getTaskId(),
+                        offsetProfile.getInstanceId());
+                if (KeyValueEntityCodec.isJsonFormat()) {
+                    entities.add(new KeyValueEntity(keyName,
+                            offsetProfile.toJsonStr(), offsetProfile.get(TaskConstants.INSTANCE_ID)));
+                } else {
+                    entities.add(new KeyValueEntity(keyName,
+                            offsetProfile.toBytes(), offsetProfile.get(TaskConstants.INSTANCE_ID)));
+                }
+            }
         }
+        db.putAll(entities);
     }
 
     private String getKey(String taskId, String instanceId) {
@@ -21,7 +21,6 @@ import org.apache.inlong.agent.conf.AgentConfiguration;
 import org.apache.inlong.agent.constant.AgentConstants;
 import org.apache.inlong.common.db.CommandEntity;
 
-import com.google.gson.Gson;
 import org.rocksdb.AbstractImmutableNativeReference;
 import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
@@ -32,27 +31,34 @@ import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.RocksIterator;
 import org.rocksdb.Statistics;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static java.util.Objects.requireNonNull;
 
 /**
  * DB implement based on the Rocks DB.
+ *
+ * The entities are stored in a binary form, see {@link KeyValueEntityCodec}, the json
+ * entities written by the former versions are rewritten when they are read, unless the
+ * json form is kept for a rollback.
  */
 public class RocksDbImp implements Db {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RocksDbImp.class);
-    private static final Gson GSON = new Gson();
 
     private final AgentConfiguration conf;
     private final RocksDB db;
@@ -152,7 +158,14 @@ public class RocksDbImp implements Db {
         requireNonNull(key);
         try {
             byte[] bytes = db.get(columnHandlesMap.get(defaultFamilyName), key.getBytes());
-            return bytes == null ? null : GSON.fromJson(new String(bytes), KeyValueEntity.class);
+            if (bytes == null) {
+                return null;
+            }
+            KeyValueEntity entity = KeyValueEntityCodec.decode(bytes);
+            if (KeyValueEntityCodec.isLegacy(bytes)) {
+                migrate(Collections.singletonList(entity));
+            }
+            return entity;
         } catch (Exception e) {
             throw new RuntimeException("get key value entity error", e);
         }
@@ -178,13 +191,31 @@ public class RocksDbImp implements Db {
     public KeyValueEntity put(KeyValueEntity entity) {
         requireNonNull(entity);
         try {
-            db.put(columnHandlesMap.get(defaultFamilyName), entity.getKey().getBytes(), GSON.toJson(entity).getBytes());
+            db.put(columnHandlesMap.get(defaultFamilyName), entity.getKey().getBytes(),
+                    KeyValueEntityCodec.encode(entity));
         } catch (Exception e) {
             throw new RuntimeException("put value to rocks db error", e);
         }
         return entity;
     }
 
+    @Override
+    public void putAll(List<KeyValueEntity> entities) {
+        requireNonNull(entities);
+        if (entities.isEmpty()) {
+            return;
+        }
+        ColumnFamilyHandle handle = columnHandlesMap.get(defaultFamilyName);
+        try (WriteBatch batch = new WriteBatch(); WriteOptions options = new WriteOptions()) {
+            for (KeyValueEntity entity : entities) {
+                batch.put(handle, entity.getKey().getBytes(), KeyValueEntityCodec.encode(entity));
+            }
+            db.write(options, batch);
+        } catch (Exception e) {
+            throw new RuntimeException("put values to rocks db error", e);
+        }
+    }
+
     @Override
     public KeyValueEntity remove(String key) {
         requireNonNull(key);
@@ -203,18 +234,7 @@ public class RocksDbImp implements Db {
 
     @Override
     public List<KeyValueEntity> searchWithKeyPrefix(StateSearchKey searchKey, String keyPrefix) {
-        List<KeyValueEntity> results = new LinkedList<>();
-        try (final RocksIterator it = db.newIterator(columnHandlesMap.get(defaultFamilyName))) {
-            it.seekToFirst();
-            while (it.isValid()) {
-                KeyValueEntity keyValue = GSON.fromJson(new String(it.value()), KeyValueEntity.class);
-                if (keyValue.getStateSearchKey().equals(searchKey) && keyValue.getKey().startsWith(keyPrefix)) {
-                    results.add(keyValue);
-                }
-                it.next();
-            }
-        }
-        return results;
+        return scan(keyPrefix, keyValue -> keyValue.getStateSearchKey().equals(searchKey), false);
     }
 
     @Override
@@ -224,82 +244,89 @@ public class RocksDbImp implements Db {
 
     @Override
     public List<KeyValueEntity> search(StateSearchKey searchKey) {
-        List<KeyValueEntity> results = new LinkedList<>();
-        try (final RocksIterator it = db.newIterator(columnHandlesMap.get(defaultFamilyName))) {
-            it.seekToFirst();
-            while (it.isValid()) {
-                KeyValueEntity keyValue = GSON.fromJson(new String(it.value()), KeyValueEntity.class);
-                if (keyValue.getStateSearchKey().equals(searchKey)) {
-                    results.add(keyValue);
-                }
-                it.next();
-            }
-        }
-        return results;
+        return scan("", keyValue -> keyValue.getStateSearchKey().equals(searchKey), false);
     }
 
     @Override
     public List<KeyValueEntity> search(List<StateSearchKey> searchKeys) {
-        List<KeyValueEntity> results = new LinkedList<>();
-        try (final RocksIterator it = db.newIterator(columnHandlesMap.get(defaultFamilyName))) {
-            it.seekToFirst();
-            while (it.isValid()) {
-                KeyValueEntity keyValue = GSON.fromJson(new String(it.value()), KeyValueEntity.class);
-                if (Objects.nonNull(keyValue) && searchKeys.contains(keyValue.getStateSearchKey())) {
-                    results.add(keyValue);
-                }
-                it.next();
-            }
-        }
-        return results;
+        return scan("", keyValue -> searchKeys.contains(keyValue.getStateSearchKey()), false);
     }
 
     @Override
     public KeyValueEntity searchOne(StateSearchKey searchKey) {
-        try (final RocksIterator it = db.newIterator(columnHandlesMap.get(defaultFamilyName))) {
-            it.seekToFirst();
-            while (it.isValid()) {
-                KeyValueEntity keyValue = GSON.fromJson(new String(it.value()), KeyValueEntity.class);
-                if (keyValue.getStateSearchKey().equals(searchKey)) {
-                    return keyValue;
-                }
-                it.next();
-            }
-        }
-        return null;
+        List<KeyValueEntity> results = scan("", keyValue -> keyValue.getStateSearchKey().equals(searchKey),
+                true);
+        return results.isEmpty() ? null : results.get(0);
     }
 
     @Override
     public KeyValueEntity searchOne(String fileName) {
-        try (final RocksIterator it = db.newIterator(columnHandlesMap.get(defaultFamilyName))) {
-            it.seekToFirst();
-            while (it.isValid()) {
-                KeyValueEntity keyValue = GSON.fromJson(new String(it.value()), KeyValueEntity.class);
-                if (keyValue.getFileName().equals(fileName)) {
-                    return keyValue;
-                }
-                it.next();
-            }
-        }
-        return null;
+        List<KeyValueEntity> results = scan("", keyValue -> fileName.equals(keyValue.getFileName()), true);
+        return results.isEmpty() ? null : results.get(0);
     }
 
     @Override
     public List<KeyValueEntity> findAll(String prefix) {
+        return scan(prefix, keyValue -> true, false);
+    }
+
+    /**
+     * Iterate the entities whose keys start with the prefix by seeking to the prefix,
+     * the legacy json entities read are rewritten in the binary form.
+     */
+    private List<KeyValueEntity> scan(String keyPrefix, Predicate<KeyValueEntity> filter, boolean findFirst) {
         List<KeyValueEntity> results = new LinkedList<>();
+        List<KeyValueEntity> legacyEntities = new ArrayList<>();
+        byte[] prefix = keyPrefix.getBytes();
         try (final RocksIterator it = db.newIterator(columnHandlesMap.get(defaultFamilyName))) {
-            it.seekToFirst();
-            while (it.isValid()) {
-                KeyValueEntity keyValue = GSON.fromJson(new String(it.value()), KeyValueEntity.class);
-                if (keyValue.getKey().startsWith(prefix)) {
+            if (prefix.length == 0) {
+                it.seekToFirst();
+            } else {
+                it.seek(prefix);
+            }
+            while (it.isValid() && startsWith(it.key(), prefix)) {
+                byte[] value = it.value();
+                KeyValueEntity keyValue = KeyValueEntityCodec.decode(value);
+                if (KeyValueEntityCodec.isLegacy(value)) {
+                    legacyEntities.add(keyValue);
+                }
+                if (Objects.nonNull(keyValue) && filter.test(keyValue)) {
                     results.add(keyValue);
+                    if (findFirst) {
+                        break;
+                    }
                 }
                 it.next();
             }
         }
+        migrate(legacyEntities);
         return results;
     }
 
+    private void migrate(List<KeyValueEntity> legacyEntities) {
+        if (legacyEntities.isEmpty() || KeyValueEntityCodec.isJsonFormat()) {
+            return;
+        }
+        try {
+            putAll(legacyEntities);
+            LOGGER.info("rewrite {} json entities in binary form, store path {}", legacyEntities.size(), storePath);
+        } catch (Exception e) {
+            LOGGER.error("rewrite json entities error, store path {}", storePath, e);
+        }
+    }
+
+    private static boolean startsWith(byte[] key, byte[] prefix) {
+        if (key.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (key[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public void close() throws IOException {
         db.close();
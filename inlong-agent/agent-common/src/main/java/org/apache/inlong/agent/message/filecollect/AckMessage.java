@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.message.filecollect;
+
+import org.apache.inlong.agent.constant.TaskConstants;
+import org.apache.inlong.agent.message.DefaultMessage;
+
+import java.util.Map;
+
+/**
+ * Message carrying the ack info of its offset, the source keeps the same ack info and
+ * is told when the sink has sent the message.
+ */
+public class AckMessage extends DefaultMessage {
+
+    private final OffsetAckInfo ackInfo;
+
+    public AckMessage(byte[] body, Map<String, String> header, long offset) {
+        super(body, header);
+        header.put(TaskConstants.OFFSET, String.valueOf(offset));
+        this.ackInfo = new OffsetAckInfo(offset, body.length, false);
+    }
+
+    public OffsetAckInfo getAckInfo() {
+        return ackInfo;
+    }
+}
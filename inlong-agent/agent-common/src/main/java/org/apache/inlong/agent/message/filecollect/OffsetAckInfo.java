@@ -26,5 +26,6 @@ public class OffsetAckInfo {
 
     private Long offset;
     private int len;
-    private Boolean hasAck;
+    // set by the sender callback threads, read by the sink and source threads
+    private volatile Boolean hasAck;
 }
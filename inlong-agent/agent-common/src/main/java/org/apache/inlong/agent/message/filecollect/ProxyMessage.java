@@ -56,6 +56,10 @@ public class ProxyMessage implements Message {
 
     public ProxyMessage(Message message) {
         this(message.getBody(), message.getHeader());
+        if (message instanceof AckMessage) {
+            // share the ack info with the source of the message
+            ackInfo = ((AckMessage) message).getAckInfo();
+        }
     }
 
     public String getDataKey() {
@@ -159,17 +159,15 @@ public class ProxyMessageCache {
             // pre check message size
             ProxyMessage peekMessage = messageQueue.peek();
             int peekMessageLength = peekMessage.getBody().length;
-            if (resultBatchSize + peekMessageLength > maxPackSize) {
+            if (resultBatchSize + peekMessageLength > maxPackSize && !bodyList.isEmpty()) {
                 break;
             }
             ProxyMessage message = messageQueue.remove();
             int bodySize = message.getBody().length;
-            if (peekMessageLength > maxPackSize) {
-                LOGGER.warn("message size is {}, greater than max pack size {}, drop it!",
-                        peekMessage.getBody().length, maxPackSize);
-                cacheSize.addAndGet(-bodySize);
-                messageQueue.remove();
-                break;
+            if (bodySize > maxPackSize) {
+                // send it in a pack of its own, or it blocks the queue forever
+                LOGGER.warn("message size is {}, greater than max pack size {}, send it alone",
+                        bodySize, maxPackSize);
             }
             resultBatchSize += bodySize;
             // decrease queue size.
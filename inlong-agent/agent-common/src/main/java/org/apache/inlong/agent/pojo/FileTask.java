@@ -37,6 +37,7 @@ public class FileTask {
     private String addictiveString;
     private String collectType;
     private Line line;
+    private MultiLine multiLine;
     private Integer maxFileCount;
 
     // INCREMENT
@@ -93,6 +94,20 @@ public class FileTask {
         private String endPattern;
     }
 
+    @Data
+    public static class MultiLine {
+
+        private String mode;
+
+        private String pattern;
+
+        private Integer maxLines;
+
+        private Integer maxBytes;
+
+        private Long flushTimeoutMs;
+    }
+
     @Data
     public static class FileTaskConfig {
 
@@ -121,6 +136,17 @@ public class FileTask {
 
         private String lineEndPattern;
 
+        // Multi-line event assembly mode: start, continue or indent
+        private String multiLineMode;
+        // Regex of the lines starting an event in start mode, or of the continuation lines in continue mode
+        private String multiLinePattern;
+
+        private Integer multiLineMaxLines;
+
+        private Integer multiLineMaxBytes;
+
+        private Long multiLineFlushTimeoutMs;
+
         // Type of file content, for example: FULL, INCREMENT
         private String contentCollectType;
 
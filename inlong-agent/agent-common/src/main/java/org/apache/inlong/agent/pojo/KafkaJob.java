@@ -30,6 +30,9 @@ public class KafkaJob {
     private RecordSpeed recordSpeed;
     private ByteSpeed byteSpeed;
     private String autoOffsetReset;
+    private String batchMode;
+    private String pollMaxRecords;
+    private String maxInflight;
 
     @Data
     public static class Group {
@@ -47,6 +50,7 @@ public class KafkaJob {
     public static class Partition {
 
         private String offset;
+        private String lanes;
     }
 
     @Data
@@ -70,5 +74,9 @@ public class KafkaJob {
         private String recordSpeedLimit;
         private String byteSpeedLimit;
         private String autoOffsetReset;
+        private String batchMode;
+        private String partitionLanes;
+        private String pollMaxRecords;
+        private String maxInflight;
     }
 }
@@ -38,6 +38,7 @@ import static org.apache.inlong.common.enums.DataReportTypeEnum.NORMAL_SEND_TO_D
 public class TaskProfileDto {
 
     public static final String DEFAULT_FILE_TASK = "org.apache.inlong.agent.plugin.task.filecollect.LogFileCollectTask";
+    public static final String DEFAULT_KAFKA_TASK = "org.apache.inlong.agent.plugin.task.KafkaTask";
     public static final String DEFAULT_CHANNEL = "org.apache.inlong.agent.plugin.channel.MemoryChannel";
     public static final String MANAGER_JOB = "MANAGER_JOB";
     public static final String DEFAULT_DATAPROXY_SINK = "org.apache.inlong.agent.plugin.sinks.ProxySink";
@@ -163,6 +164,16 @@ public class TaskProfileDto {
             fileTask.setLine(line);
         }
 
+        if (null != taskConfig.getMultiLineMode()) {
+            FileTask.MultiLine multiLine = new FileTask.MultiLine();
+            multiLine.setMode(taskConfig.getMultiLineMode());
+            multiLine.setPattern(taskConfig.getMultiLinePattern());
+            multiLine.setMaxLines(taskConfig.getMultiLineMaxLines());
+            multiLine.setMaxBytes(taskConfig.getMultiLineMaxBytes());
+            multiLine.setFlushTimeoutMs(taskConfig.getMultiLineFlushTimeoutMs());
+            fileTask.setMultiLine(multiLine);
+        }
+
         if (null != taskConfig.getEnvList()) {
             fileTask.setEnvList(taskConfig.getEnvList());
         }
@@ -196,6 +207,7 @@ public class TaskProfileDto {
         kafkaJob.setBootstrap(bootstrap);
         KafkaJob.Partition partition = new KafkaJob.Partition();
         partition.setOffset(dataConfigs.getSnapshot());
+        partition.setLanes(kafkaJobTaskConfig.getPartitionLanes());
         kafkaJob.setPartition(partition);
         KafkaJob.Group group = new KafkaJob.Group();
         group.setId(kafkaJobTaskConfig.getGroupId());
@@ -207,6 +219,9 @@ public class TaskProfileDto {
         byteSpeed.setLimit(kafkaJobTaskConfig.getByteSpeedLimit());
         kafkaJob.setByteSpeed(byteSpeed);
         kafkaJob.setAutoOffsetReset(kafkaJobTaskConfig.getAutoOffsetReset());
+        kafkaJob.setBatchMode(kafkaJobTaskConfig.getBatchMode());
+        kafkaJob.setPollMaxRecords(kafkaJobTaskConfig.getPollMaxRecords());
+        kafkaJob.setMaxInflight(kafkaJobTaskConfig.getMaxInflight());
 
         kafkaJob.setTopic(kafkaJobTaskConfig.getTopic());
 
@@ -452,6 +467,7 @@ public class TaskProfileDto {
                 profileDto.setTask(task);
                 break;
             case KAFKA:
+                task.setTaskClass(DEFAULT_KAFKA_TASK);
                 KafkaJob kafkaJob = getKafkaJob(dataConfig);
                 task.setKafkaJob(kafkaJob);
                 task.setSource(KAFKA_SOURCE);
@@ -18,13 +18,25 @@
 package org.apache.inlong.agent.db;
 
 import org.apache.inlong.agent.AgentBaseTestsHelper;
-
+import org.apache.inlong.agent.conf.AgentConfiguration;
+import org.apache.inlong.agent.conf.InstanceProfile;
+import org.apache.inlong.agent.conf.OffsetProfile;
+import org.apache.inlong.agent.constant.AgentConstants;
+import org.apache.inlong.agent.constant.TaskConstants;
+import org.apache.inlong.common.enums.InstanceStateEnum;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.rocksdb.RocksDB;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
 
 public class TestRocksDbImp {
@@ -92,4 +104,97 @@ public class TestRocksDbImp {
         KeyValueEntity entityResult = db.searchOne(StateSearchKey.ACCEPTED);
         Assert.assertEquals("searchKey1", entityResult.getKey());
     }
+
+    @Test
+    public void testBatchAndPrefix() {
+        db.putAll(Arrays.asList(new KeyValueEntity("prefix_1_a", "a", "a"),
+                new KeyValueEntity("prefix_1_b", "b", "b"), new KeyValueEntity("prefix_2_a", "c", "a")));
+        List<KeyValueEntity> entities = db.findAll("prefix_1_");
+        Assert.assertEquals(2, entities.size());
+        Assert.assertEquals("prefix_1_a", entities.get(0).getKey());
+        Assert.assertEquals("b", entities.get(1).getJsonValue());
+        Assert.assertEquals(3, db.findAll("prefix_").size());
+        db.findAll("prefix_").forEach(keyValue -> db.remove(keyValue.getKey()));
+    }
+
+    @Test
+    public void testBinaryOffset() {
+        OffsetProfile offset = new OffsetProfile("task", "/data/log/测试.log", 100L, "inode");
+        offset.setLastUpdateTime(1000L);
+        db.put(new KeyValueEntity("offset_binary", offset.toBytes(), offset.getInstanceId()));
+        OffsetProfile result = db.get("offset_binary").getAsOffsetProfile();
+        Assert.assertEquals("task", result.getTaskId());
+        Assert.assertEquals("/data/log/测试.log", result.getInstanceId());
+        Assert.assertEquals(100L, (long) result.getOffset());
+        Assert.assertEquals("inode", result.getInodeInfo());
+        Assert.assertEquals(1000L, result.getLastUpdateTime());
+        db.remove("offset_binary");
+    }
+
+    @Test
+    public void testBinaryInstance() {
+        InstanceProfile instance = new InstanceProfile();
+        instance.set(TaskConstants.TASK_ID, "task");
+        instance.set(TaskConstants.INSTANCE_ID, "/data/log/测试.log");
+        instance.setState(InstanceStateEnum.FINISHED);
+        instance.setFileUpdateTime(1000L);
+        instance.setBoolean("retry", true);
+        db.put(new KeyValueEntity("instance_binary", instance.toBytes(), instance.getInstanceId()));
+        InstanceProfile result = db.get("instance_binary").getAsInstanceProfile();
+        Assert.assertEquals("/data/log/测试.log", result.getInstanceId());
+        Assert.assertEquals(InstanceStateEnum.FINISHED, result.getState());
+        Assert.assertEquals(1000L, result.getFileUpdateTime());
+        Assert.assertTrue(result.getBoolean("retry", false));
+        // the json form keeps the value types
+        Assert.assertEquals(JsonParser.parseString(instance.toJsonStr()), JsonParser.parseString(result.toJsonStr()));
+        db.remove("instance_binary");
+    }
+
+    @Test
+    public void testMigrateJson() throws Exception {
+        Field field = RocksDbImp.class.getDeclaredField("db");
+        field.setAccessible(true);
+        RocksDB rocksDB = (RocksDB) field.get(db);
+        KeyValueEntity entity = new KeyValueEntity("legacy_1", "{\"offset\":\"1\"}", "legacy");
+        entity.setStateSearchKey(StateSearchKey.RUNNING);
+        rocksDB.put("legacy_1".getBytes(), new Gson().toJson(entity).getBytes(StandardCharsets.UTF_8));
+
+        List<KeyValueEntity> entities = db.findAll("legacy_");
+        Assert.assertEquals(1, entities.size());
+        Assert.assertEquals(StateSearchKey.RUNNING, entities.get(0).getStateSearchKey());
+        Assert.assertEquals("1", entities.get(0).getAsOffsetProfile().get("offset"));
+        // rewritten in binary form on read
+        Assert.assertFalse(KeyValueEntityCodec.isLegacy(rocksDB.get("legacy_1".getBytes())));
+        KeyValueEntity migrated = db.get("legacy_1");
+        Assert.assertEquals("legacy", migrated.getFileName());
+        Assert.assertEquals("{\"offset\":\"1\"}", migrated.getJsonValue());
+        db.remove("legacy_1");
+    }
+
+    @Test
+    public void testKeepJsonFormat() throws Exception {
+        Field field = RocksDbImp.class.getDeclaredField("db");
+        field.setAccessible(true);
+        RocksDB rocksDB = (RocksDB) field.get(db);
+        AgentConfiguration.getAgentConf().setBoolean(AgentConstants.AGENT_DB_JSON_FORMAT, true);
+        try {
+            KeyValueEntity entity = new KeyValueEntity("legacy_2", "{\"offset\":\"1\"}", "legacy");
+            rocksDB.put("legacy_2".getBytes(), new Gson().toJson(entity).getBytes(StandardCharsets.UTF_8));
+            // neither rewritten on read nor written in binary form, so a former version can read them
+            Assert.assertEquals(1, db.findAll("legacy_").size());
+            Assert.assertTrue(KeyValueEntityCodec.isLegacy(rocksDB.get("legacy_2".getBytes())));
+
+            OffsetProfile offset = new OffsetProfile("task", "/data/log/test.log", 100L, "inode");
+            new OffsetDb(db).setOffset(offset);
+            byte[] bytes = rocksDB.get("offset_task_/data/log/test.log".getBytes());
+            Assert.assertNotNull(bytes);
+            KeyValueEntity stored = new Gson().fromJson(new String(bytes, StandardCharsets.UTF_8),
+                    KeyValueEntity.class);
+            Assert.assertEquals(100L, (long) stored.getAsOffsetProfile().getOffset());
+        } finally {
+            AgentConfiguration.getAgentConf().setBoolean(AgentConstants.AGENT_DB_JSON_FORMAT, false);
+        }
+        db.remove("legacy_2");
+        db.remove("offset_task_/data/log/test.log");
+    }
 }
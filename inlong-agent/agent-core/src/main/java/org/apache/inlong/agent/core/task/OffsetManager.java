@@ -29,20 +29,32 @@ import org.apache.inlong.agent.utils.ThreadUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * used to store instance offset to db
  * where key is task id + read file name and value is instance offset
+ *
+ * The offsets set are kept in memory and written to db in one batch periodically.
  */
 public class OffsetManager extends AbstractDaemon {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OffsetManager.class);
     public static final int CORE_THREAD_SLEEP_TIME = 60 * 1000;
+    public static final int FLUSH_INTERVAL_MS = 1000;
     private static volatile OffsetManager offsetManager = null;
     private final OffsetDb offsetDb;
     // instance in db
     private final InstanceDb instanceDb;
+    // offsets not written to db yet
+    private final Map<String, OffsetProfile> pendingOffsets = new ConcurrentHashMap<>();
+    private final Object flushSignal = new Object();
+    private volatile boolean flushRunning = false;
+    private volatile CompletableFuture<?> flushWorker;
 
     private OffsetManager(Db offsetBasicDb, Db instanceBasicDb) {
         this.offsetDb = new OffsetDb(offsetBasicDb);
@@ -80,6 +92,30 @@ public class OffsetManager extends AbstractDaemon {
         };
     }
 
+    /**
+     * thread for flushing the offsets.
+     *
+     * @return runnable profile.
+     */
+    private Runnable flushThread() {
+        return () -> {
+            Thread.currentThread().setName("offset-manager-flush");
+            while (flushRunning) {
+                try {
+                    synchronized (flushSignal) {
+                        if (flushRunning) {
+                            flushSignal.wait(FLUSH_INTERVAL_MS);
+                        }
+                    }
+                    flushOffsets();
+                } catch (Throwable ex) {
+                    LOGGER.error("offset-manager-flush: ", ex);
+                    ThreadUtils.threadThrowableHandler(Thread.currentThread(), ex);
+                }
+            }
+        };
+    }
+
     /**
      * task position manager singleton, can only generated by agent manager
      */
@@ -104,24 +140,70 @@ public class OffsetManager extends AbstractDaemon {
     }
 
     public void setOffset(OffsetProfile profile) {
-        offsetDb.setOffset(profile);
+        pendingOffsets.put(getKey(profile.getTaskId(), profile.getInstanceId()), profile);
     }
 
-    public void deleteOffset(String taskId, String instanceId) {
+    public synchronized void deleteOffset(String taskId, String instanceId) {
+        pendingOffsets.remove(getKey(taskId, instanceId));
         offsetDb.deleteOffset(taskId, instanceId);
     }
 
     public OffsetProfile getOffset(String taskId, String instanceId) {
+        OffsetProfile profile = pendingOffsets.get(getKey(taskId, instanceId));
+        if (profile != null) {
+            return profile;
+        }
         return offsetDb.getOffset(taskId, instanceId);
     }
 
+    /**
+     * write the pending offsets to db in one batch
+     */
+    public synchronized void flushOffsets() {
+        if (pendingOffsets.isEmpty()) {
+            return;
+        }
+        List<OffsetProfile> offsets = new ArrayList<>(pendingOffsets.values());
+        offsetDb.setOffsets(offsets);
+        // keep the ones set again during the write
+        offsets.forEach(offset -> pendingOffsets.remove(getKey(offset.getTaskId(), offset.getInstanceId()), offset));
+    }
+
+    private String getKey(String taskId, String instanceId) {
+        return taskId + "_" + instanceId;
+    }
+
     @Override
     public void start() throws Exception {
         submitWorker(coreThread());
+        synchronized (flushSignal) {
+            if (flushWorker == null) {
+                flushRunning = true;
+                flushWorker = submitWorker(flushThread());
+            }
+        }
     }
 
+    /**
+     * stop the flush thread and write the offsets left
+     */
     @Override
     public void stop() throws Exception {
+        CompletableFuture<?> worker;
+        synchronized (flushSignal) {
+            worker = flushWorker;
+            flushWorker = null;
+            flushRunning = false;
+            flushSignal.notifyAll();
+        }
+        if (worker != null) {
+            worker.join();
+        }
+        flushOffsets();
+    }
 
+    boolean isFlushRunning() {
+        CompletableFuture<?> worker = flushWorker;
+        return worker != null && !worker.isDone();
     }
 }
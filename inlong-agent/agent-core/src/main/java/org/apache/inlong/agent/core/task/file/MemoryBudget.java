@@ -0,0 +1,427 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.core.task.file;
+
+import org.apache.inlong.agent.utils.AgentUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A byte budget shared by the tasks and their instances.
+ *
+ * The bytes are accounted at three levels, the global budget, the share of a task and
+ * the share of an instance. The shares are work conserving, they only bound a caller
+ * while another task or instance waits, so a single busy file can use the whole budget.
+ * Once the others wait, an acquire succeeds only if it fits at all the levels, so a noisy
+ * instance is throttled by its own share while the bytes it releases go to the others. A
+ * request larger than a share is granted when nothing else is held in that share, so a
+ * large line still makes progress.
+ *
+ * The callers failing to acquire are queued in order, and called back when the bytes
+ * they wait for are released. The first queued caller waiting for the global budget
+ * reserves it, the later callers can not take the bytes it needs, so a caller retrying
+ * often does not starve the others.
+ */
+public class MemoryBudget {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MemoryBudget.class);
+    // a waiter not retrying for this time is dropped, its caller has gone
+    private static final long WAITER_EXPIRE_MS = 10 * 1000L;
+    private static final String KEY_SEPARATOR = "\u0001";
+
+    private final String name;
+    private final long limit;
+    private final long taskLimit;
+    private final long instanceLimit;
+    private long used = 0;
+    private long highWater = 0;
+    private final Map<String, Share> taskShares = new HashMap<>();
+    private final Map<String, Share> instanceShares = new HashMap<>();
+    // key is the task and the instance of the waiter, in the order of arrival
+    private final LinkedHashMap<String, Waiter> waiters = new LinkedHashMap<>();
+    // the count of the waiters of each task
+    private final Map<String, Integer> taskWaiterCounts = new HashMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param name            the budget name
+     * @param limit           the global budget in bytes
+     * @param taskPercent     the share of a task, in percent of the global budget
+     * @param instancePercent the share of an instance, in percent of the global budget
+     */
+    public MemoryBudget(String name, long limit, int taskPercent, int instancePercent) {
+        this.name = name;
+        this.limit = limit;
+        this.taskLimit = Math.max(1, limit * Math.min(100, Math.max(1, taskPercent)) / 100);
+        this.instanceLimit = Math.min(taskLimit,
+                Math.max(1, limit * Math.min(100, Math.max(1, instancePercent)) / 100));
+    }
+
+    /**
+     * Acquire bytes from the global budget only
+     */
+    public synchronized boolean tryAcquire(long bytes) {
+        if (used + bytes > limit || reservedByWaiter(null, bytes)) {
+            return false;
+        }
+        take(null, null, bytes);
+        return true;
+    }
+
+    /**
+     * Acquire bytes for an instance without blocking
+     *
+     * @param taskId      the task id
+     * @param instanceId  the instance id
+     * @param bytes       the bytes to acquire
+     * @param onAvailable called once the bytes may be available after a failure, the
+     *                    caller should try again then, null not to wait
+     * @return true if acquired
+     */
+    public boolean tryAcquire(String taskId, String instanceId, long bytes, Runnable onAvailable) {
+        List<Runnable> callbacks = null;
+        boolean acquired;
+        synchronized (this) {
+            String key = key(taskId, instanceId);
+            Waiter self = waiters.get(key);
+            acquired = fitShares(taskId, key, bytes) && used + bytes <= limit && !reservedByWaiter(self, bytes);
+            if (acquired) {
+                take(taskId, key, bytes);
+                if (self != null) {
+                    removeWaiter(key);
+                    // the bytes left may be enough for the next waiters
+                    callbacks = collectAvailable();
+                }
+            } else if (onAvailable != null) {
+                if (self == null) {
+                    self = new Waiter(taskId, key);
+                    waiters.put(key, self);
+                    taskWaiterCounts.merge(taskId, 1, Integer::sum);
+                }
+                self.bytes = bytes;
+                self.callback = onAvailable;
+                self.notified = false;
+                self.expireTime = AgentUtils.getCurrentTime() + WAITER_EXPIRE_MS;
+            }
+        }
+        runCallbacks(callbacks);
+        return acquired;
+    }
+
+    /**
+     * Acquire bytes for an instance, wait in order with the other callers
+     *
+     * @return true if acquired before the timeout
+     */
+    public boolean acquire(String taskId, String instanceId, long bytes, long timeoutMs)
+            throws InterruptedException {
+        return acquire(taskId, instanceId, bytes, timeoutMs, new AvailableSignal());
+    }
+
+    /**
+     * Acquire bytes for an instance, wait in order with the other callers
+     *
+     * @param signal the signal the caller waits on, kept by the caller to be reused
+     * @return true if acquired before the timeout
+     */
+    public boolean acquire(String taskId, String instanceId, long bytes, long timeoutMs, AvailableSignal signal)
+            throws InterruptedException {
+        long deadline = AgentUtils.getCurrentTime() + timeoutMs;
+        while (true) {
+            signal.reset();
+            if (tryAcquire(taskId, instanceId, bytes, signal)) {
+                return true;
+            }
+            long left = deadline - AgentUtils.getCurrentTime();
+            if (left <= 0 || !signal.await(left)) {
+                cancelWait(taskId, instanceId);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Release bytes to the global budget only
+     */
+    public void release(long bytes) {
+        release(null, null, bytes);
+    }
+
+    /**
+     * Release bytes acquired for an instance, the waiters the bytes are enough for are
+     * called back
+     */
+    public void release(String taskId, String instanceId, long bytes) {
+        List<Runnable> callbacks;
+        synchronized (this) {
+            used = Math.max(0, used - bytes);
+            if (taskId != null) {
+                Share taskShare = taskShares.get(taskId);
+                if (taskShare != null) {
+                    taskShare.used = Math.max(0, taskShare.used - bytes);
+                }
+                String key = key(taskId, instanceId);
+                Share instanceShare = instanceShares.get(key);
+                if (instanceShare != null) {
+                    instanceShare.used = Math.max(0, instanceShare.used - bytes);
+                    if (instanceShare.used == 0) {
+                        instanceShares.remove(key);
+                    }
+                }
+            }
+            callbacks = collectAvailable();
+        }
+        runCallbacks(callbacks);
+    }
+
+    /**
+     * Stop waiting for an instance, such as when it is destroyed
+     */
+    public void cancelWait(String taskId, String instanceId) {
+        List<Runnable> callbacks;
+        synchronized (this) {
+            if (removeWaiter(key(taskId, instanceId)) == null) {
+                return;
+            }
+            callbacks = collectAvailable();
+        }
+        runCallbacks(callbacks);
+    }
+
+    /**
+     * Forget the usage record of a task, such as when it is deleted
+     */
+    public synchronized void removeTask(String taskId) {
+        Share taskShare = taskShares.get(taskId);
+        if (taskShare != null && taskShare.used == 0) {
+            taskShares.remove(taskId);
+        }
+    }
+
+    public synchronized long getLeft() {
+        return limit - used;
+    }
+
+    public synchronized long getUsed() {
+        return used;
+    }
+
+    public synchronized long getHighWater() {
+        return highWater;
+    }
+
+    public synchronized int getWaitCount() {
+        return waiters.size();
+    }
+
+    public synchronized long getTaskUsed(String taskId) {
+        Share taskShare = taskShares.get(taskId);
+        return taskShare == null ? 0 : taskShare.used;
+    }
+
+    /**
+     * the max bytes a task held at the same time
+     */
+    public synchronized long getTaskHighWater(String taskId) {
+        Share taskShare = taskShares.get(taskId);
+        return taskShare == null ? 0 : taskShare.highWater;
+    }
+
+    /**
+     * print the usage of the budget and of each task
+     */
+    public synchronized void printTasks() {
+        LOGGER.info("{} used {} left {} high water {} wait {}", name, used, limit - used, highWater,
+                waiters.size());
+        for (Map.Entry<String, Share> entry : taskShares.entrySet()) {
+            LOGGER.info("{} task {} used {} high water {} limit {}", name, entry.getKey(),
+                    entry.getValue().used, entry.getValue().highWater, taskLimit);
+        }
+    }
+
+    /**
+     * whether the bytes fit the shares of the caller, a share is only enforced while
+     * another task, or another instance, waits
+     */
+    private boolean fitShares(String taskId, String key, long bytes) {
+        int waitCount = waiters.size();
+        if (waitCount == 0) {
+            return true;
+        }
+        Share taskShare = taskShares.get(taskId);
+        if (waitCount > taskWaiterCounts.getOrDefault(taskId, 0)
+                && taskShare != null && taskShare.used > 0 && taskShare.used + bytes > taskLimit) {
+            return false;
+        }
+        if (waitCount == 1 && waiters.containsKey(key)) {
+            return true;
+        }
+        Share instanceShare = instanceShares.get(key);
+        return instanceShare == null || instanceShare.used == 0 || instanceShare.used + bytes <= instanceLimit;
+    }
+
+    private Waiter removeWaiter(String key) {
+        Waiter waiter = waiters.remove(key);
+        if (waiter != null) {
+            onWaiterRemoved(waiter);
+        }
+        return waiter;
+    }
+
+    private void onWaiterRemoved(Waiter waiter) {
+        taskWaiterCounts.computeIfPresent(waiter.taskId, (k, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * whether the bytes are reserved by the first waiter ahead of the caller that waits for
+     * the global budget
+     */
+    private boolean reservedByWaiter(Waiter self, long bytes) {
+        long now = AgentUtils.getCurrentTime();
+        Iterator<Waiter> iterator = waiters.values().iterator();
+        while (iterator.hasNext()) {
+            Waiter waiter = iterator.next();
+            if (waiter == self) {
+                return false;
+            }
+            if (waiter.expireTime < now) {
+                iterator.remove();
+                onWaiterRemoved(waiter);
+                continue;
+            }
+            if (fitShares(waiter.taskId, waiter.key, waiter.bytes)) {
+                return limit - used - bytes < waiter.bytes;
+            }
+        }
+        return false;
+    }
+
+    private void take(String taskId, String key, long bytes) {
+        used += bytes;
+        highWater = Math.max(highWater, used);
+        if (taskId == null) {
+            return;
+        }
+        Share taskShare = taskShares.computeIfAbsent(taskId, k -> new Share());
+        taskShare.used += bytes;
+        taskShare.highWater = Math.max(taskShare.highWater, taskShare.used);
+        instanceShares.computeIfAbsent(key, k -> new Share()).used += bytes;
+    }
+
+    /**
+     * Find the waiters the bytes left are enough for in order, the waiters blocked by
+     * their own shares do not stop the later ones
+     */
+    private List<Runnable> collectAvailable() {
+        List<Runnable> callbacks = null;
+        long available = limit - used;
+        for (Waiter waiter : waiters.values()) {
+            if (!fitShares(waiter.taskId, waiter.key, waiter.bytes)) {
+                continue;
+            }
+            if (waiter.bytes > available) {
+                break;
+            }
+            available -= waiter.bytes;
+            if (!waiter.notified) {
+                waiter.notified = true;
+                if (callbacks == null) {
+                    callbacks = new ArrayList<>();
+                }
+                callbacks.add(waiter.callback);
+            }
+        }
+        return callbacks;
+    }
+
+    private void runCallbacks(List<Runnable> callbacks) {
+        if (callbacks == null) {
+            return;
+        }
+        for (Runnable callback : callbacks) {
+            try {
+                callback.run();
+            } catch (Throwable e) {
+                LOGGER.error("{} memory available callback error", name, e);
+            }
+        }
+    }
+
+    private static String key(String taskId, String instanceId) {
+        return taskId + KEY_SEPARATOR + instanceId;
+    }
+
+    /**
+     * bytes held by a task or an instance
+     */
+    private static class Share {
+
+        private long used = 0;
+        private long highWater = 0;
+    }
+
+    /**
+     * an instance waiting for bytes
+     */
+    private static class Waiter {
+
+        private final String taskId;
+        private final String key;
+        private long bytes;
+        private Runnable callback;
+        private boolean notified;
+        private long expireTime;
+
+        private Waiter(String taskId, String key) {
+            this.taskId = taskId;
+            this.key = key;
+        }
+    }
+
+    /**
+     * reusable signal of a caller blocked in acquire, one per waiting thread
+     */
+    public static class AvailableSignal implements Runnable {
+
+        private final Semaphore available = new Semaphore(0);
+
+        @Override
+        public void run() {
+            available.release();
+        }
+
+        private void reset() {
+            available.drainPermits();
+        }
+
+        private boolean await(long timeoutMs) throws InterruptedException {
+            return available.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+    }
+}
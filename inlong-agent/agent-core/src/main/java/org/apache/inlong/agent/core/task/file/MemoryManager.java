@@ -24,44 +24,53 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Semaphore;
 
+import static org.apache.inlong.agent.constant.FetcherConstants.AGENT_GLOBAL_PERMIT_INSTANCE_PERCENT;
+import static org.apache.inlong.agent.constant.FetcherConstants.AGENT_GLOBAL_PERMIT_TASK_PERCENT;
 import static org.apache.inlong.agent.constant.FetcherConstants.AGENT_GLOBAL_READER_QUEUE_PERMIT;
 import static org.apache.inlong.agent.constant.FetcherConstants.AGENT_GLOBAL_READER_SOURCE_PERMIT;
 import static org.apache.inlong.agent.constant.FetcherConstants.AGENT_GLOBAL_WRITER_PERMIT;
+import static org.apache.inlong.agent.constant.FetcherConstants.DEFAULT_AGENT_GLOBAL_PERMIT_INSTANCE_PERCENT;
+import static org.apache.inlong.agent.constant.FetcherConstants.DEFAULT_AGENT_GLOBAL_PERMIT_TASK_PERCENT;
 import static org.apache.inlong.agent.constant.FetcherConstants.DEFAULT_AGENT_GLOBAL_READER_QUEUE_PERMIT;
 import static org.apache.inlong.agent.constant.FetcherConstants.DEFAULT_AGENT_GLOBAL_READER_SOURCE_PERMIT;
 import static org.apache.inlong.agent.constant.FetcherConstants.DEFAULT_AGENT_GLOBAL_WRITER_PERMIT;
 
 /**
  * used to limit global memory to avoid oom
+ *
+ * Each permit is a byte budget shared by the tasks and their instances, see MemoryBudget.
+ * The methods with a task and an instance account the bytes to their shares too, and
+ * let the instance wait in order for the bytes instead of retrying.
  */
 public class MemoryManager {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MemoryManager.class);
     private static volatile MemoryManager memoryManager = null;
     private final AgentConfiguration conf;
-    private ConcurrentHashMap<String, Semaphore> semaphoreMap = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<String, MemoryBudget> budgetMap = new ConcurrentHashMap<>();
     private ConcurrentHashMap<String, Long> lastPrintTime = new ConcurrentHashMap<>();
     private static final int PRINT_INTERVAL_MS = 1000;
 
     private MemoryManager() {
         this.conf = AgentConfiguration.getAgentConf();
-        Semaphore semaphore = null;
-        semaphore = new Semaphore(
-                conf.getInt(AGENT_GLOBAL_READER_SOURCE_PERMIT, DEFAULT_AGENT_GLOBAL_READER_SOURCE_PERMIT));
-        semaphoreMap.put(AGENT_GLOBAL_READER_SOURCE_PERMIT, semaphore);
-        lastPrintTime.put(AGENT_GLOBAL_READER_SOURCE_PERMIT, 0L);
-
-        semaphore = new Semaphore(
-                conf.getInt(AGENT_GLOBAL_READER_QUEUE_PERMIT, DEFAULT_AGENT_GLOBAL_READER_QUEUE_PERMIT));
-        semaphoreMap.put(AGENT_GLOBAL_READER_QUEUE_PERMIT, semaphore);
-        lastPrintTime.put(AGENT_GLOBAL_READER_QUEUE_PERMIT, 0L);
-
-        semaphore = new Semaphore(
-                conf.getInt(AGENT_GLOBAL_WRITER_PERMIT, DEFAULT_AGENT_GLOBAL_WRITER_PERMIT));
-        semaphoreMap.put(AGENT_GLOBAL_WRITER_PERMIT, semaphore);
-        lastPrintTime.put(AGENT_GLOBAL_WRITER_PERMIT, 0L);
+        int taskPercent = conf.getInt(AGENT_GLOBAL_PERMIT_TASK_PERCENT, DEFAULT_AGENT_GLOBAL_PERMIT_TASK_PERCENT);
+        int instancePercent = conf.getInt(AGENT_GLOBAL_PERMIT_INSTANCE_PERCENT,
+                DEFAULT_AGENT_GLOBAL_PERMIT_INSTANCE_PERCENT);
+        addBudget(AGENT_GLOBAL_READER_SOURCE_PERMIT,
+                conf.getInt(AGENT_GLOBAL_READER_SOURCE_PERMIT, DEFAULT_AGENT_GLOBAL_READER_SOURCE_PERMIT),
+                taskPercent, instancePercent);
+        addBudget(AGENT_GLOBAL_READER_QUEUE_PERMIT,
+                conf.getInt(AGENT_GLOBAL_READER_QUEUE_PERMIT, DEFAULT_AGENT_GLOBAL_READER_QUEUE_PERMIT),
+                taskPercent, instancePercent);
+        addBudget(AGENT_GLOBAL_WRITER_PERMIT,
+                conf.getInt(AGENT_GLOBAL_WRITER_PERMIT, DEFAULT_AGENT_GLOBAL_WRITER_PERMIT),
+                taskPercent, instancePercent);
+    }
+
+    private void addBudget(String name, int limit, int taskPercent, int instancePercent) {
+        budgetMap.put(name, new MemoryBudget(name, limit, taskPercent, instancePercent));
+        lastPrintTime.put(name, 0L);
     }
 
     /**
@@ -79,49 +88,120 @@ public class MemoryManager {
     }
 
     public boolean tryAcquire(String semaphoreName, int permit) {
-        Semaphore semaphore = semaphoreMap.get(semaphoreName);
-        if (semaphore == null) {
-            LOGGER.error("tryAcquire {} not exist");
+        MemoryBudget budget = budgetMap.get(semaphoreName);
+        if (budget == null) {
+            LOGGER.error("tryAcquire {} not exist", semaphoreName);
+            return false;
+        }
+        return budget.tryAcquire(permit);
+    }
+
+    /**
+     * acquire permit for an instance without blocking
+     *
+     * @param onAvailable called once when the permit may be available after a failure, null not to wait
+     */
+    public boolean tryAcquire(String semaphoreName, String taskId, String instanceId, int permit,
+            Runnable onAvailable) {
+        MemoryBudget budget = budgetMap.get(semaphoreName);
+        if (budget == null) {
+            LOGGER.error("tryAcquire {} not exist", semaphoreName);
+            return false;
+        }
+        return budget.tryAcquire(taskId, instanceId, permit, onAvailable);
+    }
+
+    /**
+     * acquire permit for an instance, wait in order with the others until the timeout
+     */
+    public boolean acquire(String semaphoreName, String taskId, String instanceId, int permit, long timeoutMs)
+            throws InterruptedException {
+        return acquire(semaphoreName, taskId, instanceId, permit, timeoutMs, new MemoryBudget.AvailableSignal());
+    }
+
+    /**
+     * acquire permit for an instance, wait on the signal kept by the caller until the timeout
+     */
+    public boolean acquire(String semaphoreName, String taskId, String instanceId, int permit, long timeoutMs,
+            MemoryBudget.AvailableSignal signal) throws InterruptedException {
+        MemoryBudget budget = budgetMap.get(semaphoreName);
+        if (budget == null) {
+            LOGGER.error("acquire {} not exist", semaphoreName);
             return false;
         }
-        return semaphore.tryAcquire(permit);
+        return budget.acquire(taskId, instanceId, permit, timeoutMs, signal);
     }
 
     public void release(String semaphoreName, int permit) {
-        Semaphore semaphore = semaphoreMap.get(semaphoreName);
-        if (semaphore == null) {
-            LOGGER.error("release {} not exist");
+        MemoryBudget budget = budgetMap.get(semaphoreName);
+        if (budget == null) {
+            LOGGER.error("release {} not exist", semaphoreName);
             return;
         }
-        semaphore.release(permit);
+        budget.release(permit);
+    }
+
+    public void release(String semaphoreName, String taskId, String instanceId, int permit) {
+        MemoryBudget budget = budgetMap.get(semaphoreName);
+        if (budget == null) {
+            LOGGER.error("release {} not exist", semaphoreName);
+            return;
+        }
+        budget.release(taskId, instanceId, permit);
+    }
+
+    /**
+     * stop waiting for the permits, such as when the instance is destroyed
+     */
+    public void cancelWait(String taskId, String instanceId) {
+        budgetMap.values().forEach(budget -> budget.cancelWait(taskId, instanceId));
+    }
+
+    /**
+     * forget the usage records of a deleted task
+     */
+    public void removeTask(String taskId) {
+        budgetMap.values().forEach(budget -> budget.removeTask(taskId));
     }
 
     public int getLeft(String semaphoreName) {
-        Semaphore semaphore = semaphoreMap.get(semaphoreName);
-        if (semaphore == null) {
-            LOGGER.error("getLeft {} not exist");
+        MemoryBudget budget = budgetMap.get(semaphoreName);
+        if (budget == null) {
+            LOGGER.error("getLeft {} not exist", semaphoreName);
+            return -1;
+        }
+        return (int) budget.getLeft();
+    }
+
+    /**
+     * the max permit a task held at the same time
+     */
+    public long getTaskHighWater(String semaphoreName, String taskId) {
+        MemoryBudget budget = budgetMap.get(semaphoreName);
+        if (budget == null) {
+            LOGGER.error("getTaskHighWater {} not exist", semaphoreName);
             return -1;
         }
-        return semaphore.availablePermits();
+        return budget.getTaskHighWater(taskId);
     }
 
     public void printDetail(String semaphoreName, String detail) {
-        Semaphore semaphore = semaphoreMap.get(semaphoreName);
-        if (semaphore == null) {
+        MemoryBudget budget = budgetMap.get(semaphoreName);
+        if (budget == null) {
             LOGGER.error("printDetail {} not exist", semaphoreName);
             return;
         }
         if (AgentUtils.getCurrentTime() - lastPrintTime.get(semaphoreName) > PRINT_INTERVAL_MS) {
-            LOGGER.info("{} permit left {} wait {} {}", detail, semaphore.availablePermits(),
-                    semaphore.getQueueLength(),
+            LOGGER.info("{} permit left {} wait {} {}", detail, budget.getLeft(),
+                    budget.getWaitCount(),
                     semaphoreName);
             lastPrintTime.put(semaphoreName, AgentUtils.getCurrentTime());
         }
     }
 
     public void printAll() {
-        printDetail(AGENT_GLOBAL_READER_SOURCE_PERMIT, "printAll");
-        printDetail(AGENT_GLOBAL_READER_QUEUE_PERMIT, "printAll");
-        printDetail(AGENT_GLOBAL_WRITER_PERMIT, "printAll");
+        budgetMap.get(AGENT_GLOBAL_READER_SOURCE_PERMIT).printTasks();
+        budgetMap.get(AGENT_GLOBAL_READER_QUEUE_PERMIT).printTasks();
+        budgetMap.get(AGENT_GLOBAL_WRITER_PERMIT).printTasks();
     }
 }
@@ -506,6 +506,7 @@ public class TaskManager extends AbstractDaemon {
         }
         oldTask.destroy();
         taskMap.remove(oldTask.getTaskId());
+        MemoryManager.getInstance().removeTask(taskId);
         LOGGER.info(
                 "delete task {} from memory, taskMap size {}, runningPool task total {}, runningPool task active {}",
                 oldTask.getTaskId(), taskMap.size(), runningPool.getTaskCount(),
@@ -532,5 +533,6 @@ public class TaskManager extends AbstractDaemon {
         stopAllTasks();
         waitForTerminate();
         runningPool.shutdown();
+        OffsetManager.getInstance().stop();
     }
 }
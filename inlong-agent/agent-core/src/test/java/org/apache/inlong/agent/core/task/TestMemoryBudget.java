@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.core.task;
+
+import org.apache.inlong.agent.core.task.file.MemoryBudget;
+import org.apache.inlong.agent.utils.AgentUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestMemoryBudget {
+
+    @Test
+    public void testShares() {
+        // task share 50, instance share 25
+        MemoryBudget budget = new MemoryBudget("test", 100, 50, 25);
+        // nothing waits, a single instance can use the whole budget
+        Assert.assertTrue(budget.tryAcquire("task1", "file1", 20, null));
+        Assert.assertTrue(budget.tryAcquire("task1", "file1", 60, null));
+        Assert.assertEquals(80, budget.getTaskUsed("task1"));
+
+        // another task waits, the task over its share can take no more of the bytes released
+        AtomicInteger wakeUpCount = new AtomicInteger(0);
+        Assert.assertFalse(budget.tryAcquire("task2", "file1", 30, wakeUpCount::incrementAndGet));
+        budget.release("task1", "file1", 20);
+        Assert.assertEquals(1, wakeUpCount.get());
+        Assert.assertFalse(budget.tryAcquire("task1", "file2", 5, null));
+        Assert.assertTrue(budget.tryAcquire("task2", "file1", 30, null));
+        // no one waits any more
+        Assert.assertTrue(budget.tryAcquire("task1", "file2", 5, null));
+        budget.release("task1", "file2", 5);
+        budget.release("task2", "file1", 30);
+
+        // another instance of the task waits, the instance over its share can take no more
+        Assert.assertTrue(budget.tryAcquire("task1", "file1", 30, null));
+        Assert.assertFalse(budget.tryAcquire("task1", "file2", 20, wakeUpCount::incrementAndGet));
+        budget.release("task1", "file1", 50);
+        Assert.assertEquals(2, wakeUpCount.get());
+        Assert.assertFalse(budget.tryAcquire("task1", "file1", 10, null));
+        // a request larger than the share is granted if nothing is held in the share
+        Assert.assertTrue(budget.tryAcquire("task3", "file1", 30, null));
+        Assert.assertTrue(budget.tryAcquire("task1", "file2", 20, null));
+        Assert.assertEquals(0, budget.getWaitCount());
+        Assert.assertEquals(90, budget.getTaskHighWater("task1"));
+        budget.release("task1", "file1", 40);
+        budget.release("task1", "file2", 20);
+        budget.release("task3", "file1", 30);
+        Assert.assertEquals(100, budget.getLeft());
+        Assert.assertEquals(0, budget.getTaskUsed("task1"));
+        Assert.assertEquals(95, budget.getHighWater());
+    }
+
+    @Test
+    public void testFairWait() throws Exception {
+        MemoryBudget budget = new MemoryBudget("test", 100, 100, 100);
+        Assert.assertTrue(budget.tryAcquire("task1", "file1", 90, null));
+        AtomicInteger wakeUpCount = new AtomicInteger(0);
+        // the first waiter reserves the bytes it needs
+        Assert.assertFalse(budget.tryAcquire("task2", "file1", 50, wakeUpCount::incrementAndGet));
+        Assert.assertEquals(1, budget.getWaitCount());
+        budget.release("task1", "file1", 40);
+        Assert.assertEquals(1, wakeUpCount.get());
+        Assert.assertFalse(budget.tryAcquire("task3", "file1", 10, null));
+        Assert.assertTrue(budget.tryAcquire("task2", "file1", 50, null));
+        Assert.assertEquals(0, budget.getWaitCount());
+        // a blocking acquire times out and leaves the queue
+        Assert.assertFalse(budget.acquire("task3", "file2", 10, 10));
+        Assert.assertEquals(0, budget.getWaitCount());
+        budget.release("task1", "file1", 50);
+        // no waiter, the bytes left can be taken
+        Assert.assertTrue(budget.tryAcquire("task3", "file1", 10, null));
+        budget.release("task2", "file1", 50);
+        budget.release("task3", "file1", 10);
+        Assert.assertEquals(100, budget.getLeft());
+    }
+
+    @Test
+    public void testReusedSignal() throws Exception {
+        MemoryBudget budget = new MemoryBudget("test", 100, 100, 100);
+        MemoryBudget.AvailableSignal signal = new MemoryBudget.AvailableSignal();
+        Assert.assertTrue(budget.tryAcquire("task1", "file1", 100, null));
+        for (int i = 0; i < 3; i++) {
+            // a wake up left from the former wait does not return early
+            signal.run();
+            Thread releaser = new Thread(() -> {
+                AgentUtils.silenceSleepInMs(50);
+                budget.release("task1", "file1", 100);
+            });
+            releaser.start();
+            Assert.assertTrue(budget.acquire("task2", "file1", 60, 5000, signal));
+            releaser.join();
+            Assert.assertEquals(0, budget.getWaitCount());
+            budget.release("task2", "file1", 60);
+            Assert.assertTrue(budget.tryAcquire("task1", "file1", 100, null));
+        }
+        Assert.assertFalse(budget.acquire("task2", "file1", 60, 10, signal));
+        Assert.assertEquals(0, budget.getWaitCount());
+        budget.release("task1", "file1", 100);
+        Assert.assertEquals(100, budget.getLeft());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.core.task;
+
+import org.apache.inlong.agent.conf.OffsetProfile;
+import org.apache.inlong.agent.constant.AgentConstants;
+import org.apache.inlong.agent.core.AgentBaseTestsHelper;
+import org.apache.inlong.agent.core.task.file.TaskManager;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestOffsetManager {
+
+    private static AgentBaseTestsHelper helper;
+
+    @BeforeClass
+    public static void setup() {
+        helper = new AgentBaseTestsHelper(TestOffsetManager.class.getName()).setupAgentHome();
+        OffsetManager.init(TaskManager.initDb(AgentConstants.AGENT_LOCAL_DB_PATH_OFFSET),
+                TaskManager.initDb(AgentConstants.AGENT_LOCAL_DB_PATH_INSTANCE));
+    }
+
+    @AfterClass
+    public static void teardown() {
+        helper.teardownAgentHome();
+    }
+
+    @Test
+    public void testStopFlushThread() throws Exception {
+        OffsetManager manager = OffsetManager.getInstance();
+        manager.start();
+        Assert.assertTrue(manager.isFlushRunning());
+        manager.setOffset(new OffsetProfile("offset-task", "/data/offset.log", 10L, "inode"));
+        // the flush thread is joined, and the offsets left are written
+        manager.stop();
+        Assert.assertFalse(manager.isFlushRunning());
+        Assert.assertEquals(10L, (long) manager.getOffset("offset-task", "/data/offset.log").getOffset());
+
+        // started again after stopped
+        manager.start();
+        Assert.assertTrue(manager.isFlushRunning());
+        manager.setOffset(new OffsetProfile("offset-task", "/data/offset.log", 20L, "inode"));
+        manager.stop();
+        Assert.assertFalse(manager.isFlushRunning());
+        Assert.assertEquals(20L, (long) manager.getOffset("offset-task", "/data/offset.log").getOffset());
+        manager.deleteOffset("offset-task", "/data/offset.log");
+        Assert.assertNull(manager.getOffset("offset-task", "/data/offset.log"));
+    }
+}
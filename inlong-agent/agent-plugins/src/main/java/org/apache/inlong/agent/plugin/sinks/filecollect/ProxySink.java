@@ -22,6 +22,7 @@ import org.apache.inlong.agent.conf.InstanceProfile;
 import org.apache.inlong.agent.conf.OffsetProfile;
 import org.apache.inlong.agent.constant.CommonConstants;
 import org.apache.inlong.agent.core.task.OffsetManager;
+import org.apache.inlong.agent.core.task.file.MemoryBudget;
 import org.apache.inlong.agent.core.task.file.MemoryManager;
 import org.apache.inlong.agent.message.EndMessage;
 import org.apache.inlong.agent.message.filecollect.OffsetAckInfo;
@@ -58,6 +59,7 @@ public class ProxySink extends AbstractSink {
     private static final Logger LOGGER = LoggerFactory.getLogger(ProxySink.class);
     private final int WRITE_FAILED_WAIT_TIME_MS = 10;
     private final int DESTROY_LOOP_WAIT_TIME_MS = 10;
+    private final int WRITER_PERMIT_WAIT_TIME_MS = 100;
     public final int SAVE_OFFSET_INTERVAL_MS = 1000;
     private static final ThreadPoolExecutor EXECUTOR_SERVICE = new ThreadPoolExecutor(
             0, Integer.MAX_VALUE,
@@ -75,6 +77,8 @@ public class ProxySink extends AbstractSink {
     private final ReentrantReadWriteLock packageAckInfoLock = new ReentrantReadWriteLock(true);
     private volatile boolean offsetRunning = false;
     private OffsetManager offsetManager;
+    // reused by the writes waiting for the writer permit
+    private final MemoryBudget.AvailableSignal writerPermitSignal = new MemoryBudget.AvailableSignal();
 
     public ProxySink() {
     }
@@ -83,6 +87,10 @@ public class ProxySink extends AbstractSink {
     public void write(Message message) {
         boolean suc = false;
         while (!shutdown && !suc) {
+            if (Thread.currentThread().isInterrupted()) {
+                LOGGER.warn("write interrupted, stop writing to sink {}", sourceName);
+                return;
+            }
             suc = putInCache(message);
             if (!suc) {
                 AgentUtils.silenceSleepInMs(WRITE_FAILED_WAIT_TIME_MS);
@@ -102,8 +110,10 @@ public class ProxySink extends AbstractSink {
                 return true;
             }
             ProxyMessage proxyMessage = new ProxyMessage(message);
-            boolean writerPermitSuc = MemoryManager.getInstance()
-                    .tryAcquire(AGENT_GLOBAL_WRITER_PERMIT, message.getBody().length);
+            // wait in order with the other instances instead of retrying
+            boolean writerPermitSuc = MemoryManager.getInstance().acquire(AGENT_GLOBAL_WRITER_PERMIT,
+                    profile.getTaskId(), profile.getInstanceId(), message.getBody().length,
+                    WRITER_PERMIT_WAIT_TIME_MS, writerPermitSignal);
             if (!writerPermitSuc) {
                 MemoryManager.getInstance().printDetail(AGENT_GLOBAL_WRITER_PERMIT, "proxy sink");
                 return false;
@@ -114,11 +124,15 @@ public class ProxySink extends AbstractSink {
             if (suc) {
                 addAckInfo(proxyMessage.getAckInfo());
             } else {
-                MemoryManager.getInstance().release(AGENT_GLOBAL_WRITER_PERMIT, message.getBody().length);
+                MemoryManager.getInstance().release(AGENT_GLOBAL_WRITER_PERMIT, profile.getTaskId(),
+                        profile.getInstanceId(), message.getBody().length);
                 // increment the count of failed sinks
                 sinkMetric.sinkFailCount.incrementAndGet();
             }
             return suc;
+        } catch (InterruptedException e) {
+            LOGGER.warn("wait writer permit interrupted", e);
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             LOGGER.error("write message to Proxy sink error", e);
         } catch (Throwable t) {
@@ -261,7 +275,8 @@ public class ProxySink extends AbstractSink {
         for (int i = 0; i < ackInfoList.size();) {
             if (ackInfoList.get(i).getHasAck()) {
                 info = ackInfoList.remove(i);
-                MemoryManager.getInstance().release(AGENT_GLOBAL_WRITER_PERMIT, info.getLen());
+                MemoryManager.getInstance().release(AGENT_GLOBAL_WRITER_PERMIT, profile.getTaskId(),
+                        profile.getInstanceId(), info.getLen());
             } else {
                 break;
             }
@@ -279,7 +294,8 @@ public class ProxySink extends AbstractSink {
     private void clearOffset() {
         packageAckInfoLock.writeLock().lock();
         for (int i = 0; i < ackInfoList.size();) {
-            MemoryManager.getInstance().release(AGENT_GLOBAL_WRITER_PERMIT, ackInfoList.remove(i).getLen());
+            MemoryManager.getInstance().release(AGENT_GLOBAL_WRITER_PERMIT, profile.getTaskId(),
+                    profile.getInstanceId(), ackInfoList.remove(i).getLen());
         }
         packageAckInfoLock.writeLock().unlock();
     }
@@ -43,15 +43,23 @@ import org.slf4j.LoggerFactory;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.apache.inlong.agent.constant.CommonConstants.DEFAULT_PROXY_BATCH_FLUSH_INTERVAL;
+import static org.apache.inlong.agent.constant.CommonConstants.DEFAULT_PROXY_PACK_ONCE;
+import static org.apache.inlong.agent.constant.CommonConstants.DEFAULT_PROXY_RETRY_BACKOFF_BASE_MS;
+import static org.apache.inlong.agent.constant.CommonConstants.DEFAULT_PROXY_RETRY_BACKOFF_MAX_MS;
 import static org.apache.inlong.agent.constant.CommonConstants.PROXY_BATCH_FLUSH_INTERVAL;
+import static org.apache.inlong.agent.constant.CommonConstants.PROXY_PACK_ONCE;
+import static org.apache.inlong.agent.constant.CommonConstants.PROXY_RETRY_BACKOFF_BASE_MS;
+import static org.apache.inlong.agent.constant.CommonConstants.PROXY_RETRY_BACKOFF_MAX_MS;
 import static org.apache.inlong.agent.constant.FetcherConstants.AGENT_MANAGER_AUTH_SECRET_ID;
 import static org.apache.inlong.agent.constant.FetcherConstants.AGENT_MANAGER_AUTH_SECRET_KEY;
 import static org.apache.inlong.agent.constant.FetcherConstants.AGENT_MANAGER_VIP_HTTP_HOST;
@@ -69,9 +77,12 @@ public class SenderManager {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SenderManager.class);
     private static final SequentialID SEQUENTIAL_ID = SequentialID.getInstance();
+    private static final int MAX_BACKOFF_SHIFT = 20;
+    private static final int PACK_MSG_TYPE = 7;
     // cache for group and sender list, share the map cross agent lifecycle.
     private DefaultMessageSender sender;
-    private LinkedBlockingQueue<AgentSenderCallback> resendQueue;
+    // failed packs ordered by their resend time
+    private DelayQueue<AgentSenderCallback> resendQueue;
     private static final ThreadPoolExecutor EXECUTOR_SERVICE = new ThreadPoolExecutor(
             0, Integer.MAX_VALUE,
             1L, TimeUnit.SECONDS,
@@ -94,6 +105,9 @@ public class SenderManager {
     private final long maxSenderTimeout;
     private final int maxSenderRetry;
     private final long retrySleepTime;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+    private final boolean packOnce;
     private final String inlongGroupId;
     private final int maxSenderPerGroup;
     private final String sourcePath;
@@ -145,6 +159,10 @@ public class SenderManager {
         enableBusyWait = profile.getBoolean(CommonConstants.PROXY_CLIENT_ENABLE_BUSY_WAIT,
                 CommonConstants.DEFAULT_PROXY_CLIENT_ENABLE_BUSY_WAIT);
         batchFlushInterval = profile.getInt(PROXY_BATCH_FLUSH_INTERVAL, DEFAULT_PROXY_BATCH_FLUSH_INTERVAL);
+        backoffBaseMs = Math.max(1, profile.getLong(PROXY_RETRY_BACKOFF_BASE_MS, DEFAULT_PROXY_RETRY_BACKOFF_BASE_MS));
+        backoffMaxMs = Math.max(backoffBaseMs,
+                profile.getLong(PROXY_RETRY_BACKOFF_MAX_MS, DEFAULT_PROXY_RETRY_BACKOFF_MAX_MS));
+        packOnce = msgType == PACK_MSG_TYPE && profile.getBoolean(PROXY_PACK_ONCE, DEFAULT_PROXY_PACK_ONCE);
         authSecretId = conf.get(AGENT_MANAGER_AUTH_SECRET_ID);
         authSecretKey = conf.get(AGENT_MANAGER_AUTH_SECRET_KEY);
 
@@ -157,7 +175,7 @@ public class SenderManager {
                 String.valueOf(METRIC_INDEX.incrementAndGet()));
         this.metricItemSet = new AgentMetricItemSet(metricName);
         MetricRegister.register(metricItemSet);
-        resendQueue = new LinkedBlockingQueue<>();
+        resendQueue = new DelayQueue<>();
     }
 
     public void Start() throws Exception {
@@ -230,18 +248,20 @@ public class SenderManager {
             AgentUtils.silenceSleepInMs(retrySleepTime);
         }
         if (!shutdown) {
-            sendBatchWithRetryCount(message, 0);
+            sendBatchWithRetryCount(message, 0, null);
         }
     }
 
     /**
      * Send message to proxy by batch, use message cache.
+     *
+     * @param packedBody the body packed by a former try, null if not packed yet
      */
-    private void sendBatchWithRetryCount(SenderMessage message, int retry) {
+    private void sendBatchWithRetryCount(SenderMessage message, int retry, byte[] packedBody) {
         boolean suc = false;
         while (!suc) {
+            AgentSenderCallback cb = new AgentSenderCallback(message, retry, packedBody);
             try {
-                AgentSenderCallback cb = new AgentSenderCallback(message, retry);
                 asyncSendByMessageSender(cb, message.getDataList(), message.getGroupId(),
                         message.getStreamId(), message.getDataTime(), SEQUENTIAL_ID.getNextUuid(),
                         maxSenderTimeout, TimeUnit.SECONDS, message.getExtraMap(), proxySend);
@@ -257,21 +277,46 @@ public class SenderManager {
                 } else {
                     LOGGER.error("Exception caught", exception);
                 }
+                packedBody = cb.packedBody;
                 retry++;
-                AgentUtils.silenceSleepInMs(retrySleepTime);
+                AgentUtils.silenceSleepInMs(getBackoffMs(retry));
             }
         }
     }
 
-    private void asyncSendByMessageSender(SendMessageCallback cb,
+    private void asyncSendByMessageSender(AgentSenderCallback cb,
             List<byte[]> bodyList, String groupId, String streamId, long dataTime, String msgUUID,
             long timeout, TimeUnit timeUnit,
             Map<String, String> extraAttrMap, boolean isProxySend) throws ProxysdkException {
-        sender.asyncSendMessage(cb, bodyList, groupId,
+        if (!packOnce) {
+            sender.asyncSendMessage(cb, bodyList, groupId,
+                    streamId, dataTime, msgUUID,
+                    timeout, timeUnit, extraAttrMap, isProxySend);
+            return;
+        }
+        // the pack is encoded and compressed at the first try only, the resends reuse it
+        if (cb.packedBody == null) {
+            cb.packedBody = sender.packMessage(bodyList);
+        }
+        sender.asyncSendPackedMessage(cb, cb.packedBody, bodyList.size(), groupId,
                 streamId, dataTime, msgUUID,
                 timeout, timeUnit, extraAttrMap, isProxySend);
     }
 
+    /**
+     * Get the wait time before the next try of a pack, it grows exponentially with the
+     * retry count up to the max backoff. Half of it is random, so the packs failed
+     * together, like all the packs sent to a broken proxy, are not resent together.
+     *
+     * @param retry the retry count of the pack
+     * @return wait time in milliseconds
+     */
+    long getBackoffMs(int retry) {
+        long ceiling = Math.min(backoffMaxMs, backoffBaseMs << Math.min(Math.max(retry, 0), MAX_BACKOFF_SHIFT));
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+
     /**
      * flushResendQueue
      *
@@ -287,14 +332,12 @@ public class SenderManager {
                 try {
                     AgentSenderCallback callback = resendQueue.poll(1, TimeUnit.SECONDS);
                     if (callback != null) {
-                        sendBatchWithRetryCount(callback.message, callback.retry + 1);
+                        sendBatchWithRetryCount(callback.message, callback.retry + 1, callback.packedBody);
                     }
                 } catch (Exception ex) {
                     LOGGER.error("error caught", ex);
                 } catch (Throwable t) {
                     ThreadUtils.threadThrowableHandler(Thread.currentThread(), t);
-                } finally {
-                    AgentUtils.silenceSleepInMs(batchFlushInterval);
                 }
             }
             LOGGER.info("stop flush resend queue {}:{}", inlongGroupId, sourcePath);
@@ -303,12 +346,13 @@ public class SenderManager {
     }
 
     /**
-     * put the data into resend queue and will be resent later.
+     * put the data into resend queue and will be resent after the backoff of its retry count.
      *
      * @param batchMessageCallBack
      */
     private void putInResendQueue(AgentSenderCallback batchMessageCallBack) {
         try {
+            batchMessageCallBack.resendTime = AgentUtils.getCurrentTime() + getBackoffMs(batchMessageCallBack.retry);
             resendQueue.put(batchMessageCallBack);
         } catch (Throwable throwable) {
             LOGGER.error("putInResendQueue e = {}", throwable);
@@ -322,16 +366,20 @@ public class SenderManager {
     /**
      * sender callback
      */
-    private class AgentSenderCallback implements SendMessageCallback {
+    private class AgentSenderCallback implements SendMessageCallback, Delayed {
 
         private final int retry;
         private final SenderMessage message;
         private final int msgCnt;
+        // the encoded and compressed pack kept for the resends
+        private volatile byte[] packedBody;
+        private long resendTime;
 
-        AgentSenderCallback(SenderMessage message, int retry) {
+        AgentSenderCallback(SenderMessage message, int retry, byte[] packedBody) {
             this.message = message;
             this.retry = retry;
             this.msgCnt = message.getDataList().size();
+            this.packedBody = packedBody;
         }
 
         @Override
@@ -352,7 +400,7 @@ public class SenderManager {
                 LOGGER.warn("send groupId {}, streamId {}, taskId {}, instanceId {}, dataTime {} fail with times {}, "
                         + "error {}", groupId, streamId, taskId, instanceId, dataTime, retry, result);
                 getMetricItem(groupId, streamId).pluginSendFailCount.addAndGet(msgCnt);
-                putInResendQueue(new AgentSenderCallback(message, retry));
+                putInResendQueue(new AgentSenderCallback(message, retry, packedBody));
                 AuditUtils.add(AuditUtils.AUDIT_ID_AGENT_SEND_FAILED, groupId, streamId,
                         dataTime, message.getMsgCnt(), message.getTotalSize());
                 AuditUtils.add(AuditUtils.AUDIT_ID_AGENT_SEND_FAILED_REAL_TIME, groupId, streamId,
@@ -365,5 +413,15 @@ public class SenderManager {
             getMetricItem(message.getGroupId(), message.getStreamId()).pluginSendFailCount.addAndGet(msgCnt);
             LOGGER.error("exception caught", e);
         }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(resendTime - AgentUtils.getCurrentTime(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(resendTime, ((AgentSenderCallback) other).resendTime);
+        }
     }
 }
@@ -17,16 +17,24 @@
 
 package org.apache.inlong.agent.plugin.sources;
 
+import org.apache.inlong.agent.common.AgentThreadFactory;
+import org.apache.inlong.agent.conf.AbstractConfiguration;
+import org.apache.inlong.agent.conf.InstanceProfile;
 import org.apache.inlong.agent.conf.TaskProfile;
 import org.apache.inlong.agent.plugin.Message;
 import org.apache.inlong.agent.plugin.file.Reader;
+import org.apache.inlong.agent.plugin.sinks.filecollect.ProxySink;
 import org.apache.inlong.agent.plugin.sources.file.AbstractSource;
 import org.apache.inlong.agent.plugin.sources.reader.KafkaReader;
+import org.apache.inlong.agent.utils.AgentUtils;
+import org.apache.inlong.agent.utils.ThreadUtils;
 
 import com.google.gson.Gson;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
@@ -37,47 +45,98 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
+import static org.apache.inlong.agent.constant.TaskConstants.DEFAULT_JOB_KAFKA_BATCH_MODE;
+import static org.apache.inlong.agent.constant.TaskConstants.DEFAULT_JOB_KAFKA_PARTITION_LANES;
+import static org.apache.inlong.agent.constant.TaskConstants.DEFAULT_JOB_KAFKA_POLL_MAX_RECORDS;
 import static org.apache.inlong.agent.constant.TaskConstants.DEFAULT_JOB_LINE_FILTER;
 import static org.apache.inlong.agent.constant.TaskConstants.JOB_KAFKA_AUTO_COMMIT_OFFSET_RESET;
+import static org.apache.inlong.agent.constant.TaskConstants.JOB_KAFKA_BATCH_MODE;
 import static org.apache.inlong.agent.constant.TaskConstants.JOB_KAFKA_BOOTSTRAP_SERVERS;
 import static org.apache.inlong.agent.constant.TaskConstants.JOB_KAFKA_GROUP_ID;
 import static org.apache.inlong.agent.constant.TaskConstants.JOB_KAFKA_OFFSET;
+import static org.apache.inlong.agent.constant.TaskConstants.JOB_KAFKA_PARTITION_LANES;
 import static org.apache.inlong.agent.constant.TaskConstants.JOB_KAFKA_PARTITION_OFFSET_DELIMITER;
+import static org.apache.inlong.agent.constant.TaskConstants.JOB_KAFKA_POLL_MAX_RECORDS;
 import static org.apache.inlong.agent.constant.TaskConstants.JOB_KAFKA_TOPIC;
 import static org.apache.inlong.agent.constant.TaskConstants.JOB_LINE_FILTER_PATTERN;
 import static org.apache.inlong.agent.constant.TaskConstants.JOB_OFFSET_DELIMITER;
 import static org.apache.inlong.agent.constant.TaskConstants.TASK_ID;
+import static org.apache.inlong.agent.constant.TaskConstants.TASK_SINK;
 
 /**
  * kafka source, split kafka source job into multi readers
+ *
+ * As the source of an instance each reader is driven by a lane thread, the lanes put
+ * the messages read in a queue which the instance reads from.
  */
 public class KafkaSource extends AbstractSource {
 
     public static final String JOB_KAFKA_AUTO_RESETE = "auto.offset.reset";
     private static final Logger LOGGER = LoggerFactory.getLogger(KafkaSource.class);
-    private static final String JOB_KAFKAJOB_PARAM_PREFIX = "job.kafkaJob.";
-    private static final String JOB_KAFKAJOB_WAIT_TIMEOUT = "job.kafkajob.wait.timeout";
+    private static final String JOB_KAFKAJOB_PARAM_PREFIX = "task.kafkaJob.";
     private static final String KAFKA_COMMIT_AUTO = "enable.auto.commit";
     private static final String KAFKA_DESERIALIZER_METHOD =
             "org.apache.kafka.common.serialization.ByteArrayDeserializer";
     private static final String KAFKA_KEY_DESERIALIZER = "key.deserializer";
     private static final String KAFKA_VALUE_DESERIALIZER = "value.deserializer";
     private static final String KAFKA_SESSION_TIMEOUT = "session.timeout.ms";
+    private static final String KAFKA_MAX_POLL_RECORDS = "max.poll.records";
+    private static final String KAFKA_GROUP_ID = JOB_KAFKA_GROUP_ID.replace(JOB_KAFKAJOB_PARAM_PREFIX,
+            StringUtils.EMPTY);
+    private static final int READ_WAIT_TIME_MS = 100;
+    private static final int DESTROY_LOOP_WAIT_TIME_MS = 10;
     private static final Gson gson = new Gson();
-    private static AtomicLong metricsIndex = new AtomicLong(0);
+    private static final ThreadPoolExecutor EXECUTOR_SERVICE = new ThreadPoolExecutor(
+            0, Integer.MAX_VALUE,
+            1L, TimeUnit.SECONDS,
+            new SynchronousQueue<>(),
+            new AgentThreadFactory("kafka-source"));
+    private final List<KafkaReader<String, byte[]>> lanes = new ArrayList<>();
+    private final AtomicInteger runningLanes = new AtomicInteger(0);
+    private BlockingQueue<Message> queue;
+    private volatile boolean running = false;
+    private String topic;
 
     public KafkaSource() {
     }
 
+    @Override
+    public void init(InstanceProfile profile) {
+        super.init(profile);
+        topic = profile.get(JOB_KAFKA_TOPIC);
+        Map<String, String> map = gson.fromJson(profile.toJsonStr(), Map.class);
+        lanes.addAll(createReaders(profile, map));
+        if (lanes.isEmpty()) {
+            throw new IllegalStateException("no partition found of kafka topic " + topic);
+        }
+        queue = new LinkedBlockingQueue<>(Integer.parseInt(map.getOrDefault(JOB_KAFKA_POLL_MAX_RECORDS,
+                String.valueOf(DEFAULT_JOB_KAFKA_POLL_MAX_RECORDS))));
+        running = true;
+        for (int lane = 0; lane < lanes.size(); lane++) {
+            runningLanes.incrementAndGet();
+            EXECUTOR_SERVICE.execute(laneThread(lanes.get(lane), profile, lane));
+        }
+    }
+
     @Override
     public List<Reader> split(TaskProfile conf) {
-        List<Reader> result = new ArrayList<>();
+        Map<String, String> map = gson.fromJson(conf.toJsonStr(), Map.class);
+        return new ArrayList<>(createReaders(conf, map));
+    }
+
+    private List<KafkaReader<String, byte[]>> createReaders(AbstractConfiguration conf, Map<String, String> map) {
+        List<KafkaReader<String, byte[]>> result = new ArrayList<>();
         String filterPattern = conf.get(JOB_LINE_FILTER_PATTERN, DEFAULT_JOB_LINE_FILTER);
 
         Properties props = new Properties();
-        Map<String, String> map = gson.fromJson(conf.toJsonStr(), Map.class);
         props.put(JOB_KAFKA_BOOTSTRAP_SERVERS.replace(JOB_KAFKAJOB_PARAM_PREFIX, StringUtils.EMPTY),
                 map.get(JOB_KAFKA_BOOTSTRAP_SERVERS));
 
@@ -88,10 +147,11 @@ public class KafkaSource extends AbstractSource {
         if (ObjectUtils.isNotEmpty(map.get(JOB_KAFKA_AUTO_COMMIT_OFFSET_RESET))) {
             props.put(JOB_KAFKA_AUTO_RESETE, map.get(JOB_KAFKA_AUTO_COMMIT_OFFSET_RESET));
         }
-        KafkaConsumer<String, String> consumer = new KafkaConsumer<>(props);
-        List<PartitionInfo> partitionInfoList = consumer.partitionsFor(conf.get(JOB_KAFKA_TOPIC));
+        List<PartitionInfo> partitionInfoList;
+        try (Consumer<String, byte[]> consumer = newConsumer(props)) {
+            partitionInfoList = consumer.partitionsFor(conf.get(JOB_KAFKA_TOPIC));
+        }
         String allPartitionOffsets = map.get(JOB_KAFKA_OFFSET);
-        Long offset = null;
         String[] partitionOffsets = null;
         if (StringUtils.isNotBlank(allPartitionOffsets)) {
             // example:0#110_1#666_2#222
@@ -99,45 +159,200 @@ public class KafkaSource extends AbstractSource {
         }
         // set consumer session timeout
         props.put(KAFKA_SESSION_TIMEOUT, 30000);
+        if (null == partitionInfoList) {
+            sourceMetric.sourceFailCount.incrementAndGet();
+            return result;
+        }
+        // both modes commit to the same group, a partition is read by one reader only
+        props.put(KAFKA_GROUP_ID, map.getOrDefault(JOB_KAFKA_GROUP_ID,
+                conf.get(TASK_ID) + JOB_OFFSET_DELIMITER + "group"));
+        boolean batchMode = Boolean.parseBoolean(
+                map.getOrDefault(JOB_KAFKA_BATCH_MODE, String.valueOf(DEFAULT_JOB_KAFKA_BATCH_MODE)));
+        if (batchMode && !isBatchModeSupported(conf.get(TASK_SINK, null))) {
+            // the lanes wait for the acks, only the file collect proxy sink acks the messages
+            LOGGER.warn("kafka batch mode is not supported by sink {}, read the topic {} by partition",
+                    conf.get(TASK_SINK, null), conf.get(JOB_KAFKA_TOPIC));
+            map.put(JOB_KAFKA_BATCH_MODE, String.valueOf(false));
+            batchMode = false;
+        }
+        if (batchMode) {
+            splitLanes(conf, map, props, partitionInfoList, partitionOffsets, filterPattern, result);
+            sourceMetric.sourceSuccessCount.incrementAndGet();
+            return result;
+        }
         // spilt reader reduce to partition
-        if (null != partitionInfoList) {
-            for (PartitionInfo partitionInfo : partitionInfoList) {
-                props.put(JOB_KAFKA_GROUP_ID.replace(JOB_KAFKAJOB_PARAM_PREFIX, StringUtils.EMPTY),
-                        map.getOrDefault(JOB_KAFKA_GROUP_ID,
-                                map.get(TASK_ID) + JOB_OFFSET_DELIMITER
-                                        + "group" + partitionInfo.partition()));
-                KafkaConsumer<String, byte[]> partitonConsumer = new KafkaConsumer<>(props);
-                partitonConsumer.assign(Collections.singletonList(
-                        new TopicPartition(partitionInfo.topic(), partitionInfo.partition())));
-                // if get offset,consume from offset; if not,consume from 0
-                if (partitionOffsets != null && partitionOffsets.length > 0) {
-                    for (String partitionOffset : partitionOffsets) {
-                        if (partitionOffset.contains(JOB_KAFKA_PARTITION_OFFSET_DELIMITER)
-                                && partitionOffset.split(JOB_KAFKA_PARTITION_OFFSET_DELIMITER)[0]
-                                        .equals(String.valueOf(partitionInfo.partition()))) {
-                            offset = Long.valueOf(partitionOffset.split(JOB_KAFKA_PARTITION_OFFSET_DELIMITER)[1]);
+        for (PartitionInfo partitionInfo : partitionInfoList) {
+            Consumer<String, byte[]> partitonConsumer = newConsumer(props);
+            partitonConsumer.assign(Collections.singletonList(
+                    new TopicPartition(partitionInfo.topic(), partitionInfo.partition())));
+            seekPartition(partitonConsumer, partitionInfo, partitionOffsets, conf, map, props);
+            KafkaReader<String, byte[]> kafkaReader = new KafkaReader<>(partitonConsumer, map);
+            addValidator(filterPattern, kafkaReader);
+            result.add(kafkaReader);
+        }
+        sourceMetric.sourceSuccessCount.incrementAndGet();
+        return result;
+    }
+
+    /**
+     * create the consumer of the properties
+     */
+    protected Consumer<String, byte[]> newConsumer(Properties props) {
+        return new KafkaConsumer<>(props);
+    }
+
+    /**
+     * whether the sink acks the messages sent, which the batch mode relies on to commit
+     * the offsets and resume the paused partitions
+     */
+    public static boolean isBatchModeSupported(String sinkClass) {
+        return ProxySink.class.getName().equals(sinkClass);
+    }
+
+    /**
+     * spread the partitions over the lanes, each lane is a reader with one consumer
+     * polling its partitions in batch
+     */
+    private void splitLanes(AbstractConfiguration conf, Map<String, String> map, Properties props,
+            List<PartitionInfo> partitionInfoList, String[] partitionOffsets, String filterPattern,
+            List<KafkaReader<String, byte[]>> result) {
+        int laneNum = Math.min(partitionInfoList.size(), Math.max(1, Integer.parseInt(map.getOrDefault(
+                JOB_KAFKA_PARTITION_LANES, String.valueOf(DEFAULT_JOB_KAFKA_PARTITION_LANES)))));
+        props.put(KAFKA_MAX_POLL_RECORDS, map.getOrDefault(JOB_KAFKA_POLL_MAX_RECORDS,
+                String.valueOf(DEFAULT_JOB_KAFKA_POLL_MAX_RECORDS)));
+        for (int lane = 0; lane < laneNum; lane++) {
+            List<PartitionInfo> lanePartitions = new ArrayList<>();
+            for (int i = lane; i < partitionInfoList.size(); i += laneNum) {
+                lanePartitions.add(partitionInfoList.get(i));
+            }
+            Consumer<String, byte[]> laneConsumer = newConsumer(props);
+            laneConsumer.assign(lanePartitions.stream()
+                    .map(info -> new TopicPartition(info.topic(), info.partition()))
+                    .collect(Collectors.toList()));
+            for (PartitionInfo partitionInfo : lanePartitions) {
+                seekPartition(laneConsumer, partitionInfo, partitionOffsets, conf, map, props);
+            }
+            KafkaReader<String, byte[]> kafkaReader = new KafkaReader<>(laneConsumer, map);
+            addValidator(filterPattern, kafkaReader);
+            result.add(kafkaReader);
+        }
+        LOGGER.info("kafka topic {} split {} partitions into {} lanes", conf.get(JOB_KAFKA_TOPIC),
+                partitionInfoList.size(), laneNum);
+    }
+
+    /**
+     * if get offset,consume from offset; if not,consume from the committed offset
+     */
+    private void seekPartition(Consumer<String, byte[]> consumer, PartitionInfo partitionInfo,
+            String[] partitionOffsets, AbstractConfiguration conf, Map<String, String> map, Properties props) {
+        Long offset = null;
+        if (partitionOffsets != null && partitionOffsets.length > 0) {
+            for (String partitionOffset : partitionOffsets) {
+                if (partitionOffset.contains(JOB_KAFKA_PARTITION_OFFSET_DELIMITER)
+                        && partitionOffset.split(JOB_KAFKA_PARTITION_OFFSET_DELIMITER)[0]
+                                .equals(String.valueOf(partitionInfo.partition()))) {
+                    offset = Long.valueOf(partitionOffset.split(JOB_KAFKA_PARTITION_OFFSET_DELIMITER)[1]);
+                }
+            }
+        }
+        TopicPartition topicPartition = new TopicPartition(partitionInfo.topic(), partitionInfo.partition());
+        if (offset == null && !map.containsKey(JOB_KAFKA_GROUP_ID)
+                && consumer.committed(Collections.singleton(topicPartition)).get(topicPartition) == null) {
+            offset = getPartitionGroupOffset(topicPartition, conf, props);
+        }
+        LOGGER.info("kafka topic partition {} offset:{}", partitionInfo.partition(), offset);
+        if (offset != null) {
+            // if offset not null,then consume from the offset
+            consumer.seek(topicPartition, offset);
+        }
+    }
+
+    /**
+     * get the offset committed by the group of the partition, which each partition used to be
+     * read with, so that the task goes on from it after changing to the group of the task
+     */
+    private Long getPartitionGroupOffset(TopicPartition topicPartition, AbstractConfiguration conf,
+            Properties props) {
+        Properties partitionProps = new Properties();
+        partitionProps.putAll(props);
+        partitionProps.put(KAFKA_GROUP_ID, conf.get(TASK_ID) + JOB_OFFSET_DELIMITER + "group"
+                + topicPartition.partition());
+        try (Consumer<String, byte[]> partitionConsumer = newConsumer(partitionProps)) {
+            OffsetAndMetadata committed = partitionConsumer.committed(Collections.singleton(topicPartition))
+                    .get(topicPartition);
+            if (committed == null) {
+                return null;
+            }
+            LOGGER.info("kafka topic partition {} goes on from offset {} of group {}", topicPartition,
+                    committed.offset(), partitionProps.get(KAFKA_GROUP_ID));
+            return committed.offset();
+        }
+    }
+
+    /**
+     * read the reader of the lane until it is closed, the messages are put in the queue of the source
+     */
+    private Runnable laneThread(KafkaReader<String, byte[]> reader, InstanceProfile profile, int lane) {
+        return () -> {
+            AgentThreadFactory.nameThread("kafka-lane-" + profile.getTaskId() + "-" + topic + "-" + lane);
+            try {
+                reader.init(profile);
+                while (!reader.isClosed()) {
+                    try {
+                        Message message = reader.read();
+                        if (message != null) {
+                            putInQueue(message);
                         }
+                    } catch (InterruptedException e) {
+                        LOGGER.warn("kafka lane {} of topic {} interrupted", lane, topic);
+                        Thread.currentThread().interrupt();
+                        reader.destroy();
+                    } catch (Exception e) {
+                        LOGGER.error("kafka lane {} of topic {} read error", lane, topic, e);
+                        AgentUtils.silenceSleepInMs(READ_WAIT_TIME_MS);
                     }
                 }
-                LOGGER.info("kafka topic partition offset:{}", offset);
-                if (offset != null) {
-                    // if offset not null,then consume from the offset
-                    partitonConsumer.seek(new TopicPartition(partitionInfo.topic(), partitionInfo.partition()), offset);
-                }
-                KafkaReader<String, byte[]> kafkaReader = new KafkaReader<>(partitonConsumer, map);
-                addValidator(filterPattern, kafkaReader);
-                result.add(kafkaReader);
+            } catch (Throwable t) {
+                LOGGER.error("kafka lane {} of topic {} error", lane, topic, t);
+                ThreadUtils.threadThrowableHandler(Thread.currentThread(), t);
+            } finally {
+                runningLanes.decrementAndGet();
+            }
+        };
+    }
+
+    /**
+     * wait for the room in the queue, the message is dropped without the ack once the source is destroyed
+     */
+    private void putInQueue(Message message) throws InterruptedException {
+        while (running) {
+            if (queue.offer(message, READ_WAIT_TIME_MS, TimeUnit.MILLISECONDS)) {
+                return;
             }
-            sourceMetric.sourceSuccessCount.incrementAndGet();
-        } else {
-            sourceMetric.sourceFailCount.incrementAndGet();
         }
-        return result;
     }
 
     @Override
     public Message read() {
-        return null;
+        if (queue == null) {
+            return null;
+        }
+        try {
+            return queue.poll(READ_WAIT_TIME_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        lanes.forEach(KafkaReader::destroy);
+        while (runningLanes.get() > 0) {
+            AgentUtils.silenceSleepInMs(DESTROY_LOOP_WAIT_TIME_MS);
+        }
+        LOGGER.info("destroy kafka source of topic {}", topic);
     }
 
     @Override
@@ -145,9 +360,12 @@ public class KafkaSource extends AbstractSource {
         return false;
     }
 
+    /**
+     * the source is gone once all the lanes stop, the instance is then deleted and added again by the task
+     */
     @Override
     public boolean sourceExist() {
-        return false;
+        return !running || runningLanes.get() > 0;
     }
 
     private void addValidator(String filterPattern, KafkaReader kafkaReader) {
@@ -18,6 +18,7 @@
 package org.apache.inlong.agent.plugin.sources;
 
 import org.apache.inlong.agent.common.AgentThreadFactory;
+import org.apache.inlong.agent.conf.AgentConfiguration;
 import org.apache.inlong.agent.conf.InstanceProfile;
 import org.apache.inlong.agent.conf.OffsetProfile;
 import org.apache.inlong.agent.conf.TaskProfile;
@@ -32,9 +33,13 @@ import org.apache.inlong.agent.metrics.audit.AuditUtils;
 import org.apache.inlong.agent.plugin.Message;
 import org.apache.inlong.agent.plugin.file.Reader;
 import org.apache.inlong.agent.plugin.sources.file.AbstractSource;
+import org.apache.inlong.agent.plugin.sources.file.SharedFileReaderPool;
 import org.apache.inlong.agent.plugin.sources.file.extend.ExtendedHandler;
 import org.apache.inlong.agent.plugin.sources.reader.file.KubernetesMetadataProvider;
 import org.apache.inlong.agent.plugin.utils.file.FileDataUtils;
+import org.apache.inlong.agent.plugin.utils.file.FileLineReader;
+import org.apache.inlong.agent.plugin.utils.file.FileModifyNotifier;
+import org.apache.inlong.agent.plugin.utils.file.MultiLineAggregator;
 import org.apache.inlong.agent.utils.AgentUtils;
 import org.apache.inlong.agent.utils.DateTransUtils;
 
@@ -46,28 +51,32 @@ import org.apache.commons.codec.digest.DigestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.LineNumberReader;
-import java.io.RandomAccessFile;
 import java.lang.reflect.Constructor;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import static org.apache.inlong.agent.constant.AgentConstants.AGENT_FILE_SOURCE_SHARED_READER_ENABLE;
+import static org.apache.inlong.agent.constant.AgentConstants.AGENT_FILE_SOURCE_SHARED_READ_QUOTA;
+import static org.apache.inlong.agent.constant.AgentConstants.DEFAULT_FILE_SOURCE_SHARED_READER_ENABLE;
+import static org.apache.inlong.agent.constant.AgentConstants.DEFAULT_FILE_SOURCE_SHARED_READ_QUOTA;
 import static org.apache.inlong.agent.constant.CommonConstants.COMMA;
 import static org.apache.inlong.agent.constant.CommonConstants.DEFAULT_PROXY_PACKAGE_MAX_SIZE;
 import static org.apache.inlong.agent.constant.CommonConstants.PROXY_KEY_DATA;
@@ -98,7 +107,7 @@ public class LogFileSource extends AbstractSource {
     @NoArgsConstructor
     private class SourceData {
 
-        private String data;
+        private byte[] data;
         private Long offset;
     }
 
@@ -116,6 +125,14 @@ public class LogFileSource extends AbstractSource {
     private final Integer EMPTY_CHECK_COUNT_AT_LEAST = 30;
     private final Long INODE_UPDATE_INTERVAL_MS = 1000L;
     private final Integer READ_WAIT_TIMEOUT_MS = 10;
+    private final Long EMPTY_CHECK_INTERVAL_MS = 1000L;
+    // wait time when no new data, doubled on each empty read until the max
+    private final Long MIN_IDLE_WAIT_MS = 10L;
+    private final Long MAX_IDLE_WAIT_MS = 1000L;
+    // longer max wait if the file system delivers modification events
+    private final Long MAX_NOTIFIED_IDLE_WAIT_MS = 5000L;
+    private final Long PERMIT_WAIT_MS = 1000L;
+    private final Long QUEUE_FULL_WAIT_MS = 100L;
     private final SimpleDateFormat RECORD_TIME_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
     public InstanceProfile profile;
     private String taskId;
@@ -123,7 +140,7 @@ public class LogFileSource extends AbstractSource {
     private int maxPackSize;
     private String fileName;
     private File file;
-    private byte[] bufferToReadFile;
+    private FileLineReader lineReader;
     public volatile long linePosition = 0;
     public volatile long bytePosition = 0;
     private boolean needMetadata = false;
@@ -138,7 +155,22 @@ public class LogFileSource extends AbstractSource {
     private volatile boolean running = false;
     private long dataTime = 0;
     private volatile long emptyCount = 0;
+    private long idleStartTime = 0;
+    private volatile long idleWaitMs = 0;
+    private FileModifyNotifier.Waiter modifyWaiter = new FileModifyNotifier.Waiter();
+    // read lines not put into the queue yet
+    private final Queue<SourceData> pendingData = new ArrayDeque<>();
+    // the position before the pending lines, to read them again if they are dropped
+    private long pendingStartBytePosition = 0;
+    private long pendingStartLinePosition = 0;
+    private boolean pendingPartlyFlushed = false;
+    private long lastPrintTime = 0;
+    // read in the shared reader loops instead of a thread of its own
+    private boolean sharedReader = false;
+    private int readQuota;
+    private volatile SharedFileReaderPool.Entry readEntry;
     private ExtendedHandler extendedHandler;
+    private MultiLineAggregator multiLineAggregator;
     private boolean isRealTime = false;
 
     public LogFileSource() {
@@ -159,7 +191,6 @@ public class LogFileSource extends AbstractSource {
             instanceId = profile.getInstanceId();
             fileName = profile.getInstanceId();
             maxPackSize = profile.getInt(PROXY_PACKAGE_MAX_SIZE, DEFAULT_PROXY_PACKAGE_MAX_SIZE);
-            bufferToReadFile = new byte[SIZE_OF_BUFFER_TO_READ_FILE];
             isIncrement = isIncrement(profile);
             file = new File(fileName);
             inodeInfo = profile.get(TaskConstants.INODE_INFO);
@@ -176,14 +207,44 @@ public class LogFileSource extends AbstractSource {
                 constructor.setAccessible(true);
                 extendedHandler = (ExtendedHandler) constructor.newInstance(profile);
             }
+            multiLineAggregator = MultiLineAggregator.create(profile, maxPackSize);
             try {
                 registerMeta(profile);
             } catch (Exception ex) {
                 LOGGER.error("init metadata error", ex);
             }
-            EXECUTOR_SERVICE.execute(run());
+            idleWaitMs = MIN_IDLE_WAIT_MS;
+            AgentConfiguration agentConf = AgentConfiguration.getAgentConf();
+            sharedReader = agentConf.getBoolean(AGENT_FILE_SOURCE_SHARED_READER_ENABLE,
+                    DEFAULT_FILE_SOURCE_SHARED_READER_ENABLE);
+            if (sharedReader) {
+                readQuota = agentConf.getInt(AGENT_FILE_SOURCE_SHARED_READ_QUOTA,
+                        DEFAULT_FILE_SOURCE_SHARED_READ_QUOTA);
+                // the reader loops use their own buffers
+                closeLineReader();
+                modifyWaiter = new FileModifyNotifier.Waiter(this::onFileModified);
+                FileModifyNotifier.register(fileName, modifyWaiter);
+                running = true;
+                readEntry = SharedFileReaderPool.getInstance().submit(new SharedFileReaderPool.ReadTask() {
+
+                    @Override
+                    public long step() {
+                        return readStep();
+                    }
+
+                    @Override
+                    public void onFinished() {
+                        finishRead();
+                    }
+                });
+            } else {
+                readQuota = BATCH_READ_LINE_TOTAL_LEN;
+                FileModifyNotifier.register(fileName, modifyWaiter);
+                EXECUTOR_SERVICE.execute(run());
+            }
         } catch (Exception ex) {
             stopRunning();
+            closeLineReader();
             throw new FileException("error init stream for " + file.getPath(), ex);
         }
     }
@@ -258,98 +319,26 @@ public class LogFileSource extends AbstractSource {
     private long getBytePositionByLine(long linePosition) throws IOException {
         long pos = 0;
         long readCount = 0;
-        RandomAccessFile input = null;
         try {
-            input = new RandomAccessFile(file, "r");
+            closeLineReader();
+            lineReader = new FileLineReader(file, SIZE_OF_BUFFER_TO_READ_FILE, maxPackSize);
             while (readCount < linePosition) {
-                List<String> lines = new ArrayList<>();
-                pos = readLines(input, pos, lines, Math.min((int) (linePosition - readCount), BATCH_READ_LINE_COUNT),
-                        BATCH_READ_LINE_TOTAL_LEN, true);
-                readCount += lines.size();
-                if (lines.size() == 0) {
-                    LOGGER.error("getBytePositionByLine LineNum {} larger than the real file");
+                pos = lineReader.readLines(pos, Math.min((int) (linePosition - readCount), BATCH_READ_LINE_COUNT),
+                        BATCH_READ_LINE_TOTAL_LEN, null);
+                int lineCount = lineReader.getLastReadLineCount();
+                readCount += lineCount;
+                if (lineCount == 0) {
+                    LOGGER.error("getBytePositionByLine LineNum {} larger than the real file", linePosition);
                     break;
                 }
             }
         } catch (Exception e) {
             LOGGER.error("getBytePositionByLine error: ", e);
-        } finally {
-            if (input != null) {
-                input.close();
-            }
         }
         LOGGER.info("getBytePositionByLine {} LineNum {} position {}", fileName, linePosition, pos);
         return pos;
     }
 
-    /**
-     * Read new lines.
-     *
-     * @param reader The file to read
-     * @return The new position after the lines have been read
-     * @throws IOException if an I/O error occurs.
-     */
-    private long readLines(RandomAccessFile reader, long pos, List<String> lines, int maxLineCount, int maxLineTotalLen,
-            boolean isCounting)
-            throws IOException {
-        if (maxLineCount == 0) {
-            return pos;
-        }
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        reader.seek(pos);
-        long rePos = pos; // position to re-read
-        int num;
-        int lineTotalLen = 0;
-        boolean overLen = false;
-        while ((num = reader.read(bufferToReadFile)) != -1) {
-            LOGGER.debug("read size {}", num);
-            int i = 0;
-            for (; i < num; i++) {
-                byte ch = bufferToReadFile[i];
-                switch (ch) {
-                    case '\n':
-                        if (isCounting) {
-                            lines.add(new String(""));
-                        } else {
-                            String temp = new String(baos.toByteArray(), StandardCharsets.UTF_8);
-                            lines.add(temp);
-                            lineTotalLen += temp.length();
-                        }
-                        rePos = pos + i + 1;
-                        if (overLen) {
-                            LOGGER.warn("readLines over len finally string len {}",
-                                    new String(baos.toByteArray()).length());
-                            AuditUtils.add(AuditUtils.AUDIT_ID_AGENT_READ_SUCCESS_REAL_TIME, inlongGroupId,
-                                    inlongStreamId, AgentUtils.getCurrentTime(), 1, maxPackSize);
-                        }
-                        baos.reset();
-                        overLen = false;
-                        break;
-                    case '\r':
-                        break;
-                    default:
-                        if (baos.size() < maxPackSize) {
-                            baos.write(ch);
-                        } else {
-                            overLen = true;
-                        }
-                }
-                if (lines.size() >= maxLineCount || lineTotalLen >= maxLineTotalLen) {
-                    break;
-                }
-            }
-            if (lines.size() >= maxLineCount || lineTotalLen >= maxLineTotalLen) {
-                break;
-            }
-            if (i == num) {
-                pos = reader.getFilePointer();
-            }
-        }
-        baos.close();
-        reader.seek(rePos); // Ensure we can re-read if necessary
-        return rePos;
-    }
-
     @Override
     public Message read() {
         SourceData sourceData = null;
@@ -361,20 +350,24 @@ public class LogFileSource extends AbstractSource {
         if (sourceData == null) {
             return null;
         }
-        MemoryManager.getInstance().release(AGENT_GLOBAL_READER_QUEUE_PERMIT, sourceData.data.length());
+        MemoryManager.getInstance().release(AGENT_GLOBAL_READER_QUEUE_PERMIT, taskId, instanceId,
+                sourceData.data.length);
         Message finalMsg = createMessage(sourceData);
         return finalMsg;
     }
 
     private Message createMessage(SourceData sourceData) {
-        String msgWithMetaData = fillMetaData(sourceData.data);
+        // the line is decoded only if the metadata is wrapped around it
+        byte[] body = needMetadata
+                ? fillMetaData(new String(sourceData.data, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8)
+                : sourceData.data;
         String proxyPartitionKey = profile.get(PROXY_SEND_PARTITION_KEY, DigestUtils.md5Hex(inlongGroupId));
         Map<String, String> header = new HashMap<>();
         header.put(PROXY_KEY_DATA, proxyPartitionKey);
         header.put(OFFSET, sourceData.offset.toString());
         header.put(PROXY_KEY_STREAM_ID, inlongStreamId);
         if (extendedHandler != null) {
-            extendedHandler.dealWithHeader(header, sourceData.getData().getBytes(StandardCharsets.UTF_8));
+            extendedHandler.dealWithHeader(header, sourceData.getData());
         }
         long auditTime = 0;
         if (isRealTime) {
@@ -383,10 +376,10 @@ public class LogFileSource extends AbstractSource {
             auditTime = profile.getSinkDataTime();
         }
         AuditUtils.add(AuditUtils.AUDIT_ID_AGENT_READ_SUCCESS, inlongGroupId, header.get(PROXY_KEY_STREAM_ID),
-                auditTime, 1, msgWithMetaData.length());
+                auditTime, 1, body.length);
         AuditUtils.add(AuditUtils.AUDIT_ID_AGENT_READ_SUCCESS_REAL_TIME, inlongGroupId, header.get(PROXY_KEY_STREAM_ID),
-                AgentUtils.getCurrentTime(), 1, msgWithMetaData.length());
-        Message finalMsg = new DefaultMessage(msgWithMetaData.getBytes(StandardCharsets.UTF_8), header);
+                AgentUtils.getCurrentTime(), 1, body.length);
+        Message finalMsg = new DefaultMessage(body, header);
         // if the message size is greater than max pack size,should drop it.
         if (finalMsg.getBody().length > maxPackSize) {
             LOGGER.warn("message size is {}, greater than max pack size {}, drop it!",
@@ -408,21 +401,6 @@ public class LogFileSource extends AbstractSource {
         return GSON.toJson(mergeData);
     }
 
-    private boolean waitForPermit(String permitName, int permitLen) {
-        boolean suc = false;
-        while (!suc) {
-            suc = MemoryManager.getInstance().tryAcquire(permitName, permitLen);
-            if (!suc) {
-                MemoryManager.getInstance().printDetail(permitName, "log file source");
-                if (isInodeChanged() || !isRunnable()) {
-                    return false;
-                }
-                AgentUtils.silenceSleepInSeconds(1);
-            }
-        }
-        return true;
-    }
-
     private boolean isInodeChanged() {
         if (AgentUtils.getCurrentTime() - lastInodeUpdateTime > INODE_UPDATE_INTERVAL_MS) {
             try {
@@ -440,85 +418,193 @@ public class LogFileSource extends AbstractSource {
             AgentThreadFactory.nameThread("log-file-source-" + taskId + "-" + file);
             running = true;
             try {
-                doRun();
+                long waitMs;
+                while ((waitMs = readStep()) >= 0) {
+                    if (waitMs > 0 && modifyWaiter.await(waitMs)) {
+                        idleWaitMs = MIN_IDLE_WAIT_MS;
+                    }
+                }
             } catch (Throwable e) {
                 LOGGER.error("do run error maybe file deleted: ", e);
             }
-            running = false;
+            finishRead();
         };
     }
 
-    private void doRun() {
-        long lastPrintTime = 0;
-        while (isRunnable() && fileExist) {
-            if (isInodeChanged()) {
-                fileExist = false;
-                LOGGER.info("inode changed, instance will restart and offset will be clean, file {}",
-                        fileName);
-                break;
-            }
-            if (file.length() < bytePosition) {
-                fileExist = false;
-                LOGGER.info("file rotate, instance will restart and offset will be clean, file {}",
-                        fileName);
-                break;
-            }
-            boolean suc = waitForPermit(AGENT_GLOBAL_READER_SOURCE_PERMIT, BATCH_READ_LINE_TOTAL_LEN);
-            if (!suc) {
-                break;
-            }
-            List<SourceData> lines = null;
-            try {
-                lines = readFromPos(bytePosition);
-            } catch (FileNotFoundException e) {
-                fileExist = false;
-                LOGGER.error("readFromPos file deleted error: ", e);
-            } catch (IOException e) {
-                LOGGER.error("readFromPos error: ", e);
-            }
-            MemoryManager.getInstance().release(AGENT_GLOBAL_READER_SOURCE_PERMIT, BATCH_READ_LINE_TOTAL_LEN);
-            if (lines.isEmpty()) {
-                if (queue.isEmpty()) {
-                    emptyCount++;
-                } else {
-                    emptyCount = 0;
-                }
-                AgentUtils.silenceSleepInSeconds(1);
-                continue;
-            }
+    private void finishRead() {
+        closeLineReader();
+        FileModifyNotifier.unregister(fileName, modifyWaiter);
+        running = false;
+    }
+
+    private void onFileModified() {
+        idleWaitMs = MIN_IDLE_WAIT_MS;
+        SharedFileReaderPool.Entry entry = readEntry;
+        if (entry != null) {
+            entry.wakeUp();
+        }
+    }
+
+    /**
+     * Read one batch of lines without blocking
+     *
+     * @return 0 if it should be called again at once, the time to wait before calling it
+     *         again in milliseconds, or -1 if the reading is finished
+     */
+    private long readStep() {
+        if (!isRunnable() || !fileExist) {
+            return -1;
+        }
+        if (isInodeChanged()) {
+            LOGGER.info("inode changed, instance will restart and offset will be clean, file {}",
+                    fileName);
+            return finishFile();
+        }
+        if (file.length() < bytePosition) {
+            LOGGER.info("file rotate, instance will restart and offset will be clean, file {}",
+                    fileName);
+            return finishFile();
+        }
+        long waitMs = flushPendingData();
+        if (waitMs > 0) {
+            return waitMs;
+        }
+        if (!MemoryManager.getInstance().tryAcquire(AGENT_GLOBAL_READER_SOURCE_PERMIT, taskId, instanceId,
+                readQuota, this::onMemoryAvailable)) {
+            MemoryManager.getInstance().printDetail(AGENT_GLOBAL_READER_SOURCE_PERMIT, "log file source");
+            return PERMIT_WAIT_MS;
+        }
+        List<SourceData> lines = new ArrayList<>();
+        long lastLinePosition = linePosition;
+        long lastBytePosition = bytePosition;
+        try {
+            lines = readFromPos(bytePosition);
+        } catch (FileNotFoundException e) {
+            LOGGER.error("readFromPos file deleted error: ", e);
+            return finishFile();
+        } catch (IOException e) {
+            LOGGER.error("readFromPos error: ", e);
+        } finally {
+            MemoryManager.getInstance().release(AGENT_GLOBAL_READER_SOURCE_PERMIT, taskId, instanceId, readQuota);
+        }
+        long flushWaitMs = 0;
+        if (lines.isEmpty() && linePosition == lastLinePosition && multiLineAggregator != null) {
+            flushWaitMs = multiLineAggregator.flushIfExpired(AgentUtils.getCurrentTime(), eventConsumer(lines));
+        }
+        if (lines.isEmpty() && linePosition != lastLinePosition) {
+            // the lines read are all held by the multi-line aggregator
+            idleStartTime = 0;
             emptyCount = 0;
-            for (int i = 0; i < lines.size(); i++) {
-                boolean suc4Queue = waitForPermit(AGENT_GLOBAL_READER_QUEUE_PERMIT, lines.get(i).data.length());
-                if (!suc4Queue) {
-                    break;
+            return 0;
+        }
+        if (lines.isEmpty()) {
+            if (queue.isEmpty()) {
+                // count the idle intervals
+                long currentTime = AgentUtils.getCurrentTime();
+                if (idleStartTime == 0) {
+                    idleStartTime = currentTime;
                 }
-                putIntoQueue(lines.get(i));
-            }
-            if (AgentUtils.getCurrentTime() - lastPrintTime > CORE_THREAD_PRINT_INTERVAL_MS) {
-                lastPrintTime = AgentUtils.getCurrentTime();
-                LOGGER.info("path is {}, linePosition {}, bytePosition is {} file len {}, reads lines size {}",
-                        file.getName(), linePosition, bytePosition, file.length(), lines.size());
+                emptyCount = (currentTime - idleStartTime) / EMPTY_CHECK_INTERVAL_MS + 1;
+            } else {
+                idleStartTime = 0;
+                emptyCount = 0;
             }
+            waitMs = nextIdleWait();
+            return flushWaitMs > 0 ? Math.min(waitMs, flushWaitMs) : waitMs;
+        }
+        idleStartTime = 0;
+        idleWaitMs = MIN_IDLE_WAIT_MS;
+        emptyCount = 0;
+        pendingData.addAll(lines);
+        pendingStartBytePosition = lastBytePosition;
+        pendingStartLinePosition = lastLinePosition;
+        pendingPartlyFlushed = false;
+        if (AgentUtils.getCurrentTime() - lastPrintTime > CORE_THREAD_PRINT_INTERVAL_MS) {
+            lastPrintTime = AgentUtils.getCurrentTime();
+            LOGGER.info("path is {}, linePosition {}, bytePosition is {} file len {}, reads lines size {}",
+                    file.getName(), linePosition, bytePosition, file.length(), lines.size());
         }
+        return flushPendingData();
     }
 
-    private void putIntoQueue(SourceData sourceData) {
-        if (sourceData == null) {
-            return;
+    /**
+     * Stop reading a file which is rotated or deleted, the event held by the multi-line
+     * aggregator is put into the queue first
+     *
+     * @return -1 if the reading is finished, or the time to wait before retrying
+     */
+    private long finishFile() {
+        if (multiLineAggregator != null) {
+            List<SourceData> lines = new ArrayList<>();
+            multiLineAggregator.flush(eventConsumer(lines));
+            pendingData.addAll(lines);
         }
-        try {
-            boolean offerSuc = false;
-            while (isRunnable() && offerSuc != true) {
-                offerSuc = queue.offer(sourceData, 1, TimeUnit.SECONDS);
+        long waitMs = flushPendingData();
+        if (waitMs > 0) {
+            return waitMs;
+        }
+        fileExist = false;
+        return -1;
+    }
+
+    /**
+     * The wait time until the file is modified, it backs off for the file systems
+     * without modification events.
+     */
+    private long nextIdleWait() {
+        long waitMs = idleWaitMs;
+        long maxWaitMs = modifyWaiter.isEverSignaled() ? MAX_NOTIFIED_IDLE_WAIT_MS : MAX_IDLE_WAIT_MS;
+        idleWaitMs = Math.min(waitMs * 2, maxWaitMs);
+        return waitMs;
+    }
+
+    /**
+     * Put the pending lines into the queue
+     *
+     * @return 0 if all are put, or the time to wait before retrying
+     */
+    private long flushPendingData() {
+        SourceData sourceData;
+        while ((sourceData = pendingData.peek()) != null) {
+            int dataLen = sourceData.data.length;
+            if (!MemoryManager.getInstance().tryAcquire(AGENT_GLOBAL_READER_QUEUE_PERMIT, taskId, instanceId,
+                    dataLen, this::onMemoryAvailable)) {
+                MemoryManager.getInstance().printDetail(AGENT_GLOBAL_READER_QUEUE_PERMIT, "log file source");
+                spillPendingData(dataLen);
+                return PERMIT_WAIT_MS;
             }
-            if (!offerSuc) {
-                MemoryManager.getInstance().release(AGENT_GLOBAL_READER_QUEUE_PERMIT, sourceData.data.length());
+            if (!queue.offer(sourceData)) {
+                MemoryManager.getInstance().release(AGENT_GLOBAL_READER_QUEUE_PERMIT, taskId, instanceId, dataLen);
+                return QUEUE_FULL_WAIT_MS;
             }
-            LOGGER.debug("Read {} from file {}", sourceData.getData(), fileName);
-        } catch (InterruptedException e) {
-            MemoryManager.getInstance().release(AGENT_GLOBAL_READER_QUEUE_PERMIT, sourceData.data.length());
-            LOGGER.error("fetchData offer failed {}", e.getMessage());
+            pendingData.poll();
+            pendingPartlyFlushed = true;
+            LOGGER.debug("Read {} bytes from file {}", dataLen, fileName);
         }
+        return 0;
+    }
+
+    /**
+     * Drop the pending lines when the global queue permit is exhausted, they stay in the
+     * file and are read again, so the memory is not held by the waiting sources. The
+     * lines are kept if some of them are in the queue already, or if they are assembled
+     * by the multi-line aggregator which holds the lines before them.
+     */
+    private void spillPendingData(int dataLen) {
+        if (pendingPartlyFlushed || multiLineAggregator != null
+                || MemoryManager.getInstance().getLeft(AGENT_GLOBAL_READER_QUEUE_PERMIT) >= dataLen) {
+            return;
+        }
+        LOGGER.info("global queue permit exhausted, drop {} pending lines and read them again from line {}, "
+                + "file {}", pendingData.size(), pendingStartLinePosition, fileName);
+        pendingData.clear();
+        bytePosition = pendingStartBytePosition;
+        linePosition = pendingStartLinePosition;
+    }
+
+    private void onMemoryAvailable() {
+        // not a modification event, the idle wait stays bounded on file systems without them
+        modifyWaiter.wakeUp();
     }
 
     /**
@@ -535,23 +621,55 @@ public class LogFileSource extends AbstractSource {
      */
     public void stopRunning() {
         runnable = false;
+        modifyWaiter.wakeUp();
     }
 
     private List<SourceData> readFromPos(long pos) throws IOException {
-        List<String> lines = new ArrayList<>();
         List<SourceData> dataList = new ArrayList<>();
-        RandomAccessFile input = new RandomAccessFile(file, "r");
-        bytePosition = readLines(input, pos, lines, BATCH_READ_LINE_COUNT, BATCH_READ_LINE_TOTAL_LEN, false);
-        for (int i = 0; i < lines.size(); i++) {
-            linePosition++;
-            dataList.add(new SourceData(lines.get(i), linePosition));
-        }
-        if (input != null) {
-            input.close();
+        if (lineReader == null) {
+            if (sharedReader) {
+                lineReader = new FileLineReader(file,
+                        () -> SharedFileReaderPool.getInstance().getReadBuffer(SIZE_OF_BUFFER_TO_READ_FILE),
+                        maxPackSize);
+            } else {
+                lineReader = new FileLineReader(file, SIZE_OF_BUFFER_TO_READ_FILE, maxPackSize);
+            }
         }
+        MultiLineAggregator.EventConsumer eventConsumer = eventConsumer(dataList);
+        bytePosition = lineReader.readLines(pos, BATCH_READ_LINE_COUNT, readQuota,
+                (bytes, offset, length, truncated) -> {
+                    if (truncated) {
+                        LOGGER.warn("readLines over len, line truncated to {} bytes", length);
+                        AuditUtils.add(AuditUtils.AUDIT_ID_AGENT_READ_SUCCESS_REAL_TIME, inlongGroupId,
+                                inlongStreamId, AgentUtils.getCurrentTime(), 1, maxPackSize);
+                    }
+                    linePosition++;
+                    if (multiLineAggregator == null) {
+                        eventConsumer.accept(bytes, offset, length, linePosition);
+                    } else {
+                        multiLineAggregator.append(bytes, offset, length, linePosition, eventConsumer);
+                    }
+                });
         return dataList;
     }
 
+    private MultiLineAggregator.EventConsumer eventConsumer(List<SourceData> dataList) {
+        return (bytes, offset, length, lastLine) -> dataList.add(
+                new SourceData(Arrays.copyOfRange(bytes, offset, offset + length), lastLine));
+    }
+
+    private void closeLineReader() {
+        if (lineReader == null) {
+            return;
+        }
+        try {
+            lineReader.close();
+        } catch (IOException e) {
+            LOGGER.error("close line reader error file {}", fileName, e);
+        }
+        lineReader = null;
+    }
+
     @Override
     public void destroy() {
         LOGGER.info("destroy read source name {}", fileName);
@@ -559,7 +677,9 @@ public class LogFileSource extends AbstractSource {
         while (running) {
             AgentUtils.silenceSleepInMs(1);
         }
+        pendingData.clear();
         clearQueue(queue);
+        MemoryManager.getInstance().cancelWait(taskId, instanceId);
         LOGGER.info("destroy read source name {} end", fileName);
     }
 
@@ -575,7 +695,8 @@ public class LogFileSource extends AbstractSource {
                 LOGGER.warn("poll {} data get interrupted.", file.getPath(), e);
             }
             if (sourceData != null) {
-                MemoryManager.getInstance().release(AGENT_GLOBAL_READER_QUEUE_PERMIT, sourceData.data.length());
+                MemoryManager.getInstance().release(AGENT_GLOBAL_READER_QUEUE_PERMIT, taskId, instanceId,
+                        sourceData.data.length);
             }
         }
         queue.clear();
@@ -591,7 +712,8 @@ public class LogFileSource extends AbstractSource {
 
     @Override
     public boolean sourceExist() {
-        return fileExist;
+        // the lines read before the file is gone are still delivered
+        return fileExist || (queue != null && !queue.isEmpty());
     }
 
     @Override
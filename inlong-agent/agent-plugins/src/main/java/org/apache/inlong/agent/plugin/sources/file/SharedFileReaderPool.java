@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.plugin.sources.file;
+
+import org.apache.inlong.agent.common.AgentThreadFactory;
+import org.apache.inlong.agent.conf.AgentConfiguration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.apache.inlong.agent.constant.AgentConstants.AGENT_FILE_SOURCE_SHARED_READER_THREADS;
+import static org.apache.inlong.agent.constant.AgentConstants.DEFAULT_FILE_SOURCE_SHARED_READER_THREADS;
+
+/**
+ * A fixed pool of reader loops shared by all the file sources.
+ *
+ * Each source is registered as a read task whose step reads at most a quota of bytes
+ * and never blocks. The ready tasks are run in turn from a fifo queue, a task having
+ * more data is appended to the queue again, an idle task is parked until it is woken
+ * up by a file modification or its retry delay expires. The loops share one read
+ * buffer per thread.
+ */
+public class SharedFileReaderPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedFileReaderPool.class);
+    private static volatile SharedFileReaderPool instance = null;
+
+    private static final int STATE_WAITING = 0;
+    private static final int STATE_READY = 1;
+    private static final int STATE_RUNNING = 2;
+    private static final int STATE_FINISHED = 3;
+
+    private final LinkedBlockingQueue<Entry> readyQueue = new LinkedBlockingQueue<>();
+    private final ScheduledThreadPoolExecutor timer;
+    private final ThreadLocal<ByteBuffer> readBuffers = new ThreadLocal<>();
+    private final AtomicInteger taskCount = new AtomicInteger(0);
+
+    /**
+     * task run by the reader loops
+     */
+    public interface ReadTask {
+
+        /**
+         * do one non-blocking step
+         *
+         * @return 0 to run again at once, the delay in milliseconds before the next step,
+         *         or a negative value if the task is finished
+         */
+        long step();
+
+        /**
+         * called once after the task is finished
+         */
+        void onFinished();
+    }
+
+    /**
+     * handle of a registered task
+     */
+    public class Entry {
+
+        private final ReadTask task;
+        private final AtomicInteger state = new AtomicInteger(STATE_WAITING);
+        private final AtomicBoolean wakeUpWhileRunning = new AtomicBoolean(false);
+        // the retry timer, only touched by the loop running the task
+        private ScheduledFuture<?> pendingWakeUp;
+
+        private Entry(ReadTask task) {
+            this.task = task;
+        }
+
+        /**
+         * run the task as soon as possible
+         */
+        public void wakeUp() {
+            // set before the state is read, so a step ending meanwhile either sees the flag
+            // or is already waiting when the state is read
+            wakeUpWhileRunning.set(true);
+            if (state.compareAndSet(STATE_WAITING, STATE_READY)) {
+                readyQueue.offer(this);
+            }
+        }
+    }
+
+    private SharedFileReaderPool(int threadNum) {
+        this.timer = new ScheduledThreadPoolExecutor(1, new AgentThreadFactory("shared-file-reader-timer"));
+        // the timers of the tasks woken up earlier are cancelled, do not keep them in the queue
+        this.timer.setRemoveOnCancelPolicy(true);
+        AgentThreadFactory threadFactory = new AgentThreadFactory("shared-file-reader");
+        for (int i = 0; i < threadNum; i++) {
+            threadFactory.newThread(this::runLoop).start();
+        }
+        LOGGER.info("shared file reader pool started with {} reader loops", threadNum);
+    }
+
+    public static SharedFileReaderPool getInstance() {
+        if (instance == null) {
+            synchronized (SharedFileReaderPool.class) {
+                if (instance == null) {
+                    instance = new SharedFileReaderPool(Math.max(1, AgentConfiguration.getAgentConf()
+                            .getInt(AGENT_FILE_SOURCE_SHARED_READER_THREADS,
+                                    DEFAULT_FILE_SOURCE_SHARED_READER_THREADS)));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * register a task, it is run at once
+     *
+     * @param task the read task
+     * @return the handle of the task
+     */
+    public Entry submit(ReadTask task) {
+        Entry entry = new Entry(task);
+        taskCount.incrementAndGet();
+        entry.wakeUp();
+        return entry;
+    }
+
+    /**
+     * get the read buffer of the current thread
+     *
+     * @param size the buffer size
+     * @return the buffer, the content is only valid until another file is read
+     */
+    public ByteBuffer getReadBuffer(int size) {
+        ByteBuffer buffer = readBuffers.get();
+        if (buffer == null || buffer.capacity() < size) {
+            buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+            readBuffers.set(buffer);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    public int getTaskCount() {
+        return taskCount.get();
+    }
+
+    int getPendingTimerCount() {
+        return timer.getQueue().size();
+    }
+
+    private void runLoop() {
+        while (true) {
+            Entry entry;
+            try {
+                entry = readyQueue.take();
+            } catch (InterruptedException e) {
+                LOGGER.warn("shared file reader loop interrupted, continue");
+                continue;
+            }
+            // the wake ups before the step are handled by it
+            entry.wakeUpWhileRunning.set(false);
+            entry.state.set(STATE_RUNNING);
+            long delayMs;
+            try {
+                delayMs = entry.task.step();
+            } catch (Throwable e) {
+                LOGGER.error("shared file reader step error: ", e);
+                delayMs = -1;
+            }
+            afterStep(entry, delayMs);
+        }
+    }
+
+    private void afterStep(Entry entry, long delayMs) {
+        if (delayMs < 0) {
+            cancelWakeUp(entry);
+            entry.state.set(STATE_FINISHED);
+            taskCount.decrementAndGet();
+            try {
+                entry.task.onFinished();
+            } catch (Throwable e) {
+                LOGGER.error("shared file reader finish task error: ", e);
+            }
+            return;
+        }
+        if (delayMs == 0) {
+            // more data, run again after the other ready tasks
+            entry.state.set(STATE_READY);
+            readyQueue.offer(entry);
+            return;
+        }
+        // scheduled before the task can be woken up by another thread
+        scheduleWakeUp(entry, delayMs);
+        entry.state.set(STATE_WAITING);
+        if (entry.wakeUpWhileRunning.getAndSet(false)) {
+            entry.wakeUp();
+        }
+    }
+
+    /**
+     * Keep at most one retry timer per task, the pending one is reused if it has not
+     * fired yet and fires no later than the new delay, or replaced otherwise.
+     */
+    private void scheduleWakeUp(Entry entry, long delayMs) {
+        ScheduledFuture<?> pending = entry.pendingWakeUp;
+        if (pending != null) {
+            // a timer which has started firing may have woken up this step already
+            long leftMs = pending.getDelay(TimeUnit.MILLISECONDS);
+            if (leftMs > 0 && leftMs <= delayMs) {
+                return;
+            }
+            pending.cancel(false);
+        }
+        entry.pendingWakeUp = timer.schedule(entry::wakeUp, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelWakeUp(Entry entry) {
+        ScheduledFuture<?> pending = entry.pendingWakeUp;
+        if (pending != null) {
+            pending.cancel(false);
+            entry.pendingWakeUp = null;
+        }
+    }
+}
@@ -25,29 +25,33 @@ import org.apache.inlong.agent.message.DefaultMessage;
 import org.apache.inlong.agent.metrics.audit.AuditUtils;
 import org.apache.inlong.agent.plugin.Message;
 import org.apache.inlong.agent.plugin.sources.snapshot.BinlogSnapshotBase;
+import org.apache.inlong.agent.plugin.utils.DebeziumRecordEncoder;
 import org.apache.inlong.agent.plugin.utils.InLongDatabaseHistory;
 import org.apache.inlong.agent.plugin.utils.InLongFileOffsetBackingStore;
-import org.apache.inlong.agent.pojo.DebeziumFormat;
 import org.apache.inlong.agent.utils.AgentUtils;
 
 import com.google.common.base.Preconditions;
-import com.google.gson.Gson;
 import io.debezium.connector.mysql.MySqlConnector;
-import io.debezium.engine.ChangeEvent;
+import io.debezium.embedded.Connect;
 import io.debezium.engine.DebeziumEngine;
+import io.debezium.engine.RecordChangeEvent;
+import io.debezium.engine.format.ChangeEventFormat;
 import io.debezium.relational.history.FileDatabaseHistory;
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.kafka.connect.source.SourceRecord;
 import org.apache.kafka.connect.storage.FileOffsetBackingStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 
 import static org.apache.inlong.agent.constant.CommonConstants.DEFAULT_MAP_CAPACITY;
 import static org.apache.inlong.agent.constant.CommonConstants.PROXY_KEY_DATA;
@@ -74,13 +78,19 @@ public class BinlogReader extends AbstractReader {
     public static final String JOB_DATABASE_PORT = "job.binlogJob.port";
     public static final String JOB_DATABASE_QUEUE_SIZE = "job.binlogJob.queueSize";
     private static final Logger LOGGER = LoggerFactory.getLogger(BinlogReader.class);
-    private static final Gson GSON = new Gson();
     private final AgentConfiguration agentConf = AgentConfiguration.getAgentConf();
     /**
+     * batches of the records received together, in each record
      * pair.left: table name
      * pair.right: actual data
      */
-    private LinkedBlockingQueue<Pair<String, String>> binlogMessagesQueue;
+    private LinkedBlockingQueue<List<Pair<String, byte[]>>> binlogMessagesQueue;
+    // permits of the queued records, bounding the queue by records instead of batches
+    private Semaphore queuePermits;
+    private int queueSize;
+    // the batch being read
+    private List<Pair<String, byte[]>> currentBatch;
+    private int currentIndex = 0;
     private boolean finished = false;
     private String userName;
     private String password;
@@ -108,18 +118,21 @@ public class BinlogReader extends AbstractReader {
 
     @Override
     public Message read() {
-        if (!binlogMessagesQueue.isEmpty()) {
-            return getBinlogMessage();
-        } else {
-            return null;
+        if (currentBatch == null || currentIndex >= currentBatch.size()) {
+            currentBatch = binlogMessagesQueue.poll();
+            currentIndex = 0;
+            if (currentBatch == null) {
+                return null;
+            }
         }
+        return getBinlogMessage(currentBatch.get(currentIndex++));
     }
 
-    private DefaultMessage getBinlogMessage() {
-        Pair<String, String> message = binlogMessagesQueue.poll();
+    private DefaultMessage getBinlogMessage(Pair<String, byte[]> message) {
+        queuePermits.release();
         Map<String, String> header = new HashMap<>(DEFAULT_MAP_CAPACITY);
         header.put(PROXY_KEY_DATA, message.getKey());
-        return new DefaultMessage(message.getValue().getBytes(StandardCharsets.UTF_8), header);
+        return new DefaultMessage(message.getValue(), header);
     }
 
     @Override
@@ -141,7 +154,9 @@ public class BinlogReader extends AbstractReader {
         snapshotMode = jobConf.get(JOB_DATABASE_SNAPSHOT_MODE, "");
         includeSchemaChanges = jobConf.get(JOB_DATABASE_INCLUDE_SCHEMA_CHANGES, "false");
         historyMonitorDdl = jobConf.get(JOB_DATABASE_HISTORY_MONITOR_DDL, "false");
-        binlogMessagesQueue = new LinkedBlockingQueue<>(jobConf.getInt(JOB_DATABASE_QUEUE_SIZE, 1000));
+        queueSize = Math.max(1, jobConf.getInt(JOB_DATABASE_QUEUE_SIZE, 1000));
+        binlogMessagesQueue = new LinkedBlockingQueue<>();
+        queuePermits = new Semaphore(queueSize);
         instanceId = jobConf.getInstanceId();
         finished = false;
 
@@ -155,16 +170,27 @@ public class BinlogReader extends AbstractReader {
         binlogSnapshot.save(offset, binlogSnapshot.getFile());
 
         Properties props = getEngineProps();
-        DebeziumEngine<ChangeEvent<String, String>> engine = DebeziumEngine.create(io.debezium.engine.format.Json.class)
+        DebeziumRecordEncoder recordEncoder = new DebeziumRecordEncoder(props);
+        DebeziumEngine<RecordChangeEvent<SourceRecord>> engine = DebeziumEngine.create(
+                ChangeEventFormat.of(Connect.class))
                 .notifying((records, committer) -> {
                     try {
-                        for (ChangeEvent<String, String> record : records) {
-                            DebeziumFormat debeziumFormat = GSON.fromJson(record.value(), DebeziumFormat.class);
-                            binlogMessagesQueue.put(Pair.of(debeziumFormat.getSource().getTable(), record.value()));
-                            committer.markProcessed(record);
+                        List<Pair<String, byte[]>> batch = new ArrayList<>(records.size());
+                        long dataSize = 0;
+                        for (RecordChangeEvent<SourceRecord> event : records) {
+                            SourceRecord record = event.record();
+                            if (record.value() == null) {
+                                continue;
+                            }
+                            byte[] value = recordEncoder.encodeValue(record);
+                            batch.add(Pair.of(DebeziumRecordEncoder.getTableName(record), value));
+                            dataSize += value.length;
+                        }
+                        putBatch(batch);
+                        for (RecordChangeEvent<SourceRecord> event : records) {
+                            committer.markProcessed(event);
                         }
                         committer.markBatchFinished();
-                        long dataSize = records.stream().mapToLong(r -> r.value().length()).sum();
                         AuditUtils.add(AuditUtils.AUDIT_ID_AGENT_READ_SUCCESS, inlongGroupId, inlongStreamId,
                                 System.currentTimeMillis(), records.size(), dataSize);
                         readerMetric.pluginReadSuccessCount.addAndGet(records.size());
@@ -188,6 +214,17 @@ public class BinlogReader extends AbstractReader {
         LOGGER.info("get initial snapshot of job {}, snapshot {}", jobConf.getInstanceId(), getSnapshot());
     }
 
+    /**
+     * put the records into the queue, in chunks of at most the queue size
+     */
+    private void putBatch(List<Pair<String, byte[]>> batch) throws InterruptedException {
+        for (int start = 0; start < batch.size(); start += queueSize) {
+            List<Pair<String, byte[]>> chunk = batch.subList(start, Math.min(start + queueSize, batch.size()));
+            queuePermits.acquire(chunk.size());
+            binlogMessagesQueue.put(chunk);
+        }
+    }
+
     private Properties getEngineProps() {
         Properties props = new Properties();
         props.setProperty("name", "engine" + instanceId);
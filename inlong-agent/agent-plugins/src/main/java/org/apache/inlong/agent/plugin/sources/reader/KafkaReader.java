@@ -18,41 +18,62 @@
 package org.apache.inlong.agent.plugin.sources.reader;
 
 import org.apache.inlong.agent.conf.InstanceProfile;
+import org.apache.inlong.agent.constant.TaskConstants;
 import org.apache.inlong.agent.message.DefaultMessage;
+import org.apache.inlong.agent.message.filecollect.AckMessage;
+import org.apache.inlong.agent.message.filecollect.OffsetAckInfo;
 import org.apache.inlong.agent.metrics.audit.AuditUtils;
 import org.apache.inlong.agent.plugin.Message;
 import org.apache.inlong.agent.plugin.Validator;
 import org.apache.inlong.agent.plugin.sources.reader.file.AbstractReader;
+import org.apache.inlong.agent.plugin.utils.TokenBucket;
 import org.apache.inlong.agent.plugin.validator.PatternValidator;
 import org.apache.inlong.agent.utils.AgentUtils;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
-import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
+import static org.apache.inlong.agent.constant.TaskConstants.DEFAULT_JOB_KAFKA_BATCH_MODE;
+import static org.apache.inlong.agent.constant.TaskConstants.DEFAULT_JOB_KAFKA_MAX_INFLIGHT;
+import static org.apache.inlong.agent.constant.TaskConstants.JOB_KAFKA_BATCH_MODE;
 import static org.apache.inlong.agent.constant.TaskConstants.JOB_KAFKA_BYTE_SPEED_LIMIT;
+import static org.apache.inlong.agent.constant.TaskConstants.JOB_KAFKA_MAX_INFLIGHT;
 import static org.apache.inlong.agent.constant.TaskConstants.JOB_KAFKA_OFFSET;
 import static org.apache.inlong.agent.constant.TaskConstants.JOB_KAFKA_PARTITION_OFFSET_DELIMITER;
 import static org.apache.inlong.agent.constant.TaskConstants.JOB_KAFKA_RECORD_SPEED_LIMIT;
 import static org.apache.inlong.agent.constant.TaskConstants.JOB_KAFKA_TOPIC;
+import static org.apache.inlong.agent.constant.TaskConstants.JOB_OFFSET_DELIMITER;
 
 /**
  * read kafka data
+ *
+ * In the batch mode the records of a poll are converted to messages in bulk, the
+ * messages carry their ack info, and the offset of a partition is committed
+ * asynchronously once the sink has acked all the messages before it. The partitions
+ * stop being fetched while too many messages wait for the ack.
+ *
+ * The consumer is not thread safe, it is only used by the thread reading. Destroying the
+ * reader wakes the consumer up, the thread reading does the last commit and closes it.
  */
 public class KafkaReader<K, V> extends AbstractReader {
 
@@ -62,52 +83,72 @@ public class KafkaReader<K, V> extends AbstractReader {
     private static final String KAFKA_READER_TAG_NAME = "AgentKafkaMetric";
     private static final String KAFKA_SOURCE_READ_RECORD_SPEED = "job.kafkaJob.record.speed.limit";
     private static final String KAFKA_SOURCE_READ_BYTE_SPEED = "job.kafkaJob.byte.speed.limit";
-    private static final String KAFKA_SOURCE_READ_MIN_INTERVAL = "kafka.min.interval.limit";
     private static final String JOB_KAFKAJOB_READ_TIMEOUT = "job.kafkaJob.read.timeout";
-    /* total readRecords */
-    private static AtomicLong currentTotalReadRecords = new AtomicLong(0);
-    private static AtomicLong lastTotalReadRecords = new AtomicLong(0);
-    /* total readBytes */
-    private static AtomicLong currentTotalReadBytes = new AtomicLong(0);
-    private static AtomicLong lastTotalReadBytes = new AtomicLong(0);
-    KafkaConsumer<K, V> consumer;
-    long lastTimestamp;
-    /* bps: records/s */
-    long recordSpeed;
-    /* tps: bytes/s */
-    long byteSpeed;
-    /* sleepTime */
-    long flowControlInterval;
+    private static final long FETCH_TIMEOUT_MS = 5000;
+    private static final long BATCH_FETCH_TIMEOUT_MS = 100;
+    private static final long COMMIT_INTERVAL_MS = 1000;
+    private static final String RECORD_PARTITION = "record.partition";
+    Consumer<K, V> consumer;
+    /* records/s */
+    private final TokenBucket recordBucket;
+    /* bytes/s */
+    private final TokenBucket byteBucket;
     private Iterator<ConsumerRecord<K, V>> iterator;
     private List<Validator> validators = new ArrayList<>();
     private long timeout;
     private long waitTimeout = 1000;
-    private long lastTime = 0;
-    private String inlongGroupId;
-    private String inlongStreamId;
     private String snapshot;
-    private boolean isFinished = false;
-    private boolean destroyed = false;
+    private volatile boolean isFinished = false;
+    private volatile boolean destroyed = false;
+    private volatile boolean closed = false;
     private String topic;
+    private final boolean batchMode;
+    private final int maxInFlight;
+    // messages of the last poll not read yet
+    private final ArrayDeque<Message> pending = new ArrayDeque<>();
+    // ack info of the messages read, in the offset order of each partition
+    private final Map<TopicPartition, ArrayDeque<OffsetAckInfo>> inFlight = new HashMap<>();
+    private int inFlightCount = 0;
+    // next offset to consume of each partition, all the messages before it are acked
+    private final Map<Integer, Long> committed = new TreeMap<>();
+    private boolean paused = false;
+    private long lastCommitTime = 0;
 
     /**
      * init attribute
      */
-    public KafkaReader(KafkaConsumer<K, V> consumer, Map<String, String> paraMap) {
+    public KafkaReader(Consumer<K, V> consumer, Map<String, String> paraMap) {
         this.consumer = consumer;
-        this.recordSpeed = Long.parseLong(paraMap.getOrDefault(JOB_KAFKA_RECORD_SPEED_LIMIT, "10000"));
-        this.byteSpeed = Long.parseLong(paraMap.getOrDefault(JOB_KAFKA_BYTE_SPEED_LIMIT, String.valueOf(1024 * 1024)));
-        this.flowControlInterval = Long.parseLong(paraMap.getOrDefault(KAFKA_SOURCE_READ_MIN_INTERVAL, "1000"));
-        this.lastTimestamp = System.currentTimeMillis();
+        this.recordBucket = new TokenBucket(
+                Long.parseLong(paraMap.getOrDefault(JOB_KAFKA_RECORD_SPEED_LIMIT, "10000")));
+        this.byteBucket = new TokenBucket(
+                Long.parseLong(paraMap.getOrDefault(JOB_KAFKA_BYTE_SPEED_LIMIT, String.valueOf(1024 * 1024))));
         this.topic = paraMap.get(JOB_KAFKA_TOPIC);
+        this.batchMode = Boolean.parseBoolean(
+                paraMap.getOrDefault(JOB_KAFKA_BATCH_MODE, String.valueOf(DEFAULT_JOB_KAFKA_BATCH_MODE)));
+        this.maxInFlight = Integer.parseInt(
+                paraMap.getOrDefault(JOB_KAFKA_MAX_INFLIGHT, String.valueOf(DEFAULT_JOB_KAFKA_MAX_INFLIGHT)));
 
-        LOGGER.info("KAFKA_SOURCE_READ_RECORD_SPEED = {}", this.recordSpeed);
-        LOGGER.info("KAFKA_SOURCE_READ_BYTE_SPEED = {}", this.byteSpeed);
+        LOGGER.info("KAFKA_SOURCE_READ_RECORD_SPEED = {}", recordBucket.getRate());
+        LOGGER.info("KAFKA_SOURCE_READ_BYTE_SPEED = {}", byteBucket.getRate());
     }
 
     @Override
     public Message read() {
+        if (destroyed) {
+            close();
+            return null;
+        }
+        try {
+            return batchMode ? readBatch() : readRecord();
+        } catch (WakeupException e) {
+            LOGGER.info("kafka reader of topic {} is woken up to close", topic);
+            close();
+            return null;
+        }
+    }
 
+    private Message readRecord() {
         if (iterator != null && iterator.hasNext()) {
             ConsumerRecord<K, V> record = iterator.next();
             // body
@@ -119,6 +160,7 @@ public class KafkaReader<K, V> extends AbstractReader {
                 Map<String, String> headerMap = new HashMap<>();
                 headerMap.put("record.offset", String.valueOf(record.offset()));
                 headerMap.put("record.key", String.valueOf(record.key()));
+                headerMap.put(TaskConstants.OFFSET, String.valueOf(record.offset()));
                 LOGGER.debug(
                         "partition:" + record.partition()
                                 + ", value:" + new String(recordValue) + ", offset:" + record.offset());
@@ -128,7 +170,7 @@ public class KafkaReader<K, V> extends AbstractReader {
                 // commit succeed,then record current offset
                 snapshot = record.partition() + JOB_KAFKA_PARTITION_OFFSET_DELIMITER + record.offset();
                 DefaultMessage message = new DefaultMessage(recordValue, headerMap);
-                recordReadLimit(1L, message.getBody().length);
+                limitSpeed(message.getBody().length);
                 return message;
             }
         } else {
@@ -136,7 +178,7 @@ public class KafkaReader<K, V> extends AbstractReader {
             if (isSourceExist()) {
                 consumer.commitAsync();
             }
-            fetchData(5000);
+            fetchData(FETCH_TIMEOUT_MS);
         }
         AgentUtils.silenceSleepInMs(waitTimeout);
 
@@ -177,19 +219,53 @@ public class KafkaReader<K, V> extends AbstractReader {
         snapshot = jobConf.get(JOB_KAFKA_OFFSET, null);
         initReadTimeout(jobConf);
         // fetch data
-        fetchData(5000);
+        try {
+            if (batchMode) {
+                fetchBatch(BATCH_FETCH_TIMEOUT_MS);
+            } else {
+                fetchData(FETCH_TIMEOUT_MS);
+            }
+        } catch (WakeupException e) {
+            // destroyed while fetching, closed by the next read
+            LOGGER.info("kafka reader of topic {} is woken up while init", topic);
+        }
     }
 
+    /**
+     * wake the consumer up, it is closed by the thread reading
+     */
     @Override
     public void destroy() {
-        synchronized (this) {
-            if (!destroyed) {
-                consumer.close();
-                destroyed = true;
+        if (!destroyed) {
+            destroyed = true;
+            consumer.wakeup();
+        }
+    }
+
+    /**
+     * commit the offsets acked and close the consumer, called by the thread reading
+     */
+    private void close() {
+        if (closed) {
+            return;
+        }
+        try {
+            if (batchMode) {
+                commitAcked(true);
             }
+        } finally {
+            consumer.close();
+            closed = true;
         }
     }
 
+    /**
+     * whether the consumer is closed after the reader is destroyed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
     private void initReadTimeout(InstanceProfile jobConf) {
         int waitTime = jobConf.getInt(JOB_KAFKAJOB_READ_TIMEOUT, NEVER_STOP_SIGN);
         if (waitTime == NEVER_STOP_SIGN) {
@@ -240,53 +316,125 @@ public class KafkaReader<K, V> extends AbstractReader {
         return iterator != null ? true : false;
     }
 
-    private void recordReadLimit(long recordSize, long byteSize) {
-        boolean isChannelByteSpeedLimit = (this.byteSpeed > 0);
-        boolean isChannelRecordSpeedLimit = (this.recordSpeed > 0);
-        if (!isChannelByteSpeedLimit && !isChannelRecordSpeedLimit) {
-            return;
+    /**
+     * read a message polled in batch, poll again once all the messages are read
+     */
+    private Message readBatch() {
+        if (pending.isEmpty() || AgentUtils.getCurrentTime() - lastCommitTime >= COMMIT_INTERVAL_MS) {
+            commitAcked(false);
         }
-        currentTotalReadRecords.accumulateAndGet(recordSize, (x, y) -> x + y);
-        currentTotalReadBytes.accumulateAndGet(byteSize, (x, y) -> x + y);
-
-        long nowTimestamp = System.currentTimeMillis();
-        long interval = nowTimestamp - lastTimestamp;
+        if (pending.isEmpty()) {
+            fetchBatch(BATCH_FETCH_TIMEOUT_MS);
+            if (pending.isEmpty()) {
+                return null;
+            }
+        }
+        AckMessage message = (AckMessage) pending.poll();
+        inFlight.computeIfAbsent(new TopicPartition(topic, Integer.parseInt(message.getHeader().get(
+                RECORD_PARTITION))), k -> new ArrayDeque<>()).add(message.getAckInfo());
+        inFlightCount++;
+        limitSpeed(message.getBody().length);
+        return message;
+    }
 
-        if (interval - this.flowControlInterval >= 0) {
-            long byteLimitSleepTime = 0;
-            long recordLimitSleepTime = 0;
-            if (isChannelByteSpeedLimit) {
-                long currentByteSpeed = (currentTotalReadBytes.get() - lastTotalReadBytes.get()) * 1000 / interval;
-                LOGGER.info("current produce byte speed bytes/s:{}", currentByteSpeed);
-                if (currentByteSpeed > this.byteSpeed) {
-                    // calculate byteLimitSleepTime
-                    byteLimitSleepTime = currentByteSpeed * interval / this.byteSpeed - interval;
+    /**
+     * poll the records and convert them to messages, the partitions are paused while
+     * too many messages wait for the ack
+     */
+    private void fetchBatch(long fetchDataTimeout) {
+        if (inFlightCount >= maxInFlight) {
+            if (!paused) {
+                consumer.pause(consumer.assignment());
+                paused = true;
+                LOGGER.info("pause topic {} for {} messages not acked", topic, inFlightCount);
+            }
+        } else if (paused) {
+            consumer.resume(consumer.paused());
+            paused = false;
+        }
+        // poll even if paused to keep the connection alive
+        ConsumerRecords<K, V> records = consumer.poll(Duration.ofMillis(fetchDataTimeout));
+        if (records.isEmpty()) {
+            return;
+        }
+        long readBytes = 0;
+        int readCount = 0;
+        for (TopicPartition partition : records.partitions()) {
+            String partitionId = String.valueOf(partition.partition());
+            for (ConsumerRecord<K, V> record : records.records(partition)) {
+                byte[] recordValue = (byte[]) record.value();
+                if (recordValue == null || !validateMessage(recordValue)) {
+                    // committed along with the next message acked
+                    continue;
                 }
+                Map<String, String> headerMap = new HashMap<>();
+                headerMap.put(RECORD_PARTITION, partitionId);
+                headerMap.put("record.offset", String.valueOf(record.offset()));
+                headerMap.put("record.key", String.valueOf(record.key()));
+                pending.add(new AckMessage(recordValue, headerMap, record.offset()));
+                readBytes += recordValue.length;
+                readCount++;
             }
+        }
+        AuditUtils.add(AuditUtils.AUDIT_ID_AGENT_READ_SUCCESS,
+                inlongGroupId, inlongStreamId, System.currentTimeMillis(), readCount, readBytes);
+        readerMetric.pluginReadSuccessCount.addAndGet(readCount);
+        readerMetric.pluginReadCount.addAndGet(readCount);
+    }
 
-            if (isChannelRecordSpeedLimit) {
-                long currentRecordSpeed =
-                        (currentTotalReadRecords.get() - lastTotalReadRecords.get()) * 1000 / interval;
-                LOGGER.info("current read speed records/s:{}", currentRecordSpeed);
-                if (currentRecordSpeed > this.recordSpeed) {
-                    // calculate recordSleepTime reduce to recordLimit
-                    recordLimitSleepTime = currentRecordSpeed * interval / this.recordSpeed - interval;
-                }
+    /**
+     * commit the offsets of the partitions whose leading messages are acked
+     *
+     * @param sync whether to wait for the commit, such as when closing
+     */
+    private void commitAcked(boolean sync) {
+        lastCommitTime = AgentUtils.getCurrentTime();
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (Map.Entry<TopicPartition, ArrayDeque<OffsetAckInfo>> entry : inFlight.entrySet()) {
+            ArrayDeque<OffsetAckInfo> ackInfos = entry.getValue();
+            OffsetAckInfo acked = null;
+            while (!ackInfos.isEmpty() && Boolean.TRUE.equals(ackInfos.peek().getHasAck())) {
+                acked = ackInfos.poll();
+                inFlightCount--;
             }
-            // calculate sleep time
-            long sleepTime = byteLimitSleepTime < recordLimitSleepTime
-                    ? recordLimitSleepTime
-                    : byteLimitSleepTime;
-            if (sleepTime > 0) {
-                LOGGER.info("sleep seconds:{}", sleepTime / 1000);
+            if (acked != null) {
+                offsets.put(entry.getKey(), new OffsetAndMetadata(acked.getOffset() + 1));
+                committed.put(entry.getKey().partition(), acked.getOffset() + 1);
+            }
+        }
+        if (offsets.isEmpty()) {
+            return;
+        }
+        snapshot = committed.entrySet().stream()
+                .map(entry -> entry.getKey() + JOB_KAFKA_PARTITION_OFFSET_DELIMITER + entry.getValue())
+                .collect(Collectors.joining(JOB_OFFSET_DELIMITER));
+        try {
+            if (sync) {
                 try {
-                    Thread.sleep(sleepTime);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    consumer.commitSync(offsets);
+                } catch (WakeupException e) {
+                    // the wakeup of destroy is not taken by a poll, it is cleared once thrown
+                    consumer.commitSync(offsets);
                 }
+            } else {
+                consumer.commitAsync(offsets, (result, e) -> {
+                    if (e != null) {
+                        LOGGER.warn("commit offsets {} of topic {} error", result, topic, e);
+                    }
+                });
             }
+        } catch (Exception e) {
+            LOGGER.error("commit offsets {} of topic {} error", offsets, topic, e);
+        }
+    }
+
+    /**
+     * wait for the tokens of the record and its bytes
+     */
+    private void limitSpeed(long byteSize) {
+        long sleepTime = Math.max(recordBucket.acquire(1), byteBucket.acquire(byteSize));
+        if (sleepTime > 0) {
+            AgentUtils.silenceSleepInMs(sleepTime);
         }
-        lastTimestamp = nowTimestamp;
-        lastTotalReadRecords = currentTotalReadRecords;
     }
 }
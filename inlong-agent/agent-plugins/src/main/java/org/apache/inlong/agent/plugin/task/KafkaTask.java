@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.plugin.task;
+
+import org.apache.inlong.agent.conf.InstanceProfile;
+import org.apache.inlong.agent.conf.TaskProfile;
+import org.apache.inlong.agent.constant.CycleUnitType;
+import org.apache.inlong.agent.constant.TaskConstants;
+import org.apache.inlong.agent.core.instance.ActionType;
+import org.apache.inlong.agent.core.instance.InstanceAction;
+import org.apache.inlong.agent.core.instance.InstanceManager;
+import org.apache.inlong.agent.core.task.file.TaskManager;
+import org.apache.inlong.agent.db.Db;
+import org.apache.inlong.agent.metrics.audit.AuditUtils;
+import org.apache.inlong.agent.plugin.file.Task;
+import org.apache.inlong.agent.state.State;
+import org.apache.inlong.agent.utils.AgentUtils;
+import org.apache.inlong.agent.utils.DateTransUtils;
+import org.apache.inlong.common.enums.InstanceStateEnum;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Read a kafka topic by one instance, the partitions of the topic are read by the lanes of the kafka source.
+ */
+public class KafkaTask extends Task {
+
+    public static final String DEFAULT_KAFKA_INSTANCE = "org.apache.inlong.agent.plugin.instance.KafkaInstance";
+    private static final Logger LOGGER = LoggerFactory.getLogger(KafkaTask.class);
+    public static final int CORE_THREAD_SLEEP_TIME = 1000;
+    public static final int CORE_THREAD_PRINT_TIME = 10000;
+    private static final int DESTROY_LOOP_WAIT_TIME_MS = 10;
+    private TaskProfile taskProfile;
+    private TaskManager taskManager;
+    private InstanceManager instanceManager;
+    private String topic;
+    private long lastPrintTime = 0;
+    private volatile boolean running = false;
+
+    @Override
+    public void init(Object srcManager, TaskProfile taskProfile, Db basicDb) throws IOException {
+        taskManager = (TaskManager) srcManager;
+        this.taskProfile = taskProfile;
+        topic = taskProfile.get(TaskConstants.JOB_KAFKA_TOPIC);
+        instanceManager = new InstanceManager(taskProfile.getTaskId(), 1, basicDb, taskManager.getTaskDb());
+        try {
+            instanceManager.start();
+        } catch (Exception e) {
+            LOGGER.error("start instance manager error: ", e);
+        }
+    }
+
+    @Override
+    public boolean isProfileValid(TaskProfile profile) {
+        // the kafka task has no file keys such as the cycle unit
+        boolean ret = profile.hasKey(TaskConstants.TASK_ID) && profile.hasKey(TaskConstants.TASK_SOURCE)
+                && profile.hasKey(TaskConstants.TASK_SINK) && profile.hasKey(TaskConstants.TASK_CHANNEL)
+                && profile.hasKey(TaskConstants.TASK_GROUP_ID) && profile.hasKey(TaskConstants.TASK_STREAM_ID);
+        if (!ret) {
+            LOGGER.error("task profile needs all required key");
+            return false;
+        }
+        if (!profile.hasKey(TaskConstants.JOB_KAFKA_TOPIC)
+                || !profile.hasKey(TaskConstants.JOB_KAFKA_BOOTSTRAP_SERVERS)) {
+            LOGGER.error("task profile needs kafka topic and bootstrap servers");
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void destroy() {
+        doChangeState(State.SUCCEEDED);
+        while (running) {
+            AgentUtils.silenceSleepInMs(DESTROY_LOOP_WAIT_TIME_MS);
+        }
+        if (instanceManager != null) {
+            instanceManager.stop();
+        }
+    }
+
+    @Override
+    public TaskProfile getProfile() {
+        return taskProfile;
+    }
+
+    @Override
+    public String getTaskId() {
+        if (taskProfile == null) {
+            return "";
+        }
+        return taskProfile.getTaskId();
+    }
+
+    @Override
+    public void addCallbacks() {
+
+    }
+
+    @Override
+    public void run() {
+        Thread.currentThread().setName("kafka-task-core-" + getTaskId());
+        running = true;
+        try {
+            doRun();
+        } catch (Throwable e) {
+            LOGGER.error("do run error: ", e);
+        }
+        running = false;
+    }
+
+    private void doRun() {
+        while (!isFinished()) {
+            if (AgentUtils.getCurrentTime() - lastPrintTime > CORE_THREAD_PRINT_TIME) {
+                LOGGER.info("kafka task running! taskId {}", getTaskId());
+                lastPrintTime = AgentUtils.getCurrentTime();
+            }
+            // the instance is added again once deleted, such as when the source failed to init
+            if (instanceManager.shouldAddAgain(topic, 0)) {
+                InstanceProfile instanceProfile = createInstanceProfile();
+                if (!instanceManager.submitAction(new InstanceAction(ActionType.ADD, instanceProfile))) {
+                    LOGGER.error("instance manager action queue is full: taskId {}", getTaskId());
+                }
+            }
+            AgentUtils.silenceSleepInMs(CORE_THREAD_SLEEP_TIME);
+            AuditUtils.add(AuditUtils.AUDIT_ID_AGENT_TASK_HEARTBEAT, taskProfile.getInlongGroupId(),
+                    taskProfile.getInlongStreamId(), AgentUtils.getCurrentTime(), 1, 1);
+        }
+    }
+
+    /**
+     * the topic is the instance id, the kafka task is read in real time and has no data time
+     * so the current hour is used
+     */
+    private InstanceProfile createInstanceProfile() {
+        InstanceProfile instanceProfile = InstanceProfile.parseJsonStr(taskProfile.toJsonStr());
+        long currentTime = AgentUtils.getCurrentTime();
+        instanceProfile.set(TaskConstants.TASK_CYCLE_UNIT, CycleUnitType.REAL_TIME);
+        instanceProfile.setInstanceClass(DEFAULT_KAFKA_INSTANCE);
+        instanceProfile.setInstanceId(topic);
+        instanceProfile.setSourceDataTime(DateTransUtils.millSecConvertToTimeStr(currentTime, CycleUnitType.HOUR));
+        instanceProfile.setSinkDataTime(currentTime);
+        instanceProfile.setCreateTime(currentTime);
+        instanceProfile.setModifyTime(currentTime);
+        instanceProfile.setState(InstanceStateEnum.DEFAULT);
+        instanceProfile.setFileUpdateTime(0);
+        return instanceProfile;
+    }
+}
@@ -17,9 +17,9 @@
 
 package org.apache.inlong.agent.plugin.task.filecollect;
 
+import org.apache.inlong.agent.plugin.utils.file.DirectoryIndex;
 import org.apache.inlong.agent.plugin.utils.file.FilePathUtil;
 import org.apache.inlong.agent.plugin.utils.file.FileTimeComparator;
-import org.apache.inlong.agent.plugin.utils.file.Files;
 import org.apache.inlong.agent.plugin.utils.file.NewDateUtils;
 import org.apache.inlong.agent.utils.DateTransUtils;
 
@@ -129,14 +129,8 @@ public class FileScanner {
         if (!new File(firstDir).isDirectory()) {
             return ret;
         }
-        for (File pathname : Files.find(firstDir).yieldFilesAndDirectories()
-                .recursive().withDepth((int) depth).withDirNameRegex(secondDir)
-                .withFileNameRegex(fileName)) {
-            if (readyFiles.size() >= maxFileNum) {
-                break;
-            }
-            readyFiles.add(pathname);
-        }
+        // the listings of the directories are shared and only refreshed when they change
+        readyFiles.addAll(DirectoryIndex.getInstance().find(firstDir, secondDir, fileName, (int) depth, maxFileNum));
         // sort by last-modified time (older -> newer)
         Collections.sort(readyFiles, new FileTimeComparator());
         for (File f : readyFiles) {
@@ -30,6 +30,7 @@ import org.apache.inlong.agent.db.Db;
 import org.apache.inlong.agent.metrics.audit.AuditUtils;
 import org.apache.inlong.agent.plugin.file.Task;
 import org.apache.inlong.agent.plugin.task.filecollect.FileScanner.BasicFileInfo;
+import org.apache.inlong.agent.plugin.utils.file.FileModifyNotifier;
 import org.apache.inlong.agent.plugin.utils.file.FilePathUtil;
 import org.apache.inlong.agent.plugin.utils.file.NewDateUtils;
 import org.apache.inlong.agent.plugin.utils.file.PathDateExpression;
@@ -43,6 +44,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -61,6 +63,7 @@ import java.util.Set;
 import java.util.TimeZone;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -83,6 +86,7 @@ public class LogFileCollectTask extends Task {
             new ConcurrentHashMap<>();
     public static final long DAY_TIMEOUT_INTERVAL = 2 * 24 * 3600 * 1000;
     public static final int CORE_THREAD_SLEEP_TIME = 1000;
+    public static final int WATCH_POLL_ROUND_TIME_MS = 100;
     public static final int CORE_THREAD_MAX_GAP_TIME_MS = 60 * 1000;
     public static final int CORE_THREAD_PRINT_TIME = 10000;
     private long lastPrintTime = 0;
@@ -263,7 +267,7 @@ public class LogFileCollectTask extends Task {
                 lastPrintTime = AgentUtils.getCurrentTime();
             }
             coreThreadUpdateTime = AgentUtils.getCurrentTime();
-            AgentUtils.silenceSleepInMs(CORE_THREAD_SLEEP_TIME);
+            waitForWatchEvents(CORE_THREAD_SLEEP_TIME);
             if (!initOK) {
                 continue;
             }
@@ -485,14 +489,70 @@ public class LogFileCollectTask extends Task {
         }
     }
 
+    /**
+     * Wait for the watch events instead of sleeping, the modification events are delivered
+     * to the sources reading the files as soon as they are received.
+     *
+     * @param timeoutMs the max wait time
+     */
+    private void waitForWatchEvents(long timeoutMs) {
+        long deadline = AgentUtils.getCurrentTime() + timeoutMs;
+        long remaining = timeoutMs;
+        while (remaining > 0 && !isFinished()) {
+            if (watchers.isEmpty()) {
+                AgentUtils.silenceSleepInMs(remaining);
+                return;
+            }
+            // block on the only watcher, or visit the watchers in turn
+            long pollTimeout = remaining;
+            if (watchers.size() > 1) {
+                pollTimeout = Math.max(1, Math.min(remaining, WATCH_POLL_ROUND_TIME_MS) / watchers.size());
+            }
+            for (WatchEntity entity : watchers.values()) {
+                if (!pollWatchEntity(entity, pollTimeout)) {
+                    AgentUtils.silenceSleepInMs(remaining);
+                    return;
+                }
+            }
+            remaining = deadline - AgentUtils.getCurrentTime();
+        }
+    }
+
+    private boolean pollWatchEntity(WatchEntity entity, long timeoutMs) {
+        WatchKey key;
+        try {
+            key = entity.getWatchService().poll(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            return false;
+        } catch (ClosedWatchServiceException e) {
+            // the watcher is being restarted or released
+            return false;
+        }
+        if (key == null) {
+            return true;
+        }
+        synchronized (this) {
+            try {
+                dealWithWatchKey(entity, key);
+            } catch (Exception e) {
+                LOGGER.error("deal with watch event error: ", e);
+            }
+        }
+        return true;
+    }
+
     private void dealWithWatchKey(WatchEntity entity, WatchKey key) throws IOException {
         Path contextPath = entity.getPath(key);
-        LOGGER.info("Find creation events in path: " + contextPath.toAbsolutePath());
         for (WatchEvent<?> watchEvent : key.pollEvents()) {
             Path child = resolvePathFromEvent(watchEvent, contextPath);
             if (child == null) {
                 continue;
             }
+            if (watchEvent.kind() == StandardWatchEventKinds.ENTRY_MODIFY) {
+                FileModifyNotifier.notifyModified(child.toFile().getAbsolutePath());
+                continue;
+            }
+            LOGGER.info("Find creation events in path: " + contextPath.toAbsolutePath());
             if (Files.isDirectory(child)) {
                 LOGGER.info("The find creation event is triggered by a directory: " + child
                         .getFileName());
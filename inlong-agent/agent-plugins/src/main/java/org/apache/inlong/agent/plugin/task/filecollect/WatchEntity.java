@@ -32,6 +32,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
 import java.util.ArrayList;
@@ -46,6 +47,9 @@ import java.util.regex.Pattern;
 public class WatchEntity {
 
     private static final Logger logger = LoggerFactory.getLogger(WatchEntity.class);
+    // creations are used to find new files, modifications to wake up the sources reading the files
+    private static final WatchEvent.Kind<?>[] WATCH_EVENT_KINDS = new WatchEvent.Kind<?>[]{
+            StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY};
     private WatchService watchService;
     private final String basicStaticPath;
     private final String originPattern;
@@ -128,7 +132,7 @@ public class WatchEntity {
         // must use suffeix match
         // consider /data/YYYYMMDD/abc/YYYYMMDDhh.*.txt this case
         if (!pathToKeys.containsKey(dirName) && (matcher.matches() || rootDir.equals(dirName))) {
-            WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+            WatchKey key = dir.register(watchService, WATCH_EVENT_KINDS);
             keys.put(key, dir);
             pathToKeys.put(dirName, key);
 
@@ -141,7 +145,7 @@ public class WatchEntity {
         Path rootPath = Paths.get(basicStaticPath);
         String rootDirName = rootPath.toAbsolutePath().toString();
         if (!pathToKeys.containsKey(rootDirName)) {
-            WatchKey key = rootPath.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+            WatchKey key = rootPath.register(watchService, WATCH_EVENT_KINDS);
             keys.put(key, rootPath);
             pathToKeys.put(rootDirName, key);
             logger.info("Register a new directory: " + rootDirName);
@@ -161,7 +165,7 @@ public class WatchEntity {
         logger.info("beginIndex {} ,index {} ,dirPattern {}",
                 new Object[]{beginIndex, index, pattern.pattern()});
         if (!pathToKeys.containsKey(rootDirName) && match(pattern, rootDirName)) {
-            WatchKey key = rootPath.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+            WatchKey key = rootPath.register(watchService, WATCH_EVENT_KINDS);
             keys.put(key, rootPath);
             pathToKeys.put(rootDirName, key);
             logger.info("Register a new directory: " + rootDirName);
@@ -190,7 +194,7 @@ public class WatchEntity {
                 if (!pathToKeys.containsKey(dirName) && match(pattern, dirName)) {
                     try {
                         WatchKey key = dirPath
-                                .register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+                                .register(watchService, WATCH_EVENT_KINDS);
                         keys.put(key, dirPath);
                         pathToKeys.put(dirName, key);
                         logger.info("Register a new directory: " + dirName);
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.plugin.utils;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.json.JsonConverter;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Encode the debezium change records received in the connect format.
+ *
+ * The routing fields are read from the record struct directly, and the value is
+ * converted to json bytes once, the same json the debezium json format produces,
+ * so the record is never converted to a string or parsed again.
+ */
+public class DebeziumRecordEncoder {
+
+    private static final String VALUE_CONVERTER_PREFIX = "value.converter.";
+    private static final String FIELD_SOURCE = "source";
+    private static final String FIELD_TABLE = "table";
+
+    private final JsonConverter valueConverter = new JsonConverter();
+
+    /**
+     * Constructor
+     *
+     * @param engineProps the properties of the debezium engine, the value converter
+     *                    properties are applied as the debezium json format does
+     */
+    public DebeziumRecordEncoder(Properties engineProps) {
+        Map<String, Object> converterConfig = new HashMap<>();
+        for (String name : engineProps.stringPropertyNames()) {
+            if (name.startsWith(VALUE_CONVERTER_PREFIX)) {
+                converterConfig.put(name.substring(VALUE_CONVERTER_PREFIX.length()), engineProps.getProperty(name));
+            }
+        }
+        valueConverter.configure(converterConfig, false);
+    }
+
+    /**
+     * get the json bytes of the record value
+     *
+     * @param record the change record
+     * @return json bytes
+     */
+    public byte[] encodeValue(SourceRecord record) {
+        return valueConverter.fromConnectData(record.topic(), record.valueSchema(), record.value());
+    }
+
+    /**
+     * get the table name from the source info of the record
+     *
+     * @param record the change record
+     * @return table name, or an empty string if the record has no table such as a schema change
+     */
+    public static String getTableName(SourceRecord record) {
+        if (!(record.value() instanceof Struct)) {
+            return "";
+        }
+        Struct value = (Struct) record.value();
+        Field sourceField = value.schema().field(FIELD_SOURCE);
+        if (sourceField == null) {
+            return "";
+        }
+        Struct source = value.getStruct(FIELD_SOURCE);
+        if (source == null || source.schema().field(FIELD_TABLE) == null) {
+            return "";
+        }
+        String table = source.getString(FIELD_TABLE);
+        return table == null ? "" : table;
+    }
+}
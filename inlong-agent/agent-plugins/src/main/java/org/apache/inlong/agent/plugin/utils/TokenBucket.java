@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.plugin.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting the rate of a single reader.
+ *
+ * The bucket holds at most one second of tokens. An acquire always takes the tokens,
+ * the bucket may go into debt, and returns the time the caller should wait for the
+ * debt left by the former acquires, so a request larger than the bucket still passes.
+ */
+public class TokenBucket {
+
+    private final long rate;
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * Constructor
+     *
+     * @param rate tokens per second, not limited if not positive
+     */
+    public TokenBucket(long rate) {
+        this.rate = rate;
+        this.tokens = rate;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * take the tokens
+     *
+     * @param permits the tokens to take
+     * @return the time in ms to wait before going on, 0 if no need to wait
+     */
+    public synchronized long acquire(long permits) {
+        if (rate <= 0) {
+            return 0;
+        }
+        refill();
+        long waitMs = 0;
+        if (tokens < 0) {
+            waitMs = (long) Math.ceil(-tokens * TimeUnit.SECONDS.toMillis(1) / rate);
+        }
+        tokens -= permits;
+        return waitMs;
+    }
+
+    public long getRate() {
+        return rate;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(rate, tokens + (double) (now - lastRefillNanos) * rate / TimeUnit.SECONDS.toNanos(1));
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.plugin.utils.file;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Directory index shared by the file tasks of the agent.
+ *
+ * The entries of a directory are listed again only when the modify time of the directory
+ * changes, which is when an entry is added, removed or renamed. The entries keep the
+ * results of the patterns already matched against their path, so a scan only matches the
+ * new entries. The directories are indexed by path, the tasks scanning overlapping trees
+ * share the same listings.
+ */
+public class DirectoryIndex {
+
+    // a listing taken this soon after the directory was modified may miss an entry
+    private static final long STABLE_MS = 2000;
+    private static final long EXPIRE_MS = 30 * 60 * 1000L;
+    private static final long CLEAN_INTERVAL_MS = 60 * 1000L;
+    private static final int PATTERN_CACHE_SIZE = 256;
+    private static final int MATCH_CACHE_SIZE = 16;
+    private static final Entry[] EMPTY = new Entry[0];
+    private static final DirectoryIndex INSTANCE = new DirectoryIndex();
+
+    private final Map<String, DirNode> nodes = new ConcurrentHashMap<>();
+    private final Map<String, Pattern> patterns = new LinkedHashMap<String, Pattern>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+            return size() > PATTERN_CACHE_SIZE;
+        }
+    };
+    private volatile long lastCleanTime = System.currentTimeMillis();
+
+    public static DirectoryIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Find the files under a directory, the same as searching with {@link Files#find}
+     * recursively
+     *
+     * @param baseDir    the directory to search in
+     * @param dirRegex   the regex the path of a directory should start with to go into it
+     * @param fileRegex  the regex the path of a file should start with
+     * @param maxDepth   the max depth to go into, the entries of the base directory are at 1
+     * @param maxFileNum the max number of files to find
+     * @return the files found
+     */
+    public List<File> find(String baseDir, String dirRegex, String fileRegex, int maxDepth, int maxFileNum) {
+        long now = System.currentTimeMillis();
+        if (now - lastCleanTime > CLEAN_INTERVAL_MS) {
+            lastCleanTime = now;
+            clean(now);
+        }
+        Pattern dirPattern = compile(dirRegex == null || dirRegex.isEmpty() ? ".*" : dirRegex);
+        Pattern filePattern = compile(fileRegex);
+        List<File> result = new ArrayList<>();
+        LinkedList<Entry> entries = new LinkedList<>();
+        LinkedList<Integer> depths = new LinkedList<>();
+        for (Entry entry : list(new File(baseDir).getAbsolutePath(), now)) {
+            entries.add(entry);
+            depths.add(1);
+        }
+        while (!entries.isEmpty() && result.size() < maxFileNum) {
+            Entry entry = entries.poll();
+            int depth = depths.poll();
+            if (entry.isDir) {
+                if (depth < maxDepth && entry.matches(dirPattern)) {
+                    for (Entry child : list(entry.path, now)) {
+                        entries.add(child);
+                        depths.add(depth + 1);
+                    }
+                }
+            } else if (entry.isFile && entry.matches(filePattern)) {
+                result.add(new File(entry.path));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * the number of directories indexed
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    private Entry[] list(String dir, long now) {
+        DirNode node = nodes.computeIfAbsent(dir, DirNode::new);
+        synchronized (node) {
+            node.lastAccessTime = now;
+            long modifyTime = new File(dir).lastModified();
+            if (node.entries == null || node.unstable || modifyTime != node.modifyTime) {
+                node.relist(modifyTime, now);
+            }
+            return node.entries;
+        }
+    }
+
+    private Pattern compile(String regex) {
+        synchronized (patterns) {
+            return patterns.computeIfAbsent(regex, Pattern::compile);
+        }
+    }
+
+    private void clean(long now) {
+        Iterator<DirNode> iterator = nodes.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().lastAccessTime > EXPIRE_MS) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * the listing of a directory
+     */
+    private static class DirNode {
+
+        private final String path;
+        private long modifyTime;
+        private boolean unstable;
+        private long lastAccessTime;
+        private Entry[] entries;
+
+        private DirNode(String path) {
+            this.path = path;
+        }
+
+        private void relist(long modifyTime, long now) {
+            Map<String, Entry> former = new HashMap<>();
+            if (entries != null) {
+                for (Entry entry : entries) {
+                    former.put(entry.path, entry);
+                }
+            }
+            File[] files = new File(path).listFiles();
+            if (files == null) {
+                entries = EMPTY;
+            } else {
+                entries = new Entry[files.length];
+                for (int i = 0; i < files.length; i++) {
+                    String childPath = files[i].getAbsolutePath();
+                    boolean isDir = files[i].isDirectory();
+                    boolean isFile = !isDir && files[i].isFile();
+                    Entry entry = former.get(childPath);
+                    if (entry == null || entry.isDir != isDir || entry.isFile != isFile) {
+                        entry = new Entry(childPath, isDir, isFile);
+                    }
+                    entries[i] = entry;
+                }
+            }
+            this.modifyTime = modifyTime;
+            this.unstable = now - modifyTime < STABLE_MS;
+        }
+    }
+
+    /**
+     * an entry of a directory with the results of the patterns matched
+     */
+    private static class Entry {
+
+        private final String path;
+        private final boolean isDir;
+        private final boolean isFile;
+        private final Map<Pattern, Boolean> matched = new HashMap<>();
+
+        private Entry(String path, boolean isDir, boolean isFile) {
+            this.path = path;
+            this.isDir = isDir;
+            this.isFile = isFile;
+        }
+
+        private synchronized boolean matches(Pattern pattern) {
+            Boolean result = matched.get(pattern);
+            if (result == null) {
+                if (matched.size() >= MATCH_CACHE_SIZE) {
+                    matched.clear();
+                }
+                result = pattern.matcher(path).lookingAt();
+                matched.put(pattern, result);
+            }
+            return result;
+        }
+    }
+}
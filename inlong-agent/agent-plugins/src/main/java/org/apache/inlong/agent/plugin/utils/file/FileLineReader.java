@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.plugin.utils.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.function.Supplier;
+
+/**
+ * Line reader of a growing text file.
+ *
+ * The file channel and the read buffer are kept across calls, so reading the next
+ * batch from the position returned by the previous call does not reopen the file
+ * or re-read the buffered bytes. Line separators are searched eight bytes at a time,
+ * and each line is handed to the consumer as a range of a reused byte array, with
+ * the '\r' bytes removed and the length limited to the max line length. A line is
+ * only returned once its '\n' has been written, so the returned position always
+ * points to the beginning of a line.
+ *
+ * The read buffer is owned by the reader unless a buffer supplier is given, in that
+ * case the buffer is fetched and its content dropped on every call, so the readers
+ * run in the same thread can share one buffer.
+ *
+ * Not thread safe.
+ */
+public class FileLineReader implements Closeable {
+
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final long LF_PATTERN = ONES * LF;
+    private static final long CR_PATTERN = ONES * CR;
+    private static final int INIT_LINE_BUFFER_SIZE = 4096;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final Supplier<ByteBuffer> bufferSupplier;
+    private ByteBuffer buffer;
+    private final int maxLineLength;
+    // file position of the first buffered byte
+    private long bufferFilePos = 0;
+    // count of the valid buffered bytes
+    private int dataEnd = 0;
+    // bytes of the current line
+    private byte[] lineBuffer;
+    private int lineLength = 0;
+    private boolean lineTruncated = false;
+    private int lastReadLineCount = 0;
+
+    /**
+     * consumer of the read lines
+     */
+    public interface LineConsumer {
+
+        /**
+         * accept one line, the bytes are only valid during the call
+         *
+         * @param bytes     the bytes holding the line
+         * @param offset    the offset of the line
+         * @param length    the length of the line
+         * @param truncated whether the line was longer than the max line length
+         */
+        void accept(byte[] bytes, int offset, int length, boolean truncated);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param file          the file to read
+     * @param bufferSize    the size of the read buffer
+     * @param maxLineLength the max length of a line, the exceeding bytes are dropped
+     * @throws IOException if the file can not be opened
+     */
+    public FileLineReader(File file, int bufferSize, int maxLineLength) throws IOException {
+        this(file, ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN), null, maxLineLength);
+    }
+
+    /**
+     * Constructor with a shared read buffer
+     *
+     * @param file           the file to read
+     * @param bufferSupplier the supplier of the read buffer, called on every read
+     * @param maxLineLength  the max length of a line, the exceeding bytes are dropped
+     * @throws IOException if the file can not be opened
+     */
+    public FileLineReader(File file, Supplier<ByteBuffer> bufferSupplier, int maxLineLength) throws IOException {
+        this(file, null, bufferSupplier, maxLineLength);
+    }
+
+    private FileLineReader(File file, ByteBuffer buffer, Supplier<ByteBuffer> bufferSupplier,
+            int maxLineLength) throws IOException {
+        this.file = new RandomAccessFile(file, "r");
+        this.channel = this.file.getChannel();
+        this.buffer = buffer;
+        this.bufferSupplier = bufferSupplier;
+        this.maxLineLength = maxLineLength;
+        this.lineBuffer = new byte[Math.min(INIT_LINE_BUFFER_SIZE, maxLineLength)];
+    }
+
+    /**
+     * Read lines from the position
+     *
+     * @param position     the position to read from, must be the beginning of a line
+     * @param maxLineCount the max count of lines to read
+     * @param maxTotalLen  the max total length of lines to read
+     * @param consumer     the consumer of lines, null if lines are only counted
+     * @return the position after the last read line
+     * @throws IOException if an I/O error occurs
+     */
+    public long readLines(long position, int maxLineCount, long maxTotalLen,
+            LineConsumer consumer) throws IOException {
+        if (maxLineCount <= 0) {
+            lastReadLineCount = 0;
+            return position;
+        }
+        if (bufferSupplier != null) {
+            // the shared buffer may hold the bytes of another file
+            buffer = bufferSupplier.get();
+            invalidate();
+        }
+        seek(position);
+        int lineStart = (int) (position - bufferFilePos);
+        int scanFrom = lineStart;
+        int lineCount = 0;
+        long totalLen = 0;
+        long nextPos = position;
+        resetLine();
+        while (lineCount < maxLineCount && totalLen < maxTotalLen) {
+            int lfIndex = indexOf(scanFrom, dataEnd, LF_PATTERN, LF);
+            if (lfIndex < 0) {
+                if (lineStart == 0 && dataEnd == buffer.capacity()) {
+                    // the line is longer than the buffer, keep its bytes and drop the buffer
+                    if (consumer != null) {
+                        appendLine(0, dataEnd);
+                    }
+                    bufferFilePos += dataEnd;
+                    dataEnd = 0;
+                } else if (lineStart > 0) {
+                    compact(lineStart);
+                    lineStart = 0;
+                }
+                scanFrom = dataEnd;
+                if (fill() <= 0) {
+                    break;
+                }
+                continue;
+            }
+            int length = 0;
+            if (consumer != null) {
+                appendLine(lineStart, lfIndex);
+                length = lineLength;
+                consumer.accept(lineBuffer, 0, lineLength, lineTruncated);
+            }
+            lineCount++;
+            totalLen += length;
+            lineStart = lfIndex + 1;
+            scanFrom = lineStart;
+            nextPos = bufferFilePos + lineStart;
+            resetLine();
+        }
+        resetLine();
+        lastReadLineCount = lineCount;
+        return nextPos;
+    }
+
+    /**
+     * get the count of lines read by the last call
+     *
+     * @return the line count
+     */
+    public int getLastReadLineCount() {
+        return lastReadLineCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private void seek(long position) throws IOException {
+        if (position < bufferFilePos || position > bufferFilePos + dataEnd
+                || channel.size() < bufferFilePos + dataEnd) {
+            // not buffered, dropped with a long uncompleted line, or the file was truncated
+            invalidate();
+            bufferFilePos = position;
+        }
+    }
+
+    private void invalidate() {
+        bufferFilePos = 0;
+        dataEnd = 0;
+    }
+
+    private int fill() throws IOException {
+        buffer.limit(buffer.capacity()).position(dataEnd);
+        int num = channel.read(buffer, bufferFilePos + dataEnd);
+        if (num > 0) {
+            dataEnd += num;
+        }
+        return num;
+    }
+
+    private void compact(int from) {
+        buffer.limit(dataEnd).position(from);
+        buffer.compact();
+        dataEnd -= from;
+        bufferFilePos += from;
+    }
+
+    /**
+     * find the first index of the byte, eight bytes are checked at a time
+     */
+    private int indexOf(int from, int to, long pattern, byte value) {
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long word = buffer.getLong(i) ^ pattern;
+            long found = (word - ONES) & ~word & HIGHS;
+            if (found != 0) {
+                // little endian, the lowest marked byte is the first match
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void appendLine(int from, int to) {
+        if (indexOf(from, to, CR_PATTERN, CR) < 0) {
+            int length = Math.min(to - from, maxLineLength - lineLength);
+            if (length < to - from) {
+                lineTruncated = true;
+            }
+            if (length > 0) {
+                ensureLineBuffer(lineLength + length);
+                buffer.limit(from + length).position(from);
+                buffer.get(lineBuffer, lineLength, length);
+                // the absolute reads check the limit
+                buffer.clear();
+                lineLength += length;
+            }
+            return;
+        }
+        // rare case, drop the '\r' bytes one by one
+        for (int i = from; i < to; i++) {
+            byte value = buffer.get(i);
+            if (value == CR) {
+                continue;
+            }
+            if (lineLength >= maxLineLength) {
+                lineTruncated = true;
+                return;
+            }
+            ensureLineBuffer(lineLength + 1);
+            lineBuffer[lineLength++] = value;
+        }
+    }
+
+    private void ensureLineBuffer(int size) {
+        if (size > lineBuffer.length) {
+            byte[] newBuffer = new byte[Math.min(Math.max(size, lineBuffer.length * 2), maxLineLength)];
+            System.arraycopy(lineBuffer, 0, newBuffer, 0, lineLength);
+            lineBuffer = newBuffer;
+        }
+    }
+
+    private void resetLine() {
+        lineLength = 0;
+        lineTruncated = false;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.plugin.utils.file;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Deliver the file modification events received by the directory watchers of the
+ * file collect tasks to the sources reading the files, so a source waiting for new
+ * data wakes up as soon as the file is appended.
+ */
+public class FileModifyNotifier {
+
+    private static final Map<String, Set<Waiter>> WAITERS = new ConcurrentHashMap<>();
+
+    /**
+     * register a waiter of the file
+     *
+     * @param fileName the absolute file name
+     * @param waiter   the waiter
+     */
+    public static void register(String fileName, Waiter waiter) {
+        WAITERS.computeIfAbsent(fileName, key -> new CopyOnWriteArraySet<>()).add(waiter);
+    }
+
+    /**
+     * unregister a waiter of the file
+     *
+     * @param fileName the absolute file name
+     * @param waiter   the waiter
+     */
+    public static void unregister(String fileName, Waiter waiter) {
+        WAITERS.computeIfPresent(fileName, (key, waiters) -> {
+            waiters.remove(waiter);
+            return waiters.isEmpty() ? null : waiters;
+        });
+    }
+
+    /**
+     * wake up the waiters of the file
+     *
+     * @param fileName the absolute file name
+     */
+    public static void notifyModified(String fileName) {
+        Set<Waiter> waiters = WAITERS.get(fileName);
+        if (waiters == null) {
+            return;
+        }
+        for (Waiter waiter : waiters) {
+            waiter.signal();
+        }
+    }
+
+    /**
+     * Waiter for the modification of a file
+     */
+    public static class Waiter {
+
+        private final Runnable listener;
+        private boolean signaled = false;
+        private volatile boolean everSignaled = false;
+
+        public Waiter() {
+            this(null);
+        }
+
+        /**
+         * Constructor
+         *
+         * @param listener called on every signal, for the readers which do not block in await
+         */
+        public Waiter(Runnable listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * signal a modification event delivered by the file system
+         */
+        public void signal() {
+            everSignaled = true;
+            wakeUp();
+        }
+
+        /**
+         * wake up the reader for other reasons, such as stopping or memory released,
+         * it does not tell whether the file system delivers modification events
+         */
+        public void wakeUp() {
+            synchronized (this) {
+                signaled = true;
+                notifyAll();
+            }
+            if (listener != null) {
+                listener.run();
+            }
+        }
+
+        /**
+         * wait until signaled or timeout, and clear the signal
+         *
+         * @param timeoutMs the max wait time
+         * @return whether it is signaled
+         */
+        public synchronized boolean await(long timeoutMs) {
+            if (!signaled && timeoutMs > 0) {
+                try {
+                    wait(timeoutMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            boolean result = signaled;
+            signaled = false;
+            return result;
+        }
+
+        /**
+         * whether modification events are ever delivered, which means the file system supports them
+         *
+         * @return true if ever signaled
+         */
+        public boolean isEverSignaled() {
+            return everSignaled;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.plugin.utils.file;
+
+import org.apache.inlong.agent.conf.InstanceProfile;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.apache.inlong.agent.constant.TaskConstants.DEFAULT_TASK_FILE_MULTI_LINE_FLUSH_TIMEOUT_MS;
+import static org.apache.inlong.agent.constant.TaskConstants.DEFAULT_TASK_FILE_MULTI_LINE_MAX_LINES;
+import static org.apache.inlong.agent.constant.TaskConstants.TASK_FILE_MULTI_LINE_FLUSH_TIMEOUT_MS;
+import static org.apache.inlong.agent.constant.TaskConstants.TASK_FILE_MULTI_LINE_MAX_BYTES;
+import static org.apache.inlong.agent.constant.TaskConstants.TASK_FILE_MULTI_LINE_MAX_LINES;
+import static org.apache.inlong.agent.constant.TaskConstants.TASK_FILE_MULTI_LINE_MODE;
+import static org.apache.inlong.agent.constant.TaskConstants.TASK_FILE_MULTI_LINE_PATTERN;
+
+/**
+ * Assemble the lines of a multi-line record, such as a java stack trace, into one event.
+ *
+ * The lines are copied into a reused buffer until a line starting the next event is
+ * read, the max lines or bytes of an event is reached, or the event is pending longer
+ * than the flush timeout. The lines of an event are joined with '\n'.
+ *
+ * The patterns are matched against the line bytes directly when the line is ascii only,
+ * so no string is created for most of the lines, the other lines are decoded first. The
+ * patterns are compiled once for all the files of a task.
+ *
+ * Not thread safe.
+ */
+public class MultiLineAggregator {
+
+    private static final byte LF = '\n';
+    private static final int PATTERN_CACHE_SIZE = 256;
+    private static final Map<String, Pattern> PATTERNS = new LinkedHashMap<String, Pattern>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+            return size() > PATTERN_CACHE_SIZE;
+        }
+    };
+
+    /**
+     * how the lines are grouped
+     */
+    public enum Mode {
+
+        // a line matching the pattern starts a new event, the others are appended to it
+        START,
+        // a line matching the pattern is appended to the previous event
+        CONTINUE,
+        // a line starting with a space or a tab is appended to the previous event
+        INDENT;
+
+        public static Mode of(String name) {
+            for (Mode mode : values()) {
+                if (mode.name().equalsIgnoreCase(name)) {
+                    return mode;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * consumer of the assembled events
+     */
+    public interface EventConsumer {
+
+        /**
+         * accept one event, the bytes are only valid during the call
+         *
+         * @param bytes    the bytes holding the event
+         * @param offset   the offset of the event
+         * @param length   the length of the event
+         * @param lastLine the line number of the last line of the event
+         */
+        void accept(byte[] bytes, int offset, int length, long lastLine);
+    }
+
+    private final Mode mode;
+    private final Matcher matcher;
+    private final ByteCharSequence lineChars = new ByteCharSequence();
+    private final int maxLines;
+    private final int maxBytes;
+    private final long flushTimeoutMs;
+    private byte[] eventBuffer = new byte[1024];
+    private int eventLength = 0;
+    private int eventLines = 0;
+    private long eventLastLine = 0;
+    private long eventStartTime = 0;
+
+    public MultiLineAggregator(Mode mode, String pattern, int maxLines, int maxBytes, long flushTimeoutMs) {
+        this.mode = mode;
+        this.matcher = mode == Mode.INDENT ? null : compile(pattern).matcher("");
+        this.maxLines = Math.max(1, maxLines);
+        this.maxBytes = Math.max(1, maxBytes);
+        this.flushTimeoutMs = flushTimeoutMs;
+    }
+
+    /**
+     * create the aggregator configured in the profile
+     *
+     * @param profile      the instance profile
+     * @param maxPackSize  the max size of a message, the default max bytes of an event
+     * @return the aggregator, or null if multi-line assembly is not configured
+     */
+    public static MultiLineAggregator create(InstanceProfile profile, int maxPackSize) {
+        Mode mode = Mode.of(profile.get(TASK_FILE_MULTI_LINE_MODE, null));
+        if (mode == null) {
+            return null;
+        }
+        String pattern = profile.get(TASK_FILE_MULTI_LINE_PATTERN, null);
+        if (mode != Mode.INDENT && StringUtils.isEmpty(pattern)) {
+            throw new IllegalArgumentException("multi-line pattern is required by mode " + mode);
+        }
+        return new MultiLineAggregator(mode, pattern,
+                profile.getInt(TASK_FILE_MULTI_LINE_MAX_LINES, DEFAULT_TASK_FILE_MULTI_LINE_MAX_LINES),
+                profile.getInt(TASK_FILE_MULTI_LINE_MAX_BYTES, maxPackSize),
+                profile.getLong(TASK_FILE_MULTI_LINE_FLUSH_TIMEOUT_MS, DEFAULT_TASK_FILE_MULTI_LINE_FLUSH_TIMEOUT_MS));
+    }
+
+    /**
+     * Append a line, the previous event is handed to the consumer if the line does not
+     * belong to it
+     *
+     * @param bytes    the bytes holding the line
+     * @param offset   the offset of the line
+     * @param length   the length of the line
+     * @param line     the line number
+     * @param consumer the consumer of the completed events
+     */
+    public void append(byte[] bytes, int offset, int length, long line, EventConsumer consumer) {
+        if (eventLines > 0) {
+            if (!isContinuation(bytes, offset, length)
+                    || eventLines >= maxLines || eventLength + 1 + length > maxBytes) {
+                flush(consumer);
+            }
+        }
+        if (eventLines == 0) {
+            eventStartTime = System.currentTimeMillis();
+        } else {
+            ensureCapacity(eventLength + 1);
+            eventBuffer[eventLength++] = LF;
+        }
+        ensureCapacity(eventLength + length);
+        System.arraycopy(bytes, offset, eventBuffer, eventLength, length);
+        eventLength += length;
+        eventLines++;
+        eventLastLine = line;
+    }
+
+    /**
+     * Hand the pending event to the consumer if it is pending longer than the flush timeout
+     *
+     * @param now      the current time
+     * @param consumer the consumer of the event
+     * @return 0 if there is no pending event or it is flushed, otherwise the time before it expires
+     */
+    public long flushIfExpired(long now, EventConsumer consumer) {
+        if (eventLines == 0) {
+            return 0;
+        }
+        long left = eventStartTime + flushTimeoutMs - now;
+        if (left > 0) {
+            return left;
+        }
+        flush(consumer);
+        return 0;
+    }
+
+    /**
+     * Hand the pending event to the consumer
+     *
+     * @param consumer the consumer of the event
+     */
+    public void flush(EventConsumer consumer) {
+        if (eventLines == 0) {
+            return;
+        }
+        consumer.accept(eventBuffer, 0, eventLength, eventLastLine);
+        eventLength = 0;
+        eventLines = 0;
+    }
+
+    public boolean hasPendingEvent() {
+        return eventLines > 0;
+    }
+
+    private boolean isContinuation(byte[] bytes, int offset, int length) {
+        switch (mode) {
+            case INDENT:
+                return length > 0 && (bytes[offset] == ' ' || bytes[offset] == '\t');
+            case START:
+                return !matches(bytes, offset, length);
+            case CONTINUE:
+                return matches(bytes, offset, length);
+            default:
+                return false;
+        }
+    }
+
+    private static Pattern compile(String regex) {
+        synchronized (PATTERNS) {
+            return PATTERNS.computeIfAbsent(regex, Pattern::compile);
+        }
+    }
+
+    private boolean matches(byte[] bytes, int offset, int length) {
+        if (isAscii(bytes, offset, length)) {
+            // one char per byte is the same as the decoded line
+            lineChars.reset(bytes, offset, length);
+            matcher.reset(lineChars);
+        } else {
+            matcher.reset(new String(bytes, offset, length, StandardCharsets.UTF_8));
+        }
+        return matcher.find();
+    }
+
+    private static boolean isAscii(byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > eventBuffer.length) {
+            byte[] newBuffer = new byte[Math.max(size, eventBuffer.length * 2)];
+            System.arraycopy(eventBuffer, 0, newBuffer, 0, eventLength);
+            eventBuffer = newBuffer;
+        }
+    }
+
+    /**
+     * View of a byte range as chars, one char per byte
+     */
+    private static class ByteCharSequence implements CharSequence {
+
+        private byte[] bytes;
+        private int offset;
+        private int length;
+
+        private void reset(byte[] bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes[offset + index] & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(bytes, offset + start, end - start, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
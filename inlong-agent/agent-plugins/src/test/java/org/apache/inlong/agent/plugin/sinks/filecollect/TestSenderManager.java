@@ -20,6 +20,7 @@ package org.apache.inlong.agent.plugin.sinks.filecollect;
 import org.apache.inlong.agent.common.AgentThreadFactory;
 import org.apache.inlong.agent.conf.InstanceProfile;
 import org.apache.inlong.agent.conf.TaskProfile;
+import org.apache.inlong.agent.constant.CommonConstants;
 import org.apache.inlong.agent.constant.TaskConstants;
 import org.apache.inlong.agent.message.filecollect.OffsetAckInfo;
 import org.apache.inlong.agent.message.filecollect.SenderMessage;
@@ -128,6 +129,52 @@ public class TestSenderManager {
         }
     }
 
+    @Test
+    public void testResendBackoff() throws Exception {
+        List<SendMessageCallback> cbList = new ArrayList<>();
+        List<Long> sendTimeList = new ArrayList<>();
+        profile.set(TaskConstants.INODE_INFO, FileDataUtils.getInodeInfo(profile.getInstanceId()));
+        profile.setLong(CommonConstants.PROXY_RETRY_BACKOFF_BASE_MS, 200);
+        profile.setLong(CommonConstants.PROXY_RETRY_BACKOFF_MAX_MS, 400);
+        SenderManager senderManager = PowerMockito.spy(new SenderManager(profile, "inlongGroupId", "sourceName"));
+        PowerMockito.doNothing().when(senderManager, "createMessageSender", Mockito.anyString());
+        PowerMockito.doAnswer(invocation -> {
+            SendMessageCallback cb = invocation.getArgument(0);
+            synchronized (cbList) {
+                cbList.add(cb);
+                sendTimeList.add(AgentUtils.getCurrentTime());
+            }
+            return null;
+        }).when(senderManager, "asyncSendByMessageSender", Mockito.any(),
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyLong(), Mockito.any(),
+                Mockito.anyLong(), Mockito.any(),
+                Mockito.any(), Mockito.anyBoolean());
+        for (int retry = 0; retry < 30; retry++) {
+            long backoff = senderManager.getBackoffMs(retry);
+            long ceiling = Math.min(400, 200L << retry);
+            Assert.assertTrue(backoff >= ceiling / 2 && backoff <= ceiling);
+        }
+        senderManager.Start();
+        List<byte[]> bodyList = new ArrayList<>();
+        bodyList.add("123456789".getBytes(StandardCharsets.UTF_8));
+        List<OffsetAckInfo> ackInfoList = new ArrayList<>();
+        ackInfoList.add(new OffsetAckInfo(0L, bodyList.get(0).length, false));
+        senderManager.sendBatch(new SenderMessage("taskId", "instanceId", "groupId", "streamId", bodyList,
+                AgentUtils.getCurrentTime(), null, ackInfoList));
+        Assert.assertEquals(1, cbList.size());
+        cbList.get(0).onMessageAck(SendResult.CONNECTION_BREAK);
+        // the failed pack is resent after the backoff, not at once
+        long start = AgentUtils.getCurrentTime();
+        while (cbList.size() < 2 && AgentUtils.getCurrentTime() - start < 5000) {
+            AgentUtils.silenceSleepInMs(10);
+        }
+        Assert.assertEquals(2, cbList.size());
+        Assert.assertTrue(sendTimeList.get(1) - sendTimeList.get(0) >= 100);
+        cbList.get(1).onMessageAck(SendResult.OK);
+        Assert.assertEquals(1, calHasAckCount(ackInfoList));
+        senderManager.Stop();
+    }
+
     private int calHasAckCount(List<OffsetAckInfo> ackInfoListTotal) {
         int count = 0;
         for (int i = 0; i < ackInfoListTotal.size(); i++) {
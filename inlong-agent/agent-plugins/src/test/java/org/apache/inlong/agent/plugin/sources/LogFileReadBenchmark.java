@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.plugin.sources;
+
+import org.apache.inlong.agent.plugin.utils.file.FileLineReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare reading a whole log file in batches with the byte by byte line reading
+ * that LogFileSource used before and with FileLineReader.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *  -Dexec.mainClass=org.apache.inlong.agent.plugin.sources.LogFileReadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LogFileReadBenchmark {
+
+    private static final int BATCH_READ_LINE_COUNT = 10000;
+    private static final int BATCH_READ_LINE_TOTAL_LEN = 1024 * 1024;
+    private static final int SIZE_OF_BUFFER_TO_READ_FILE = 64 * 1024;
+    private static final int MAX_PACK_SIZE = 500 * 1024;
+
+    @Param({"32"})
+    private int fileSizeMb;
+
+    @Param({"200"})
+    private int avgLineLength;
+
+    private File file;
+    private byte[] bufferToReadFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = File.createTempFile("log-file-read-benchmark", ".log");
+        file.deleteOnExit();
+        Random random = new Random(17);
+        long fileSize = (long) fileSizeMb * 1024 * 1024;
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(file))) {
+            long written = 0;
+            while (written < fileSize) {
+                int length = avgLineLength / 2 + random.nextInt(avgLineLength);
+                for (int i = 0; i < length; i++) {
+                    output.write('a' + random.nextInt(26));
+                }
+                output.write('\n');
+                written += length + 1;
+            }
+        }
+        bufferToReadFile = new byte[SIZE_OF_BUFFER_TO_READ_FILE];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public void readByBytes(Blackhole blackhole) throws IOException {
+        long pos = 0;
+        while (true) {
+            List<String> lines = new ArrayList<>();
+            RandomAccessFile input = new RandomAccessFile(file, "r");
+            pos = readLines(input, pos, lines, BATCH_READ_LINE_COUNT, BATCH_READ_LINE_TOTAL_LEN);
+            input.close();
+            if (lines.isEmpty()) {
+                break;
+            }
+            blackhole.consume(lines);
+        }
+        blackhole.consume(pos);
+    }
+
+    @Benchmark
+    public void readByLineReader(Blackhole blackhole) throws IOException {
+        long pos = 0;
+        try (FileLineReader reader = new FileLineReader(file, SIZE_OF_BUFFER_TO_READ_FILE, MAX_PACK_SIZE)) {
+            while (true) {
+                List<String> lines = new ArrayList<>();
+                pos = reader.readLines(pos, BATCH_READ_LINE_COUNT, BATCH_READ_LINE_TOTAL_LEN,
+                        (bytes, offset, length, truncated) -> lines.add(
+                                new String(bytes, offset, length, StandardCharsets.UTF_8)));
+                if (lines.isEmpty()) {
+                    break;
+                }
+                blackhole.consume(lines);
+            }
+        }
+        blackhole.consume(pos);
+    }
+
+    /**
+     * The line reading of LogFileSource before FileLineReader, kept as the baseline.
+     */
+    private long readLines(RandomAccessFile reader, long pos, List<String> lines,
+            int maxLineCount, int maxLineTotalLen) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        reader.seek(pos);
+        long rePos = pos;
+        int num;
+        int lineTotalLen = 0;
+        while ((num = reader.read(bufferToReadFile)) != -1) {
+            int i = 0;
+            for (; i < num; i++) {
+                byte ch = bufferToReadFile[i];
+                switch (ch) {
+                    case '\n':
+                        String temp = new String(baos.toByteArray(), StandardCharsets.UTF_8);
+                        lines.add(temp);
+                        lineTotalLen += temp.length();
+                        rePos = pos + i + 1;
+                        baos.reset();
+                        break;
+                    case '\r':
+                        break;
+                    default:
+                        if (baos.size() < MAX_PACK_SIZE) {
+                            baos.write(ch);
+                        }
+                }
+                if (lines.size() >= maxLineCount || lineTotalLen >= maxLineTotalLen) {
+                    break;
+                }
+            }
+            if (lines.size() >= maxLineCount || lineTotalLen >= maxLineTotalLen) {
+                break;
+            }
+            if (i == num) {
+                pos = reader.getFilePointer();
+            }
+        }
+        baos.close();
+        reader.seek(rePos);
+        return rePos;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(LogFileReadBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -20,12 +20,21 @@ package org.apache.inlong.agent.plugin.sources;
 import org.apache.inlong.agent.conf.JobProfile;
 import org.apache.inlong.agent.constant.SnapshotModeConstants;
 import org.apache.inlong.agent.plugin.sources.reader.BinlogReader;
+import org.apache.inlong.agent.plugin.utils.DebeziumRecordEncoder;
 import org.apache.inlong.agent.pojo.DebeziumFormat;
 
 import com.google.gson.Gson;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Properties;
+
 import static org.apache.inlong.agent.constant.CommonConstants.PROXY_INLONG_GROUP_ID;
 import static org.apache.inlong.agent.constant.CommonConstants.PROXY_INLONG_STREAM_ID;
 
@@ -65,6 +74,37 @@ public class TestBinlogReader {
         Assert.assertEquals("customers", debeziumFormat.getSource().getTable());
     }
 
+    @Test
+    public void testRecordEncoder() {
+        Schema rowSchema = SchemaBuilder.struct().field("id", Schema.INT32_SCHEMA)
+                .field("first_name", Schema.STRING_SCHEMA).optional().build();
+        Schema sourceSchema = SchemaBuilder.struct().field("db", Schema.STRING_SCHEMA)
+                .field("table", Schema.OPTIONAL_STRING_SCHEMA).build();
+        Schema envelopeSchema = SchemaBuilder.struct().field("before", rowSchema).field("after", rowSchema)
+                .field("source", sourceSchema).field("op", Schema.STRING_SCHEMA).build();
+        Struct value = new Struct(envelopeSchema)
+                .put("after", new Struct(rowSchema).put("id", 1004).put("first_name", "Anne"))
+                .put("source", new Struct(sourceSchema).put("db", "inventory").put("table", "customers"))
+                .put("op", "r");
+        SourceRecord record = new SourceRecord(Collections.emptyMap(), Collections.emptyMap(),
+                "dbserver1.inventory.customers", envelopeSchema, value);
+
+        Properties props = new Properties();
+        props.setProperty("value.converter.schemas.enable", "false");
+        byte[] bytes = new DebeziumRecordEncoder(props).encodeValue(record);
+        DebeziumFormat debeziumFormat = gson.fromJson(new String(bytes, StandardCharsets.UTF_8),
+                DebeziumFormat.class);
+        Assert.assertEquals("customers", debeziumFormat.getSource().getTable());
+        Assert.assertNull(debeziumFormat.getBefore());
+        Assert.assertEquals("Anne", debeziumFormat.getAfter().get("first_name"));
+        Assert.assertEquals("customers", DebeziumRecordEncoder.getTableName(record));
+
+        Struct ddl = new Struct(SchemaBuilder.struct().field("ddl", Schema.STRING_SCHEMA).build())
+                .put("ddl", "drop table t");
+        Assert.assertEquals("", DebeziumRecordEncoder.getTableName(new SourceRecord(Collections.emptyMap(),
+                Collections.emptyMap(), "dbserver1", ddl.schema(), ddl)));
+    }
+
     // @Test
     public void binlogStartSpacialTest() throws Exception {
         JobProfile jobProfile = new JobProfile();
@@ -17,6 +17,12 @@
 
 package org.apache.inlong.agent.plugin.sources;
 
+import org.apache.inlong.agent.conf.InstanceProfile;
+import org.apache.inlong.agent.message.filecollect.ProxyMessage;
+import org.apache.inlong.agent.plugin.Message;
+import org.apache.inlong.agent.plugin.sources.reader.KafkaReader;
+import org.apache.inlong.agent.pojo.TaskProfileDto;
+
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.MockConsumer;
@@ -27,8 +33,18 @@ import org.junit.Test;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.inlong.agent.constant.TaskConstants.JOB_KAFKA_BATCH_MODE;
+import static org.apache.inlong.agent.constant.TaskConstants.JOB_KAFKA_BYTE_SPEED_LIMIT;
+import static org.apache.inlong.agent.constant.TaskConstants.JOB_KAFKA_MAX_INFLIGHT;
+import static org.apache.inlong.agent.constant.TaskConstants.JOB_KAFKA_RECORD_SPEED_LIMIT;
+import static org.apache.inlong.agent.constant.TaskConstants.JOB_KAFKA_TOPIC;
 
 public class TestKafkaReader {
 
@@ -50,4 +66,106 @@ public class TestKafkaReader {
         }
     }
 
+    @Test
+    public void testBatchReadCommitAfterAck() {
+        MockConsumer<String, byte[]> mockConsumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        final String topic = "my_topic";
+        TopicPartition partition0 = new TopicPartition(topic, 0);
+        TopicPartition partition1 = new TopicPartition(topic, 1);
+        mockConsumer.assign(Arrays.asList(partition0, partition1));
+        HashMap<TopicPartition, Long> beginningOffsets = new HashMap<>();
+        beginningOffsets.put(partition0, 0L);
+        beginningOffsets.put(partition1, 0L);
+        mockConsumer.updateBeginningOffsets(beginningOffsets);
+        mockConsumer.addRecord(new ConsumerRecord<>(topic, 0, 0L, "key0", "value0".getBytes(StandardCharsets.UTF_8)));
+        mockConsumer.addRecord(new ConsumerRecord<>(topic, 0, 1L, "key1", "value1".getBytes(StandardCharsets.UTF_8)));
+        mockConsumer.addRecord(new ConsumerRecord<>(topic, 1, 0L, "key2", "value2".getBytes(StandardCharsets.UTF_8)));
+
+        Map<String, String> params = new HashMap<>();
+        params.put(JOB_KAFKA_TOPIC, topic);
+        params.put(JOB_KAFKA_BATCH_MODE, "true");
+        params.put(JOB_KAFKA_MAX_INFLIGHT, "2");
+        params.put(JOB_KAFKA_RECORD_SPEED_LIMIT, "0");
+        params.put(JOB_KAFKA_BYTE_SPEED_LIMIT, "0");
+        KafkaReader<String, byte[]> reader = new KafkaReader<>(mockConsumer, params);
+        reader.init(new InstanceProfile());
+
+        Map<String, ProxyMessage> messages = new HashMap<>();
+        for (int i = 0; i < 3; i++) {
+            Message message = reader.read();
+            Assert.assertNotNull(message);
+            messages.put(new String(message.getBody(), StandardCharsets.UTF_8), new ProxyMessage(message));
+        }
+        Assert.assertEquals(3, messages.size());
+        // the offset of partition 0 can not pass the message not acked
+        messages.get("value1").getAckInfo().setHasAck(true);
+        messages.get("value2").getAckInfo().setHasAck(true);
+        Assert.assertNull(reader.read());
+        Assert.assertTrue(mockConsumer.committed(Collections.singleton(partition0)).isEmpty()
+                || mockConsumer.committed(Collections.singleton(partition0)).get(partition0) == null);
+        Assert.assertEquals(1L, mockConsumer.committed(Collections.singleton(partition1)).get(partition1).offset());
+        Assert.assertEquals("1#1", reader.getSnapshot());
+
+        messages.get("value0").getAckInfo().setHasAck(true);
+        Assert.assertNull(reader.read());
+        Assert.assertEquals(2L, mockConsumer.committed(Collections.singleton(partition0)).get(partition0).offset());
+        Assert.assertEquals("0#2_1#1", reader.getSnapshot());
+
+        // destroy only wakes the consumer up, the thread reading commits and closes it
+        reader.destroy();
+        Assert.assertFalse(mockConsumer.closed());
+        Assert.assertNull(reader.read());
+        Assert.assertTrue(reader.isClosed());
+        Assert.assertTrue(mockConsumer.closed());
+    }
+
+    @Test
+    public void testBatchPauseAndResume() {
+        MockConsumer<String, byte[]> mockConsumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        final String topic = "my_topic";
+        TopicPartition partition0 = new TopicPartition(topic, 0);
+        mockConsumer.assign(Collections.singletonList(partition0));
+        mockConsumer.updateBeginningOffsets(Collections.singletonMap(partition0, 0L));
+        for (long offset = 0; offset < 4; offset++) {
+            mockConsumer.addRecord(new ConsumerRecord<>(topic, 0, offset, "key" + offset,
+                    ("value" + offset).getBytes(StandardCharsets.UTF_8)));
+        }
+        Map<String, String> params = new HashMap<>();
+        params.put(JOB_KAFKA_TOPIC, topic);
+        params.put(JOB_KAFKA_BATCH_MODE, "true");
+        params.put(JOB_KAFKA_MAX_INFLIGHT, "2");
+        params.put(JOB_KAFKA_RECORD_SPEED_LIMIT, "0");
+        params.put(JOB_KAFKA_BYTE_SPEED_LIMIT, "0");
+        KafkaReader<String, byte[]> reader = new KafkaReader<>(mockConsumer, params);
+        reader.init(new InstanceProfile());
+
+        List<ProxyMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            messages.add(new ProxyMessage(reader.read()));
+        }
+        // all the records polled are read, the partition is paused until they are acked
+        Assert.assertNull(reader.read());
+        Assert.assertEquals(Collections.singleton(partition0), mockConsumer.paused());
+        mockConsumer.addRecord(new ConsumerRecord<>(topic, 0, 4L, "key4", "value4".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertNull(reader.read());
+
+        messages.get(0).getAckInfo().setHasAck(true);
+        messages.get(1).getAckInfo().setHasAck(true);
+        messages.get(2).getAckInfo().setHasAck(true);
+        // one message is still in flight, under the limit
+        Message message = reader.read();
+        Assert.assertTrue(mockConsumer.paused().isEmpty());
+        Assert.assertNotNull(message);
+        Assert.assertEquals("value4", new String(message.getBody(), StandardCharsets.UTF_8));
+        Assert.assertEquals(3L, mockConsumer.committed(Collections.singleton(partition0)).get(partition0).offset());
+        reader.destroy();
+    }
+
+    @Test
+    public void testBatchModeSupportedSinks() {
+        Assert.assertTrue(KafkaSource.isBatchModeSupported(TaskProfileDto.FILE_DATAPROXY_SINK));
+        Assert.assertFalse(KafkaSource.isBatchModeSupported(TaskProfileDto.KAFKA_SINK));
+        Assert.assertFalse(KafkaSource.isBatchModeSupported(TaskProfileDto.PULSAR_SINK));
+        Assert.assertFalse(KafkaSource.isBatchModeSupported(null));
+    }
 }
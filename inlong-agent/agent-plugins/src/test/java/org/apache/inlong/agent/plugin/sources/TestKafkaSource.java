@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.plugin.sources;
+
+import org.apache.inlong.agent.conf.InstanceProfile;
+import org.apache.inlong.agent.conf.TaskProfile;
+import org.apache.inlong.agent.constant.AgentConstants;
+import org.apache.inlong.agent.constant.TaskConstants;
+import org.apache.inlong.agent.core.instance.InstanceManager;
+import org.apache.inlong.agent.core.task.OffsetManager;
+import org.apache.inlong.agent.core.task.file.TaskManager;
+import org.apache.inlong.agent.plugin.AgentBaseTestsHelper;
+import org.apache.inlong.agent.plugin.instance.KafkaInstance;
+import org.apache.inlong.agent.plugin.sinks.filecollect.ProxySink;
+import org.apache.inlong.agent.plugin.sinks.filecollect.SenderManager;
+import org.apache.inlong.agent.plugin.task.KafkaTask;
+import org.apache.inlong.agent.pojo.KafkaJob.KafkaJobTaskConfig;
+import org.apache.inlong.agent.pojo.TaskProfileDto;
+import org.apache.inlong.common.enums.TaskStateEnum;
+import org.apache.inlong.common.enums.TaskTypeEnum;
+import org.apache.inlong.common.pojo.agent.DataConfig;
+import org.apache.inlong.sdk.dataproxy.common.SendMessageCallback;
+import org.apache.inlong.sdk.dataproxy.common.SendResult;
+
+import com.google.gson.Gson;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.reflect.Whitebox;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ProxySink.class, SenderManager.class})
+@PowerMockIgnore({"javax.management.*"})
+public class TestKafkaSource {
+
+    private static final String TOPIC = "my_topic";
+    private static final TopicPartition PARTITION0 = new TopicPartition(TOPIC, 0);
+    private static final TopicPartition PARTITION1 = new TopicPartition(TOPIC, 1);
+    // the consumers of the source by group id
+    private static final Map<String, MockConsumer<String, byte[]>> CONSUMERS = new ConcurrentHashMap<>();
+    private static final Gson GSON = new Gson();
+    private static AgentBaseTestsHelper helper;
+
+    /**
+     * kafka source using the mock consumers, created by the instance with the class name
+     */
+    public static class MockKafkaSource extends KafkaSource {
+
+        @Override
+        protected Consumer<String, byte[]> newConsumer(Properties props) {
+            MockConsumer<String, byte[]> consumer = CONSUMERS.get(String.valueOf(props.get("group.id")));
+            if (consumer == null) {
+                consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+                consumer.updatePartitions(TOPIC, Arrays.asList(
+                        new PartitionInfo(TOPIC, 0, null, null, null),
+                        new PartitionInfo(TOPIC, 1, null, null, null)));
+            }
+            return consumer;
+        }
+    }
+
+    @BeforeClass
+    public static void setup() {
+        helper = new AgentBaseTestsHelper(TestKafkaSource.class.getName()).setupAgentHome();
+        OffsetManager.init(TaskManager.initDb(AgentConstants.AGENT_LOCAL_DB_PATH_OFFSET),
+                TaskManager.initDb(AgentConstants.AGENT_LOCAL_DB_PATH_INSTANCE));
+    }
+
+    @AfterClass
+    public static void teardown() throws Exception {
+        helper.teardownAgentHome();
+    }
+
+    @Test
+    public void testCommitAfterProxyAck() throws Exception {
+        MockConsumer<String, byte[]> laneConsumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        Map<TopicPartition, Long> beginningOffsets = new HashMap<>();
+        beginningOffsets.put(PARTITION0, 0L);
+        beginningOffsets.put(PARTITION1, 0L);
+        laneConsumer.updateBeginningOffsets(beginningOffsets);
+        CONSUMERS.put("1_group", laneConsumer);
+        // partition 0 was read by the group of the partition before
+        MockConsumer<String, byte[]> partitionConsumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        partitionConsumer.assign(Collections.singletonList(PARTITION0));
+        partitionConsumer.commitSync(Collections.singletonMap(PARTITION0, new OffsetAndMetadata(1L)));
+        CONSUMERS.put("1_group0", partitionConsumer);
+
+        TaskProfile taskProfile = getTaskProfile();
+        Assert.assertEquals(TaskProfileDto.DEFAULT_KAFKA_TASK, taskProfile.getTaskClass());
+        KafkaTask task = new KafkaTask();
+        Assert.assertTrue(task.isProfileValid(taskProfile));
+        Whitebox.setInternalState(task, "taskProfile", taskProfile);
+        Whitebox.setInternalState(task, "topic", TOPIC);
+        InstanceProfile profile = Whitebox.invokeMethod(task, "createInstanceProfile");
+        profile.set(TaskConstants.TASK_SOURCE, MockKafkaSource.class.getName());
+
+        List<SendMessageCallback> callbacks = Collections.synchronizedList(new ArrayList<>());
+        Set<String> sent = Collections.synchronizedSet(new TreeSet<>());
+        SenderManager senderManager = PowerMockito.spy(new SenderManager(profile, profile.getInlongGroupId(), TOPIC));
+        PowerMockito.doNothing().when(senderManager, "createMessageSender", Mockito.anyString());
+        PowerMockito.doAnswer(invocation -> {
+            List<byte[]> bodyList = invocation.getArgument(1);
+            bodyList.forEach(body -> sent.add(new String(body, StandardCharsets.UTF_8)));
+            callbacks.add(invocation.getArgument(0));
+            return null;
+        }).when(senderManager, "asyncSendByMessageSender", Mockito.any(),
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.anyLong(), Mockito.any(),
+                Mockito.anyLong(), Mockito.any(),
+                Mockito.any(), Mockito.anyBoolean());
+        PowerMockito.whenNew(SenderManager.class).withAnyArguments().thenReturn(senderManager);
+
+        InstanceManager instanceManager = PowerMockito.mock(InstanceManager.class);
+        PowerMockito.when(instanceManager.submitAction(Mockito.any())).thenReturn(true);
+        KafkaInstance instance = new KafkaInstance();
+        Assert.assertTrue(instance.init(instanceManager, profile));
+        Thread instanceThread = new Thread(instance);
+        instanceThread.start();
+        laneConsumer.addRecord(new ConsumerRecord<>(TOPIC, 0, 0L, "key0", "value0".getBytes(StandardCharsets.UTF_8)));
+        laneConsumer.addRecord(new ConsumerRecord<>(TOPIC, 0, 1L, "key1", "value1".getBytes(StandardCharsets.UTF_8)));
+        laneConsumer.addRecord(new ConsumerRecord<>(TOPIC, 0, 2L, "key2", "value2".getBytes(StandardCharsets.UTF_8)));
+        laneConsumer.addRecord(new ConsumerRecord<>(TOPIC, 1, 0L, "key3", "value3".getBytes(StandardCharsets.UTF_8)));
+        // partition 0 goes on from the offset of the group of the partition
+        await().atMost(10, TimeUnit.SECONDS).until(() -> sent.size() == 3);
+        Assert.assertEquals(new TreeSet<>(Arrays.asList("value1", "value2", "value3")), sent);
+        // nothing is committed before the ack
+        Assert.assertTrue(laneConsumer.committed(beginningOffsets.keySet()).isEmpty());
+
+        new ArrayList<>(callbacks).forEach(callback -> callback.onMessageAck(SendResult.OK));
+        await().atMost(10, TimeUnit.SECONDS).until(() -> laneConsumer.committed(beginningOffsets.keySet()).size() == 2);
+        Assert.assertEquals(3L, laneConsumer.committed(beginningOffsets.keySet()).get(PARTITION0).offset());
+        Assert.assertEquals(1L, laneConsumer.committed(beginningOffsets.keySet()).get(PARTITION1).offset());
+
+        // the lane closes the consumer once the source is destroyed
+        instance.destroy();
+        instanceThread.join(TimeUnit.SECONDS.toMillis(10));
+        Assert.assertTrue(laneConsumer.closed());
+    }
+
+    private TaskProfile getTaskProfile() {
+        KafkaJobTaskConfig kafkaJobTaskConfig = new KafkaJobTaskConfig();
+        kafkaJobTaskConfig.setTopic(TOPIC);
+        kafkaJobTaskConfig.setBootstrapServers("127.0.0.1:9092");
+        kafkaJobTaskConfig.setRecordSpeedLimit("0");
+        kafkaJobTaskConfig.setByteSpeedLimit("0");
+        kafkaJobTaskConfig.setBatchMode("true");
+        kafkaJobTaskConfig.setPartitionLanes("1");
+        DataConfig dataConfig = new DataConfig();
+        dataConfig.setInlongGroupId("testGroupId");
+        dataConfig.setInlongStreamId("testStreamId");
+        dataConfig.setDataReportType(1);
+        dataConfig.setTaskType(TaskTypeEnum.KAFKA.getType());
+        dataConfig.setTaskId(1);
+        dataConfig.setState(TaskStateEnum.RUNNING.ordinal());
+        dataConfig.setExtParams(GSON.toJson(kafkaJobTaskConfig));
+        return TaskProfile.convertToTaskProfile(dataConfig);
+    }
+}
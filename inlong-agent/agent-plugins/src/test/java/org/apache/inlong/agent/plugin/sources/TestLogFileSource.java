@@ -17,6 +17,7 @@
 
 package org.apache.inlong.agent.plugin.sources;
 
+import org.apache.inlong.agent.conf.AgentConfiguration;
 import org.apache.inlong.agent.conf.InstanceProfile;
 import org.apache.inlong.agent.conf.OffsetProfile;
 import org.apache.inlong.agent.conf.TaskProfile;
@@ -41,7 +42,12 @@ import org.powermock.reflect.Whitebox;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import static org.apache.inlong.agent.constant.FetcherConstants.AGENT_GLOBAL_READER_QUEUE_PERMIT;
@@ -73,10 +79,15 @@ public class TestLogFileSource {
     }
 
     private LogFileSource getSource(int taskId, long offset) {
+        return getSource(taskId, offset, LOADER.getResource("test/20230928_1.txt").getPath(),
+                Collections.emptyMap());
+    }
+
+    private LogFileSource getSource(int taskId, long offset, String fileName, Map<String, String> conf) {
         try {
             String pattern = helper.getTestRootDir() + "/YYYYMMDD.log_[0-9]+";
             TaskProfile taskProfile = helper.getTaskProfile(taskId, pattern, false, 0L, 0L, TaskStateEnum.RUNNING);
-            String fileName = LOADER.getResource("test/20230928_1.txt").getPath();
+            conf.forEach(taskProfile::set);
             InstanceProfile instanceProfile = taskProfile.createInstanceProfile("",
                     fileName, taskProfile.getCycleUnit(), "20230928", AgentUtils.getCurrentTime());
             instanceProfile.set(TaskConstants.INODE_INFO, FileDataUtils.getInodeInfo(instanceProfile.getInstanceId()));
@@ -109,27 +120,72 @@ public class TestLogFileSource {
 
     @Test
     public void testLogFileSource() {
-        testFullRead();
+        testFullRead(1);
         testCleanQueue();
         testReadWithOffset();
     }
 
-    private void testFullRead() {
+    @Test
+    public void testSharedReader() {
+        AgentConfiguration.getAgentConf().setBoolean(AgentConstants.AGENT_FILE_SOURCE_SHARED_READER_ENABLE, true);
+        try {
+            testFullRead(5);
+        } finally {
+            AgentConfiguration.getAgentConf().setBoolean(AgentConstants.AGENT_FILE_SOURCE_SHARED_READER_ENABLE, false);
+        }
+    }
+
+    @Test
+    public void testMultiLineFlushedOnRotate() throws Exception {
+        File file = new File(helper.getTestRootDir().toFile(), "20230928.log_1");
+        Files.write(file.toPath(), "2023 first\n at a\n2023 second\n at b\n".getBytes(StandardCharsets.UTF_8));
+        Map<String, String> conf = new HashMap<>();
+        conf.put(TaskConstants.TASK_FILE_MULTI_LINE_MODE, "start");
+        conf.put(TaskConstants.TASK_FILE_MULTI_LINE_PATTERN, "^2023");
+        conf.put(TaskConstants.TASK_FILE_MULTI_LINE_FLUSH_TIMEOUT_MS, "3600000");
+        LogFileSource source = getSource(6, 0, file.getPath(), conf);
+        Message msg = null;
+        for (int i = 0; i < 300 && msg == null; i++) {
+            msg = source.read();
+        }
+        Assert.assertNotNull(msg);
+        Assert.assertEquals("2023 first\n at a", new String(msg.getBody(), StandardCharsets.UTF_8));
+        // the second event waits for the next line, until the file is rotated
+        Assert.assertNull(source.read());
+        Files.write(file.toPath(), "2023\n".getBytes(StandardCharsets.UTF_8));
+        msg = null;
+        for (int i = 0; i < 500 && msg == null; i++) {
+            msg = source.read();
+        }
+        Assert.assertNotNull(msg);
+        Assert.assertEquals("2023 second\n at b", new String(msg.getBody(), StandardCharsets.UTF_8));
+        await().atMost(30, TimeUnit.SECONDS).until(() -> !source.sourceExist());
+        source.destroy();
+        int leftAfterRead = MemoryManager.getInstance().getLeft(AGENT_GLOBAL_READER_QUEUE_PERMIT);
+        Assert.assertTrue(leftAfterRead == DEFAULT_AGENT_GLOBAL_READER_QUEUE_PERMIT);
+    }
+
+    private void testFullRead(int taskId) {
         int srcLen = 0;
         for (int i = 0; i < check.length; i++) {
             srcLen += check[i].getBytes(StandardCharsets.UTF_8).length;
         }
-        LogFileSource source = getSource(1, 0);
+        LogFileSource source = getSource(taskId, 0);
         int cnt = 0;
-        Message msg = source.read();
         int readLen = 0;
-        while (msg != null) {
+        // the reader may not have put the lines into the queue yet
+        long deadline = AgentUtils.getCurrentTime() + TimeUnit.SECONDS.toMillis(30);
+        while (cnt < check.length && AgentUtils.getCurrentTime() < deadline) {
+            Message msg = source.read();
+            if (msg == null) {
+                continue;
+            }
             readLen += msg.getBody().length;
             String record = new String(msg.getBody());
             Assert.assertTrue(record.compareTo(check[cnt]) == 0);
-            msg = source.read();
             cnt++;
         }
+        Assert.assertTrue(source.read() == null);
         await().atMost(30, TimeUnit.SECONDS).until(() -> source.sourceFinish());
         source.destroy();
         Assert.assertTrue(cnt == 3);
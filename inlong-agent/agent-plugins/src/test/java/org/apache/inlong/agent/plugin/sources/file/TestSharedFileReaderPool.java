@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.plugin.sources.file;
+
+import org.apache.inlong.agent.utils.AgentUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestSharedFileReaderPool {
+
+    private static void waitFor(AtomicInteger counter, int expected) {
+        for (int i = 0; i < 500 && counter.get() < expected; i++) {
+            AgentUtils.silenceSleepInMs(10);
+        }
+        Assert.assertTrue(counter.get() >= expected);
+    }
+
+    @Test
+    public void testOneTimerPerTask() {
+        SharedFileReaderPool pool = SharedFileReaderPool.getInstance();
+        AtomicInteger steps = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+        AtomicBoolean stop = new AtomicBoolean(false);
+        SharedFileReaderPool.Entry entry = pool.submit(new SharedFileReaderPool.ReadTask() {
+
+            @Override
+            public long step() {
+                steps.incrementAndGet();
+                // idle with a long retry delay
+                return stop.get() ? -1 : 60000L;
+            }
+
+            @Override
+            public void onFinished() {
+                finished.incrementAndGet();
+            }
+        });
+        waitFor(steps, 1);
+        // woken up by modifications long before the retry delay expires
+        for (int i = 2; i <= 50; i++) {
+            entry.wakeUp();
+            waitFor(steps, i);
+        }
+        Assert.assertEquals(1, pool.getPendingTimerCount());
+
+        stop.set(true);
+        entry.wakeUp();
+        waitFor(finished, 1);
+        Assert.assertEquals(0, pool.getPendingTimerCount());
+    }
+
+    @Test
+    public void testWakeUpWhileStepEnding() {
+        SharedFileReaderPool pool = SharedFileReaderPool.getInstance();
+        AtomicInteger steps = new AtomicInteger();
+        AtomicInteger finished = new AtomicInteger();
+        AtomicBoolean stop = new AtomicBoolean(false);
+        SharedFileReaderPool.Entry entry = pool.submit(new SharedFileReaderPool.ReadTask() {
+
+            @Override
+            public long step() {
+                if (stop.get()) {
+                    return -1;
+                }
+                steps.incrementAndGet();
+                return 60000L;
+            }
+
+            @Override
+            public void onFinished() {
+                finished.incrementAndGet();
+            }
+        });
+        // wake up the task right when its step returns, every wake up runs a step
+        // long before the retry delay expires
+        for (int i = 1; i <= 2000; i++) {
+            while (steps.get() < i) {
+                Thread.yield();
+            }
+            entry.wakeUp();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (steps.get() <= i && System.currentTimeMillis() < deadline) {
+                Thread.yield();
+            }
+            Assert.assertTrue(steps.get() > i);
+        }
+        stop.set(true);
+        entry.wakeUp();
+        waitFor(finished, 1);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.plugin.utils;
+
+import org.apache.inlong.agent.plugin.utils.file.DirectoryIndex;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class TestDirectoryIndex {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private List<String> find(String baseDir, String dirRegex, String fileRegex) {
+        return DirectoryIndex.getInstance().find(baseDir, dirRegex, fileRegex, 3, 100).stream()
+                .map(File::getName).sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    public void testFindNewFiles() throws IOException {
+        File base = tempFolder.getRoot();
+        String baseDir = base.getAbsolutePath();
+        File dir = tempFolder.newFolder("20230101");
+        tempFolder.newFolder("other");
+        new File(dir, "a.log").createNewFile();
+        new File(dir, "b.txt").createNewFile();
+        new File(base, "other/c.log").createNewFile();
+        String dirRegex = baseDir + "/2023\\d{4}";
+        String fileRegex = baseDir + "/2023\\d{4}/\\w+\\.log";
+        Assert.assertEquals("[a.log]", find(baseDir, dirRegex, fileRegex).toString());
+        // the directory is listed again as it was modified
+        new File(dir, "d.log").createNewFile();
+        Assert.assertEquals("[a.log, d.log]", find(baseDir, dirRegex, fileRegex).toString());
+        // another pattern shares the listings
+        int size = DirectoryIndex.getInstance().size();
+        Assert.assertEquals("[c.log]", find(baseDir, "", baseDir + "/other/.*\\.log").toString());
+        Assert.assertEquals(size + 1, DirectoryIndex.getInstance().size());
+        new File(dir, "a.log").delete();
+        Assert.assertEquals("[d.log]", find(baseDir, dirRegex, fileRegex).toString());
+    }
+}
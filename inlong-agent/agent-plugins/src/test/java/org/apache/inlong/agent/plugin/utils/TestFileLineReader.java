@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.plugin.utils;
+
+import org.apache.inlong.agent.plugin.utils.file.FileLineReader;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestFileLineReader {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private void append(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Test
+    public void testReadLines() throws IOException {
+        File file = tempFolder.newFile("test.log");
+        append(file, "first line of the file\r\nsecond\n\nthis line is longer than the max length\nfourth");
+        List<String> lines = new ArrayList<>();
+        List<Boolean> truncated = new ArrayList<>();
+        FileLineReader.LineConsumer consumer = (bytes, offset, length, isTruncated) -> {
+            lines.add(new String(bytes, offset, length, StandardCharsets.UTF_8));
+            truncated.add(isTruncated);
+        };
+        // a buffer smaller than the lines
+        try (FileLineReader reader = new FileLineReader(file, 5, 24)) {
+            long pos = reader.readLines(0, 2, Long.MAX_VALUE, consumer);
+            Assert.assertEquals(2, reader.getLastReadLineCount());
+            Assert.assertEquals("first line of the file", lines.get(0));
+            Assert.assertEquals("second", lines.get(1));
+            pos = reader.readLines(pos, 10, Long.MAX_VALUE, consumer);
+            // the last line is not completed yet
+            Assert.assertEquals(2, reader.getLastReadLineCount());
+            Assert.assertEquals("", lines.get(2));
+            Assert.assertEquals("this line is longer than", lines.get(3));
+            Assert.assertTrue(truncated.get(3));
+            Assert.assertFalse(truncated.get(0));
+            append(file, " line\n");
+            long lastPos = reader.readLines(pos, 10, Long.MAX_VALUE, consumer);
+            Assert.assertEquals(1, reader.getLastReadLineCount());
+            Assert.assertEquals("fourth line", lines.get(4));
+            Assert.assertEquals(file.length(), lastPos);
+            // only count the lines
+            Assert.assertEquals(lastPos, reader.readLines(0, 10, Long.MAX_VALUE, null));
+            Assert.assertEquals(5, reader.getLastReadLineCount());
+        }
+    }
+
+    @Test
+    public void testReadWordAligned() throws IOException {
+        File file = tempFolder.newFile("aligned.log");
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            for (int j = 0; j < i % 20; j++) {
+                builder.append((char) ('a' + j));
+            }
+            builder.append('\n');
+        }
+        append(file, builder.toString());
+        List<String> lines = new ArrayList<>();
+        try (FileLineReader reader = new FileLineReader(file, 64, 1024)) {
+            long pos = 0;
+            do {
+                pos = reader.readLines(pos, 7, Long.MAX_VALUE,
+                        (bytes, offset, length, truncated) -> lines.add(
+                                new String(bytes, offset, length, StandardCharsets.UTF_8)));
+            } while (reader.getLastReadLineCount() > 0);
+            Assert.assertEquals(file.length(), pos);
+        }
+        Assert.assertEquals(1000, lines.size());
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(i % 20, lines.get(i).length());
+        }
+    }
+}
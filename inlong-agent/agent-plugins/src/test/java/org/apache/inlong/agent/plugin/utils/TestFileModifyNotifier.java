@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.plugin.utils;
+
+import org.apache.inlong.agent.plugin.utils.file.FileModifyNotifier;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestFileModifyNotifier {
+
+    @Test
+    public void testOnlyModifyEventsMarkSignaled() {
+        AtomicInteger listened = new AtomicInteger();
+        FileModifyNotifier.Waiter waiter = new FileModifyNotifier.Waiter(listened::incrementAndGet);
+        String fileName = "/tmp/test-file-modify-notifier.log";
+        FileModifyNotifier.register(fileName, waiter);
+        try {
+            // internal wake ups do not tell that the file system delivers events
+            waiter.wakeUp();
+            Assert.assertTrue(waiter.await(0));
+            Assert.assertFalse(waiter.await(0));
+            Assert.assertFalse(waiter.isEverSignaled());
+
+            FileModifyNotifier.notifyModified(fileName);
+            Assert.assertTrue(waiter.await(0));
+            Assert.assertTrue(waiter.isEverSignaled());
+            Assert.assertEquals(2, listened.get());
+        } finally {
+            FileModifyNotifier.unregister(fileName, waiter);
+        }
+        FileModifyNotifier.notifyModified(fileName);
+        Assert.assertFalse(waiter.await(0));
+    }
+}
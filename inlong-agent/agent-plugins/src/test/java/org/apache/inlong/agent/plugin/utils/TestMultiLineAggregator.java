@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.agent.plugin.utils;
+
+import org.apache.inlong.agent.plugin.utils.file.MultiLineAggregator;
+import org.apache.inlong.agent.plugin.utils.file.MultiLineAggregator.Mode;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestMultiLineAggregator {
+
+    private final List<String> events = new ArrayList<>();
+    private final List<Long> lastLines = new ArrayList<>();
+    private final MultiLineAggregator.EventConsumer consumer = (bytes, offset, length, lastLine) -> {
+        events.add(new String(bytes, offset, length, StandardCharsets.UTF_8));
+        lastLines.add(lastLine);
+    };
+
+    private void append(MultiLineAggregator aggregator, String... lines) {
+        long line = lastLines.isEmpty() ? 0 : lastLines.get(lastLines.size() - 1);
+        for (String text : lines) {
+            // surround the line with other bytes to check the ranges
+            byte[] bytes = ("##" + text + "##").getBytes(StandardCharsets.UTF_8);
+            aggregator.append(bytes, 2, bytes.length - 4, ++line, consumer);
+        }
+    }
+
+    @Test
+    public void testStartPattern() {
+        MultiLineAggregator aggregator = new MultiLineAggregator(Mode.START, "^\\d{4}-\\d{2}-\\d{2}", 100,
+                1024, 1000);
+        append(aggregator, "2024-01-01 error", "java.lang.Exception: 异常", "\tat a.b.C(C.java:1)",
+                "2024-01-01 info", "2024-01-02 warn");
+        Assert.assertEquals(2, events.size());
+        Assert.assertEquals("2024-01-01 error\njava.lang.Exception: 异常\n\tat a.b.C(C.java:1)", events.get(0));
+        Assert.assertEquals(3L, (long) lastLines.get(0));
+        Assert.assertEquals("2024-01-01 info", events.get(1));
+        Assert.assertEquals(4L, (long) lastLines.get(1));
+        Assert.assertTrue(aggregator.hasPendingEvent());
+        aggregator.flush(consumer);
+        Assert.assertEquals("2024-01-02 warn", events.get(2));
+        Assert.assertFalse(aggregator.hasPendingEvent());
+    }
+
+    @Test
+    public void testContinueAndIndent() {
+        MultiLineAggregator aggregator = new MultiLineAggregator(Mode.CONTINUE, "\\\\$|^续", 100, 1024, 1000);
+        append(aggregator, "a", "续 b", "c", "d");
+        aggregator.flush(consumer);
+        Assert.assertEquals(3, events.size());
+        Assert.assertEquals("a\n续 b", events.get(0));
+
+        events.clear();
+        aggregator = new MultiLineAggregator(Mode.INDENT, null, 100, 1024, 1000);
+        append(aggregator, "Traceback:", "  File x", "\tline 1", "Error", "");
+        aggregator.flush(consumer);
+        Assert.assertEquals(3, events.size());
+        Assert.assertEquals("Traceback:\n  File x\n\tline 1", events.get(0));
+        Assert.assertEquals("", events.get(2));
+    }
+
+    @Test
+    public void testNonAsciiLines() {
+        // three chars, but nine bytes for the chinese line
+        MultiLineAggregator aggregator = new MultiLineAggregator(Mode.START, "^.{3} ", 100, 1024, 1000);
+        append(aggregator, "abc start", "日志行 more", "日志 next");
+        aggregator.flush(consumer);
+        Assert.assertEquals(2, events.size());
+        Assert.assertEquals("abc start", events.get(0));
+        Assert.assertEquals("日志行 more\n日志 next", events.get(1));
+    }
+
+    @Test
+    public void testLimits() {
+        MultiLineAggregator aggregator = new MultiLineAggregator(Mode.INDENT, null, 2, 10, 50);
+        append(aggregator, "a", " b", " cccccccc", " d");
+        Assert.assertEquals(2, events.size());
+        // split by the max lines
+        Assert.assertEquals("a\n b", events.get(0));
+        // split by the max bytes
+        Assert.assertEquals(" cccccccc", events.get(1));
+        long now = System.currentTimeMillis();
+        long left = aggregator.flushIfExpired(now, consumer);
+        Assert.assertTrue(left > 0 && left <= 50);
+        Assert.assertEquals(0, aggregator.flushIfExpired(now + 50, consumer));
+        Assert.assertEquals(" d", events.get(2));
+        Assert.assertEquals(0, aggregator.flushIfExpired(now + 100, consumer));
+        Assert.assertEquals(3, events.size());
+    }
+}
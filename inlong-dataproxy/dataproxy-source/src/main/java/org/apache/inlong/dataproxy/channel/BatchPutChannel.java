@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.channel;
+
+import org.apache.flume.Channel;
+import org.apache.flume.ChannelException;
+import org.apache.flume.Event;
+
+import java.util.List;
+
+/**
+ * BatchPutChannel
+ *
+ * Channel that accepts events without a Flume transaction. The space of all
+ *  the events put in one call, including all the events of a ProxyPackEvent,
+ *  is reserved at once, and either all of them are accepted or none is.
+ */
+public interface BatchPutChannel extends Channel {
+
+    /**
+     * put one event directly
+     *
+     * @param event  the event to put, may be a ProxyPackEvent
+     * @throws ChannelException if the event can not be accepted
+     */
+    void directPut(Event event) throws ChannelException;
+
+    /**
+     * put a batch of events directly
+     *
+     * @param events  the events to put
+     * @throws ChannelException if the events can not be accepted
+     */
+    void directPutBatch(List<Event> events) throws ChannelException;
+
+    /**
+     * whether the channel has the space of the event now, without reserving it,
+     *  a put may still wait or fail if other producers fill the channel in between
+     *
+     * @param event  the event to put, may be a ProxyPackEvent
+     * @return true if the channel has the space of the event
+     */
+    boolean hasSpace(Event event);
+}
@@ -18,7 +18,9 @@
 package org.apache.inlong.dataproxy.channel;
 
 import org.apache.inlong.dataproxy.utils.BufferQueue;
+import org.apache.inlong.dataproxy.utils.SizeSemaphore;
 import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
+import org.apache.inlong.sdk.commons.protocol.ProxyPackEvent;
 
 import com.google.common.base.Preconditions;
 import org.apache.flume.ChannelException;
@@ -30,6 +32,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Date;
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.Semaphore;
@@ -38,7 +41,7 @@ import java.util.concurrent.atomic.AtomicLong;
 /**
  * BufferQueueChannel
  */
-public class BufferQueueChannel extends AbstractChannel {
+public class BufferQueueChannel extends AbstractChannel implements BatchPutChannel {
 
     public static final Logger LOG = LoggerFactory.getLogger(BufferQueueChannel.class);
 
@@ -53,7 +56,7 @@ public class BufferQueueChannel extends AbstractChannel {
     private int maxBufferQueueCount;
     private Semaphore countSemaphore;
     private int maxBufferQueueSizeKb;
-    private BufferQueue<ProxyEvent> bufferQueue;
+    private BufferQueue<Event> bufferQueue;
     private ThreadLocal<ProxyTransaction> currentTransaction = new ThreadLocal<ProxyTransaction>();
     protected Timer channelTimer;
     private AtomicLong takeCounter = new AtomicLong(0);
@@ -73,16 +76,101 @@ public class BufferQueueChannel extends AbstractChannel {
      */
     @Override
     public void put(Event event) throws ChannelException {
+        ProxyTransaction transaction = currentTransaction.get();
+        Preconditions.checkState(transaction != null, "No transaction exists for this thread");
+        acquirePermits(getEventCount(event), getEventSize(event));
+        transaction.doPut(event);
+    }
+
+    /**
+     * put one event without transaction
+     *
+     * @param  event
+     * @throws ChannelException
+     */
+    @Override
+    public void directPut(Event event) throws ChannelException {
+        acquirePermits(getEventCount(event), getEventSize(event));
+        this.bufferQueue.offer(event);
+    }
+
+    /**
+     * put a batch of events without transaction
+     *
+     * @param  events
+     * @throws ChannelException
+     */
+    @Override
+    public void directPutBatch(List<Event> events) throws ChannelException {
+        int totalCount = 0;
+        long totalSize = 0L;
+        for (Event event : events) {
+            totalCount += getEventCount(event);
+            totalSize += getEventSize(event);
+        }
+        acquirePermits(totalCount, totalSize);
+        for (Event event : events) {
+            this.bufferQueue.offer(event);
+        }
+    }
+
+    /**
+     * whether the count and size permits of the event are available
+     *
+     * @param  event
+     * @return true if the channel has the space of the event
+     */
+    @Override
+    public boolean hasSpace(Event event) {
+        return countSemaphore.availablePermits() >= getEventCount(event)
+                && (long) bufferQueue.availablePermits() * SizeSemaphore.ONEKB >= getEventSize(event);
+    }
+
+    /**
+     * reserve the count and size permits of the events at once
+     */
+    private void acquirePermits(int eventCount, long eventSize) throws ChannelException {
+        if (eventCount > maxBufferQueueCount
+                || eventSize > (long) maxBufferQueueSizeKb * SizeSemaphore.ONEKB) {
+            throw new ChannelException("The events exceed the capacity of channel " + getName()
+                    + ", count = " + eventCount + ", size = " + eventSize);
+        }
+        putCounter.addAndGet(eventCount);
+        this.countSemaphore.acquireUninterruptibly(eventCount);
+        this.bufferQueue.acquire(eventSize);
+    }
+
+    /**
+     * get the message count of the event
+     *
+     * @param  event
+     * @return the message count, all the events of a ProxyPackEvent are counted
+     */
+    public static int getEventCount(Event event) {
+        if (event instanceof ProxyPackEvent) {
+            return Math.max(1, ((ProxyPackEvent) event).getEvents().size());
+        }
+        return 1;
+    }
+
+    /**
+     * get the body size of the event
+     *
+     * @param  event
+     * @return the body size, all the events of a ProxyPackEvent are counted
+     */
+    public static long getEventSize(Event event) {
         if (event instanceof ProxyEvent) {
-            putCounter.incrementAndGet();
-            int eventSize = event.getBody().length;
-            this.countSemaphore.acquireUninterruptibly();
-            this.bufferQueue.acquire(eventSize);
-            ProxyTransaction transaction = currentTransaction.get();
-            Preconditions.checkState(transaction != null, "No transaction exists for this thread");
-            ProxyEvent profile = (ProxyEvent) event;
-            transaction.doPut(profile);
+            return ((ProxyEvent) event).getBodyLength();
+        }
+        if (event instanceof ProxyPackEvent) {
+            long size = 0L;
+            for (ProxyEvent subEvent : ((ProxyPackEvent) event).getEvents()) {
+                size += subEvent.getBodyLength();
+            }
+            return size;
         }
+        return event.getBody() == null ? 0 : event.getBody().length;
     }
 
     /**
@@ -93,7 +181,7 @@ public class BufferQueueChannel extends AbstractChannel {
      */
     @Override
     public Event take() throws ChannelException {
-        ProxyEvent event = this.bufferQueue.pollRecord();
+        Event event = this.bufferQueue.pollRecord();
         if (event != null) {
             ProxyTransaction transaction = currentTransaction.get();
             Preconditions.checkState(transaction != null, "No transaction exists for this thread");
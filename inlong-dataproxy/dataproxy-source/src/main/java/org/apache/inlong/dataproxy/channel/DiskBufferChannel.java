@@ -0,0 +1,695 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.channel;
+
+import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
+import org.apache.inlong.sdk.commons.protocol.ProxyPackEvent;
+import org.apache.inlong.sdk.commons.protocol.ProxySdk.ResultCode;
+
+import com.google.common.base.Preconditions;
+import org.apache.flume.ChannelException;
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.FlumeException;
+import org.apache.flume.Transaction;
+import org.apache.flume.channel.AbstractChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * DiskBufferChannel
+ *
+ * Channel that appends the events to segment files under the data directory.
+ * The events of one put call are serialized into one buffer, the disk space is
+ * reserved once and the buffer is written with one write call. The events of a
+ * ProxyPackEvent are stored one by one, and the pack is acknowledged once they are
+ * forced to disk. The writers forcing the same segment at the same time share one
+ * force call, so a busy channel does not pay one sync per pack. With syncOnWrite set
+ * to false the pack is acknowledged as soon as the events are in the page cache, the
+ * events acknowledged may then be lost if the host crashes. The events are taken back
+ * as header and body only events.
+ *
+ * A record taken stays pending until its take transaction commits. On commit the
+ * position of the oldest pending record, or the read position if none, is saved
+ * to the checkpoint file, and the segments before it are deleted. A restart reads
+ * from the checkpoint, so at most the records of the uncommitted takes are read
+ * again. The checkpoint is not forced, a checkpoint lost by a crash only makes the
+ * records after the former one read again.
+ *
+ * Record format: length(4) + crc32(4) + headerCount(4) + [key, value]* + bodyLength(4) + body
+ * Checkpoint format: segId(8) + position(8)
+ */
+public class DiskBufferChannel extends AbstractChannel implements BatchPutChannel {
+
+    public static final Logger LOG = LoggerFactory.getLogger(DiskBufferChannel.class);
+
+    public static final String KEY_DATA_DIR = "dataDir";
+    public static final String DEFAULT_DATA_DIR = "./data/channel";
+    public static final String KEY_MAX_DISK_SIZE_MB = "maxDiskSizeMb";
+    public static final long DEFAULT_MAX_DISK_SIZE_MB = 10 * 1024L;
+    public static final String KEY_SEGMENT_SIZE_MB = "segmentSizeMb";
+    public static final int DEFAULT_SEGMENT_SIZE_MB = 64;
+    public static final String KEY_SYNC_ON_WRITE = "syncOnWrite";
+    public static final boolean DEFAULT_SYNC_ON_WRITE = true;
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int CHECKPOINT_SIZE = 16;
+    private static final int RECORD_HEAD_SIZE = 8;
+    private static final long ONE_MB = 1024L * 1024L;
+
+    private File dataDir;
+    private long maxDiskSize;
+    private long segmentSize;
+    private boolean syncOnWrite;
+    private final AtomicLong usedDiskSize = new AtomicLong(0);
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Object writeLock = new Object();
+    private final Object readLock = new Object();
+    // the events rolled back by the take transactions, taken first
+    private final LinkedList<DiskEvent> retryEvents = new LinkedList<>();
+    private volatile Segment writeSegment;
+    private Segment readSegment;
+    private long readPosition = 0L;
+    // the records taken and not committed yet, guarded by the read lock
+    private final TreeSet<RecordPosition> pendingRecords = new TreeSet<>();
+    private FileChannel checkpointChannel;
+    private RecordPosition checkpoint;
+    private final ThreadLocal<DiskTransaction> currentTransaction = new ThreadLocal<>();
+
+    /**
+     * Constructor
+     */
+    public DiskBufferChannel() {
+    }
+
+    /**
+     * configure
+     *
+     * @param context
+     */
+    @Override
+    public void configure(Context context) {
+        this.dataDir = new File(context.getString(KEY_DATA_DIR, DEFAULT_DATA_DIR), getName());
+        this.maxDiskSize = context.getLong(KEY_MAX_DISK_SIZE_MB, DEFAULT_MAX_DISK_SIZE_MB) * ONE_MB;
+        this.segmentSize = context.getInteger(KEY_SEGMENT_SIZE_MB, DEFAULT_SEGMENT_SIZE_MB) * ONE_MB;
+        this.syncOnWrite = context.getBoolean(KEY_SYNC_ON_WRITE, DEFAULT_SYNC_ON_WRITE);
+        Preconditions.checkArgument(this.maxDiskSize > 0, KEY_MAX_DISK_SIZE_MB + " must be > 0");
+        Preconditions.checkArgument(this.segmentSize > 0, KEY_SEGMENT_SIZE_MB + " must be > 0");
+    }
+
+    /**
+     * start
+     */
+    @Override
+    public synchronized void start() {
+        if (!dataDir.exists() && !dataDir.mkdirs()) {
+            throw new FlumeException("Create data directory " + dataDir + " failure");
+        }
+        try {
+            // load the remaining segments, they are read from the beginning
+            File[] files = dataDir.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+            long lastId = 0L;
+            if (files != null) {
+                for (File file : files) {
+                    String name = file.getName();
+                    long segId = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                    Segment segment = new Segment(segId, file);
+                    segment.committedSize = file.length();
+                    segments.put(segId, segment);
+                    usedDiskSize.addAndGet(segment.committedSize);
+                    lastId = Math.max(lastId, segId);
+                }
+            }
+            writeSegment = newSegment(lastId + 1);
+            // resume from the checkpoint, the segments before it have been committed
+            checkpointChannel = FileChannel.open(new File(dataDir, CHECKPOINT_FILE).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            checkpoint = readCheckpoint();
+            if (checkpoint != null) {
+                releaseSegments(checkpoint.segId);
+            }
+            readSegment = segments.firstEntry().getValue();
+            if (checkpoint != null && readSegment.segId == checkpoint.segId
+                    && checkpoint.position <= readSegment.committedSize) {
+                readPosition = checkpoint.position;
+            }
+            LOG.info("{} loaded {} segments from {}, used disk size {}, read from segment {} position {}",
+                    getName(), segments.size(), dataDir, usedDiskSize.get(), readSegment.segId, readPosition);
+        } catch (IOException e) {
+            throw new FlumeException("Load segments of " + getName() + " failure", e);
+        }
+        super.start();
+    }
+
+    /**
+     * stop
+     */
+    @Override
+    public synchronized void stop() {
+        super.stop();
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+        if (checkpointChannel != null) {
+            try {
+                checkpointChannel.close();
+            } catch (IOException e) {
+                LOG.warn("Close checkpoint of {} failure", getName(), e);
+            }
+            checkpointChannel = null;
+        }
+    }
+
+    /**
+     * put within transaction, the events are written when committing
+     *
+     * @param  event
+     * @throws ChannelException
+     */
+    @Override
+    public void put(Event event) throws ChannelException {
+        DiskTransaction transaction = currentTransaction.get();
+        Preconditions.checkState(transaction != null, "No transaction exists for this thread");
+        transaction.putList.add(event);
+    }
+
+    /**
+     * put one event without transaction
+     *
+     * @param  event
+     * @throws ChannelException
+     */
+    @Override
+    public void directPut(Event event) throws ChannelException {
+        this.directPutBatch(Collections.singletonList(event));
+    }
+
+    /**
+     * put a batch of events without transaction
+     *
+     * @param  events
+     * @throws ChannelException
+     */
+    @Override
+    public void directPutBatch(List<Event> events) throws ChannelException {
+        if (events.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream(4096);
+        try {
+            for (Event event : events) {
+                if (event instanceof ProxyPackEvent) {
+                    for (ProxyEvent subEvent : ((ProxyPackEvent) event).getEvents()) {
+                        writeRecord(output, subEvent);
+                    }
+                } else {
+                    writeRecord(output, event);
+                }
+            }
+        } catch (IOException e) {
+            throw new ChannelException("Serialize events of " + getName() + " failure", e);
+        }
+        byte[] data = output.toByteArray();
+        // reserve the disk space of all events at once
+        if (usedDiskSize.addAndGet(data.length) > maxDiskSize) {
+            usedDiskSize.addAndGet(-data.length);
+            throw new ChannelException("The disk space of channel " + getName() + " is full");
+        }
+        try {
+            append(data);
+        } catch (IOException e) {
+            usedDiskSize.addAndGet(-data.length);
+            throw new ChannelException("Write events to " + getName() + " failure", e);
+        }
+        for (Event event : events) {
+            if (event instanceof ProxyPackEvent) {
+                ProxyPackEvent packEvent = (ProxyPackEvent) event;
+                if (packEvent.getCallback() != null) {
+                    packEvent.acknowledge(ResultCode.SUCCUSS);
+                }
+            }
+        }
+    }
+
+    /**
+     * whether the disk space of the event is available, the record overhead is not counted
+     *
+     * @param  event
+     * @return true if the channel has the space of the event
+     */
+    @Override
+    public boolean hasSpace(Event event) {
+        return usedDiskSize.get() + BufferQueueChannel.getEventSize(event) <= maxDiskSize;
+    }
+
+    /**
+     * take
+     *
+     * @return Event
+     * @throws ChannelException
+     */
+    @Override
+    public Event take() throws ChannelException {
+        DiskTransaction transaction = currentTransaction.get();
+        Preconditions.checkState(transaction != null, "No transaction exists for this thread");
+        DiskEvent event;
+        synchronized (readLock) {
+            event = retryEvents.pollFirst();
+            if (event == null) {
+                try {
+                    event = readRecord();
+                } catch (IOException e) {
+                    throw new ChannelException("Read events from " + getName() + " failure", e);
+                }
+            }
+        }
+        if (event != null) {
+            transaction.takeList.add(event);
+        }
+        return event;
+    }
+
+    /**
+     * getTransaction
+     *
+     * @return new transaction
+     */
+    @Override
+    public Transaction getTransaction() {
+        DiskTransaction newTransaction = new DiskTransaction();
+        this.currentTransaction.set(newTransaction);
+        return newTransaction;
+    }
+
+    /**
+     * get used disk size
+     *
+     * @return the used disk size in bytes
+     */
+    public long getUsedDiskSize() {
+        return usedDiskSize.get();
+    }
+
+    private void append(byte[] data) throws IOException {
+        Segment segment;
+        long endPosition;
+        synchronized (writeLock) {
+            if (writeSegment.committedSize > 0
+                    && writeSegment.committedSize + data.length > segmentSize) {
+                writeSegment = newSegment(writeSegment.segId + 1);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            long position = writeSegment.committedSize;
+            while (buffer.hasRemaining()) {
+                position += writeSegment.fileChannel.write(buffer, position);
+            }
+            writeSegment.committedSize = position;
+            segment = writeSegment;
+            endPosition = position;
+        }
+        if (syncOnWrite) {
+            segment.sync(endPosition);
+        }
+    }
+
+    private Segment newSegment(long segId) throws IOException {
+        Segment segment = new Segment(segId, new File(dataDir, segId + SEGMENT_SUFFIX));
+        segment.open();
+        segments.put(segId, segment);
+        return segment;
+    }
+
+    /**
+     * read the next record, the record is pending until its take is committed
+     */
+    private DiskEvent readRecord() throws IOException {
+        while (true) {
+            // the size of a segment no longer written is final
+            boolean isWriting = (readSegment == writeSegment);
+            long committedSize = readSegment.committedSize;
+            if (readPosition + RECORD_HEAD_SIZE <= committedSize) {
+                ByteBuffer head = ByteBuffer.allocate(RECORD_HEAD_SIZE);
+                readFully(readSegment, head, readPosition);
+                head.flip();
+                int length = head.getInt();
+                long crc = head.getInt() & 0xFFFFFFFFL;
+                if (length >= 0 && readPosition + RECORD_HEAD_SIZE + length <= committedSize) {
+                    ByteBuffer payload = ByteBuffer.allocate(length);
+                    readFully(readSegment, payload, readPosition + RECORD_HEAD_SIZE);
+                    RecordPosition position = new RecordPosition(readSegment.segId, readPosition);
+                    readPosition += RECORD_HEAD_SIZE + length;
+                    CRC32 crc32 = new CRC32();
+                    crc32.update(payload.array(), 0, length);
+                    if (crc32.getValue() == crc) {
+                        DiskEvent event = decodeRecord(payload.array(), position);
+                        pendingRecords.add(position);
+                        return event;
+                    }
+                    LOG.warn("{} skip corrupted record of segment {}", getName(), readSegment.file);
+                    continue;
+                }
+                if (isWriting) {
+                    return null;
+                }
+                LOG.warn("{} skip the truncated tail of segment {}", getName(), readSegment.file);
+            } else if (isWriting) {
+                return null;
+            }
+            Map.Entry<Long, Segment> next = segments.higherEntry(readSegment.segId);
+            if (next == null) {
+                return null;
+            }
+            // the segment is read to the end, it is released once its takes are committed
+            readSegment = next.getValue();
+            readPosition = 0L;
+        }
+    }
+
+    /**
+     * save the position of the oldest pending record, or the read position if none,
+     * and release the segments before it, called with the read lock held
+     */
+    private void commitCheckpoint() throws IOException {
+        RecordPosition position = pendingRecords.isEmpty()
+                ? new RecordPosition(readSegment.segId, readPosition)
+                : pendingRecords.first();
+        if (position.equals(checkpoint)) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(CHECKPOINT_SIZE);
+        buffer.putLong(position.segId).putLong(position.position).flip();
+        long filePosition = 0L;
+        while (buffer.hasRemaining()) {
+            filePosition += checkpointChannel.write(buffer, filePosition);
+        }
+        checkpoint = position;
+        releaseSegments(position.segId);
+    }
+
+    private RecordPosition readCheckpoint() throws IOException {
+        if (checkpointChannel.size() < CHECKPOINT_SIZE) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(CHECKPOINT_SIZE);
+        long filePosition = 0L;
+        while (buffer.hasRemaining()) {
+            int count = checkpointChannel.read(buffer, filePosition);
+            if (count < 0) {
+                return null;
+            }
+            filePosition += count;
+        }
+        buffer.flip();
+        return new RecordPosition(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * delete the segments before the given one, all their records are committed
+     */
+    private void releaseSegments(long segId) {
+        Map.Entry<Long, Segment> entry;
+        while ((entry = segments.firstEntry()) != null && entry.getKey() < segId) {
+            Segment finished = entry.getValue();
+            segments.remove(finished.segId);
+            finished.close();
+            if (!finished.file.delete()) {
+                LOG.warn("{} delete segment {} failure", getName(), finished.file);
+            }
+            usedDiskSize.addAndGet(-finished.committedSize);
+        }
+    }
+
+    private void readFully(Segment segment, ByteBuffer buffer, long position) throws IOException {
+        segment.open();
+        while (buffer.hasRemaining()) {
+            int count = segment.fileChannel.read(buffer, position);
+            if (count < 0) {
+                throw new IOException("Unexpected end of segment " + segment.file);
+            }
+            position += count;
+        }
+    }
+
+    private static void writeRecord(ByteArrayOutputStream output, Event event) throws IOException {
+        ByteArrayOutputStream recordBuf = new ByteArrayOutputStream(256);
+        DataOutputStream recordOut = new DataOutputStream(recordBuf);
+        Map<String, String> headers = event.getHeaders();
+        recordOut.writeInt(headers.size());
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            recordOut.writeUTF(entry.getKey());
+            recordOut.writeUTF(entry.getValue() == null ? "" : entry.getValue());
+        }
+        byte[] body = event.getBody();
+        if (body == null) {
+            recordOut.writeInt(0);
+        } else {
+            recordOut.writeInt(body.length);
+            recordOut.write(body);
+        }
+        recordOut.flush();
+        byte[] record = recordBuf.toByteArray();
+        CRC32 crc32 = new CRC32();
+        crc32.update(record, 0, record.length);
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(record.length);
+        out.writeInt((int) crc32.getValue());
+        out.write(record);
+        out.flush();
+    }
+
+    private static DiskEvent decodeRecord(byte[] record, RecordPosition position) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+        int headerCount = input.readInt();
+        Map<String, String> headers = new HashMap<>(Math.max(16, headerCount * 2));
+        for (int i = 0; i < headerCount; i++) {
+            headers.put(input.readUTF(), input.readUTF());
+        }
+        byte[] body = new byte[input.readInt()];
+        input.readFully(body);
+        return new DiskEvent(headers, body, position);
+    }
+
+    /**
+     * segment file
+     */
+    private static class Segment {
+
+        private final long segId;
+        private final File file;
+        private FileChannel fileChannel;
+        private volatile long committedSize = 0L;
+        private volatile long syncedSize = 0L;
+        private final Object syncLock = new Object();
+
+        private Segment(long segId, File file) {
+            this.segId = segId;
+            this.file = file;
+        }
+
+        private synchronized void open() throws IOException {
+            if (fileChannel == null) {
+                fileChannel = FileChannel.open(file.toPath(),
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+        }
+
+        /**
+         * force the segment to disk up to the position, the writers waiting meanwhile
+         * are covered by the same force
+         */
+        private void sync(long position) throws IOException {
+            if (syncedSize >= position) {
+                return;
+            }
+            synchronized (syncLock) {
+                if (syncedSize >= position) {
+                    return;
+                }
+                long target = committedSize;
+                FileChannel channel;
+                synchronized (this) {
+                    channel = fileChannel;
+                }
+                // a released segment has all its records taken and committed
+                if (channel == null) {
+                    return;
+                }
+                try {
+                    channel.force(false);
+                } catch (ClosedChannelException e) {
+                    return;
+                }
+                syncedSize = target;
+            }
+        }
+
+        private synchronized void close() {
+            if (fileChannel != null) {
+                try {
+                    fileChannel.close();
+                } catch (IOException e) {
+                    LOG.warn("Close segment {} failure", file, e);
+                }
+                fileChannel = null;
+            }
+        }
+    }
+
+    /**
+     * position of a record, ordered by segment and offset
+     */
+    private static class RecordPosition implements Comparable<RecordPosition> {
+
+        private final long segId;
+        private final long position;
+
+        private RecordPosition(long segId, long position) {
+            this.segId = segId;
+            this.position = position;
+        }
+
+        @Override
+        public int compareTo(RecordPosition other) {
+            int result = Long.compare(segId, other.segId);
+            return result != 0 ? result : Long.compare(position, other.position);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof RecordPosition)) {
+                return false;
+            }
+            return compareTo((RecordPosition) other) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(segId) * 31 + Long.hashCode(position);
+        }
+    }
+
+    /**
+     * event read back from disk, it is not a SimpleEvent so the sink rebuilds it from the headers
+     */
+    private static class DiskEvent implements Event {
+
+        private Map<String, String> headers;
+        private byte[] body;
+        private final RecordPosition position;
+
+        private DiskEvent(Map<String, String> headers, byte[] body, RecordPosition position) {
+            this.headers = headers;
+            this.body = body;
+            this.position = position;
+        }
+
+        @Override
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public void setHeaders(Map<String, String> headers) {
+            this.headers = headers;
+        }
+
+        @Override
+        public byte[] getBody() {
+            return body;
+        }
+
+        @Override
+        public void setBody(byte[] body) {
+            this.body = body;
+        }
+    }
+
+    /**
+     * transaction of the disk channel, the puts are written when committing,
+     * the takes are given back to the channel when rolling back.
+     */
+    private class DiskTransaction implements Transaction {
+
+        private final List<Event> putList = new ArrayList<>();
+        private final List<DiskEvent> takeList = new ArrayList<>();
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void commit() {
+            synchronized (readLock) {
+                for (DiskEvent event : takeList) {
+                    pendingRecords.remove(event.position);
+                }
+                try {
+                    commitCheckpoint();
+                } catch (IOException e) {
+                    // the takes are committed, the checkpoint is saved again by the next commit
+                    LOG.warn("{} save checkpoint failure", getName(), e);
+                }
+            }
+            this.takeList.clear();
+            if (!putList.isEmpty()) {
+                try {
+                    directPutBatch(putList);
+                } finally {
+                    this.putList.clear();
+                }
+            }
+        }
+
+        @Override
+        public void rollback() {
+            synchronized (readLock) {
+                for (int i = takeList.size() - 1; i >= 0; i--) {
+                    retryEvents.addFirst(takeList.get(i));
+                }
+            }
+            this.takeList.clear();
+            this.putList.clear();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
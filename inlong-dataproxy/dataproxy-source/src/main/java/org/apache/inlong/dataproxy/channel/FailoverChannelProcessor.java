@@ -18,7 +18,6 @@
 package org.apache.inlong.dataproxy.channel;
 
 import org.apache.inlong.common.monitor.LogCounter;
-import org.apache.inlong.dataproxy.consts.ConfigConstants;
 import org.apache.inlong.dataproxy.exception.MainChannelFullException;
 import org.apache.inlong.dataproxy.utils.MessageUtils;
 import org.apache.inlong.sdk.commons.protocol.ProxyPackEvent;
@@ -131,6 +130,8 @@ public class FailoverChannelProcessor
      * <p/>
      * <p>Note that if multiple channels are configured, some {@link Transaction}s
      * may have already been committed while others may be rolled back in the case of an exception.
+     * <p>Channels implementing {@link BatchPutChannel} accept each per-channel batch directly,
+     * without a transaction.
      *
      * @param events A list of events to put into the configured channels.
      * @throws ChannelException when a write to a required channel fails.
@@ -141,15 +142,7 @@ public class FailoverChannelProcessor
         Map<Channel, List<Event>> reqChannelQueue = new LinkedHashMap<Channel, List<Event>>();
         Map<Channel, List<Event>> optChannelQueue = new LinkedHashMap<Channel, List<Event>>();
 
-        long tMsgCounterL = 1L;
         for (Event event : events) {
-            if (event.getHeaders().containsKey(ConfigConstants.MSG_COUNTER_KEY)) {
-                tMsgCounterL +=
-                        Long.parseLong(event.getHeaders().get(ConfigConstants.MSG_COUNTER_KEY));
-            } else {
-                tMsgCounterL += 1;
-            }
-
             List<Channel> reqChannels = selector.getRequiredChannels(event);
 
             for (Channel ch : reqChannels) {
@@ -171,18 +164,10 @@ public class FailoverChannelProcessor
         boolean success = true;
         for (Map.Entry<Channel, List<Event>> entry : reqChannelQueue.entrySet()) {
             Channel reqChannel = entry.getKey();
-            Transaction tx = reqChannel.getTransaction();
-            Preconditions.checkNotNull(tx, "Transaction object must not be null");
             try {
-                tx.begin();
-                List<Event> batch = entry.getValue();
-                for (Event event : batch) {
-                    reqChannel.put(event);
-                }
-                tx.commit();
+                putEventBatch(reqChannel, entry.getValue());
             } catch (Throwable t) {
                 success = false;
-                tx.rollback();
                 if (!(t instanceof ChannelException)) {
                     LOG.error("Unable to put batch on required " + "channel: " + reqChannel, t);
                     if (t instanceof Error) {
@@ -190,29 +175,15 @@ public class FailoverChannelProcessor
                     }
                 }
                 break;
-            } finally {
-                tx.close();
             }
         }
 
         if (!success) {
             for (Map.Entry<Channel, List<Event>> entry : optChannelQueue.entrySet()) {
                 Channel optChannel = entry.getKey();
-                Transaction tx = optChannel.getTransaction();
-                Preconditions.checkNotNull(tx, "Transaction object must not be null");
                 try {
-                    tx.begin();
-
-                    List<Event> batch = entry.getValue();
-
-                    for (Event event : batch) {
-                        optChannel.put(event);
-                    }
-
-                    tx.commit();
-
+                    putEventBatch(optChannel, entry.getValue());
                 } catch (Throwable t) {
-                    tx.rollback();
                     if (t instanceof Error) {
                         LOG.error("Error while writing to optChannel channel: " + optChannel, t);
                         throw (Error) t;
@@ -220,8 +191,6 @@ public class FailoverChannelProcessor
                         throw new ChannelException(
                                 "Unable to put batch on optChannel " + "channel: " + optChannel, t);
                     }
-                } finally {
-                    tx.close();
                 }
             }
         }
@@ -234,6 +203,7 @@ public class FailoverChannelProcessor
      * <p/>
      * <p>Note that if multiple channels are configured, some {@link Transaction}s
      * may have already been committed while others may be rolled back in the case of an exception.
+     * <p>Channels implementing {@link BatchPutChannel} accept the event directly, without a transaction.
      *
      * @param event The event to put into the configured channels.
      * @throws ChannelException when a write to a required channel fails.
@@ -248,15 +218,8 @@ public class FailoverChannelProcessor
         boolean success = true;
         List<Channel> requiredChannels = selector.getRequiredChannels(event);
         for (Channel reqChannel : requiredChannels) {
-            Transaction tx = reqChannel.getTransaction();
-            Preconditions.checkNotNull(tx, "Transaction object must not be null");
             try {
-                tx.begin();
-
-                reqChannel.put(event);
-
-                tx.commit();
-
+                putEvent(reqChannel, event);
             } catch (Throwable t) {
                 errMsg = "Unable to put event on channel " + reqChannel.getName()
                         + ", error message is " + t.getMessage();
@@ -265,16 +228,7 @@ public class FailoverChannelProcessor
                             + reqChannel.getName(), t);
                 }
                 success = false;
-                try {
-                    tx.rollback();
-                } catch (Throwable e) {
-                    if (logPrinter.shouldPrint()) {
-                        LOG.error("FailoverChannelProcessor Transaction rollback exception", e);
-                    }
-                }
                 break;
-            } finally {
-                tx.close();
             }
         }
         if (!success) {
@@ -284,30 +238,14 @@ public class FailoverChannelProcessor
             }
             List<Channel> optionalChannels = selector.getOptionalChannels(event);
             for (Channel optChannel : optionalChannels) {
-                Transaction tx = null;
                 try {
-                    tx = optChannel.getTransaction();
-                    tx.begin();
-
-                    optChannel.put(event);
-
-                    tx.commit();
+                    putEvent(optChannel, event);
                 } catch (Throwable t) {
                     if (logPrinter.shouldPrint()) {
                         LOG.error(
                                 "FailoverChannelProcessor Unable to put event on optionalChannel:",
                                 t);
                     }
-                    if (tx != null) {
-                        try {
-                            tx.rollback();
-                        } catch (Throwable e) {
-                            if (logPrinter.shouldPrint()) {
-                                LOG.error("FailoverChannelProcessor Transaction rollback exception",
-                                        e);
-                            }
-                        }
-                    }
                     if (t instanceof Error) {
                         if (logPrinter.shouldPrint()) {
                             LOG.error("FailoverChannelProcessor Error while writing event to "
@@ -320,12 +258,72 @@ public class FailoverChannelProcessor
                                         + "optionalChannels: " + optChannel,
                                 t);
                     }
-                } finally {
-                    if (tx != null) {
-                        tx.close();
-                    }
                 }
             }
         }
     }
+
+    /**
+     * put one event to the channel, InLong channels accept it directly,
+     * other channels put it within a transaction.
+     *
+     * @param channel the target channel
+     * @param event the event to put
+     */
+    private void putEvent(Channel channel, Event event) {
+        if (channel instanceof BatchPutChannel) {
+            ((BatchPutChannel) channel).directPut(event);
+            return;
+        }
+        Transaction tx = channel.getTransaction();
+        Preconditions.checkNotNull(tx, "Transaction object must not be null");
+        try {
+            tx.begin();
+            channel.put(event);
+            tx.commit();
+        } catch (Throwable t) {
+            rollbackQuietly(tx);
+            throw t;
+        } finally {
+            tx.close();
+        }
+    }
+
+    /**
+     * put a batch of events to the channel, InLong channels accept them directly
+     * with one space reservation, other channels put them within one transaction.
+     *
+     * @param channel the target channel
+     * @param events the events to put
+     */
+    private void putEventBatch(Channel channel, List<Event> events) {
+        if (channel instanceof BatchPutChannel) {
+            ((BatchPutChannel) channel).directPutBatch(events);
+            return;
+        }
+        Transaction tx = channel.getTransaction();
+        Preconditions.checkNotNull(tx, "Transaction object must not be null");
+        try {
+            tx.begin();
+            for (Event event : events) {
+                channel.put(event);
+            }
+            tx.commit();
+        } catch (Throwable t) {
+            rollbackQuietly(tx);
+            throw t;
+        } finally {
+            tx.close();
+        }
+    }
+
+    private void rollbackQuietly(Transaction tx) {
+        try {
+            tx.rollback();
+        } catch (Throwable e) {
+            if (logPrinter.shouldPrint()) {
+                LOG.error("FailoverChannelProcessor Transaction rollback exception", e);
+            }
+        }
+    }
 }
@@ -133,6 +133,9 @@ public class CommonConfigHolder {
     // Same as KEY_MAX_RESPONSE_TIMEOUT_MS = "maxResponseTimeoutMs";
     public static final String KEY_MAX_RAS_TIMEOUT_MS = "maxRASTimeoutMs";
     public static final long VAL_DEF_MAX_RAS_TIMEOUT_MS = 10000L;
+    // whether to decode v1 messages from the received buffer without copying message bodies
+    public static final String KEY_ENABLE_V1MSG_ZERO_COPY_DECODE = "v1msg.zerocopy.decode.enable";
+    public static final boolean VAL_DEF_ENABLE_V1MSG_ZERO_COPY_DECODE = false;
     // max buffer queue size in Kb
     public static final String KEY_MAX_BUFFERQUEUE_SIZE_KB = "maxBufferQueueSizeKb";
     public static final int VAL_DEF_MAX_BUFFERQUEUE_SIZE_KB = 128 * 1024;
@@ -176,6 +179,7 @@ public class CommonConfigHolder {
     private long auditFormatInvlMs = VAL_DEF_AUDIT_FORMAT_INTERVAL_MS;
     private boolean responseAfterSave = VAL_DEF_RESPONSE_AFTER_SAVE;
     private long maxResAfterSaveTimeout = VAL_DEF_MAX_RAS_TIMEOUT_MS;
+    private boolean enableV1MsgZeroCopyDecode = VAL_DEF_ENABLE_V1MSG_ZERO_COPY_DECODE;
     private boolean enableUnConfigTopicAccept = VAL_DEF_ENABLE_UNCONFIGURED_TOPIC_ACCEPT;
     private List<String> defaultTopics = Arrays.asList(VAL_DEFAULT_TOPIC);
     private boolean enableWhiteList = VAL_DEF_ENABLE_WHITELIST;
@@ -337,6 +341,10 @@ public class CommonConfigHolder {
         return maxResAfterSaveTimeout;
     }
 
+    public boolean isEnableV1MsgZeroCopyDecode() {
+        return enableV1MsgZeroCopyDecode;
+    }
+
     public int getMaxBufferQueueSizeKb() {
         return maxBufferQueueSizeKb;
     }
@@ -544,6 +552,11 @@ public class CommonConfigHolder {
         if (StringUtils.isNotEmpty(tmpValue)) {
             this.maxResAfterSaveTimeout = NumberUtils.toLong(tmpValue.trim(), VAL_DEF_MAX_RAS_TIMEOUT_MS);
         }
+        // read whether decode v1 messages without copying message bodies
+        tmpValue = this.props.get(KEY_ENABLE_V1MSG_ZERO_COPY_DECODE);
+        if (StringUtils.isNotEmpty(tmpValue)) {
+            this.enableV1MsgZeroCopyDecode = "TRUE".equalsIgnoreCase(tmpValue.trim());
+        }
         // read max bufferqueue size
         tmpValue = this.props.get(KEY_MAX_BUFFERQUEUE_SIZE_KB);
         if (StringUtils.isNotEmpty(tmpValue)) {
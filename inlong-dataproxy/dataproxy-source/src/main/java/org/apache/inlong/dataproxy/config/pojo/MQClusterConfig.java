@@ -73,6 +73,12 @@ public class MQClusterConfig extends Context {
     private static final String MAX_SURVIVED_SIZE = "max_survived_size";
     private static final int DEFAULT_MAX_SURVIVED_SIZE = 5000000;
 
+    private static final String DEDUP_USE_BLOOM_FILTER = "dedup_use_bloom_filter";
+    private static final boolean DEFAULT_DEDUP_USE_BLOOM_FILTER = false;
+
+    private static final String DEDUP_BLOOM_FILTER_FPP = "dedup_bloom_filter_fpp";
+    private static final double DEFAULT_DEDUP_BLOOM_FILTER_FPP = 0.0001;
+
     private static final String NEW_CHECK_PATTERN = "new_check_pattern";
     private static final boolean DEFAULT_NEW_CHECK_PATTERN = true;
 
@@ -275,6 +281,18 @@ public class MQClusterConfig extends Context {
         return getInteger(MAX_SURVIVED_SIZE, DEFAULT_MAX_SURVIVED_SIZE);
     }
 
+    public boolean getDedupUseBloomFilter() {
+        return getBoolean(DEDUP_USE_BLOOM_FILTER, DEFAULT_DEDUP_USE_BLOOM_FILTER);
+    }
+
+    public double getDedupBloomFilterFpp() {
+        String value = getString(DEDUP_BLOOM_FILTER_FPP);
+        if (value == null) {
+            return DEFAULT_DEDUP_BLOOM_FILTER_FPP;
+        }
+        return Double.parseDouble(value.trim());
+    }
+
     public boolean getNewCheckPattern() {
         return getBoolean(NEW_CHECK_PATTERN, DEFAULT_NEW_CHECK_PATTERN);
     }
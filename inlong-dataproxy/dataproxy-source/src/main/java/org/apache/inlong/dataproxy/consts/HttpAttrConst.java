@@ -24,6 +24,7 @@ public class HttpAttrConst {
 
     public static final String KEY_SRV_URL_HEARTBEAT = "/dataproxy/heartbeat";
     public static final String KEY_SRV_URL_REPORT_MSG = "/dataproxy/message";
+    public static final String KEY_SRV_URL_BATCH_MSG = "/dataproxy/batch";
     public static final String KEY_URL_FAVICON_ICON = "/favicon.ico";
 
     public static final String KEY_CALLBACK = "callback";
@@ -34,6 +35,7 @@ public class HttpAttrConst {
     public static final String KEY_MESSAGE_COUNT = "cnt";
     public static final String KEY_CHARSET = "charset";
     public static final String VAL_DEF_CHARSET = "UTF-8";
+    public static final String CNT_TYPE_PROTOBUF = "application/x-protobuf";
     public static final String RET_CNT_TYPE = "application/json;charset=utf-8";
 
 }
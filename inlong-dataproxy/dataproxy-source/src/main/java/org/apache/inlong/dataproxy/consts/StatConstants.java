@@ -40,6 +40,12 @@ public class StatConstants {
     public static final java.lang.String EVENT_HTTP_LINK_IO_EXCEPTION = "http.link.io.exception";
     public static final java.lang.String EVENT_HTTP_LINK_UNKNOWN_EXCEPTION = "http.link.unknown.exception";
     public static final java.lang.String EVENT_HTTP_LINK_UNWRITABLE = "http.link.unwritable";
+    public static final java.lang.String EVENT_HTTP_BATCH_PUT_RETRY = "http.batch.put.retry";
+    public static final java.lang.String EVENT_HTTP_BATCH_RECORD_OVERMAX = "http.batch.record.overmax";
+    // udp link
+    public static final java.lang.String EVENT_UDP_SOCKET_RECEIVED = "udp.socket.received";
+    public static final java.lang.String EVENT_UDP_SOCKET_DROPPED = "udp.socket.dropped";
+    public static final java.lang.String EVENT_UDP_MSG_UNSUPPORTED = "udp.msg.unsupported";
     // configure
     public static final java.lang.String EVENT_SOURCE_TOPIC_MISSING = "source.topic.missing";
     public static final java.lang.String EVENT_CONFIG_IDNUM_EMPTY = "config.idnum.empty";
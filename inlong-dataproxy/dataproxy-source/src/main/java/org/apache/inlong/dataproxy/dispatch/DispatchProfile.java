@@ -64,7 +64,7 @@ public class DispatchProfile {
      * @return
      */
     public boolean addEvent(ProxyEvent event, long maxPackCount, long maxPackSize) {
-        long eventLength = event.getBody().length;
+        long eventLength = event.getBodyLength();
         if (count >= maxPackCount || (count > 0 && size + eventLength > maxPackSize)) {
             return false;
         }
@@ -25,6 +25,7 @@ import org.apache.inlong.dataproxy.config.CommonConfigHolder;
 import org.apache.inlong.dataproxy.consts.ConfigConstants;
 import org.apache.inlong.dataproxy.metrics.DataProxyMetricItem;
 import org.apache.inlong.dataproxy.utils.Constants;
+import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
 
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.flume.Event;
@@ -73,17 +74,27 @@ public class AuditUtils {
                 msgCount = Long.parseLong(event.getHeaders().get(ConfigConstants.MSG_COUNTER_KEY));
             }
             AuditOperator.getInstance().add(auditID, inlongGroupId,
-                    inlongStreamId, logTime, msgCount, event.getBody().length);
+                    inlongStreamId, logTime, msgCount, getBodyLength(event));
         } else {
             String groupId = headers.get(AttributeConstants.GROUP_ID);
             String streamId = headers.get(AttributeConstants.STREAM_ID);
             long dataTime = NumberUtils.toLong(headers.get(AttributeConstants.DATA_TIME));
             long msgCount = NumberUtils.toLong(headers.get(ConfigConstants.MSG_COUNTER_KEY));
             AuditOperator.getInstance().add(auditID, groupId,
-                    streamId, dataTime, msgCount, event.getBody().length);
+                    streamId, dataTime, msgCount, getBodyLength(event));
         }
     }
 
+    /**
+     * Get body length, avoid materializing the lazily decoded body
+     */
+    private static long getBodyLength(Event event) {
+        if (event instanceof ProxyEvent) {
+            return ((ProxyEvent) event).getBodyLength();
+        }
+        return event.getBody().length;
+    }
+
     /**
      * Get LogTime from headers
      */
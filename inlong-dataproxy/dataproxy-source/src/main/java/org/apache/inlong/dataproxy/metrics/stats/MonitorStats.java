@@ -66,6 +66,22 @@ public class MonitorStats extends AbsStatsDaemon {
         statsUnits[getWriteIndex()].incDetailStats(detailKey);
     }
 
+    /**
+     * add summary and detail statistic items by a count
+     *
+     * @param sumKey the summary key
+     * @param detailKey the detail key
+     * @param count the count to add
+     */
+    public void addSumAndDetailStats(String sumKey, String detailKey, long count) {
+        if (isStopped() || count <= 0) {
+            return;
+        }
+        StatsUnit statsUnit = statsUnits[getWriteIndex()];
+        statsUnit.addStats(statsUnit.sumMap, sumKey, count);
+        statsUnit.addStats(statsUnit.detailsMap, detailKey, count);
+    }
+
     @Override
     protected int loopProcess(long startTime) {
         return statsUnits[getReadIndex()].printAndResetStatsInfo();
@@ -98,27 +114,23 @@ public class MonitorStats extends AbsStatsDaemon {
         }
 
         public void incSumStats(String key) {
-            LongAdder statsItem = sumMap.get(key);
-            if (statsItem == null) {
-                LongAdder tmpItem = new LongAdder();
-                statsItem = sumMap.putIfAbsent(key, tmpItem);
-                if (statsItem == null) {
-                    statsItem = tmpItem;
-                }
-            }
-            statsItem.increment();
+            addStats(sumMap, key, 1L);
         }
 
         public void incDetailStats(String key) {
-            LongAdder statsItem = detailsMap.get(key);
+            addStats(detailsMap, key, 1L);
+        }
+
+        private void addStats(ConcurrentHashMap<String, LongAdder> statsMap, String key, long count) {
+            LongAdder statsItem = statsMap.get(key);
             if (statsItem == null) {
                 LongAdder tmpItem = new LongAdder();
-                statsItem = detailsMap.putIfAbsent(key, tmpItem);
+                statsItem = statsMap.putIfAbsent(key, tmpItem);
                 if (statsItem == null) {
                     statsItem = tmpItem;
                 }
             }
-            statsItem.increment();
+            statsItem.add(count);
         }
 
         public int printAndResetStatsInfo() {
@@ -29,7 +29,6 @@ import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObj;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObjs;
 import org.apache.inlong.sdk.commons.utils.GzipUtils;
 
-import com.google.protobuf.ByteString;
 import org.xerial.snappy.Snappy;
 
 import java.io.IOException;
@@ -92,7 +91,7 @@ public class DefaultEventHandler implements EventHandler {
             event.getHeaders().forEach((key, value) -> {
                 builder.addParams(MapFieldEntry.newBuilder().setKey(key).setValue(value));
             });
-            builder.setBody(ByteString.copyFrom(event.getBody()));
+            builder.setBody(event.getBodyByteString());
             objs.addMsgs(builder.build());
         }
         byte[] srcBytes = objs.build().toByteArray();
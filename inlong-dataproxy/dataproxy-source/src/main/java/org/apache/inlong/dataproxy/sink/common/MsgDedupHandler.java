@@ -17,13 +17,21 @@
 
 package org.apache.inlong.dataproxy.sink.common;
 
+import org.apache.inlong.dataproxy.config.pojo.MQClusterConfig;
+
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -34,15 +42,52 @@ public class MsgDedupHandler {
             LoggerFactory.getLogger(MsgDedupHandler.class);
     private static final int DEF_MAX_SURVIVE_CNT_SIZE = 5000000;
     private static final int DEF_MAX_SURVIVE_TIME_MS = 30000;
+    private static final double DEF_BLOOM_FILTER_FPP = 0.0001;
+    private static final int DEF_BLOOM_FILTER_BUCKET_CNT = 10;
+    private static final int MAX_INVALID_SEQID_CNT = 1000000;
+    private static final HashFunction SEQID_HASH_FUNCTION = Hashing.murmur3_128();
     private final AtomicBoolean started = new AtomicBoolean(false);
     private volatile boolean enableDataDedup;
     private LoadingCache<String, Long> msgSeqIdCache = null;
+    // bloom filter engine, used instead of msgSeqIdCache when enabled
+    private TimeBucketedBloomFilter msgSeqIdFilter = null;
+    // the invalidated seqIds which are still set in the bloom filter
+    private Cache<Long, Boolean> invalidSeqIdCache = null;
 
     public MsgDedupHandler() {
         enableDataDedup = false;
     }
 
     public void start(boolean cfgEnableFun, int cfgMaxSurviveTime, int cfgMaxSurviveSize) {
+        start(cfgEnableFun, cfgMaxSurviveTime, cfgMaxSurviveSize, false, DEF_BLOOM_FILTER_FPP);
+    }
+
+    /**
+     * start the handler with the dedup settings of the MQ cluster config,
+     * max_survived_time, max_survived_size, dedup_use_bloom_filter and dedup_bloom_filter_fpp
+     *
+     * @param cfgEnableFun  whether enable deduplication
+     * @param config        the MQ cluster config
+     */
+    public void start(boolean cfgEnableFun, MQClusterConfig config) {
+        start(cfgEnableFun, config.getMaxSurvivedTime(), config.getMaxSurvivedSize(),
+                config.getDedupUseBloomFilter(), config.getDedupBloomFilterFpp());
+    }
+
+    /**
+     * start the handler
+     *
+     * @param cfgEnableFun       whether enable deduplication
+     * @param cfgMaxSurviveTime  the dedup window in milliseconds
+     * @param cfgMaxSurviveSize  the max seqId count kept, or the expected seqId count
+     *                           within the window for the bloom filter engine, spread evenly over time
+     * @param cfgUseBloomFilter  whether use the time-bucketed bloom filter engine,
+     *                           it costs about 3 bytes per seqId at fpp 0.0001, a seqId
+     *                           expires one window after it was last seen like in the cache
+     * @param cfgFpp             the false positive probability of the bloom filter engine
+     */
+    public void start(boolean cfgEnableFun, int cfgMaxSurviveTime, int cfgMaxSurviveSize,
+            boolean cfgUseBloomFilter, double cfgFpp) {
         if (this.started.compareAndSet(false, true)) {
             this.enableDataDedup = cfgEnableFun;
             int maxSurviveTime = cfgMaxSurviveTime;
@@ -54,17 +99,29 @@ public class MsgDedupHandler {
                 if (maxSurviveSize < 0) {
                     maxSurviveSize = DEF_MAX_SURVIVE_CNT_SIZE;
                 }
-                msgSeqIdCache = CacheBuilder
-                        .newBuilder().concurrencyLevel(4 * 8).initialCapacity(5000000)
-                        .expireAfterAccess(maxSurviveTime, TimeUnit.MILLISECONDS)
-                        .maximumSize(maxSurviveSize)
-                        .build(new CacheLoader<String, Long>() {
-
-                            @Override
-                            public Long load(String key) {
-                                return System.currentTimeMillis();
-                            }
-                        });
+                if (cfgUseBloomFilter) {
+                    double fpp = (cfgFpp > 0 && cfgFpp < 1) ? cfgFpp : DEF_BLOOM_FILTER_FPP;
+                    msgSeqIdFilter = new TimeBucketedBloomFilter(maxSurviveTime,
+                            DEF_BLOOM_FILTER_BUCKET_CNT, Math.max(1, maxSurviveSize), fpp);
+                    invalidSeqIdCache = CacheBuilder.newBuilder()
+                            .expireAfterWrite(maxSurviveTime, TimeUnit.MILLISECONDS)
+                            .maximumSize(MAX_INVALID_SEQID_CNT).build();
+                    logger.info("Initial message deduplication bloom filter, fpp = " + fpp
+                            + ", hash functions = " + msgSeqIdFilter.getNumHashFunctions()
+                            + ", memory bytes = " + msgSeqIdFilter.getMemoryBytes());
+                } else {
+                    msgSeqIdCache = CacheBuilder
+                            .newBuilder().concurrencyLevel(4 * 8).initialCapacity(5000000)
+                            .expireAfterAccess(maxSurviveTime, TimeUnit.MILLISECONDS)
+                            .maximumSize(maxSurviveSize)
+                            .build(new CacheLoader<String, Long>() {
+
+                                @Override
+                                public Long load(String key) {
+                                    return System.currentTimeMillis();
+                                }
+                            });
+                }
             }
             logger.info("Initial message deduplication handler, enable = "
                     + this.enableDataDedup + ", configured survived-time = "
@@ -77,7 +134,10 @@ public class MsgDedupHandler {
 
     public void invalidMsgSeqId(String msgSeqId) {
         if (enableDataDedup && msgSeqId != null) {
-            if (msgSeqIdCache.asMap().containsKey(msgSeqId)) {
+            if (msgSeqIdFilter != null) {
+                // bits can not be removed from the bloom filter, remember the seqId instead
+                invalidSeqIdCache.put(hashSeqId(msgSeqId)[0], Boolean.TRUE);
+            } else if (msgSeqIdCache.asMap().containsKey(msgSeqId)) {
                 msgSeqIdCache.invalidate(msgSeqId);
             }
         }
@@ -86,14 +146,27 @@ public class MsgDedupHandler {
     public boolean judgeDupAndPutMsgSeqId(String msgSeqId) {
         boolean isInclude = false;
         if (enableDataDedup && msgSeqId != null) {
-            isInclude = msgSeqIdCache.asMap().containsKey(msgSeqId);
-            msgSeqIdCache.put(msgSeqId, System.currentTimeMillis());
+            if (msgSeqIdFilter != null) {
+                long[] hashes = hashSeqId(msgSeqId);
+                isInclude = msgSeqIdFilter.mightContainAndPut(hashes[0], hashes[1]);
+                if (isInclude && invalidSeqIdCache.getIfPresent(hashes[0]) != null) {
+                    invalidSeqIdCache.invalidate(hashes[0]);
+                    isInclude = false;
+                }
+            } else {
+                isInclude = msgSeqIdCache.asMap().containsKey(msgSeqId);
+                msgSeqIdCache.put(msgSeqId, System.currentTimeMillis());
+            }
         }
         return isInclude;
     }
 
     public String getCacheStatsInfo() {
         if (enableDataDedup) {
+            if (msgSeqIdFilter != null) {
+                return msgSeqIdFilter.stats().toString()
+                        + ", memoryBytes=" + msgSeqIdFilter.getMemoryBytes();
+            }
             return msgSeqIdCache.stats().toString();
         }
         return "Disable for message data deduplication function";
@@ -101,8 +174,17 @@ public class MsgDedupHandler {
 
     public CacheStats getCacheData() {
         if (enableDataDedup) {
+            if (msgSeqIdFilter != null) {
+                return msgSeqIdFilter.stats();
+            }
             return msgSeqIdCache.stats();
         }
         return null;
     }
+
+    private static long[] hashSeqId(String msgSeqId) {
+        ByteBuffer hash = ByteBuffer.wrap(SEQID_HASH_FUNCTION
+                .hashString(msgSeqId, StandardCharsets.UTF_8).asBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        return new long[]{hash.getLong(), hash.getLong()};
+    }
 }
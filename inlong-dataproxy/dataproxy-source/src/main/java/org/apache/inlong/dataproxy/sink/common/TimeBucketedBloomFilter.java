@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.sink.common;
+
+import com.google.common.cache.CacheStats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rotating time-bucketed bloom filter
+ *
+ * The window is split into buckets, keys are put into the bucket of the current time
+ * and looked up in all the buckets inside the window, the oldest bucket is cleared and
+ * reused when the time moves into a new bucket. A key found is put into the current
+ * bucket again, so like the seqId cache it expires one window after it was last seen.
+ */
+public class TimeBucketedBloomFilter {
+
+    private static final double LN2 = Math.log(2);
+    private final long bucketDurMs;
+    private final int bitsPerBucket;
+    private final int numHashFunctions;
+    private final Bucket[] buckets;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Constructor
+     *
+     * @param windowMs            the dedup window length
+     * @param bucketCount         the bucket count of the window
+     * @param expectedInsertions  the expected insertions within the window
+     * @param fpp                 the expected false positive probability of a lookup
+     */
+    public TimeBucketedBloomFilter(long windowMs, int bucketCount,
+            long expectedInsertions, double fpp) {
+        if (windowMs <= 0 || bucketCount <= 0 || expectedInsertions <= 0
+                || fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("Invalid bloom filter parameters, windowMs = "
+                    + windowMs + ", bucketCount = " + bucketCount + ", expectedInsertions = "
+                    + expectedInsertions + ", fpp = " + fpp);
+        }
+        this.bucketDurMs = Math.max(1L, windowMs / bucketCount);
+        // a lookup checks all the buckets, so each bucket gets a share of the fpp
+        long bucketInsertions = Math.max(1L, expectedInsertions / bucketCount);
+        double bucketFpp = fpp / bucketCount;
+        long numBits = (long) (-bucketInsertions * Math.log(bucketFpp) / (LN2 * LN2));
+        long numWords = Math.max(1L, (numBits + 63) / 64);
+        // the bits of a bucket are addressed by int
+        if (numWords * 64 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bloom filter bucket is too large, bits = " + numBits
+                    + ", reduce expectedInsertions or raise fpp, expectedInsertions = "
+                    + expectedInsertions + ", fpp = " + fpp);
+        }
+        this.bitsPerBucket = (int) (numWords * 64);
+        this.numHashFunctions = Math.max(1,
+                (int) Math.round((double) numWords * 64 / bucketInsertions * LN2));
+        this.buckets = new Bucket[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            this.buckets[i] = new Bucket((int) numWords);
+        }
+    }
+
+    /**
+     * judge whether the key was put within the window, and put it into the current bucket
+     *
+     * @param hash1  the first 64 bits hash of the key
+     * @param hash2  the second 64 bits hash of the key
+     * @return whether the key might have been put
+     */
+    public boolean mightContainAndPut(long hash1, long hash2) {
+        long slot = System.currentTimeMillis() / bucketDurMs;
+        Bucket current = getBucket(slot);
+        boolean contains = false;
+        for (Bucket bucket : buckets) {
+            if (bucket.slot > slot - buckets.length && bucket.mightContain(hash1, hash2)) {
+                contains = true;
+                break;
+            }
+        }
+        if (contains) {
+            hitCount.increment();
+        } else {
+            missCount.increment();
+        }
+        // refresh a key seen in an older bucket, so it expires after its last access
+        if (!contains || !current.mightContain(hash1, hash2)) {
+            current.put(hash1, hash2);
+        }
+        return contains;
+    }
+
+    /**
+     * get the memory size of the bit arrays
+     *
+     * @return the memory size in bytes
+     */
+    public long getMemoryBytes() {
+        return (long) buckets.length * bitsPerBucket / 8;
+    }
+
+    public int getNumHashFunctions() {
+        return numHashFunctions;
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hitCount.sum(), missCount.sum(),
+                0, 0, 0, evictionCount.sum());
+    }
+
+    private Bucket getBucket(long slot) {
+        Bucket bucket = buckets[(int) (slot % buckets.length)];
+        if (bucket.slot != slot) {
+            synchronized (bucket) {
+                if (bucket.slot != slot) {
+                    evictionCount.add(bucket.insertCount.sumThenReset());
+                    bucket.clear();
+                    bucket.slot = slot;
+                }
+            }
+        }
+        return bucket;
+    }
+
+    private class Bucket {
+
+        private final AtomicLongArray bits;
+        private final LongAdder insertCount = new LongAdder();
+        private volatile long slot = Long.MIN_VALUE;
+
+        private Bucket(int numWords) {
+            this.bits = new AtomicLongArray(numWords);
+        }
+
+        private boolean mightContain(long hash1, long hash2) {
+            long combinedHash = hash1;
+            for (int i = 0; i < numHashFunctions; i++) {
+                int bitIndex = (int) ((combinedHash & Long.MAX_VALUE) % bitsPerBucket);
+                if ((bits.get(bitIndex >>> 6) & (1L << bitIndex)) == 0) {
+                    return false;
+                }
+                combinedHash += hash2;
+            }
+            return true;
+        }
+
+        private void put(long hash1, long hash2) {
+            long combinedHash = hash1;
+            for (int i = 0; i < numHashFunctions; i++) {
+                int bitIndex = (int) ((combinedHash & Long.MAX_VALUE) % bitsPerBucket);
+                int wordIndex = bitIndex >>> 6;
+                long mask = 1L << bitIndex;
+                long word;
+                do {
+                    word = bits.get(wordIndex);
+                    if ((word & mask) != 0) {
+                        break;
+                    }
+                } while (!bits.compareAndSet(wordIndex, word, word | mask));
+                combinedHash += hash2;
+            }
+            insertCount.increment();
+        }
+
+        private void clear() {
+            for (int i = 0; i < bits.length(); i++) {
+                bits.lazySet(i, 0L);
+            }
+        }
+    }
+}
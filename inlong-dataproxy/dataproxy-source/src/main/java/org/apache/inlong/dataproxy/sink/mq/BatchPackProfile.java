@@ -55,7 +55,7 @@ public class BatchPackProfile extends PackProfile {
      * @return  whether added the event
      */
     public boolean addEvent(Event event, long maxPackCount, long maxPackSize) {
-        long eventLength = event.getBody().length;
+        long eventLength = ((ProxyEvent) event).getBodyLength();
         if (count >= maxPackCount || (count > 0 && size + eventLength > maxPackSize)) {
             return false;
         }
@@ -154,16 +154,23 @@ public abstract class BaseSource
         this.rptSrcType = tmpVal.trim().toUpperCase();
         // get message factory
         tmpVal = context.getString(SourceConstants.SRCCXT_MSG_FACTORY_NAME,
-                ServerMessageFactory.class.getName()).trim();
+                SourceConstants.SRC_PROTOCOL_TYPE_UDP.equalsIgnoreCase(getProtocolName())
+                        ? UdpMessageFactory.class.getName()
+                        : ServerMessageFactory.class.getName())
+                .trim();
         Preconditions.checkArgument(StringUtils.isNotBlank(tmpVal),
                 SourceConstants.SRCCXT_MSG_FACTORY_NAME + " config is blank");
         this.msgFactoryName = tmpVal.trim();
         // get message handler
         tmpVal = context.getString(SourceConstants.SRCCXT_MESSAGE_HANDLER_NAME);
         if (StringUtils.isBlank(tmpVal)) {
-            tmpVal = SourceConstants.SRC_PROTOCOL_TYPE_HTTP.equalsIgnoreCase(getProtocolName())
-                    ? HttpMessageHandler.class.getName()
-                    : ServerMessageHandler.class.getName();
+            if (SourceConstants.SRC_PROTOCOL_TYPE_HTTP.equalsIgnoreCase(getProtocolName())) {
+                tmpVal = HttpMessageHandler.class.getName();
+            } else if (SourceConstants.SRC_PROTOCOL_TYPE_UDP.equalsIgnoreCase(getProtocolName())) {
+                tmpVal = UdpMessageHandler.class.getName();
+            } else {
+                tmpVal = ServerMessageHandler.class.getName();
+            }
         }
         Preconditions.checkArgument(StringUtils.isNotBlank(tmpVal),
                 SourceConstants.SRCCXT_MESSAGE_HANDLER_NAME + " config is blank");
@@ -422,6 +429,12 @@ public abstract class BaseSource
         }
     }
 
+    public void fileMetricAddWithDetailStats(String eventKey, String detailInfoKey, long count) {
+        if (enableFileMetric) {
+            monitorStats.addSumAndDetailStats(eventKey, eventKey + "#" + detailInfoKey, count);
+        }
+    }
+
     public void fileMetricAddSuccStats(StringBuilder strBuff, String groupId, String streamId,
             String topicName, String clientIP, String msgProcType,
             long dt, long pkgTime, int cnt, int packCnt, long packSize) {
@@ -17,6 +17,8 @@
 
 package org.apache.inlong.dataproxy.source;
 
+import org.apache.inlong.dataproxy.source.httpMsg.HttpBatchStreamHandler;
+
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.socket.SocketChannel;
@@ -62,6 +64,8 @@ public class ServerMessageFactory extends ChannelInitializer<SocketChannel> {
         } else if (source.getProtocolName().equalsIgnoreCase(SourceConstants.SRC_PROTOCOL_TYPE_HTTP)) {
             // add http message codec
             ch.pipeline().addLast("msgCodec", new HttpServerCodec());
+            // streaming batch requests are consumed chunk by chunk before aggregation
+            ch.pipeline().addLast("batchStreamHandler", new HttpBatchStreamHandler(source));
             ch.pipeline().addLast("msgAggregator", new HttpObjectAggregator(source.getMaxMsgLength()));
             ch.pipeline().addLast("readTimeoutHandler",
                     new ReadTimeoutHandler(source.getMaxReadIdleTimeMs(), TimeUnit.MILLISECONDS));
@@ -320,11 +320,20 @@ public class ServerMessageHandler extends ChannelInboundHandlerAdapter {
     }
 
     private void processV1Msg(ChannelHandlerContext ctx, ByteBuf cb, int bodyLength) throws Exception {
-        // read bytes
-        byte[] msgBytes = new byte[bodyLength];
-        cb.readBytes(msgBytes);
-        // decode
-        ProxySdk.MessagePack packObject = ProxySdk.MessagePack.parseFrom(msgBytes);
+        boolean zeroCopyDecode = CommonConfigHolder.getInstance().isEnableV1MsgZeroCopyDecode();
+        boolean responseAfterSave = CommonConfigHolder.getInstance().isResponseAfterSave();
+        ProxySdk.MessagePack packObject;
+        if (zeroCopyDecode) {
+            // decode directly from the received buffer
+            packObject = EventUtils.parseSdkPack(cb.nioBuffer(cb.readerIndex(), bodyLength));
+            cb.skipBytes(bodyLength);
+        } else {
+            // read bytes
+            byte[] msgBytes = new byte[bodyLength];
+            cb.readBytes(msgBytes);
+            // decode
+            packObject = ProxySdk.MessagePack.parseFrom(msgBytes);
+        }
         // reject service
         if (source.isRejectService()) {
             source.addMetric(false, 0, null);
@@ -333,14 +342,23 @@ public class ServerMessageHandler extends ChannelInboundHandlerAdapter {
             return;
         }
         // uncompress
-        List<ProxyEvent> events = EventUtils.decodeSdkPack(packObject);
+        List<ProxyEvent> events;
+        if (zeroCopyDecode) {
+            // the events may slice the received buffer only if it is released after the sink acknowledges
+            events = EventUtils.decodeSdkPackLazily(packObject, responseAfterSave);
+        } else {
+            events = EventUtils.decodeSdkPack(packObject);
+        }
         // response success if event size is zero
         if (events.size() == 0) {
             this.responsePackage(ctx, ProxySdk.ResultCode.SUCCUSS, packObject);
+            return;
         }
         // process
-        if (CommonConfigHolder.getInstance().isResponseAfterSave()) {
-            this.processAndWaitingSave(ctx, packObject, events);
+        if (responseAfterSave) {
+            // keep the received buffer until the sink acknowledges only if the events slice it
+            boolean sliceFrame = zeroCopyDecode && EventUtils.isPackAliased(packObject);
+            this.processAndWaitingSave(ctx, packObject, events, sliceFrame ? cb.retain() : null);
         } else {
             this.processAndResponse(ctx, packObject, events);
         }
@@ -380,13 +398,14 @@ public class ServerMessageHandler extends ChannelInboundHandlerAdapter {
      * @param ctx
      * @param packObject
      * @param events
+     * @param retainedFrame the retained buffer which the events slice from, may be null
      * @throws Exception
      */
     private void processAndWaitingSave(ChannelHandlerContext ctx,
             ProxySdk.MessagePack packObject,
-            List<ProxyEvent> events) throws Exception {
+            List<ProxyEvent> events, ByteBuf retainedFrame) throws Exception {
         ProxySdk.MessagePackHeader header = packObject.getHeader();
-        InlongTcpSourceCallback callback = new InlongTcpSourceCallback(ctx, header);
+        InlongTcpSourceCallback callback = new InlongTcpSourceCallback(ctx, header, retainedFrame);
         String inlongGroupId = header.getInlongGroupId();
         String inlongStreamId = header.getInlongStreamId();
         ProxyPackEvent packEvent = new ProxyPackEvent(inlongGroupId, inlongStreamId, events, callback);
@@ -394,7 +413,7 @@ public class ServerMessageHandler extends ChannelInboundHandlerAdapter {
         try {
             source.getCachedChProcessor().processEvent(packEvent);
             events.forEach(event -> {
-                source.addMetric(true, event.getBody().length, event);
+                source.addMetric(true, event.getBodyLength(), event);
                 source.fileMetricIncSumStats(StatConstants.EVENT_MSG_V1_POST_SUCCESS);
             });
             boolean awaitResult = callback.getLatch().await(
@@ -407,9 +426,11 @@ public class ServerMessageHandler extends ChannelInboundHandlerAdapter {
         } catch (Throwable ex) {
             logger.error("Process Controller Event error can't write event to channel.", ex);
             events.forEach(event -> {
-                source.addMetric(false, event.getBody().length, event);
+                source.addMetric(false, event.getBodyLength(), event);
                 source.fileMetricIncSumStats(StatConstants.EVENT_MSG_V1_POST_DROPPED);
             });
+            // the events were not accepted by the channel, no acknowledge will come
+            callback.releaseFrame();
             if (!callback.getHasResponsed().getAndSet(true)) {
                 this.responsePackage(ctx, ProxySdk.ResultCode.ERR_REJECT, packObject);
             }
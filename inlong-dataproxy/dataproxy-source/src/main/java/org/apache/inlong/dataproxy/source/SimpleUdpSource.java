@@ -18,23 +18,51 @@
 package org.apache.inlong.dataproxy.source;
 
 import org.apache.inlong.dataproxy.config.ConfigManager;
+import org.apache.inlong.dataproxy.utils.ConfStringUtils;
+import org.apache.inlong.dataproxy.utils.EventLoopUtil;
 
+import com.google.common.base.Preconditions;
 import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import org.apache.flume.Context;
 import org.apache.flume.conf.Configurable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Simple udp source
+ *
+ * When udpReusePort is enabled and epoll is available, udpSocketCount datagram sockets
+ *  are bound on the same port with SO_REUSEPORT, each one served by its own event loop,
+ *  so that the kernel spreads the datagrams over the sockets. Each read loop receives up
+ *  to udpRecvBatchSize datagrams with one recvmmsg call.
+ */
 public class SimpleUdpSource extends BaseSource implements Configurable {
 
     private static final Logger logger = LoggerFactory
             .getLogger(SimpleUdpSource.class);
 
     private Bootstrap bootstrap;
+    private boolean reusePort;
+    private int socketCount;
+    private int maxDatagramSize;
+    private int recvBatchSize;
+    private boolean enableGro;
+    // the futures of all the sockets bound
+    private final List<ChannelFuture> bindFutures = new ArrayList<>();
+    // the datagrams received and dropped by all the sockets
+    private final LongAdder receivedDatagrams = new LongAdder();
+    private final LongAdder droppedDatagrams = new LongAdder();
 
     public SimpleUdpSource() {
         super();
@@ -44,29 +72,77 @@ public class SimpleUdpSource extends BaseSource implements Configurable {
     public void configure(Context context) {
         logger.info("Source {} context is {}", getName(), context);
         super.configure(context);
+        // get whether reuse port
+        this.reusePort = context.getBoolean(SourceConstants.SRCCXT_UDP_REUSE_PORT,
+                SourceConstants.VAL_DEF_UDP_REUSE_PORT);
+        // get socket count
+        this.socketCount = ConfStringUtils.getIntValue(context,
+                SourceConstants.SRCCXT_UDP_SOCKET_COUNT, SourceConstants.VAL_DEF_UDP_SOCKET_COUNT);
+        Preconditions.checkArgument(this.socketCount >= SourceConstants.VAL_MIN_UDP_SOCKET_COUNT,
+                SourceConstants.SRCCXT_UDP_SOCKET_COUNT + " must be >= "
+                        + SourceConstants.VAL_MIN_UDP_SOCKET_COUNT);
+        // get max datagram size
+        this.maxDatagramSize = ConfStringUtils.getIntValue(context,
+                SourceConstants.SRCCXT_UDP_MAX_DATAGRAM_SIZE, SourceConstants.VAL_DEF_UDP_MAX_DATAGRAM_SIZE);
+        Preconditions.checkArgument((this.maxDatagramSize >= SourceConstants.VAL_MIN_UDP_MAX_DATAGRAM_SIZE
+                && this.maxDatagramSize <= SourceConstants.VAL_MAX_UDP_MAX_DATAGRAM_SIZE),
+                SourceConstants.SRCCXT_UDP_MAX_DATAGRAM_SIZE + " must be in ["
+                        + SourceConstants.VAL_MIN_UDP_MAX_DATAGRAM_SIZE + ", "
+                        + SourceConstants.VAL_MAX_UDP_MAX_DATAGRAM_SIZE + "]");
+        // get receive batch size
+        this.recvBatchSize = ConfStringUtils.getIntValue(context,
+                SourceConstants.SRCCXT_UDP_RECV_BATCH_SIZE, SourceConstants.VAL_DEF_UDP_RECV_BATCH_SIZE);
+        Preconditions.checkArgument((this.recvBatchSize >= SourceConstants.VAL_MIN_UDP_RECV_BATCH_SIZE
+                && this.recvBatchSize <= SourceConstants.VAL_MAX_UDP_RECV_BATCH_SIZE),
+                SourceConstants.SRCCXT_UDP_RECV_BATCH_SIZE + " must be in ["
+                        + SourceConstants.VAL_MIN_UDP_RECV_BATCH_SIZE + ", "
+                        + SourceConstants.VAL_MAX_UDP_RECV_BATCH_SIZE + "]");
+        // get whether enable gro
+        this.enableGro = context.getBoolean(SourceConstants.SRCCXT_UDP_ENABLE_GRO,
+                SourceConstants.VAL_DEF_UDP_ENABLE_GRO);
     }
 
-    @SuppressWarnings({"unchecked", "rawtypes"})
     @Override
     public void startSource() {
         // setup Netty server
         logger.info("start " + this.getCachedSrcName());
-        bootstrap = new Bootstrap();
-        bootstrap.channel(NioDatagramChannel.class);
-        if (conLinger >= 0) {
-            bootstrap.option(ChannelOption.SO_LINGER, conLinger);
+        boolean useReusePort = reusePort && Epoll.isAvailable();
+        if (reusePort && !useReusePort) {
+            logger.warn("Source {} requires SO_REUSEPORT but epoll is unavailable, bind a single socket",
+                    this.getCachedSrcName());
         }
-        bootstrap.option(ChannelOption.SO_BACKLOG, conBacklog);
+        int bindCount = useReusePort ? socketCount : 1;
+        this.workerGroup = EventLoopUtil.newEventLoopGroup(bindCount, false,
+                new DefaultThreadFactory(this.getCachedSrcName() + "-udp-group"));
+        bootstrap = new Bootstrap();
+        bootstrap.group(workerGroup);
+        bootstrap.channel(EventLoopUtil.getDatagramChannelClass(workerGroup));
         bootstrap.option(ChannelOption.SO_REUSEADDR, reuseAddress);
         bootstrap.option(ChannelOption.SO_RCVBUF, maxRcvBufferSize);
         bootstrap.option(ChannelOption.SO_SNDBUF, maxSendBufferSize);
+        if (useReusePort) {
+            bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+            if (recvBatchSize > 1) {
+                // receive up to recvBatchSize datagrams per recvmmsg call
+                bootstrap.option(EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE, maxDatagramSize);
+            }
+            if (enableGro) {
+                bootstrap.option(EpollChannelOption.UDP_GRO, true);
+            }
+            bootstrap.option(ChannelOption.RCVBUF_ALLOCATOR,
+                    new FixedRecvByteBufAllocator(maxDatagramSize * recvBatchSize));
+        } else {
+            bootstrap.option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(maxDatagramSize));
+        }
         bootstrap.handler(this.getChannelInitializerFactory());
+        InetSocketAddress bindAddress = (srcHost == null)
+                ? new InetSocketAddress(srcPort)
+                : new InetSocketAddress(srcHost, srcPort);
         try {
-            if (srcHost == null) {
-                channelFuture = bootstrap.bind(new InetSocketAddress(srcPort)).sync();
-            } else {
-                channelFuture = bootstrap.bind(new InetSocketAddress(srcHost, srcPort)).sync();
+            for (int i = 0; i < bindCount; i++) {
+                bindFutures.add(bootstrap.bind(bindAddress).sync());
             }
+            channelFuture = bindFutures.get(0);
         } catch (Exception e) {
             logger.error("Source {} bind ({}:{}) error, program will exit! e = {}",
                     this.getCachedSrcName(), srcHost, srcPort, e);
@@ -74,15 +150,46 @@ public class SimpleUdpSource extends BaseSource implements Configurable {
         }
         ConfigManager.getInstance().addSourceReportInfo(srcHost,
                 String.valueOf(srcPort), rptSrcType, getProtocolName().toUpperCase());
-        logger.info("Source {} started at ({}:{}), rptSrcType={}!",
-                this.getCachedSrcName(), srcHost, srcPort, rptSrcType);
+        logger.info("Source {} started at ({}:{}) with {} sockets, rptSrcType={}!",
+                this.getCachedSrcName(), srcHost, srcPort, bindCount, rptSrcType);
     }
 
     @Override
     public void stop() {
+        // close every bound socket, the base class only waits for the first one
+        for (ChannelFuture bindFuture : bindFutures) {
+            bindFuture.channel().close().awaitUninterruptibly();
+        }
+        bindFutures.clear();
         super.stop();
     }
 
+    /**
+     * @return the count of the sockets bound
+     */
+    public int getBoundSocketCount() {
+        return bindFutures.size();
+    }
+
+    /**
+     * @return the count of the datagrams received by all the sockets
+     */
+    public long getReceivedDatagramCount() {
+        return receivedDatagrams.sum();
+    }
+
+    /**
+     * @return the count of the datagrams dropped by all the sockets
+     */
+    public long getDroppedDatagramCount() {
+        return droppedDatagrams.sum();
+    }
+
+    void addDatagramCount(long received, long dropped) {
+        receivedDatagrams.add(received);
+        droppedDatagrams.add(dropped);
+    }
+
     @Override
     public String getProtocolName() {
         return SourceConstants.SRC_PROTOCOL_TYPE_UDP;
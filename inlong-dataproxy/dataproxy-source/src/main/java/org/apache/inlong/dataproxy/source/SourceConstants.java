@@ -99,6 +99,26 @@ public class SourceConstants {
     public static final long VAL_DEF_READ_IDLE_TIME_MS = 3 * 60 * 1000;
     public static final long VAL_MIN_READ_IDLE_TIME_MS = 60 * 1000;
     public static final long VAL_MAX_READ_IDLE_TIME_MS = 70 * 60 * 1000;
+    // udp parameter whether bind multiple sockets on the same port with SO_REUSEPORT
+    public static final String SRCCXT_UDP_REUSE_PORT = "udpReusePort";
+    public static final boolean VAL_DEF_UDP_REUSE_PORT = false;
+    // udp parameter socket count when SO_REUSEPORT enabled
+    public static final String SRCCXT_UDP_SOCKET_COUNT = "udpSocketCount";
+    public static final int VAL_DEF_UDP_SOCKET_COUNT = Runtime.getRuntime().availableProcessors();
+    public static final int VAL_MIN_UDP_SOCKET_COUNT = 1;
+    // udp parameter max datagram size
+    public static final String SRCCXT_UDP_MAX_DATAGRAM_SIZE = "udpMaxDatagramSize";
+    public static final int VAL_DEF_UDP_MAX_DATAGRAM_SIZE = 64 * 1024;
+    public static final int VAL_MIN_UDP_MAX_DATAGRAM_SIZE = 512;
+    public static final int VAL_MAX_UDP_MAX_DATAGRAM_SIZE = 64 * 1024;
+    // udp parameter max datagram count received in one read
+    public static final String SRCCXT_UDP_RECV_BATCH_SIZE = "udpRecvBatchSize";
+    public static final int VAL_DEF_UDP_RECV_BATCH_SIZE = 8;
+    public static final int VAL_MIN_UDP_RECV_BATCH_SIZE = 1;
+    public static final int VAL_MAX_UDP_RECV_BATCH_SIZE = 1024;
+    // udp parameter whether enable generic receive offload
+    public static final String SRCCXT_UDP_ENABLE_GRO = "udpEnableGro";
+    public static final boolean VAL_DEF_UDP_ENABLE_GRO = false;
     // source protocol type
     public static final String SRC_PROTOCOL_TYPE_TCP = "tcp";
     public static final String SRC_PROTOCOL_TYPE_UDP = "udp";
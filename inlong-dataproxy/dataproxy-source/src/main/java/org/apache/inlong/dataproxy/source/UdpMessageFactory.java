@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.source;
+
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.socket.DatagramChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Constructor;
+
+/**
+ * Udp message factory
+ *
+ * Each bound datagram socket gets its own handler instance, so the handler
+ *  can batch the datagrams of one read loop without any synchronization.
+ */
+public class UdpMessageFactory extends ChannelInitializer<DatagramChannel> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UdpMessageFactory.class);
+    private final BaseSource source;
+
+    /**
+     * get udp message factory
+     *
+     * @param source
+     */
+    public UdpMessageFactory(BaseSource source) {
+        this.source = source;
+    }
+
+    @Override
+    protected void initChannel(DatagramChannel ch) throws Exception {
+        // the datagram sockets are initialized while binding, within the synchronized start()
+        // of the source, so the processor cached by the source is read instead
+        if (source.getCachedChProcessor() == null) {
+            return;
+        }
+        try {
+            Class<? extends ChannelInboundHandlerAdapter> clazz =
+                    (Class<? extends ChannelInboundHandlerAdapter>) Class.forName(source.getMessageHandlerName());
+            Constructor<?> ctor = clazz.getConstructor(BaseSource.class);
+            ChannelInboundHandlerAdapter messageHandler =
+                    (ChannelInboundHandlerAdapter) ctor.newInstance(source);
+            ch.pipeline().addLast("messageHandler", messageHandler);
+        } catch (Exception e) {
+            LOG.error("{} newInstance {} failure!", source.getCachedSrcName(),
+                    source.getMessageHandlerName(), e);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.source;
+
+import org.apache.inlong.common.monitor.LogCounter;
+import org.apache.inlong.common.msg.MsgType;
+import org.apache.inlong.dataproxy.config.ConfigManager;
+import org.apache.inlong.dataproxy.consts.StatConstants;
+import org.apache.inlong.dataproxy.source.v0msg.AbsV0MsgCodec;
+import org.apache.inlong.dataproxy.source.v0msg.CodecBinMsg;
+import org.apache.inlong.dataproxy.source.v0msg.CodecTextMsg;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.DatagramPacket;
+import org.apache.flume.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.inlong.dataproxy.source.ServerMessageFactory.INLONG_LENGTH_FIELD_LENGTH;
+import static org.apache.inlong.dataproxy.source.v0msg.MsgFieldConsts.BIN_MSG_FIXED_CONTENT_SIZE;
+import static org.apache.inlong.dataproxy.source.v0msg.MsgFieldConsts.TXT_MSG_FIXED_CONTENT_SIZE;
+
+/**
+ * Udp message handler
+ *
+ * One instance is bound to one datagram socket. Datagrams are decoded as v0 messages,
+ *  the events decoded within one read loop are put to the channels as one batch when
+ *  the read loop completes or the batch is full. Udp has no response path, so messages
+ *  that require a response (heartbeat, order or proxy messages, v1 messages) are dropped.
+ */
+public class UdpMessageHandler extends SimpleChannelInboundHandler<DatagramPacket> {
+
+    private static final Logger logger = LoggerFactory.getLogger(UdpMessageHandler.class);
+    // log print count
+    private static final LogCounter logCounter = new LogCounter(10, 100000, 30 * 1000);
+    // max event count put to channel in one batch
+    private static final int MAX_BATCH_EVENT_COUNT = 100;
+
+    private final BaseSource source;
+    private final StringBuilder strBuff = new StringBuilder(512);
+    private final List<Event> pendingEvents = new ArrayList<>(MAX_BATCH_EVENT_COUNT);
+    private final List<AbsV0MsgCodec> pendingCodecs = new ArrayList<>(MAX_BATCH_EVENT_COUNT);
+    private final SimpleUdpSource udpSource;
+    private String socketName = "";
+    // per socket counters, only accessed by the event loop of the socket
+    private long rcvDatagramCnt = 0;
+    private long dropDatagramCnt = 0;
+    // the datagrams received and dropped since the counters were last reported
+    private long unreportedRcvCnt = 0;
+    private long unreportedDropCnt = 0;
+
+    /**
+     * Constructor
+     *
+     * @param source AbstractSource
+     */
+    public UdpMessageHandler(BaseSource source) {
+        this.source = source;
+        this.udpSource = (source instanceof SimpleUdpSource) ? (SimpleUdpSource) source : null;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        this.socketName = ctx.channel().localAddress() + "#" + ctx.channel().id().asShortText();
+        source.getAllChannels().add(ctx.channel());
+        ctx.fireChannelActive();
+        logger.info("{} bound udp socket {}", source.getCachedSrcName(), socketName);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        flushPendingEvents();
+        reportDatagramCounts();
+        source.getAllChannels().remove(ctx.channel());
+        ctx.fireChannelInactive();
+        logger.info("{} closed udp socket {}, received {} datagrams, dropped {} datagrams",
+                source.getCachedSrcName(), socketName, rcvDatagramCnt, dropDatagramCnt);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket packet) throws Exception {
+        rcvDatagramCnt++;
+        unreportedRcvCnt++;
+        source.fileMetricIncSumStats(StatConstants.EVENT_UDP_SOCKET_RECEIVED);
+        AbsV0MsgCodec msgCodec = null;
+        Event event = null;
+        try {
+            msgCodec = decodeDatagram(packet);
+            if (msgCodec != null) {
+                event = msgCodec.encEventPackage(source, ctx.channel());
+            }
+        } catch (Throwable ex) {
+            if (logCounter.shouldPrint()) {
+                logger.warn("{} decode datagram from {} failure",
+                        source.getCachedSrcName(), packet.sender(), ex);
+            }
+        }
+        if (event == null) {
+            dropDatagrams(1);
+            return;
+        }
+        pendingEvents.add(event);
+        pendingCodecs.add(msgCodec);
+        if (pendingEvents.size() >= MAX_BATCH_EVENT_COUNT) {
+            flushPendingEvents();
+        }
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        flushPendingEvents();
+        reportDatagramCounts();
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        // a datagram socket is shared by all senders, keep it open
+        source.fileMetricIncSumStats(StatConstants.EVENT_LINK_UNKNOWN_EXCEPTION);
+        if (logCounter.shouldPrint()) {
+            logger.warn("{} received an exception from udp socket {}",
+                    source.getCachedSrcName(), socketName, cause);
+        }
+    }
+
+    /**
+     * decode one datagram as a v0 message
+     *
+     * @param packet the received datagram
+     * @return the message codec, or null if the datagram is dropped
+     */
+    private AbsV0MsgCodec decodeDatagram(DatagramPacket packet) throws Exception {
+        ByteBuf cb = packet.content();
+        int readableLength = cb.readableBytes();
+        if (readableLength <= INLONG_LENGTH_FIELD_LENGTH) {
+            source.fileMetricIncSumStats(StatConstants.EVENT_MSG_READABLE_EMPTY);
+            return null;
+        }
+        if (readableLength > source.getMaxMsgLength()) {
+            source.fileMetricIncSumStats(StatConstants.EVENT_MSG_READABLE_OVERMAX);
+            return null;
+        }
+        int totalDataLen = cb.readInt();
+        if (readableLength < totalDataLen + INLONG_LENGTH_FIELD_LENGTH) {
+            source.fileMetricIncSumStats(StatConstants.EVENT_MSG_READABLE_UNFILLED);
+            return null;
+        }
+        int msgTypeValue = cb.readByte();
+        MsgType msgType = MsgType.valueOf(msgTypeValue);
+        if (msgTypeValue == 0x0
+                || MsgType.MSG_UNKNOWN == msgType
+                || MsgType.MSG_HEARTBEAT == msgType
+                || MsgType.MSG_BIN_HEARTBEAT == msgType) {
+            source.fileMetricIncSumStats(StatConstants.EVENT_UDP_MSG_UNSUPPORTED);
+            return null;
+        }
+        final long msgRcvTime = System.currentTimeMillis();
+        String strRemoteIP = packet.sender().getAddress().getHostAddress();
+        AbsV0MsgCodec msgCodec;
+        if (MsgType.MSG_BIN_MULTI_BODY == msgType) {
+            if (totalDataLen < BIN_MSG_FIXED_CONTENT_SIZE) {
+                source.fileMetricIncSumStats(StatConstants.EVENT_MSG_BIN_TOTALLEN_BELOWMIN);
+                return null;
+            }
+            msgCodec = new CodecBinMsg(totalDataLen, msgTypeValue, msgRcvTime, strRemoteIP);
+        } else {
+            if (totalDataLen < TXT_MSG_FIXED_CONTENT_SIZE) {
+                source.fileMetricIncSumStats(StatConstants.EVENT_MSG_TXT_TOTALLEN_BELOWMIN);
+                return null;
+            }
+            msgCodec = new CodecTextMsg(totalDataLen, msgTypeValue, msgRcvTime, strRemoteIP);
+        }
+        if (!msgCodec.descMsg(source, cb)) {
+            return null;
+        }
+        if (source.isRejectService()) {
+            source.fileMetricIncSumStats(StatConstants.EVENT_SERVICE_CLOSED);
+            return null;
+        }
+        if (!ConfigManager.getInstance().isMqClusterReady()) {
+            source.fileMetricIncSumStats(StatConstants.EVENT_SERVICE_SINK_UNREADY);
+            return null;
+        }
+        strBuff.delete(0, strBuff.length());
+        if (!msgCodec.validAndFillFields(source, strBuff)) {
+            return null;
+        }
+        if (msgCodec.isOrderOrProxy()) {
+            source.fileMetricIncSumStats(StatConstants.EVENT_UDP_MSG_UNSUPPORTED);
+            return null;
+        }
+        return msgCodec;
+    }
+
+    /**
+     * put the pending events to channels as one batch
+     */
+    private void flushPendingEvents() {
+        if (pendingEvents.isEmpty()) {
+            return;
+        }
+        try {
+            source.getCachedChProcessor().processEventBatch(pendingEvents);
+            for (int i = 0; i < pendingEvents.size(); i++) {
+                Event event = pendingEvents.get(i);
+                AbsV0MsgCodec msgCodec = pendingCodecs.get(i);
+                strBuff.delete(0, strBuff.length());
+                source.fileMetricAddSuccStats(strBuff, msgCodec.getGroupId(), msgCodec.getStreamId(),
+                        msgCodec.getTopicName(), msgCodec.getStrRemoteIP(), msgCodec.getMsgProcType(),
+                        msgCodec.getDataTimeMs(), msgCodec.getMsgPkgTime(), msgCodec.getMsgCount(), 1,
+                        event.getBody().length);
+                source.addMetric(true, event.getBody().length, event);
+            }
+        } catch (Throwable ex) {
+            for (int i = 0; i < pendingEvents.size(); i++) {
+                Event event = pendingEvents.get(i);
+                AbsV0MsgCodec msgCodec = pendingCodecs.get(i);
+                strBuff.delete(0, strBuff.length());
+                source.fileMetricAddFailStats(strBuff, msgCodec.getGroupId(), msgCodec.getStreamId(),
+                        msgCodec.getTopicName(), msgCodec.getStrRemoteIP(), msgCodec.getMsgProcType(),
+                        msgCodec.getDataTimeMs(), msgCodec.getMsgPkgTime(), 1);
+                source.addMetric(false, event.getBody().length, event);
+            }
+            dropDatagrams(pendingEvents.size());
+            if (logCounter.shouldPrint()) {
+                logger.error("{} put {} udp events to channel failure",
+                        source.getCachedSrcName(), pendingEvents.size(), ex);
+            }
+        } finally {
+            pendingEvents.clear();
+            pendingCodecs.clear();
+        }
+    }
+
+    private void dropDatagrams(int count) {
+        dropDatagramCnt += count;
+        unreportedDropCnt += count;
+    }
+
+    /**
+     * report the datagrams received and dropped by the read loop, once per loop
+     */
+    private void reportDatagramCounts() {
+        if (unreportedRcvCnt == 0 && unreportedDropCnt == 0) {
+            return;
+        }
+        if (unreportedDropCnt > 0) {
+            source.fileMetricAddWithDetailStats(StatConstants.EVENT_UDP_SOCKET_DROPPED,
+                    socketName, unreportedDropCnt);
+        }
+        if (udpSource != null) {
+            udpSource.addDatagramCount(unreportedRcvCnt, unreportedDropCnt);
+        }
+        unreportedRcvCnt = 0;
+        unreportedDropCnt = 0;
+    }
+}
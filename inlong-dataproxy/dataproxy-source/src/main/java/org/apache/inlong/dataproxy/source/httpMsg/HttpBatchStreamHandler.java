@@ -0,0 +1,590 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.source.httpMsg;
+
+import org.apache.inlong.common.enums.DataProxyErrCode;
+import org.apache.inlong.common.monitor.LogCounter;
+import org.apache.inlong.dataproxy.channel.BatchPutChannel;
+import org.apache.inlong.dataproxy.config.ConfigManager;
+import org.apache.inlong.dataproxy.consts.ConfigConstants;
+import org.apache.inlong.dataproxy.consts.HttpAttrConst;
+import org.apache.inlong.dataproxy.consts.StatConstants;
+import org.apache.inlong.dataproxy.source.BaseSource;
+import org.apache.inlong.dataproxy.utils.AddressUtils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.util.ByteProcessor;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.flume.Channel;
+import org.apache.flume.Event;
+import org.apache.flume.channel.ChannelProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP streaming batch handler
+ *
+ * Placed between the http codec and the aggregator, it consumes the requests of the
+ *  batch path chunk by chunk without aggregating them, all other requests are passed
+ *  through. The body is split into records, newline-delimited text by default, or
+ *  varint32 length-delimited records for protobuf and octet-stream content types.
+ *  Records are packed into events and put to the channels as soon as a pack is full;
+ *  when the channels have no space for a pack or reject it, reading from the connection
+ *  is paused and the put is retried, so a slow sink pushes back to the client through
+ *  tcp instead of blocking the event loop. The response
+ *  is sent after the last chunk, it carries the result of each pack.
+ */
+public class HttpBatchStreamHandler extends ChannelInboundHandlerAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpBatchStreamHandler.class);
+    // log print count
+    private static final LogCounter logCounter = new LogCounter(10, 100000, 30 * 1000);
+    // max record count of a pack
+    private static final int MAX_PACK_RECORD_COUNT = 500;
+    // put retry interval and times when the channels are full
+    private static final long PUT_RETRY_INTERVAL_MS = 50L;
+    private static final int MAX_PUT_RETRY_TIMES = 100;
+    private static final Gson GSON = new Gson();
+
+    private final BaseSource source;
+    private final StringBuilder strBuff = new StringBuilder(512);
+    // messages received while the put of a pack is pending
+    private final ArrayDeque<Object> pendingMsgs = new ArrayDeque<>();
+    // current streaming request
+    private boolean streaming = false;
+    private boolean discarding = false;
+    private boolean lengthDelimited = false;
+    private boolean closeConnection = false;
+    private boolean lastReceived = false;
+    private String groupId;
+    private String streamId;
+    private String topicName;
+    private String clientIp;
+    private long dataTime;
+    private long msgRcvTime;
+    private ByteBuf cumulation;
+    // bytes of an over-sized record to skip, -1 means skipping until the next line
+    private long skipBytes = 0;
+    // current pack
+    private final List<byte[]> packRecords = new ArrayList<>(MAX_PACK_RECORD_COUNT);
+    private int packBytes = 0;
+    // pack blocked by the channels
+    private Event blockedEvent;
+    private int blockedRecordCnt = 0;
+    private int putRetryTimes = 0;
+    private ScheduledFuture<?> retryFuture;
+    // per pack results
+    private final StringBuilder ackBuff = new StringBuilder(512);
+    private int packCount = 0;
+    private long recordCount = 0;
+    private long failedCount = 0;
+    private long droppedCount = 0;
+
+    /**
+     * Constructor
+     *
+     * @param source AbstractSource
+     */
+    public HttpBatchStreamHandler(BaseSource source) {
+        this.source = source;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (blockedEvent != null || !pendingMsgs.isEmpty()) {
+            // keep the order of the pipelined requests while a put is pending
+            pendingMsgs.add(msg);
+            return;
+        }
+        handleMessage(ctx, msg);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (streaming && logCounter.shouldPrint()) {
+            logger.warn("{} batch request from {} closed before completed, {} packs put",
+                    source.getCachedSrcName(), clientIp, packCount);
+        }
+        resetRequest();
+        while (!pendingMsgs.isEmpty()) {
+            ReferenceCountUtil.release(pendingMsgs.poll());
+        }
+        ctx.fireChannelInactive();
+    }
+
+    private void handleMessage(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof HttpRequest) {
+            HttpRequest req = (HttpRequest) msg;
+            QueryStringDecoder uriDecoder = new QueryStringDecoder(req.uri(), StandardCharsets.UTF_8);
+            if (!HttpAttrConst.KEY_SRV_URL_BATCH_MSG.equals(uriDecoder.path())) {
+                ctx.fireChannelRead(msg);
+                return;
+            }
+            startRequest(ctx, req, uriDecoder);
+            if (msg instanceof HttpContent) {
+                handleContent(ctx, (HttpContent) msg);
+            }
+            return;
+        }
+        if (msg instanceof HttpContent && (streaming || discarding)) {
+            handleContent(ctx, (HttpContent) msg);
+            return;
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    private void startRequest(ChannelHandlerContext ctx, HttpRequest req, QueryStringDecoder uriDecoder) {
+        if (HttpUtil.is100ContinueExpected(req)) {
+            ctx.writeAndFlush(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE));
+        }
+        msgRcvTime = System.currentTimeMillis();
+        clientIp = AddressUtils.getChannelRemoteIP(ctx.channel());
+        closeConnection = !HttpUtil.isKeepAlive(req);
+        // any invalid request discards its content and closes the connection
+        discarding = true;
+        if (!req.decoderResult().isSuccess()) {
+            source.fileMetricIncSumStats(StatConstants.EVENT_MSG_DECODE_FAIL);
+            sendErrorMsg(ctx, DataProxyErrCode.HTTP_DECODE_REQ_FAILURE, null);
+            return;
+        }
+        if (source.isRejectService()) {
+            source.fileMetricIncSumStats(StatConstants.EVENT_SERVICE_CLOSED);
+            sendErrorMsg(ctx, DataProxyErrCode.SERVICE_CLOSED, null);
+            return;
+        }
+        if (!ConfigManager.getInstance().isMqClusterReady()) {
+            source.fileMetricIncSumStats(StatConstants.EVENT_SERVICE_SINK_UNREADY);
+            sendErrorMsg(ctx, DataProxyErrCode.SINK_SERVICE_UNREADY, null);
+            return;
+        }
+        if (req.method() != HttpMethod.POST) {
+            source.fileMetricIncSumStats(StatConstants.EVENT_MSG_METHOD_INVALID);
+            sendErrorMsg(ctx, DataProxyErrCode.HTTP_UNSUPPORTED_METHOD,
+                    "Only support [" + HttpMethod.POST.name() + "] method");
+            return;
+        }
+        groupId = getAttr(uriDecoder, HttpAttrConst.KEY_GROUP_ID);
+        if (StringUtils.isBlank(groupId)) {
+            source.fileMetricIncSumStats(StatConstants.EVENT_MSG_GROUPID_MISSING);
+            sendErrorMsg(ctx, DataProxyErrCode.MISS_REQUIRED_GROUPID_ARGUMENT,
+                    "Field " + HttpAttrConst.KEY_GROUP_ID + " must exist and not blank!");
+            return;
+        }
+        streamId = getAttr(uriDecoder, HttpAttrConst.KEY_STREAM_ID);
+        if (StringUtils.isBlank(streamId)) {
+            source.fileMetricIncWithDetailStats(StatConstants.EVENT_MSG_STREAMID_MISSING, groupId);
+            sendErrorMsg(ctx, DataProxyErrCode.MISS_REQUIRED_STREAMID_ARGUMENT,
+                    "Field " + HttpAttrConst.KEY_STREAM_ID + " must exist and not blank!");
+            return;
+        }
+        topicName = ConfigManager.getInstance().getTopicName(groupId, streamId);
+        if (StringUtils.isEmpty(topicName)) {
+            source.fileMetricIncWithDetailStats(StatConstants.EVENT_SOURCE_TOPIC_MISSING, groupId);
+            sendErrorMsg(ctx, DataProxyErrCode.TOPIC_IS_BLANK,
+                    "Topic not configured for " + HttpAttrConst.KEY_GROUP_ID + "(" + groupId + "),"
+                            + HttpAttrConst.KEY_STREAM_ID + "(" + streamId + ")");
+            return;
+        }
+        dataTime = NumberUtils.toLong(getAttr(uriDecoder, HttpAttrConst.KEY_DATA_TIME), msgRcvTime);
+        String cntType = req.headers().get(HttpHeaderNames.CONTENT_TYPE);
+        lengthDelimited = cntType != null
+                && (StringUtils.startsWithIgnoreCase(cntType.trim(), HttpAttrConst.CNT_TYPE_PROTOBUF)
+                        || StringUtils.startsWithIgnoreCase(cntType.trim(), "application/octet-stream"));
+        cumulation = ctx.alloc().buffer();
+        discarding = false;
+        streaming = true;
+    }
+
+    private void handleContent(ChannelHandlerContext ctx, HttpContent content) {
+        boolean isLast = content instanceof LastHttpContent;
+        try {
+            if (discarding) {
+                if (isLast) {
+                    discarding = false;
+                }
+                return;
+            }
+            if (content.content().isReadable()) {
+                cumulation.writeBytes(content.content());
+            }
+        } finally {
+            content.release();
+        }
+        lastReceived = isLast;
+        processCumulation(ctx);
+    }
+
+    /**
+     * split the received bytes into records and put the full packs,
+     *  stops when a put is blocked and continues after it is retried
+     */
+    private void processCumulation(ChannelHandlerContext ctx) {
+        while (blockedEvent == null) {
+            byte[] record = lengthDelimited ? readDelimitedRecord() : readLineRecord();
+            if (record == null) {
+                break;
+            }
+            addRecord(ctx, record);
+        }
+        if (blockedEvent != null) {
+            return;
+        }
+        cumulation.discardSomeReadBytes();
+        if (!lastReceived) {
+            return;
+        }
+        if (cumulation.isReadable()) {
+            if (lengthDelimited) {
+                // truncated record at the end of the body
+                droppedCount++;
+            } else if (skipBytes == 0) {
+                // last line without line separator
+                byte[] record = ByteBufUtil.getBytes(cumulation);
+                cumulation.skipBytes(cumulation.readableBytes());
+                addRecord(ctx, record);
+                if (blockedEvent != null) {
+                    return;
+                }
+            }
+            cumulation.skipBytes(cumulation.readableBytes());
+        }
+        if (!packRecords.isEmpty()) {
+            putPack(ctx);
+            if (blockedEvent != null) {
+                return;
+            }
+        }
+        finishRequest(ctx);
+    }
+
+    /**
+     * add a record to the current pack, the pack is put first if the record does not fit
+     */
+    private void addRecord(ChannelHandlerContext ctx, byte[] record) {
+        if (packBytes + record.length > source.getMaxMsgLength()
+                || packRecords.size() >= MAX_PACK_RECORD_COUNT) {
+            putPack(ctx);
+        }
+        packRecords.add(record);
+        packBytes += record.length;
+    }
+
+    private byte[] readLineRecord() {
+        while (cumulation.isReadable()) {
+            int lfIndex = cumulation.forEachByte(ByteProcessor.FIND_LF);
+            if (lfIndex < 0) {
+                if (cumulation.readableBytes() > source.getMaxMsgLength()) {
+                    // over-sized line, skip it until the next line separator
+                    if (skipBytes == 0) {
+                        overMaxRecord();
+                    }
+                    skipBytes = -1;
+                    cumulation.skipBytes(cumulation.readableBytes());
+                }
+                return null;
+            }
+            int length = lfIndex - cumulation.readerIndex();
+            if (skipBytes != 0) {
+                skipBytes = 0;
+                cumulation.skipBytes(length + 1);
+                continue;
+            }
+            if (length > 0 && cumulation.getByte(lfIndex - 1) == '\r') {
+                length--;
+            }
+            if (length == 0) {
+                cumulation.readerIndex(lfIndex + 1);
+                continue;
+            }
+            if (length > source.getMaxMsgLength()) {
+                overMaxRecord();
+                cumulation.readerIndex(lfIndex + 1);
+                continue;
+            }
+            byte[] record = ByteBufUtil.getBytes(cumulation, cumulation.readerIndex(), length);
+            cumulation.readerIndex(lfIndex + 1);
+            return record;
+        }
+        return null;
+    }
+
+    private byte[] readDelimitedRecord() {
+        while (cumulation.isReadable()) {
+            if (skipBytes > 0) {
+                int skipped = (int) Math.min(skipBytes, cumulation.readableBytes());
+                cumulation.skipBytes(skipped);
+                skipBytes -= skipped;
+                continue;
+            }
+            cumulation.markReaderIndex();
+            int length = readRawVarint32(cumulation);
+            if (length == -1) {
+                cumulation.resetReaderIndex();
+                return null;
+            }
+            if (length < -1) {
+                // malformed length, nothing after it can be framed
+                droppedCount++;
+                cumulation.skipBytes(cumulation.readableBytes());
+                skipBytes = Long.MAX_VALUE;
+                return null;
+            }
+            if (length > source.getMaxMsgLength()) {
+                overMaxRecord();
+                skipBytes = length;
+                continue;
+            }
+            if (cumulation.readableBytes() < length) {
+                cumulation.resetReaderIndex();
+                return null;
+            }
+            if (length == 0) {
+                continue;
+            }
+            byte[] record = new byte[length];
+            cumulation.readBytes(record);
+            return record;
+        }
+        return null;
+    }
+
+    /**
+     * read a varint32 value
+     *
+     * @param buffer the buffer
+     * @return the value, -1 if the buffer is not complete, -2 if the value is malformed
+     */
+    private static int readRawVarint32(ByteBuf buffer) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (!buffer.isReadable()) {
+                return -1;
+            }
+            byte tmp = buffer.readByte();
+            result |= (tmp & 0x7f) << shift;
+            if (tmp >= 0) {
+                return result < 0 ? -2 : result;
+            }
+        }
+        return -2;
+    }
+
+    private void overMaxRecord() {
+        droppedCount++;
+        source.fileMetricIncWithDetailStats(StatConstants.EVENT_HTTP_BATCH_RECORD_OVERMAX, groupId);
+    }
+
+    /**
+     * build the current pack as one event and put it to the channels
+     */
+    private void putPack(ChannelHandlerContext ctx) {
+        if (packRecords.isEmpty()) {
+            return;
+        }
+        blockedRecordCnt = packRecords.size();
+        blockedEvent = HttpMessageHandler.buildInLongEvent(source, strBuff, groupId, streamId,
+                topicName, dataTime, clientIp, msgRcvTime, blockedRecordCnt, packRecords);
+        packRecords.clear();
+        packBytes = 0;
+        putBlockedEvent(ctx);
+    }
+
+    private void putBlockedEvent(ChannelHandlerContext ctx) {
+        Event event = blockedEvent;
+        long pkgTime = NumberUtils.toLong(event.getHeaders().get(ConfigConstants.PKG_TIME_KEY));
+        ChannelProcessor processor = source.getCachedChProcessor();
+        // the channels wait for space when putting, so a full channel is detected first
+        // to keep the event loop from blocking
+        Throwable failure = null;
+        if (hasChannelSpace(processor, event)) {
+            try {
+                processor.processEvent(event);
+                source.fileMetricAddSuccStats(strBuff, groupId, streamId, topicName, clientIp,
+                        "b2b", dataTime, pkgTime, blockedRecordCnt, 1, event.getBody().length);
+                source.addMetric(true, event.getBody().length, event);
+                ackPack(DataProxyErrCode.SUCCESS);
+                clearBlockedEvent();
+                return;
+            } catch (Throwable ex) {
+                failure = ex;
+            }
+        }
+        if (putRetryTimes < MAX_PUT_RETRY_TIMES && ctx.channel().isActive()) {
+            // stop reading from the client until the channels accept the pack
+            putRetryTimes++;
+            source.fileMetricIncSumStats(StatConstants.EVENT_HTTP_BATCH_PUT_RETRY);
+            ctx.channel().config().setAutoRead(false);
+            retryFuture = ctx.executor().schedule(() -> retryBlockedEvent(ctx),
+                    PUT_RETRY_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            return;
+        }
+        source.fileMetricAddFailStats(strBuff, groupId, streamId, topicName, clientIp,
+                "b2b", dataTime, pkgTime, 1);
+        source.addMetric(false, event.getBody().length, event);
+        failedCount += blockedRecordCnt;
+        ackPack(DataProxyErrCode.PUT_EVENT_TO_CHANNEL_FAILURE);
+        if (logCounter.shouldPrint()) {
+            if (failure == null) {
+                logger.error("{} put batch pack from {} to channel failure, the channels are full",
+                        source.getCachedSrcName(), clientIp);
+            } else {
+                logger.error("{} put batch pack from {} to channel failure",
+                        source.getCachedSrcName(), clientIp, failure);
+            }
+        }
+        clearBlockedEvent();
+    }
+
+    /**
+     * whether all the required channels of the event have the space of it
+     */
+    private boolean hasChannelSpace(ChannelProcessor processor, Event event) {
+        for (Channel channel : processor.getSelector().getRequiredChannels(event)) {
+            if (channel instanceof BatchPutChannel && !((BatchPutChannel) channel).hasSpace(event)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void clearBlockedEvent() {
+        blockedEvent = null;
+        blockedRecordCnt = 0;
+        putRetryTimes = 0;
+    }
+
+    private void retryBlockedEvent(ChannelHandlerContext ctx) {
+        retryFuture = null;
+        if (blockedEvent == null || !ctx.channel().isActive()) {
+            return;
+        }
+        putBlockedEvent(ctx);
+        if (blockedEvent != null) {
+            return;
+        }
+        ctx.channel().config().setAutoRead(true);
+        if (streaming) {
+            processCumulation(ctx);
+        }
+        // replay the messages received during the pause
+        while (blockedEvent == null && !pendingMsgs.isEmpty()) {
+            handleMessage(ctx, pendingMsgs.poll());
+        }
+    }
+
+    private void ackPack(DataProxyErrCode errCode) {
+        if (packCount > 0) {
+            ackBuff.append(",");
+        }
+        ackBuff.append("{\"batch\":").append(packCount)
+                .append(",\"cnt\":").append(blockedRecordCnt)
+                .append(",\"code\":\"").append(errCode.getErrCode()).append("\"}");
+        packCount++;
+        recordCount += blockedRecordCnt;
+    }
+
+    private void finishRequest(ChannelHandlerContext ctx) {
+        DataProxyErrCode errCode = DataProxyErrCode.SUCCESS;
+        if (failedCount > 0) {
+            errCode = DataProxyErrCode.PUT_EVENT_TO_CHANNEL_FAILURE;
+        } else if (droppedCount > 0) {
+            errCode = DataProxyErrCode.BODY_EXCEED_MAX_LEN;
+        }
+        StringBuilder builder = new StringBuilder(ackBuff.length() + 256);
+        builder.append("{\"code\":\"").append(errCode.getErrCode())
+                .append("\",\"msg\":\"").append(errCode.getErrMsg())
+                .append("\",\"cnt\":").append(recordCount)
+                .append(",\"failed\":").append(failedCount)
+                .append(",\"dropped\":").append(droppedCount)
+                .append(",\"acks\":[").append(ackBuff).append("]}");
+        boolean isClose = closeConnection;
+        resetRequest();
+        sendResponse(ctx, builder.toString(), isClose);
+    }
+
+    private void resetRequest() {
+        if (retryFuture != null) {
+            retryFuture.cancel(false);
+            retryFuture = null;
+        }
+        if (cumulation != null) {
+            cumulation.release();
+            cumulation = null;
+        }
+        streaming = false;
+        lastReceived = false;
+        skipBytes = 0;
+        packRecords.clear();
+        packBytes = 0;
+        blockedEvent = null;
+        blockedRecordCnt = 0;
+        putRetryTimes = 0;
+        ackBuff.delete(0, ackBuff.length());
+        packCount = 0;
+        recordCount = 0;
+        failedCount = 0;
+        droppedCount = 0;
+    }
+
+    private String getAttr(QueryStringDecoder decoder, String key) {
+        List<String> values = decoder.parameters().get(key);
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        return values.get(0);
+    }
+
+    private void sendErrorMsg(ChannelHandlerContext ctx, DataProxyErrCode errCodeObj, String errMsg) {
+        // the message may carry the group and stream ids given by the client
+        JsonObject result = new JsonObject();
+        result.addProperty("code", String.valueOf(errCodeObj.getErrCode()));
+        result.addProperty("msg", errMsg == null ? errCodeObj.getErrMsg() : errMsg);
+        sendResponse(ctx, GSON.toJson(result), true);
+    }
+
+    private void sendResponse(ChannelHandlerContext ctx, String content, boolean isClose) {
+        if (!ctx.channel().isActive()) {
+            return;
+        }
+        HttpMessageHandler.writeResponse(ctx, content, isClose);
+    }
+}
@@ -60,6 +60,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -334,9 +335,51 @@ public class HttpMessageHandler extends SimpleChannelInboundHandler<FullHttpRequ
         }
         // get message count
         int intMsgCnt = NumberUtils.toInt(reqAttrs.get(HttpAttrConst.KEY_MESSAGE_COUNT), 1);
-        String strMsgCount = String.valueOf(intMsgCnt);
+        // build flume event
+        Event event = buildInLongEvent(source, strBuff, groupId, streamId, topicName,
+                dataTime, clientIp, msgRcvTime, intMsgCnt,
+                Collections.singletonList(body.getBytes(HttpAttrConst.VAL_DEF_CHARSET)));
+        long pkgTime = NumberUtils.toLong(event.getHeaders().get(ConfigConstants.PKG_TIME_KEY));
+        try {
+            source.getCachedChProcessor().processEvent(event);
+            source.fileMetricAddSuccStats(strBuff, groupId, streamId, topicName, clientIp,
+                    "b2b", dataTime, pkgTime, intMsgCnt, 1, event.getBody().length);
+            source.addMetric(true, event.getBody().length, event);
+            sendSuccessResponse(ctx, isCloseCon, callback);
+        } catch (Throwable ex) {
+            source.fileMetricAddFailStats(strBuff, groupId, streamId, topicName, clientIp,
+                    "b2b", dataTime, pkgTime, 1);
+            source.addMetric(false, event.getBody().length, event);
+            sendErrorMsg(ctx, DataProxyErrCode.PUT_EVENT_TO_CHANNEL_FAILURE,
+                    strBuff.append("Put HTTP event to channel failure: ").append(ex.getMessage()).toString(), callback);
+            if (logCounter.shouldPrint()) {
+                logger.error("Error writing HTTP event to channel failure.", ex);
+            }
+        }
+    }
+
+    /**
+     * Build the InLong v0 event of the message bodies
+     *
+     * @param source the source
+     * @param strBuff the string buffer
+     * @param groupId the group id
+     * @param streamId the stream id
+     * @param topicName the topic name
+     * @param dataTime the data time
+     * @param clientIp the report ip
+     * @param msgRcvTime the message received time
+     * @param msgCnt the message count
+     * @param bodies the message bodies
+     * @return the flume event
+     */
+    static Event buildInLongEvent(BaseSource source, StringBuilder strBuff,
+            String groupId, String streamId, String topicName, long dataTime,
+            String clientIp, long msgRcvTime, int msgCnt, List<byte[]> bodies) {
+        String strMsgCount = String.valueOf(msgCnt);
         // build message attributes
         InLongMsg inLongMsg = InLongMsg.newInLongMsg(source.isCompressed());
+        strBuff.delete(0, strBuff.length());
         strBuff.append("groupId=").append(groupId)
                 .append("&streamId=").append(streamId)
                 .append("&dt=").append(dataTime)
@@ -345,7 +388,10 @@ public class HttpMessageHandler extends SimpleChannelInboundHandler<FullHttpRequ
                 .append("&rt=").append(msgRcvTime)
                 .append(AttributeConstants.SEPARATOR).append(AttributeConstants.MSG_RPT_TIME)
                 .append(AttributeConstants.KEY_VALUE_SEPARATOR).append(msgRcvTime);
-        inLongMsg.addMsg(strBuff.toString(), body.getBytes(HttpAttrConst.VAL_DEF_CHARSET));
+        String attrs = strBuff.toString();
+        for (byte[] body : bodies) {
+            inLongMsg.addMsg(attrs, body);
+        }
         byte[] inlongMsgData = inLongMsg.buildArray();
         long pkgTime = inLongMsg.getCreatetime();
         inLongMsg.reset();
@@ -365,23 +411,7 @@ public class HttpMessageHandler extends SimpleChannelInboundHandler<FullHttpRequ
                 MessageWrapType.INLONG_MSG_V0.getStrId());
         eventHeaders.put(AttributeConstants.RCV_TIME, String.valueOf(msgRcvTime));
         eventHeaders.put(ConfigConstants.PKG_TIME_KEY, String.valueOf(pkgTime));
-        Event event = EventBuilder.withBody(inlongMsgData, eventHeaders);
-        try {
-            source.getCachedChProcessor().processEvent(event);
-            source.fileMetricAddSuccStats(strBuff, groupId, streamId, topicName, clientIp,
-                    "b2b", dataTime, pkgTime, intMsgCnt, 1, event.getBody().length);
-            source.addMetric(true, event.getBody().length, event);
-            sendSuccessResponse(ctx, isCloseCon, callback);
-        } catch (Throwable ex) {
-            source.fileMetricAddFailStats(strBuff, groupId, streamId, topicName, clientIp,
-                    "b2b", dataTime, pkgTime, 1);
-            source.addMetric(false, event.getBody().length, event);
-            sendErrorMsg(ctx, DataProxyErrCode.PUT_EVENT_TO_CHANNEL_FAILURE,
-                    strBuff.append("Put HTTP event to channel failure: ").append(ex.getMessage()).toString(), callback);
-            if (logCounter.shouldPrint()) {
-                logger.error("Error writing HTTP event to channel failure.", ex);
-            }
-        }
+        return EventBuilder.withBody(inlongMsgData, eventHeaders);
     }
 
     /**
@@ -441,8 +471,6 @@ public class HttpMessageHandler extends SimpleChannelInboundHandler<FullHttpRequ
             }
             return;
         }
-        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
-        response.headers().set(HttpHeaderNames.CONTENT_TYPE, HttpAttrConst.RET_CNT_TYPE);
         StringBuilder builder = new StringBuilder(512);
         if (StringUtils.isNotBlank(callback)) {
             builder.append(callback).append("(");
@@ -452,7 +480,20 @@ public class HttpMessageHandler extends SimpleChannelInboundHandler<FullHttpRequ
         if (StringUtils.isNotBlank(callback)) {
             builder.append(")");
         }
-        ByteBuf buffer = Unpooled.copiedBuffer(builder.toString(), CharsetUtil.UTF_8);
+        writeResponse(ctx, builder.toString(), isClose);
+    }
+
+    /**
+     * Write the json response content to the channel
+     *
+     * @param ctx the handler context
+     * @param content the response content
+     * @param isClose whether close connection after sent
+     */
+    static void writeResponse(ChannelHandlerContext ctx, String content, boolean isClose) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, HttpAttrConst.RET_CNT_TYPE);
+        ByteBuf buffer = Unpooled.copiedBuffer(content, CharsetUtil.UTF_8);
         response.headers().set(HttpHeaderNames.CONTENT_LENGTH, buffer.readableBytes());
         response.content().writeBytes(buffer);
         buffer.release();
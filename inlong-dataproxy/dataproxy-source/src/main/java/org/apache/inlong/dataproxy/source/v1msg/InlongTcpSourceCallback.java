@@ -45,6 +45,9 @@ public class InlongTcpSourceCallback implements SourceCallback {
     private final MessagePackHeader header;
     private final CountDownLatch latch;
     private final AtomicBoolean hasResponsed = new AtomicBoolean(false);
+    // the received buffer shared by the events, released after the sink acknowledges
+    private final ByteBuf retainedFrame;
+    private final AtomicBoolean hasReleased = new AtomicBoolean(false);
 
     /**
      * Constructor
@@ -53,8 +56,20 @@ public class InlongTcpSourceCallback implements SourceCallback {
      * @param header the message pack header
      */
     public InlongTcpSourceCallback(ChannelHandlerContext ctx, MessagePackHeader header) {
+        this(ctx, header, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param ctx the channel context
+     * @param header the message pack header
+     * @param retainedFrame the retained buffer which the events slice from, may be null
+     */
+    public InlongTcpSourceCallback(ChannelHandlerContext ctx, MessagePackHeader header, ByteBuf retainedFrame) {
         this.ctx = ctx;
         this.header = header;
+        this.retainedFrame = retainedFrame;
         this.latch = new CountDownLatch(1);
     }
 
@@ -65,6 +80,8 @@ public class InlongTcpSourceCallback implements SourceCallback {
      */
     @Override
     public void callback(ResultCode resultCode) {
+        // the sink has finished with the events, so the received buffer can be released
+        this.releaseFrame();
         // If DataProxy have sent timeout response to SDK, DataProxy do not send success response to SDK again when
         // event is success to save.
         if (this.hasResponsed.getAndSet(true)) {
@@ -101,6 +118,15 @@ public class InlongTcpSourceCallback implements SourceCallback {
         }
     }
 
+    /**
+     * release the retained buffer, only the first call takes effect
+     */
+    public void releaseFrame() {
+        if (retainedFrame != null && !hasReleased.getAndSet(true)) {
+            retainedFrame.release();
+        }
+    }
+
     /**
      * get hasResponsed
      *
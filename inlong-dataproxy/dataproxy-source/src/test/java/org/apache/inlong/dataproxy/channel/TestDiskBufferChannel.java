@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.channel;
+
+import org.apache.inlong.sdk.commons.protocol.EventConstants;
+import org.apache.inlong.sdk.commons.protocol.ProxyEvent;
+import org.apache.inlong.sdk.commons.protocol.ProxyPackEvent;
+import org.apache.inlong.sdk.commons.protocol.ProxySdk.ResultCode;
+
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.Transaction;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.powermock.reflect.Whitebox;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Test DiskBufferChannel
+ */
+public class TestDiskBufferChannel {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private DiskBufferChannel newChannel() {
+        Map<String, String> params = new HashMap<>();
+        params.put(DiskBufferChannel.KEY_DATA_DIR, tempFolder.getRoot().getAbsolutePath());
+        params.put(DiskBufferChannel.KEY_SEGMENT_SIZE_MB, "1");
+        DiskBufferChannel channel = new DiskBufferChannel();
+        channel.setName("disk-channel");
+        channel.configure(new Context(params));
+        channel.start();
+        return channel;
+    }
+
+    private ProxyEvent newEvent(int index) {
+        return new ProxyEvent("group", "stream",
+                ("body-" + index).getBytes(StandardCharsets.UTF_8), 1000L + index, "127.0.0.1");
+    }
+
+    @Test
+    public void testPutPackAndTake() {
+        DiskBufferChannel channel = newChannel();
+        List<ProxyEvent> events = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            events.add(newEvent(i));
+        }
+        AtomicReference<ResultCode> result = new AtomicReference<>();
+        channel.directPut(new ProxyPackEvent("group", "stream", events, result::set));
+        Assert.assertEquals(ResultCode.SUCCUSS, result.get());
+        // rolled back events are taken again in order
+        Transaction tx = channel.getTransaction();
+        tx.begin();
+        Event first = channel.take();
+        Assert.assertNotNull(first);
+        tx.rollback();
+        tx.close();
+        tx = channel.getTransaction();
+        tx.begin();
+        for (int i = 0; i < 10; i++) {
+            Event event = channel.take();
+            Assert.assertEquals("body-" + i, new String(event.getBody(), StandardCharsets.UTF_8));
+            Assert.assertEquals(String.valueOf(1000L + i),
+                    event.getHeaders().get(EventConstants.HEADER_KEY_MSG_TIME));
+            Assert.assertEquals("group", event.getHeaders().get(EventConstants.INLONG_GROUP_ID));
+        }
+        Assert.assertNull(channel.take());
+        tx.commit();
+        tx.close();
+        channel.stop();
+    }
+
+    @Test
+    public void testReloadAndRollSegments() {
+        DiskBufferChannel channel = newChannel();
+        byte[] body = new byte[64 * 1024];
+        List<Event> batch = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            batch.add(new ProxyEvent("group", "stream", body, i, "127.0.0.1"));
+            if (batch.size() == 4) {
+                channel.directPutBatch(batch);
+                batch.clear();
+            }
+        }
+        long usedSize = channel.getUsedDiskSize();
+        Assert.assertTrue(usedSize > 40L * body.length);
+        channel.stop();
+        // the written events survive a restart
+        channel = newChannel();
+        Assert.assertEquals(usedSize, channel.getUsedDiskSize());
+        Transaction tx = channel.getTransaction();
+        tx.begin();
+        for (int i = 0; i < 40; i++) {
+            Event event = channel.take();
+            Assert.assertNotNull(event);
+            Assert.assertEquals(String.valueOf(i), event.getHeaders().get(EventConstants.HEADER_KEY_MSG_TIME));
+        }
+        Assert.assertNull(channel.take());
+        tx.commit();
+        tx.close();
+        // the read segments are released
+        Assert.assertEquals(0L, channel.getUsedDiskSize());
+        channel.stop();
+    }
+
+    private void putLargeEvents(DiskBufferChannel channel, int count) {
+        byte[] body = new byte[64 * 1024];
+        List<Event> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            batch.add(new ProxyEvent("group", "stream", body, i, "127.0.0.1"));
+            if (batch.size() == 4) {
+                channel.directPutBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @Test
+    public void testRollbackKeepsSegments() {
+        DiskBufferChannel channel = newChannel();
+        putLargeEvents(channel, 40);
+        long usedSize = channel.getUsedDiskSize();
+        // the segments read to the end are kept until the takes are committed
+        Transaction tx = channel.getTransaction();
+        tx.begin();
+        for (int i = 0; i < 40; i++) {
+            Assert.assertNotNull(channel.take());
+        }
+        Assert.assertNull(channel.take());
+        Assert.assertEquals(usedSize, channel.getUsedDiskSize());
+        tx.rollback();
+        tx.close();
+        Assert.assertEquals(usedSize, channel.getUsedDiskSize());
+        tx = channel.getTransaction();
+        tx.begin();
+        for (int i = 0; i < 40; i++) {
+            Event event = channel.take();
+            Assert.assertEquals(String.valueOf(i), event.getHeaders().get(EventConstants.HEADER_KEY_MSG_TIME));
+        }
+        tx.commit();
+        tx.close();
+        // only the segment being written is left
+        Assert.assertTrue(channel.getUsedDiskSize() <= 1024L * 1024L);
+        channel.stop();
+    }
+
+    @Test
+    public void testRestartFromCheckpoint() {
+        DiskBufferChannel channel = newChannel();
+        putLargeEvents(channel, 40);
+        Transaction tx = channel.getTransaction();
+        tx.begin();
+        for (int i = 0; i < 20; i++) {
+            Assert.assertNotNull(channel.take());
+        }
+        tx.commit();
+        tx.close();
+        // taken but not committed before the restart
+        tx = channel.getTransaction();
+        tx.begin();
+        for (int i = 0; i < 5; i++) {
+            Assert.assertNotNull(channel.take());
+        }
+        channel.stop();
+        // the committed events are not read again, the uncommitted ones are
+        channel = newChannel();
+        tx = channel.getTransaction();
+        tx.begin();
+        for (int i = 20; i < 40; i++) {
+            Event event = channel.take();
+            Assert.assertNotNull(event);
+            Assert.assertEquals(String.valueOf(i), event.getHeaders().get(EventConstants.HEADER_KEY_MSG_TIME));
+        }
+        Assert.assertNull(channel.take());
+        tx.commit();
+        tx.close();
+        Assert.assertEquals(0L, channel.getUsedDiskSize());
+        channel.stop();
+    }
+
+    @Test
+    public void testConcurrentPacksAckedAfterSync() throws Exception {
+        DiskBufferChannel channel = newChannel();
+        int threadNum = 4;
+        int packNum = 50;
+        AtomicInteger acked = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadNum; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < packNum; i++) {
+                    List<ProxyEvent> events = new ArrayList<>();
+                    events.add(newEvent(i));
+                    events.add(newEvent(i));
+                    channel.directPut(new ProxyPackEvent("group", "stream", events, result -> {
+                        if (result == ResultCode.SUCCUSS) {
+                            acked.incrementAndGet();
+                        }
+                    }));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(threadNum * packNum, acked.get());
+        // every pack acknowledged has been forced to disk
+        Object segment = Whitebox.getInternalState(channel, "writeSegment");
+        Assert.assertEquals((long) Whitebox.getInternalState(segment, "committedSize"),
+                (long) Whitebox.getInternalState(segment, "syncedSize"));
+        Transaction tx = channel.getTransaction();
+        tx.begin();
+        for (int i = 0; i < threadNum * packNum * 2; i++) {
+            Assert.assertNotNull(channel.take());
+        }
+        Assert.assertNull(channel.take());
+        tx.commit();
+        tx.close();
+        channel.stop();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.sink.common;
+
+import org.apache.inlong.dataproxy.config.pojo.MQClusterConfig;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test MsgDedupHandler
+ */
+public class TestMsgDedupHandler {
+
+    @Test
+    public void testBloomFilterEngine() {
+        MsgDedupHandler handler = new MsgDedupHandler();
+        handler.start(true, 600000, 100000, true, 0.001);
+        // the expected count is spread over 10 buckets, put one bucket of seqIds
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (handler.judgeDupAndPutMsgSeqId("seq-" + i)) {
+                falsePositives++;
+            }
+        }
+        Assert.assertTrue(falsePositives < 50);
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(handler.judgeDupAndPutMsgSeqId("seq-" + i));
+        }
+        // an invalidated seqId is accepted once more
+        handler.invalidMsgSeqId("seq-1");
+        Assert.assertFalse(handler.judgeDupAndPutMsgSeqId("seq-1"));
+        Assert.assertTrue(handler.judgeDupAndPutMsgSeqId("seq-1"));
+        Assert.assertTrue(handler.getCacheData().hitCount() >= 1001);
+        Assert.assertTrue(handler.getCacheStatsInfo().contains("memoryBytes="));
+    }
+
+    @Test
+    public void testBloomFilterEngineByConfig() {
+        MQClusterConfig config = new MQClusterConfig();
+        config.put("max_survived_time", "60000");
+        config.put("max_survived_size", "10000");
+        config.put("dedup_use_bloom_filter", "true");
+        config.put("dedup_bloom_filter_fpp", "0.01");
+        MsgDedupHandler handler = new MsgDedupHandler();
+        handler.start(true, config);
+        Assert.assertTrue(handler.getCacheStatsInfo().contains("memoryBytes="));
+        Assert.assertFalse(handler.judgeDupAndPutMsgSeqId("seq-1"));
+        Assert.assertTrue(handler.judgeDupAndPutMsgSeqId("seq-1"));
+    }
+
+    @Test
+    public void testBloomFilterExpireAfterAccess() throws Exception {
+        // 10 buckets of 100ms
+        TimeBucketedBloomFilter filter = new TimeBucketedBloomFilter(1000L, 10, 1000L, 0.001);
+        Assert.assertFalse(filter.mightContainAndPut(1L, 2L));
+        Assert.assertFalse(filter.mightContainAndPut(3L, 4L));
+        // the key seen again and again stays, the other one expires
+        long endTime = System.currentTimeMillis() + 2500L;
+        while (System.currentTimeMillis() < endTime) {
+            Assert.assertTrue(filter.mightContainAndPut(1L, 2L));
+            Thread.sleep(50L);
+        }
+        Assert.assertFalse(filter.mightContainAndPut(3L, 4L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBloomFilterTooLarge() {
+        new TimeBucketedBloomFilter(1000L, 1, 1000000000L, 0.0001);
+    }
+}
@@ -19,11 +19,19 @@ package org.apache.inlong.dataproxy.source;
 
 import org.apache.inlong.dataproxy.consts.ConfigConstants;
 
+import io.netty.channel.epoll.Epoll;
 import org.apache.flume.Context;
+import org.apache.flume.channel.ChannelProcessor;
+import org.apache.flume.channel.ReplicatingChannelSelector;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class UdpSourceTest {
@@ -40,5 +48,65 @@ public class UdpSourceTest {
         udpSource.configure(context);
         int threadNum = udpSource.getContext().getInteger(ConfigConstants.MAX_THREADS);
         Assert.assertEquals(threadNum, 32);
+        Assert.assertEquals(UdpMessageHandler.class.getName(), udpSource.getMessageHandlerName());
+    }
+
+    @Test
+    public void receiveOnMultipleSocketsTest() throws Exception {
+        int port;
+        try (DatagramSocket probe = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            port = probe.getLocalPort();
+        }
+        Map<String, String> map = new HashMap<>();
+        map.put(ConfigConstants.CONFIG_PORT, String.valueOf(port));
+        map.put(ConfigConstants.CONFIG_HOST, "127.0.0.1");
+        map.put(SourceConstants.SRCCXT_UDP_REUSE_PORT, "true");
+        map.put(SourceConstants.SRCCXT_UDP_SOCKET_COUNT, "4");
+        SimpleUdpSource udpSource = new SimpleUdpSource();
+        udpSource.setName("udp-source-test");
+        udpSource.setChannelProcessor(new ChannelProcessor(new ReplicatingChannelSelector()));
+        udpSource.configure(new Context(map));
+        udpSource.start();
+        try {
+            int expectedSockets = Epoll.isAvailable() ? 4 : 1;
+            Assert.assertEquals(expectedSockets, udpSource.getBoundSocketCount());
+            // send from several client ports so that the kernel spreads the datagrams over the sockets,
+            // the datagrams declare a length longer than their content, so every one is dropped
+            byte[] content = new byte[]{0, 0, 0, 100, 1, 2, 3, 4};
+            int clientCount = 8;
+            int datagramsPerClient = 20;
+            long total = 0;
+            List<DatagramSocket> clients = new ArrayList<>();
+            try {
+                for (int i = 0; i < clientCount; i++) {
+                    DatagramSocket client = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+                    clients.add(client);
+                    for (int j = 0; j < datagramsPerClient; j++) {
+                        client.send(new DatagramPacket(content, content.length,
+                                InetAddress.getLoopbackAddress(), port));
+                    }
+                    // wait for each burst so that the socket buffers never overflow
+                    total += datagramsPerClient;
+                    waitDropped(udpSource, total);
+                }
+            } finally {
+                for (DatagramSocket client : clients) {
+                    client.close();
+                }
+            }
+            Assert.assertEquals(total, udpSource.getReceivedDatagramCount());
+            Assert.assertEquals(total, udpSource.getDroppedDatagramCount());
+        } finally {
+            udpSource.stop();
+        }
+        Assert.assertEquals(0, udpSource.getBoundSocketCount());
+        Assert.assertTrue(udpSource.getAllChannels().isEmpty());
+    }
+
+    private void waitDropped(SimpleUdpSource udpSource, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000L;
+        while (udpSource.getDroppedDatagramCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
     }
 }
@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.dataproxy.source.httpMsg;
+
+import org.apache.inlong.common.enums.DataProxyErrCode;
+import org.apache.inlong.dataproxy.channel.BufferQueueChannel;
+import org.apache.inlong.dataproxy.config.ConfigManager;
+import org.apache.inlong.dataproxy.source.BaseSource;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpVersion;
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.Transaction;
+import org.apache.flume.channel.ChannelProcessor;
+import org.apache.flume.channel.ReplicatingChannelSelector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+
+/**
+ * Test HttpBatchStreamHandler
+ */
+@RunWith(PowerMockRunner.class)
+@PowerMockIgnore("javax.management.*")
+@PrepareForTest({ConfigManager.class})
+public class HttpBatchStreamHandlerTest {
+
+    private static final String BATCH_URI = "/dataproxy/batch?groupId=group&streamId=stream";
+
+    private BufferQueueChannel bufferChannel;
+    private BaseSource source;
+
+    @Before
+    public void setUp() {
+        ConfigManager configManager = PowerMockito.mock(ConfigManager.class);
+        PowerMockito.mockStatic(ConfigManager.class);
+        PowerMockito.when(ConfigManager.getInstance()).thenReturn(configManager);
+        PowerMockito.when(configManager.isMqClusterReady()).thenReturn(true);
+        PowerMockito.when(configManager.getTopicName(eq("group"), eq("stream"))).thenReturn("topic");
+        source = PowerMockito.mock(BaseSource.class);
+        PowerMockito.when(source.getCachedSrcName()).thenReturn("http-source");
+        PowerMockito.when(source.getMaxMsgLength()).thenReturn(16);
+        setChannelCapacity(100);
+    }
+
+    private void setChannelCapacity(int maxCount) {
+        Map<String, String> params = new HashMap<>();
+        params.put(BufferQueueChannel.KEY_MAX_BUFFERQUEUE_COUNT, String.valueOf(maxCount));
+        bufferChannel = new BufferQueueChannel();
+        bufferChannel.setName("buffer-channel");
+        bufferChannel.configure(new Context(params));
+        ReplicatingChannelSelector selector = new ReplicatingChannelSelector();
+        selector.setChannels(Collections.singletonList(bufferChannel));
+        selector.configure(new Context());
+        PowerMockito.when(source.getCachedChProcessor()).thenReturn(new ChannelProcessor(selector));
+    }
+
+    private HttpRequest newRequest(String uri, String contentType) {
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, uri);
+        if (contentType != null) {
+            request.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
+        }
+        return request;
+    }
+
+    private static DefaultHttpContent chunk(String content) {
+        return new DefaultHttpContent(Unpooled.copiedBuffer(content, StandardCharsets.UTF_8));
+    }
+
+    private static JsonObject readResponse(EmbeddedChannel channel) {
+        FullHttpResponse response = channel.readOutbound();
+        Assert.assertNotNull(response);
+        try {
+            return JsonParser.parseString(response.content().toString(StandardCharsets.UTF_8)).getAsJsonObject();
+        } finally {
+            response.release();
+        }
+    }
+
+    private int takeEvents() {
+        int count = 0;
+        Transaction tx = bufferChannel.getTransaction();
+        tx.begin();
+        Event event;
+        while ((event = bufferChannel.take()) != null) {
+            Assert.assertEquals("topic", event.getHeaders().get("topic"));
+            count++;
+        }
+        tx.commit();
+        tx.close();
+        return count;
+    }
+
+    @Test
+    public void testChunkedLines() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpBatchStreamHandler(source));
+        channel.writeInbound(newRequest(BATCH_URI, null));
+        // records split over the chunks, with crlf and empty lines
+        channel.writeInbound(chunk("rec-1\nre"));
+        channel.writeInbound(chunk("c-2\r\nrec-3\n\n"));
+        Assert.assertNull(channel.readOutbound());
+        channel.writeInbound(new DefaultLastHttpContent(Unpooled.copiedBuffer("rec-4", StandardCharsets.UTF_8)));
+        JsonObject result = readResponse(channel);
+        Assert.assertEquals(String.valueOf(DataProxyErrCode.SUCCESS.getErrCode()), result.get("code").getAsString());
+        Assert.assertEquals(4, result.get("cnt").getAsInt());
+        Assert.assertEquals(0, result.get("dropped").getAsInt());
+        // three records of 5 bytes per pack of at most 16 bytes
+        Assert.assertEquals(2, result.getAsJsonArray("acks").size());
+        Assert.assertEquals(2, takeEvents());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testFullChannel() throws Exception {
+        setChannelCapacity(1);
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpBatchStreamHandler(source));
+        channel.writeInbound(newRequest(BATCH_URI, null));
+        channel.writeInbound(new DefaultLastHttpContent(
+                Unpooled.copiedBuffer("record-1\nrecord-2\nrecord-3\nrecord-4\nrecord-5\nrecord-6\n",
+                        StandardCharsets.UTF_8)));
+        // two records per pack, the first pack fills the channel,
+        // the second one waits without blocking the event loop
+        Assert.assertNull(channel.readOutbound());
+        Assert.assertFalse(channel.config().isAutoRead());
+        int taken = 0;
+        FullHttpResponse response = null;
+        for (int i = 0; i < 20 && response == null; i++) {
+            taken += takeEvents();
+            Thread.sleep(60L);
+            channel.runScheduledPendingTasks();
+            response = channel.readOutbound();
+        }
+        Assert.assertNotNull(response);
+        JsonObject result = JsonParser.parseString(
+                response.content().toString(StandardCharsets.UTF_8)).getAsJsonObject();
+        response.release();
+        Assert.assertEquals(String.valueOf(DataProxyErrCode.SUCCESS.getErrCode()), result.get("code").getAsString());
+        Assert.assertEquals(6, result.get("cnt").getAsInt());
+        Assert.assertEquals(3, result.getAsJsonArray("acks").size());
+        Assert.assertTrue(channel.config().isAutoRead());
+        Assert.assertEquals(3, taken + takeEvents());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testMalformedRecords() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpBatchStreamHandler(source));
+        // an over-sized line is dropped, the lines around it are kept
+        channel.writeInbound(newRequest(BATCH_URI, null));
+        channel.writeInbound(chunk("rec-1\nthis-line-is-longer-than-the-max\n"));
+        channel.writeInbound(new DefaultLastHttpContent(Unpooled.copiedBuffer("rec-2\n", StandardCharsets.UTF_8)));
+        JsonObject result = readResponse(channel);
+        Assert.assertEquals(String.valueOf(DataProxyErrCode.BODY_EXCEED_MAX_LEN.getErrCode()),
+                result.get("code").getAsString());
+        Assert.assertEquals(2, result.get("cnt").getAsInt());
+        Assert.assertEquals(1, result.get("dropped").getAsInt());
+        // a malformed varint length drops the rest of the body
+        channel.writeInbound(newRequest(BATCH_URI, "application/x-protobuf"));
+        byte[] body = new byte[]{3, 'a', 'b', 'c', (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff,
+                (byte) 0xff, 1, 'x'};
+        channel.writeInbound(new DefaultLastHttpContent(Unpooled.wrappedBuffer(body)));
+        result = readResponse(channel);
+        Assert.assertEquals(1, result.get("cnt").getAsInt());
+        Assert.assertEquals(1, result.get("dropped").getAsInt());
+        Assert.assertEquals(2, takeEvents());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testErrorMessageEscaped() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpBatchStreamHandler(source));
+        PowerMockito.when(ConfigManager.getInstance().getTopicName(anyString(), eq("a\"b"))).thenReturn(null);
+        channel.writeInbound(newRequest("/dataproxy/batch?groupId=group&streamId=a%22b", null));
+        JsonObject result = readResponse(channel);
+        Assert.assertEquals(String.valueOf(DataProxyErrCode.TOPIC_IS_BLANK.getErrCode()),
+                result.get("code").getAsString());
+        Assert.assertTrue(result.get("msg").getAsString().contains("streamId(a\"b)"));
+        channel.finishAndReleaseAll();
+    }
+}
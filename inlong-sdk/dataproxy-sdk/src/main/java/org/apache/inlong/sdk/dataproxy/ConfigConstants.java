@@ -71,6 +71,14 @@ public class ConfigConstants {
     public static int DEFAULT_VIRTUAL_NODE = 1000;
     public static int DEFAULT_RANDOM_MAX_RETRY = 1000;
 
+    public static final long DEFAULT_LINGER_MS = 5;
+    public static final int DEFAULT_BATCH_BYTES = 64 * 1024;
+    public static final long DEFAULT_ACCUMULATE_MAX_BYTES = 32 * 1024 * 1024L;
+
+    public static final long DEFAULT_SPOOL_MAX_BYTES = 1024 * 1024 * 1024L;
+    public static final long DEFAULT_SPOOL_SEGMENT_BYTES = 64 * 1024 * 1024L;
+    public static final int DEFAULT_SPOOL_REPLAY_RATE = 5000;
+
     public static String HTTP = "http://";
     public static String HTTPS = "https://";
 
@@ -21,6 +21,7 @@ import org.apache.inlong.common.constant.ProtocolType;
 import org.apache.inlong.common.msg.AttributeConstants;
 import org.apache.inlong.common.util.MessageUtils;
 import org.apache.inlong.sdk.dataproxy.codec.EncodeObject;
+import org.apache.inlong.sdk.dataproxy.codec.ProtocolEncoder;
 import org.apache.inlong.sdk.dataproxy.common.FileCallback;
 import org.apache.inlong.sdk.dataproxy.common.SendMessageCallback;
 import org.apache.inlong.sdk.dataproxy.common.SendResult;
@@ -37,6 +38,7 @@ import org.apache.inlong.sdk.dataproxy.utils.ProxyUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -53,9 +55,10 @@ public class DefaultMessageSender implements MessageSender {
             new ConcurrentHashMap<>();
     private static final AtomicBoolean MANAGER_FETCHER_THREAD_STARTED = new AtomicBoolean(false);
     private static ManagerFetcherThread managerFetcherThread;
-    private static final SequentialID idGenerator = new SequentialID(Utils.getLocalIp());
+    private static final SequentialID idGenerator = SequentialID.getShared();
     private final Sender sender;
     private final IndexCollectThread indexCol;
+    private final RecordAccumulator accumulator;
     /* Store index <groupId_streamId,cnt> */
     private final Map<String, Long> storeIndex = new ConcurrentHashMap<String, Long>();
     private String groupId;
@@ -76,6 +79,10 @@ public class DefaultMessageSender implements MessageSender {
         groupId = configure.getInlongGroupId();
         indexCol = new IndexCollectThread(storeIndex);
         indexCol.start();
+        accumulator = configure.isEnableAccumulate()
+                ? new RecordAccumulator(this, configure.getLingerMs(), configure.getBatchBytes(),
+                        configure.getAccumulateMaxBytes())
+                : null;
 
         if (configure.isEnableSaveManagerVIps()
                 && configure.isRequestByHttp()
@@ -460,12 +467,16 @@ public class DefaultMessageSender implements MessageSender {
         if (!ProxyUtils.isBodyValid(body) || !ProxyUtils.isDtValid(dt)) {
             throw new ProxysdkException(SendResult.INVALID_ATTRIBUTES.toString());
         }
-        addIndexCnt(groupId, streamId, 1);
-
         String proxySend = "";
         if (isProxySend) {
             proxySend = AttributeConstants.MESSAGE_PROXY_SEND + "=true";
         }
+        if (accumulator != null && msgtype == 7) {
+            accumulator.append(callback, body, groupId, streamId, dt, proxySend, timeout, timeUnit);
+            return;
+        }
+        addIndexCnt(groupId, streamId, 1);
+
         boolean isCompressEnd = (isCompress && (body.length > cpsSize));
         if (msgtype == 7 || msgtype == 8) {
             EncodeObject encodeObject = new EncodeObject(body, this.getMsgtype(), isCompressEnd, isReport,
@@ -522,11 +533,15 @@ public class DefaultMessageSender implements MessageSender {
         if (!ProxyUtils.isBodyValid(body) || !ProxyUtils.isDtValid(dt) || !ProxyUtils.isAttrKeysValid(extraAttrMap)) {
             throw new ProxysdkException(SendResult.INVALID_ATTRIBUTES.toString());
         }
-        addIndexCnt(groupId, streamId, 1);
         if (isProxySend) {
             extraAttrMap.put(AttributeConstants.MESSAGE_PROXY_SEND, "true");
         }
         StringBuilder attrs = MessageUtils.convertAttrToStr(extraAttrMap);
+        if (accumulator != null && msgtype == 7) {
+            accumulator.append(callback, body, groupId, streamId, dt, attrs.toString(), timeout, timeUnit);
+            return;
+        }
+        addIndexCnt(groupId, streamId, 1);
 
         boolean isCompressEnd = (isCompress && (body.length > cpsSize));
         if (msgtype == 7 || msgtype == 8) {
@@ -667,6 +682,78 @@ public class DefaultMessageSender implements MessageSender {
 
     }
 
+    /**
+     * encode and compress a batch of messages once, the result can be sent several times
+     * by asyncSendPackedMessage, only supported by msgtype 7
+     *
+     * @param bodyList list of messages
+     * @return the packed body
+     * @throws ProxysdkException
+     */
+    public byte[] packMessage(List<byte[]> bodyList) throws ProxysdkException {
+        if (msgtype != 7) {
+            throw new ProxysdkException("packed message is only supported by msg type 7");
+        }
+        if (!ProxyUtils.isBodyValid(bodyList)) {
+            throw new ProxysdkException(SendResult.INVALID_ATTRIBUTES.toString());
+        }
+        try {
+            return ProtocolEncoder.packBodyList(bodyList, isSupportLF, isCompress);
+        } catch (IOException e) {
+            throw new ProxysdkException(e);
+        }
+    }
+
+    /**
+     * async send a batch of messages packed by packMessage
+     *
+     * @param callback callback can be null
+     * @param packedBody the body returned by packMessage
+     * @param cnt message count of the packed body
+     * @param groupId groupId
+     * @param streamId streamId
+     * @param dt data report time
+     * @param msgUUID msg uuid
+     * @param timeout
+     * @param timeUnit
+     * @param extraAttrMap extra attributes
+     * @param isProxySend true: dataproxy doesn't return response message until data is sent to MQ
+     * @throws ProxysdkException
+     */
+    public void asyncSendPackedMessage(SendMessageCallback callback,
+            byte[] packedBody, int cnt, String groupId, String streamId, long dt, String msgUUID,
+            long timeout, TimeUnit timeUnit,
+            Map<String, String> extraAttrMap, boolean isProxySend) throws ProxysdkException {
+        dt = ProxyUtils.covertZeroDt(dt);
+        if (msgtype != 7 || packedBody == null || packedBody.length == 0
+                || cnt <= 0 || cnt > RecordAccumulator.MAX_BATCH_MESSAGES
+                || !ProxyUtils.isDtValid(dt) || !ProxyUtils.isAttrKeysValid(extraAttrMap)) {
+            throw new ProxysdkException(SendResult.INVALID_ATTRIBUTES.toString());
+        }
+        if (isProxySend) {
+            extraAttrMap.put(AttributeConstants.MESSAGE_PROXY_SEND, "true");
+        }
+        StringBuilder attrs = MessageUtils.convertAttrToStr(extraAttrMap);
+        asyncSendPacked(callback, packedBody, cnt, groupId, streamId, dt, attrs.toString(), msgUUID, timeout,
+                timeUnit);
+    }
+
+    /**
+     * async send a packed body with the attributes already joined, used by the accumulator
+     */
+    void asyncSendPacked(SendMessageCallback callback, byte[] packedBody, int cnt, String groupId,
+            String streamId, long dt, String attrs, String msgUUID, long timeout, TimeUnit timeUnit)
+            throws ProxysdkException {
+        addIndexCnt(groupId, streamId, cnt);
+        EncodeObject encodeObject = new EncodeObject(packedBody, this.getMsgtype(),
+                isCompress, isReport, isGroupIdTransfer, dt / 1000, idGenerator.getNextInt(),
+                groupId, streamId, attrs);
+        encodeObject.setSupportLF(isSupportLF);
+        encodeObject.setPacked(true);
+        encodeObject.setCnt(cnt);
+        sender.asyncSendMessage(encodeObject, callback, msgUUID, timeout, timeUnit);
+    }
+
     /**
      * asyncSendMessage
      *
@@ -853,6 +940,9 @@ public class DefaultMessageSender implements MessageSender {
 
     public void close() {
         LOGGER.info("ready to close resources, may need five minutes !");
+        if (accumulator != null) {
+            accumulator.close();
+        }
         if (sender.getClusterId() != -1) {
             CACHE_SENDER.remove(sender.getClusterId());
         }
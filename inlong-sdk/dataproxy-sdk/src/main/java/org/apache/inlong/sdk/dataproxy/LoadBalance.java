@@ -23,7 +23,9 @@ public enum LoadBalance {
     ROBIN("robin", 1),
     CONSISTENCY_HASH("consistency hash", 2),
     WEIGHT_RANDOM("weight random", 3),
-    WEIGHT_ROBIN("weight robin", 4);
+    WEIGHT_ROBIN("weight robin", 4),
+    // the less loaded of two random clients, by the bytes in flight and the ack latency
+    LEAST_LOAD("least load", 5);
 
     private String name;
     private int index;
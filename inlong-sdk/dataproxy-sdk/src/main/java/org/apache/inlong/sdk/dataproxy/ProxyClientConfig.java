@@ -100,6 +100,30 @@ public class ProxyClientConfig {
 
     private int maxRetry;
 
+    // accumulate the single messages sent asynchronously into batches, only for msg type 7
+    private boolean enableAccumulate = false;
+    // max time in ms a batch waits for more messages
+    private long lingerMs = ConfigConstants.DEFAULT_LINGER_MS;
+    // a batch is sent once its bytes reach this size
+    private int batchBytes = ConfigConstants.DEFAULT_BATCH_BYTES;
+    // max bytes accumulated and waiting for the ack
+    private long accumulateMaxBytes = ConfigConstants.DEFAULT_ACCUMULATE_MAX_BYTES;
+
+    // spool the async messages on disk when no proxy is reachable, only for msg type 7 and 8
+    private boolean enableSpool = false;
+    private String spoolDir = System.getProperty("user.dir") + "/.inlong/spool";
+    // max bytes of the spool files
+    private long spoolMaxBytes = ConfigConstants.DEFAULT_SPOOL_MAX_BYTES;
+    private long spoolSegmentBytes = ConfigConstants.DEFAULT_SPOOL_SEGMENT_BYTES;
+    // max messages replayed per second once the proxies are reachable
+    private int spoolReplayRate = ConfigConstants.DEFAULT_SPOOL_REPLAY_RATE;
+
+    // share the io threads with the other senders of the process instead of creating its own,
+    // the connections and the other threads of the sender are not shared
+    private boolean enableSharedRuntime = false;
+    // io threads of the shared runtime, taken from the first sender using it
+    private int sharedIoThreadNum = Runtime.getRuntime().availableProcessors();
+
     /* pay attention to the last url parameter ip */
     public ProxyClientConfig(String localHost, boolean requestByHttp, String managerIp,
             int managerPort, String inlongGroupId, String authSecretId, String authSecretKey,
@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy;
+
+import org.apache.inlong.sdk.dataproxy.common.SendMessageCallback;
+import org.apache.inlong.sdk.dataproxy.common.SendResult;
+import org.apache.inlong.sdk.dataproxy.network.ProxysdkException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulate the single messages sent asynchronously into batches.
+ *
+ * The messages of the same groupId, streamId, data time in seconds and attributes go
+ * into the same batch. A batch is sent once its bytes reach batchBytes, its messages reach
+ * the max count of a frame or it has waited for lingerMs. It is encoded and compressed once
+ * as a single frame, and the callbacks of its messages are called back with the ack of the
+ * frame. The bytes accumulated and waiting for the ack are limited by accumulateMaxBytes.
+ */
+public class RecordAccumulator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecordAccumulator.class);
+    private static final String KEY_SEPARATOR = "\u0001";
+    // the message count of a frame is encoded in 2 bytes
+    static final int MAX_BATCH_MESSAGES = 0xffff;
+
+    private final DefaultMessageSender sender;
+    private final long lingerMs;
+    private final int batchBytes;
+    private final long maxBytes;
+    private final AtomicLong bufferedBytes = new AtomicLong(0);
+    private final ConcurrentHashMap<String, Batch> batches = new ConcurrentHashMap<>();
+    private final Thread lingerThread;
+    private volatile boolean closed = false;
+
+    RecordAccumulator(DefaultMessageSender sender, long lingerMs, int batchBytes, long maxBytes) {
+        this.sender = sender;
+        this.lingerMs = Math.max(1, lingerMs);
+        this.batchBytes = batchBytes;
+        this.maxBytes = maxBytes;
+        this.lingerThread = new Thread(this::lingerLoop, "inlong-sdk-accumulator");
+        this.lingerThread.setDaemon(true);
+        this.lingerThread.start();
+    }
+
+    /**
+     * add a message to its batch, the batch is sent if full
+     *
+     * @param callback callback of the message, can be null
+     * @param body message data
+     * @param groupId groupId
+     * @param streamId streamId
+     * @param dt data report time in ms
+     * @param attrs the attributes of the frame
+     * @param timeout send timeout of the batch
+     * @param timeUnit unit of the timeout
+     * @throws ProxysdkException if closed or too many bytes accumulated
+     */
+    public void append(SendMessageCallback callback, byte[] body, String groupId, String streamId, long dt,
+            String attrs, long timeout, TimeUnit timeUnit) throws ProxysdkException {
+        if (closed) {
+            throw new ProxysdkException("accumulator is closed");
+        }
+        if (bufferedBytes.addAndGet(body.length) > maxBytes) {
+            bufferedBytes.addAndGet(-body.length);
+            throw new ProxysdkException(SendResult.ASYNC_CALLBACK_BUFFER_FULL.toString());
+        }
+        String key = groupId + KEY_SEPARATOR + streamId + KEY_SEPARATOR + dt / 1000 + KEY_SEPARATOR + attrs;
+        Batch[] full = new Batch[2];
+        boolean[] rejected = new boolean[1];
+        batches.compute(key, (k, batch) -> {
+            // checked again under the lock of the key, a batch added once closed is never drained
+            if (closed) {
+                rejected[0] = true;
+                return batch;
+            }
+            if (batch != null && (batch.bytes + body.length > batchBytes
+                    || batch.bodies.size() >= MAX_BATCH_MESSAGES)) {
+                full[0] = batch;
+                batch = null;
+            }
+            if (batch == null) {
+                batch = new Batch(groupId, streamId, dt, attrs, timeout, timeUnit);
+            }
+            batch.add(body, callback);
+            if (batch.bytes >= batchBytes || batch.bodies.size() >= MAX_BATCH_MESSAGES) {
+                full[1] = batch;
+                return null;
+            }
+            return batch;
+        });
+        if (rejected[0]) {
+            bufferedBytes.addAndGet(-body.length);
+            throw new ProxysdkException("accumulator is closed");
+        }
+        for (Batch batch : full) {
+            if (batch != null) {
+                send(batch);
+            }
+        }
+    }
+
+    /**
+     * send all the batches and stop accumulating
+     */
+    public void close() {
+        closed = true;
+        lingerThread.interrupt();
+        drain(Long.MAX_VALUE);
+    }
+
+    public long getBufferedBytes() {
+        return bufferedBytes.get();
+    }
+
+    private void lingerLoop() {
+        long interval = Math.max(1, lingerMs / 2);
+        while (!closed) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(interval);
+            } catch (InterruptedException e) {
+                break;
+            }
+            try {
+                drain(System.currentTimeMillis() - lingerMs);
+            } catch (Throwable e) {
+                LOGGER.error("send accumulated batches error", e);
+            }
+        }
+    }
+
+    /**
+     * send the batches created before the deadline
+     */
+    private void drain(long deadline) {
+        for (Map.Entry<String, Batch> entry : batches.entrySet()) {
+            if (entry.getValue().createTime > deadline) {
+                continue;
+            }
+            Batch[] ready = new Batch[1];
+            batches.computeIfPresent(entry.getKey(), (k, batch) -> {
+                if (batch.createTime > deadline) {
+                    return batch;
+                }
+                ready[0] = batch;
+                return null;
+            });
+            if (ready[0] != null) {
+                send(ready[0]);
+            }
+        }
+    }
+
+    private void send(Batch batch) {
+        try {
+            byte[] packedBody = sender.packMessage(batch.bodies);
+            sender.asyncSendPacked(batch, packedBody, batch.bodies.size(), batch.groupId, batch.streamId,
+                    batch.dt, batch.attrs, null, batch.timeout, batch.timeUnit);
+        } catch (Throwable e) {
+            LOGGER.warn("send batch of {} messages error", batch.bodies.size(), e);
+            batch.onException(e);
+        }
+    }
+
+    /**
+     * messages sent in the same frame, the callback of the frame calls back each message
+     */
+    private class Batch implements SendMessageCallback {
+
+        private final String groupId;
+        private final String streamId;
+        private final long dt;
+        private final String attrs;
+        private final long timeout;
+        private final TimeUnit timeUnit;
+        private final long createTime = System.currentTimeMillis();
+        private final List<byte[]> bodies = new ArrayList<>();
+        private final List<SendMessageCallback> callbacks = new ArrayList<>();
+        private int bytes = 0;
+
+        private Batch(String groupId, String streamId, long dt, String attrs, long timeout, TimeUnit timeUnit) {
+            this.groupId = groupId;
+            this.streamId = streamId;
+            this.dt = dt;
+            this.attrs = attrs;
+            this.timeout = timeout;
+            this.timeUnit = timeUnit;
+        }
+
+        private void add(byte[] body, SendMessageCallback callback) {
+            bodies.add(body);
+            callbacks.add(callback);
+            bytes += body.length;
+        }
+
+        @Override
+        public void onMessageAck(SendResult result) {
+            bufferedBytes.addAndGet(-bytes);
+            for (SendMessageCallback callback : callbacks) {
+                if (callback == null) {
+                    continue;
+                }
+                try {
+                    callback.onMessageAck(result);
+                } catch (Throwable e) {
+                    LOGGER.error("message ack callback error", e);
+                }
+            }
+        }
+
+        @Override
+        public void onException(Throwable e) {
+            bufferedBytes.addAndGet(-bytes);
+            for (SendMessageCallback callback : callbacks) {
+                if (callback == null) {
+                    continue;
+                }
+                try {
+                    callback.onException(e);
+                } catch (Throwable t) {
+                    LOGGER.error("message exception callback error", t);
+                }
+            }
+        }
+    }
+}
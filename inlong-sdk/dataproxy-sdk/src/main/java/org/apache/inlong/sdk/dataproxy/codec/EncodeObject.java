@@ -54,6 +54,8 @@ public class EncodeObject {
     private boolean isAuth = false;
     private boolean isEncrypt = false;
     private boolean isCompress = true;
+    // the body bytes are a body list already encoded and compressed, msgtype=7
+    private boolean isPacked = false;
     private int groupIdNum;
     private int streamIdNum;
     private String groupId;
@@ -447,10 +449,21 @@ public class EncodeObject {
         this.cnt = cnt;
     }
 
+    public boolean isPacked() {
+        return isPacked;
+    }
+
+    public void setPacked(boolean packed) {
+        isPacked = packed;
+    }
+
     public int getRealCnt() {
         if (bodylist != null) {
             return bodylist.size();
         }
+        if (isPacked && cnt > 0) {
+            return cnt;
+        }
         return 1;
     }
 
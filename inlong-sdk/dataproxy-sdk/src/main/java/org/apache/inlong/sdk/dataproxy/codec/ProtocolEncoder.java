@@ -24,46 +24,81 @@ import org.apache.inlong.sdk.dataproxy.utils.EncryptUtil;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
+import io.netty.util.concurrent.FastThreadLocal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xerial.snappy.Snappy;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
-import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.apache.inlong.sdk.dataproxy.ConfigConstants.FLAG_ALLOW_AUTH;
 import static org.apache.inlong.sdk.dataproxy.ConfigConstants.FLAG_ALLOW_COMPRESS;
 import static org.apache.inlong.sdk.dataproxy.ConfigConstants.FLAG_ALLOW_ENCRYPT;
 
+/**
+ * Encode the messages into the frames of the proxy protocol.
+ *
+ * The bodies are written straight into the frame buffer taken from the channel allocator.
+ * A body to compress is written into a direct scratch buffer of the encoding thread and
+ * compressed by snappy into the frame buffer, so no intermediate arrays are created.
+ * Only an encrypted body is built as an array, as the cipher requires.
+ */
 public class ProtocolEncoder extends MessageToMessageEncoder<EncodeObject> {
 
     private static final Logger logger = LoggerFactory
             .getLogger(ProtocolEncoder.class);
 
+    // each body is prefixed by its length
+    private static final int LAYOUT_LENGTH_PREFIXED = 0;
+    // the bodies are joined by '\n' and prefixed by the total length
+    private static final int LAYOUT_JOINED_LF = 1;
+    // each body is followed by '\n'
+    private static final int LAYOUT_LINES = 2;
+    // the bodies as they are
+    private static final int LAYOUT_RAW = 3;
+    private static final byte LF = '\n';
+    private static final int SCRATCH_INIT_SIZE = 64 * 1024;
+    // a larger body uses a pooled buffer instead of growing the scratch
+    private static final int SCRATCH_MAX_SIZE = 4 * 1024 * 1024;
+    private static final FastThreadLocal<ByteBuf> SCRATCH = new FastThreadLocal<ByteBuf>() {
+
+        @Override
+        protected ByteBuf initialValue() {
+            return Unpooled.directBuffer(SCRATCH_INIT_SIZE, SCRATCH_MAX_SIZE);
+        }
+
+        @Override
+        protected void onRemoval(ByteBuf value) {
+            value.release();
+        }
+    };
+
     protected void encode(ChannelHandlerContext ctx,
             EncodeObject message, List<Object> out) throws Exception {
         ByteBuf buf = null;
+        ByteBufAllocator alloc = ctx != null ? ctx.alloc() : ByteBufAllocator.DEFAULT;
         try {
             EncodeObject object = message;
             if (object.getMsgtype() == 3) {
-                buf = writeToBuf3(object);
+                buf = writeToBuf3(alloc, object);
             }
             if (object.getMsgtype() == 5) {
-                buf = writeToBuf5(object);
+                buf = writeToBuf5(alloc, object);
             }
 
             if (object.getMsgtype() == 7) {
-                buf = writeToBuf7(object);
+                buf = writeToBuf7(alloc, object);
             }
             if (object.getMsgtype() == 8) {
-                buf = writeToBuf8(object);
+                buf = writeToBuf8(alloc, object);
             }
         } catch (Exception e) {
             logger.error("{}", e.getMessage());
@@ -76,7 +111,7 @@ public class ProtocolEncoder extends MessageToMessageEncoder<EncodeObject> {
         }
     }
 
-    private ByteBuf writeToBuf8(EncodeObject object) {
+    private ByteBuf writeToBuf8(ByteBufAllocator alloc, EncodeObject object) {
         ByteBuf buf = null;
         try {
             String endAttr = object.getCommonattr();
@@ -102,7 +137,7 @@ public class ProtocolEncoder extends MessageToMessageEncoder<EncodeObject> {
                 msgType |= FLAG_ALLOW_AUTH;
             }
             int totalLength = 1 + 4 + 1 + 4 + 2 + endAttr.getBytes("utf8").length + 2;
-            buf = ByteBufAllocator.DEFAULT.buffer(4 + totalLength);
+            buf = alloc.buffer(4 + totalLength);
             buf.writeInt(totalLength);
             buf.writeByte(msgType);
             buf.writeInt((int) object.getDt());
@@ -119,14 +154,49 @@ public class ProtocolEncoder extends MessageToMessageEncoder<EncodeObject> {
         return buf;
     }
 
-    private ByteBuf constructBody(byte[] body, EncodeObject object,
-            int totalLength, int cnt) throws UnsupportedEncodingException {
+    /**
+     * Encode and compress a body list once as the body of msgtype 7, so it can be sent
+     * several times by an EncodeObject marked as packed without being rebuilt.
+     *
+     * @param bodyList    the messages
+     * @param isSupportLF whether the messages are joined with '\n'
+     * @param isCompress  whether the body is compressed by snappy
+     * @return the packed body
+     */
+    public static byte[] packBodyList(List<byte[]> bodyList, boolean isSupportLF,
+            boolean isCompress) throws IOException {
+        int layout = isSupportLF ? LAYOUT_JOINED_LF : LAYOUT_LENGTH_PREFIXED;
+        byte[] body = toArray(bodyList, layout);
+        return isCompress ? processCompress(body) : body;
+    }
+
+    private ByteBuf writeToBuf7(ByteBufAllocator alloc, EncodeObject object) {
         ByteBuf buf = null;
-        if (body != null) {
-            if (object.isCompress()) {
-                body = processCompress(body);
+        try {
+            List<byte[]> bodies = null;
+            int layout = LAYOUT_LENGTH_PREFIXED;
+            int cnt = 1;
+            boolean needCompress = object.isCompress();
+            if (object.isPacked()) {
+                // the body list is already encoded and compressed once by packBodyList
+                cnt = object.getCnt();
+                bodies = Collections.singletonList(object.getBodyBytes());
+                layout = LAYOUT_RAW;
+                needCompress = false;
+            } else if (object.getBodyBytes() != null && object.getBodyBytes().length != 0) {
+                // send single message one time
+                bodies = Collections.singletonList(object.getBodyBytes());
+            } else if (object.getBodylist() != null && object.getBodylist().size() != 0) {
+                cnt = object.getCnt() > 0 ? object.getCnt() : object.getBodylist().size();
+                bodies = object.getBodylist();
+                layout = object.isSupportLF() ? LAYOUT_JOINED_LF : LAYOUT_LENGTH_PREFIXED;
+            }
+            if (bodies == null || bodies.get(0) == null) {
+                return null;
             }
+
             String endAttr = object.getCommonattr();
+            byte[] aesKey = null;
             if (object.isEncrypt()) {
                 EncryptConfigEntry encryptEntry = object.getEncryptEntry();
                 if (encryptEntry != null) {
@@ -137,7 +207,7 @@ public class ProtocolEncoder extends MessageToMessageEncoder<EncodeObject> {
                     endAttr = endAttr + "_userName=" + object.getUserName()
                             + "&_encyVersion=" + encryptInfo.getVersion()
                             + "&_encyAesKey=" + encryptInfo.getRsaEncryptedKey();
-                    body = EncryptUtil.aesEncrypt(body, encryptInfo.getAesKey());
+                    aesKey = encryptInfo.getAesKey();
                 }
             }
             if (!object.isGroupIdTransfer()) {
@@ -152,6 +222,7 @@ public class ProtocolEncoder extends MessageToMessageEncoder<EncodeObject> {
                 }
                 endAttr = endAttr + "msgUUID=" + object.getMsgUUID();
             }
+            byte[] attrBytes = endAttr.getBytes(StandardCharsets.UTF_8);
 
             int msgType = 7;
             if (object.isEncrypt()) {
@@ -160,253 +231,242 @@ public class ProtocolEncoder extends MessageToMessageEncoder<EncodeObject> {
             if (object.isCompress()) {
                 msgType |= FLAG_ALLOW_COMPRESS;
             }
-            totalLength = totalLength + body.length + endAttr.getBytes("utf8").length;
-            buf = ByteBufAllocator.DEFAULT.buffer(4 + totalLength);
-            buf.writeInt(totalLength);
+            int extField = (object.isSupportLF() ? 1 << 5 : 0)
+                    | (object.getMessageKey().equals("minute") ? 1 << 4 : 0)
+                    | (object.getMessageKey().equals("file") ? 1 << 3 : 0)
+                    | (!object.isGroupIdTransfer() ? 1 << 2 : 0)
+                    | (object.isReport() ? 1 << 1 : 0);
+            int headerLength = 4 + 1 + 2 + 2 + 2 + 4 + 2 + 4;
+            buf = alloc.buffer(headerLength + maxBodyLength(bodies, layout, needCompress)
+                    + 2 + attrBytes.length + 2);
+            buf.writeInt(0);
             buf.writeByte(msgType);
             buf.writeShort(object.getGroupIdNum());
             buf.writeShort(object.getStreamIdNum());
-            String bitStr = object.isSupportLF() ? "1" : "0";
-            bitStr += (object.getMessageKey().equals("minute")) ? "1" : "0";
-            bitStr += (object.getMessageKey().equals("file")) ? "1" : "0";
-            bitStr += !object.isGroupIdTransfer() ? "1" : "0";
-            bitStr += object.isReport() ? "1" : "0";
-            bitStr += "0";
-            buf.writeShort(Integer.parseInt(bitStr, 2));
+            buf.writeShort(extField);
             buf.writeInt((int) object.getDt());
-
             buf.writeShort(cnt);
-            buf.writeInt(Integer.valueOf(object.getMessageId()));
+            buf.writeInt(Integer.parseInt(object.getMessageId()));
 
-            buf.writeInt(body.length);
-            buf.writeBytes(body);
+            writeBody(alloc, buf, bodies, layout, needCompress, aesKey);
 
-            buf.writeShort(endAttr.getBytes("utf8").length);
-            buf.writeBytes(endAttr.getBytes("utf8"));
+            buf.writeShort(attrBytes.length);
+            buf.writeBytes(attrBytes);
             buf.writeShort(0xee01);
+            buf.setInt(0, buf.writerIndex() - 4);
+        } catch (Exception e) {
+            logger.error("writeToBuf7 has {}", e);
+            buf = releaseQuietly(buf);
         }
         return buf;
     }
 
-    private ByteBuf writeToBuf7(EncodeObject object) {
-        ByteBuf buf = null;
-        try {
-            int totalLength = 1 + 2 + 2 + 2 + 4 + 2 + 4 + 4 + 2 + 2;
-            byte[] body = null;
-            int cnt = 1;
-
-            if (object.getBodylist() != null && object.getBodylist().size() != 0) {
-                if (object.getCnt() > 0) {
-                    cnt = object.getCnt();
-                } else {
-                    cnt = object.getBodylist().size();
-                }
-
-                ByteArrayOutputStream out = new ByteArrayOutputStream();
-                Iterator<byte[]> iter = object.getBodylist().iterator();
-
-                if (object.isSupportLF()) {
-                    ByteArrayOutputStream data = new ByteArrayOutputStream();
-                    int len = object.getBodylist().size();
-                    for (int i = 0; i < len - 1; i++) {
-                        data.write(object.getBodylist().get(i));
-                        data.write("\n".getBytes("utf8"));
-                    }
-                    data.write(object.getBodylist().get(len - 1));
-                    ByteBuffer databuffer = ByteBuffer.allocate(4);
-                    databuffer.putInt(data.toByteArray().length);
-                    out.write(databuffer.array());
-                    out.write(data.toByteArray());
-                } else {
-                    while (iter.hasNext()) {
-                        byte[] entry = iter.next();
-                        ByteBuffer databuffer = ByteBuffer.allocate(4);
-                        databuffer.putInt(entry.length);
-                        out.write(databuffer.array());
-                        out.write(entry);
-                    }
-                }
-                body = out.toByteArray();
-            }
-            // send single message one time
-            if (object.getBodyBytes() != null && object.getBodyBytes().length != 0) {
-                ByteArrayOutputStream out = new ByteArrayOutputStream();
-
-                ByteBuffer databuffer = ByteBuffer.allocate(4);
-                databuffer.putInt(object.getBodyBytes().length);
-                out.write(databuffer.array());
-                out.write(object.getBodyBytes());
-                body = out.toByteArray();
-            }
+    private ByteBuf writeToBuf5(ByteBufAllocator alloc, EncodeObject object) {
+        List<byte[]> bodies = null;
+        // send single message one time
+        if (object.getBodyBytes() != null && object.getBodyBytes().length != 0) {
+            bodies = Collections.singletonList(object.getBodyBytes());
+        } else if (object.getBodylist() != null && object.getBodylist().size() != 0) {
+            // send multiple messages one time
+            bodies = object.getBodylist();
+        }
+        return writeAttrFrame(alloc, object, 5, bodies, LAYOUT_LENGTH_PREFIXED);
+    }
 
-            buf = constructBody(body, object, totalLength, cnt);
-        } catch (Exception e) {
-            logger.error("writeToBuf7 has {}", e);
+    private ByteBuf writeToBuf3(ByteBufAllocator alloc, EncodeObject object) {
+        // send single message one time
+        if (object.getBodyBytes() != null && object.getBodyBytes().length != 0) {
+            return writeAttrFrame(alloc, object, 3, Collections.singletonList(object.getBodyBytes()), LAYOUT_RAW);
         }
-        return buf;
+        // send multiple messages one time
+        if (object.getBodylist() != null && object.getBodylist().size() != 0) {
+            return writeAttrFrame(alloc, object, 3, object.getBodylist(), LAYOUT_LINES);
+        }
+        return null;
     }
 
-    private ByteBuf writeToBuf5(EncodeObject object) {
+    /**
+     * write the frame of msgtype 3 and 5, the body and the attributes prefixed by their lengths
+     */
+    private ByteBuf writeAttrFrame(ByteBufAllocator alloc, EncodeObject object, int baseType,
+            List<byte[]> bodies, int layout) {
+        if (bodies == null) {
+            return null;
+        }
         ByteBuf buf = null;
         try {
-            int totalLength = 1 + 4 + 4;
-            byte[] body = null;
-
-            // send multiple messages one time
-            if (object.getBodylist() != null && object.getBodylist().size() != 0) {
-                ByteArrayOutputStream out = new ByteArrayOutputStream();
-                Iterator<byte[]> iter = object.getBodylist().iterator();
-                while (iter.hasNext()) {
-                    byte[] entry = iter.next();
-                    ByteBuffer byteBuffer = ByteBuffer.allocate(4);
-                    byteBuffer.putInt(entry.length);
-                    out.write(byteBuffer.array());
-                    out.write(entry);
-                }
-                body = out.toByteArray();
-            }
-            // send single message one time
-            if (object.getBodyBytes() != null && object.getBodyBytes().length != 0) {
-                ByteArrayOutputStream out = new ByteArrayOutputStream();
-                ByteBuffer byteBuffer = ByteBuffer.allocate(4);
-                byteBuffer.putInt(object.getBodyBytes().length);
-                out.write(byteBuffer.array());
-                out.write(object.getBodyBytes());
-                body = out.toByteArray();
-            }
-            if (body != null) {
-                String msgAttrs = object.getAttributes();
-                if (object.isCompress()) {
-                    body = processCompress(body);
-                }
-                if (object.isEncrypt()) {
-                    EncryptConfigEntry encryptEntry = object.getEncryptEntry();
-                    if (encryptEntry != null) {
-                        if (Utils.isNotBlank(msgAttrs)) {
-                            msgAttrs = msgAttrs + "&";
-                        }
-                        EncryptInfo encryptInfo = encryptEntry.getRsaEncryptInfo();
-                        msgAttrs = msgAttrs + "_userName=" + object.getUserName()
-                                + "&_encyVersion=" + encryptInfo.getVersion()
-                                + "&_encyAesKey=" + encryptInfo.getRsaEncryptedKey();
-                        body = EncryptUtil.aesEncrypt(body, encryptInfo.getAesKey());
-                    }
-                }
-                if (Utils.isNotBlank(object.getMsgUUID())) {
+            String msgAttrs = object.getAttributes();
+            byte[] aesKey = null;
+            if (object.isEncrypt()) {
+                EncryptConfigEntry encryptEntry = object.getEncryptEntry();
+                if (encryptEntry != null) {
                     if (Utils.isNotBlank(msgAttrs)) {
                         msgAttrs = msgAttrs + "&";
                     }
-                    msgAttrs = msgAttrs + "msgUUID=" + object.getMsgUUID();
+                    EncryptInfo encryptInfo = encryptEntry.getRsaEncryptInfo();
+                    msgAttrs = msgAttrs + "_userName=" + object.getUserName()
+                            + "&_encyVersion=" + encryptInfo.getVersion()
+                            + "&_encyAesKey=" + encryptInfo.getRsaEncryptedKey();
+                    aesKey = encryptInfo.getAesKey();
                 }
-
-                int msgType = 5;
-                if (object.isEncrypt()) {
-                    msgType |= FLAG_ALLOW_ENCRYPT;
+            }
+            if (Utils.isNotBlank(object.getMsgUUID())) {
+                if (Utils.isNotBlank(msgAttrs)) {
+                    msgAttrs = msgAttrs + "&";
                 }
-                totalLength = totalLength + body.length + msgAttrs.getBytes("utf8").length;
-                buf = ByteBufAllocator.DEFAULT.buffer(4 + totalLength);
-                buf.writeInt(totalLength);
-                buf.writeByte(msgType);
-                buf.writeInt(body.length);
-                buf.writeBytes(body);
-                buf.writeInt(msgAttrs.getBytes("utf8").length);
-                buf.writeBytes(msgAttrs.getBytes("utf8"));
+                msgAttrs = msgAttrs + "msgUUID=" + object.getMsgUUID();
+            }
+            byte[] attrBytes = msgAttrs.getBytes(StandardCharsets.UTF_8);
+
+            int msgType = baseType;
+            if (object.isEncrypt()) {
+                msgType |= FLAG_ALLOW_ENCRYPT;
             }
+            buf = alloc.buffer(4 + 1 + maxBodyLength(bodies, layout, object.isCompress()) + 4 + attrBytes.length);
+            buf.writeInt(0);
+            buf.writeByte(msgType);
+            writeBody(alloc, buf, bodies, layout, object.isCompress(), aesKey);
+            buf.writeInt(attrBytes.length);
+            buf.writeBytes(attrBytes);
+            buf.setInt(0, buf.writerIndex() - 4);
         } catch (Exception e) {
             logger.error("{}", e.getMessage());
             e.printStackTrace();
+            buf = releaseQuietly(buf);
         }
         return buf;
     }
 
-    /*
-     * private ChannelBuffer writeToBuf4(EncodeObject object) { ChannelBuffer buf = ChannelBuffers.dynamicBuffer(); try
-     * { int totalLength = 1 + 4 + 4; byte[] body = null;
-     * 
-     * //send single message one time if (object.getBodyBytes() != null && object.getBodyBytes().length != 0) { body =
-     * object.getBodyBytes(); } totalLength = totalLength + body.length +
-     * object.getAttributes().getBytes("utf8").length; buf.writeInt(totalLength); buf.writeByte(4);
-     * buf.writeInt(body.length); buf.writeBytes(body); buf.writeInt(object.getAttributes().getBytes().length);
-     * buf.writeBytes(object.getAttributes().getBytes()); } catch (Exception e) { logger.error(e.getMessage()); } return
-     * buf; }
+    /**
+     * write the body prefixed by its length into the frame, compressed and encrypted if
+     * required
      */
-
-    private ByteBuf writeToBuf3(EncodeObject object) {
-        ByteBuf buf = null;
-        try {
-            int totalLength = 1 + 4 + 4;
-            byte[] body = null;
-
-            // send multiple messages one time
-            if (object.getBodylist() != null && object.getBodylist().size() != 0) {
-                ByteArrayOutputStream out = new ByteArrayOutputStream();
-                Iterator<byte[]> iter = object.getBodylist().iterator();
-                while (iter.hasNext()) {
-                    byte[] entry = iter.next();
-                    out.write(entry);
-                    out.write("\n".getBytes("utf8"));
-                }
-                body = out.toByteArray();
+    private static void writeBody(ByteBufAllocator alloc, ByteBuf buf, List<byte[]> bodies, int layout,
+            boolean compress, byte[] aesKey) throws IOException {
+        if (aesKey != null) {
+            byte[] body = toArray(bodies, layout);
+            if (compress) {
+                body = processCompress(body);
             }
-            // send single message one time
-            if (object.getBodyBytes() != null && object.getBodyBytes().length != 0) {
-                body = object.getBodyBytes();
+            body = EncryptUtil.aesEncrypt(body, aesKey);
+            buf.writeInt(body.length);
+            buf.writeBytes(body);
+            return;
+        }
+        int rawLength = rawLength(bodies, layout);
+        if (!compress) {
+            buf.writeInt(rawLength);
+            writeRaw(buf, bodies, layout);
+            return;
+        }
+        int lengthIndex = buf.writerIndex();
+        buf.writeInt(0);
+        boolean useScratch = rawLength <= SCRATCH_MAX_SIZE;
+        ByteBuf raw = useScratch ? SCRATCH.get().clear() : alloc.directBuffer(rawLength);
+        try {
+            writeRaw(raw, bodies, layout);
+            int maxLength = Snappy.maxCompressedLength(rawLength);
+            buf.ensureWritable(maxLength);
+            int length = compress(raw, buf, maxLength);
+            buf.writerIndex(buf.writerIndex() + length);
+            buf.setInt(lengthIndex, length);
+        } finally {
+            if (useScratch) {
+                raw.clear();
+            } else {
+                raw.release();
             }
-            if (body != null) {
-                String msgAttrs = object.getAttributes();
-                if (object.isCompress()) {
-                    body = processCompress(body);
-                }
-                if (object.isEncrypt()) {
-                    EncryptConfigEntry encryptEntry = object.getEncryptEntry();
-                    if (encryptEntry != null) {
-                        if (Utils.isNotBlank(msgAttrs)) {
-                            msgAttrs = msgAttrs + "&";
-                        }
-                        EncryptInfo encryptInfo = encryptEntry.getRsaEncryptInfo();
-                        msgAttrs = msgAttrs + "_userName=" + object.getUserName()
-                                + "&_encyVersion=" + encryptInfo.getVersion()
-                                + "&_encyAesKey=" + encryptInfo.getRsaEncryptedKey();
-                        body = EncryptUtil.aesEncrypt(body, encryptInfo.getAesKey());
-                    }
-                }
-                if (Utils.isNotBlank(object.getMsgUUID())) {
-                    if (Utils.isNotBlank(msgAttrs)) {
-                        msgAttrs = msgAttrs + "&";
-                    }
-                    msgAttrs = msgAttrs + "msgUUID=" + object.getMsgUUID();
-                }
+        }
+    }
 
-                int msgType = 3;
-                if (object.isEncrypt()) {
-                    msgType |= FLAG_ALLOW_ENCRYPT;
-                }
-                totalLength = totalLength + body.length + msgAttrs.getBytes("utf8").length;
-                buf = ByteBufAllocator.DEFAULT.buffer(4 + totalLength);
-                buf.writeInt(totalLength);
-                buf.writeByte(msgType);
+    /**
+     * compress the readable bytes of the source into the writable bytes of the target
+     *
+     * @return the compressed length
+     */
+    private static int compress(ByteBuf src, ByteBuf dst, int maxLength) throws IOException {
+        if (src.isDirect() && dst.isDirect() && src.nioBufferCount() == 1 && dst.nioBufferCount() == 1) {
+            return Snappy.compress(src.nioBuffer(), dst.nioBuffer(dst.writerIndex(), maxLength));
+        }
+        byte[] input;
+        int inputOffset;
+        if (src.hasArray()) {
+            input = src.array();
+            inputOffset = src.arrayOffset() + src.readerIndex();
+        } else {
+            input = new byte[src.readableBytes()];
+            src.getBytes(src.readerIndex(), input);
+            inputOffset = 0;
+        }
+        if (dst.hasArray()) {
+            return Snappy.compress(input, inputOffset, src.readableBytes(),
+                    dst.array(), dst.arrayOffset() + dst.writerIndex());
+        }
+        byte[] output = new byte[maxLength];
+        int length = Snappy.compress(input, inputOffset, src.readableBytes(), output, 0);
+        dst.setBytes(dst.writerIndex(), output, 0, length);
+        return length;
+    }
+
+    private static int maxBodyLength(List<byte[]> bodies, int layout, boolean compress) {
+        int rawLength = rawLength(bodies, layout);
+        return 4 + (compress ? Snappy.maxCompressedLength(rawLength) : rawLength);
+    }
+
+    private static int rawLength(List<byte[]> bodies, int layout) {
+        int length = 0;
+        for (byte[] body : bodies) {
+            length += body.length;
+        }
+        switch (layout) {
+            case LAYOUT_LENGTH_PREFIXED:
+                return length + 4 * bodies.size();
+            case LAYOUT_JOINED_LF:
+                return 4 + length + bodies.size() - 1;
+            case LAYOUT_LINES:
+                return length + bodies.size();
+            default:
+                return length;
+        }
+    }
+
+    private static void writeRaw(ByteBuf buf, List<byte[]> bodies, int layout) {
+        if (layout == LAYOUT_JOINED_LF) {
+            buf.writeInt(rawLength(bodies, layout) - 4);
+        }
+        int index = 0;
+        for (byte[] body : bodies) {
+            if (layout == LAYOUT_LENGTH_PREFIXED) {
                 buf.writeInt(body.length);
-                buf.writeBytes(body);
-                buf.writeInt(msgAttrs.getBytes("utf8").length);
-                buf.writeBytes(msgAttrs.getBytes("utf8"));
+            } else if (layout == LAYOUT_JOINED_LF && index > 0) {
+                buf.writeByte(LF);
             }
-        } catch (Exception e) {
-            logger.error("{}", e.getMessage());
-            e.printStackTrace();
+            buf.writeBytes(body);
+            if (layout == LAYOUT_LINES) {
+                buf.writeByte(LF);
+            }
+            index++;
         }
-        return buf;
     }
 
-    private byte[] processCompress(byte[] body) {
+    private static byte[] toArray(List<byte[]> bodies, int layout) {
+        byte[] body = new byte[rawLength(bodies, layout)];
+        writeRaw(Unpooled.wrappedBuffer(body).clear(), bodies, layout);
+        return body;
+    }
+
+    private static ByteBuf releaseQuietly(ByteBuf buf) {
+        if (buf != null) {
+            buf.release();
+        }
+        return null;
+    }
+
+    private static byte[] processCompress(byte[] body) {
         try {
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            out.write(body);
-            int guessLen = Snappy.maxCompressedLength(out.size());
-            byte[] tmpData = new byte[guessLen];
-            int len = Snappy.compress(out.toByteArray(), 0, out.size(),
-                    tmpData, 0);
-            body = new byte[len];
-            System.arraycopy(tmpData, 0, body, 0, len);
+            byte[] compressed = new byte[Snappy.maxCompressedLength(body.length)];
+            int len = Snappy.compress(body, 0, body.length, compressed, 0);
+            body = Arrays.copyOf(compressed, len);
         } catch (IOException e) {
             logger.error("{}", e.getMessage());
             e.printStackTrace();
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy.network;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The live load of a connection, the bytes waiting for the ack and the ack latency.
+ *
+ * The latency is a peak EWMA, a slower ack raises it at once and the faster acks bring
+ * it down over the decay time. A failed or timeout message counts as a slow ack, so an
+ * unhealthy proxy gets less traffic gradually instead of being swapped out. Without any
+ * ack the latency goes back to the initial value, so the proxy is tried again.
+ */
+public class ClientLoad {
+
+    private static final double DECAY_MS = 10 * 1000;
+    private static final double INITIAL_RTT_MS = 10;
+    // the latency counted for a failed message at least
+    private static final long FAILURE_RTT_MS = 1000;
+    // the bytes in flight are counted in this unit in the cost
+    private static final long BYTES_UNIT = 16 * 1024;
+
+    private final AtomicLong inFlightBytes = new AtomicLong(0);
+    private double rttMs = INITIAL_RTT_MS;
+    private long lastAckTime = System.currentTimeMillis();
+
+    /**
+     * a message is written
+     */
+    public void onSend(long bytes) {
+        inFlightBytes.addAndGet(bytes);
+    }
+
+    /**
+     * a message is acked, failed or timeout
+     *
+     * @param bytes the bytes of the message
+     * @param rtt the time in ms since the message was written
+     * @param success whether the message is acked successfully
+     */
+    public void onAck(long bytes, long rtt, boolean success) {
+        inFlightBytes.addAndGet(-bytes);
+        double sample = success ? Math.max(0, rtt) : Math.max(rtt, FAILURE_RTT_MS);
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            if (sample > rttMs) {
+                rttMs = sample;
+            } else {
+                double weight = Math.exp(-Math.max(0, now - lastAckTime) / DECAY_MS);
+                rttMs = rttMs * weight + sample * (1 - weight);
+            }
+            lastAckTime = now;
+        }
+    }
+
+    /**
+     * the expected cost of sending one more message, the lower the better
+     */
+    public double getCost() {
+        double rtt;
+        long idle;
+        synchronized (this) {
+            rtt = rttMs;
+            idle = System.currentTimeMillis() - lastAckTime;
+        }
+        rtt = INITIAL_RTT_MS + (rtt - INITIAL_RTT_MS) * Math.exp(-Math.max(0, idle) / DECAY_MS);
+        return rtt * (1 + (double) Math.max(0, inFlightBytes.get()) / BYTES_UNIT);
+    }
+
+    public long getInFlightBytes() {
+        return inFlightBytes.get();
+    }
+
+    public synchronized double getRttMs() {
+        return rttMs;
+    }
+}
@@ -48,6 +48,7 @@ import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -91,6 +92,7 @@ public class ClientMgr {
     private int loadThreshold;
     private int loadCycle = 0;
     private LoadBalance loadBalance;
+    private SenderRuntime runtime;
 
     public ClientMgr(ProxyClientConfig configure, Sender sender) throws Exception {
         this(configure, sender, null);
@@ -101,12 +103,18 @@ public class ClientMgr {
      */
     public ClientMgr(ProxyClientConfig configure, Sender sender, ThreadFactory selfDefineFactory) throws Exception {
         /* Initialize the bootstrap. */
-        if (selfDefineFactory == null) {
-            selfDefineFactory = new DefaultThreadFactory("agent-client-io",
-                    Thread.currentThread().isDaemon());
+        EventLoopGroup eventLoopGroup;
+        if (configure.isEnableSharedRuntime()) {
+            runtime = SenderRuntime.acquire(configure);
+            eventLoopGroup = runtime.getEventLoopGroup();
+        } else {
+            if (selfDefineFactory == null) {
+                selfDefineFactory = new DefaultThreadFactory("agent-client-io",
+                        Thread.currentThread().isDaemon());
+            }
+            eventLoopGroup = EventLoopUtil.newEventLoopGroup(configure.getIoThreadNum(),
+                    configure.isEnableBusyWait(), selfDefineFactory);
         }
-        EventLoopGroup eventLoopGroup = EventLoopUtil.newEventLoopGroup(configure.getIoThreadNum(),
-                configure.isEnableBusyWait(), selfDefineFactory);
         bootstrap = new Bootstrap();
         bootstrap.group(eventLoopGroup);
         bootstrap.channel(EventLoopUtil.getClientSocketChannelClass(eventLoopGroup));
@@ -475,6 +483,42 @@ public class ClientMgr {
         return clientList.get(clientId);
     }
 
+    /**
+     * pick two active clients at random and choose the one with the lower load cost, a
+     * slow proxy is chosen less often as its latency and bytes in flight grow
+     */
+    public synchronized NettyClient getClientByLeastLoad() {
+        int currSize = clientList.size();
+        if (currSize == 0) {
+            return null;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        NettyClient first = pickActiveClient(random, currSize, -1);
+        if (first == null || currSize == 1) {
+            return first;
+        }
+        NettyClient second = pickActiveClient(random, currSize, clientList.indexOf(first));
+        if (second == null) {
+            return first;
+        }
+        return second.getLoad().getCost() < first.getLoad().getCost() ? second : first;
+    }
+
+    private NettyClient pickActiveClient(ThreadLocalRandom random, int currSize, int excludeIndex) {
+        int start = random.nextInt(currSize);
+        for (int i = 0; i < currSize; i++) {
+            int index = (start + i) % currSize;
+            if (index == excludeIndex) {
+                continue;
+            }
+            NettyClient client = clientList.get(index);
+            if (client != null && client.isActive()) {
+                return client;
+            }
+        }
+        return null;
+    }
+
     public NettyClient getContainProxy(String proxyip) {
         if (proxyip == null) {
             return null;
@@ -488,16 +532,30 @@ public class ClientMgr {
     }
 
     public void shutDown() {
-        bootstrap.config().group().shutdownGracefully();
-
         ipManager.shutDown();
 
         // connectionCheckThread.shutDown();
         sendHBThread.shutDown();
         closeAllConnection();
+        if (configure.isEnableSharedRuntime()) {
+            // the event loops are shared, only the connections of this sender are closed
+            releaseRuntime();
+        } else {
+            bootstrap.config().group().shutdownGracefully();
+        }
 
     }
 
+    /**
+     * release the shared runtime once, a sender shut down again must not release it for others
+     */
+    private synchronized void releaseRuntime() {
+        if (runtime != null) {
+            runtime.release();
+            runtime = null;
+        }
+    }
+
     private void closeAllConnection() {
         if (!clientMap.isEmpty()) {
             logger.info("ready to close all connections!");
@@ -1014,6 +1072,9 @@ public class ClientMgr {
             case WEIGHT_RANDOM:
                 client = getClientByWeightRandom();
                 break;
+            case LEAST_LOAD:
+                client = getClientByLeastLoad();
+                break;
         }
         return client;
     }
@@ -0,0 +1,477 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy.network;
+
+import org.apache.inlong.sdk.dataproxy.codec.EncodeObject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * A local disk spool of the messages that can not be sent.
+ *
+ * The messages are appended to segment files, each frame is the payload length, the
+ * CRC32 of the payload and the payload. A new segment is started when the current one
+ * is full or the spool is opened again, the total bytes of the segments are limited.
+ * The messages are read in order and acked once replayed, in any order. The position of
+ * the oldest message not acked is the committed position, the checkpoint saves it and a
+ * segment is deleted once the committed position moves past it, so the messages not
+ * acked before a restart or a crash are read again. A broken frame ends its segment.
+ *
+ * The spool dir is locked while the spool is open, a second spool on the same dir, in
+ * this process or another, fails to open.
+ *
+ * Only the messages of msg type 7 and 8 are supported.
+ */
+public class DiskSpool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiskSpool.class);
+    private static final String SEGMENT_PREFIX = "spool-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "spool.offset";
+    private static final String LOCK_FILE = "spool.lock";
+    private static final int FRAME_HEADER_SIZE = 8;
+    private static final byte VERSION = 1;
+    private static final byte BODY_BYTES = 0;
+    private static final byte BODY_LIST = 1;
+
+    private final File dir;
+    private final long maxBytes;
+    private final long segmentBytes;
+    private final FileLock dirLock;
+    // segment files by sequence, in order
+    private final TreeMap<Long, File> segments = new TreeMap<>();
+    private long totalBytes = 0;
+    private long writeSeq;
+    private long writeSize = 0;
+    private FileOutputStream writer;
+    private long readSeq;
+    private long readOffset;
+    private RandomAccessFile reader;
+    // messages read and not acked yet, in read order
+    private final ArrayDeque<Entry> inFlight = new ArrayDeque<>();
+
+    public DiskSpool(File dir, long maxBytes, long segmentBytes) throws IOException {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.segmentBytes = segmentBytes;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("can not create spool dir " + dir);
+        }
+        this.dirLock = lockDir(dir);
+        File[] files = dir.listFiles((d, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                try {
+                    long seq = Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length()));
+                    segments.put(seq, file);
+                    totalBytes += file.length();
+                } catch (NumberFormatException e) {
+                    LOGGER.warn("ignore unknown spool file {}", file);
+                }
+            }
+        }
+        readSeq = segments.isEmpty() ? 0 : segments.firstKey();
+        readOffset = 0;
+        loadCheckpoint();
+        // never append to a segment of the former run, its tail may be broken
+        writeSeq = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        if (segments.isEmpty()) {
+            readSeq = writeSeq;
+            readOffset = 0;
+        }
+        openWriter();
+        releaseSegments();
+        LOGGER.info("open spool {}, {} segments, {} bytes", dir, segments.size(), totalBytes);
+    }
+
+    /**
+     * append a message to the spool
+     *
+     * @return false if the spool is full or the message is not supported
+     */
+    public synchronized boolean append(EncodeObject encodeObject) throws IOException {
+        if (encodeObject.getMsgtype() != 7 && encodeObject.getMsgtype() != 8) {
+            return false;
+        }
+        byte[] frame = frame(encode(encodeObject));
+        if (totalBytes + frame.length > maxBytes) {
+            return false;
+        }
+        if (writeSize > 0 && writeSize + frame.length > segmentBytes) {
+            writer.close();
+            writeSeq++;
+            openWriter();
+        }
+        writer.write(frame);
+        writeSize += frame.length;
+        totalBytes += frame.length;
+        return true;
+    }
+
+    /**
+     * read the next message in order, it must be acked once replayed or spooled again
+     *
+     * @return the message, null if no message is left
+     */
+    public synchronized Entry poll() throws IOException {
+        while (true) {
+            if (!segments.containsKey(readSeq)) {
+                Long next = segments.higherKey(readSeq);
+                if (next == null) {
+                    return null;
+                }
+                moveTo(next, 0);
+            }
+            boolean active = readSeq == writeSeq;
+            long length = active ? writeSize : segments.get(readSeq).length();
+            if (length - readOffset < FRAME_HEADER_SIZE) {
+                if (active) {
+                    return null;
+                }
+                finishSegment();
+                continue;
+            }
+            if (reader == null) {
+                reader = new RandomAccessFile(segments.get(readSeq), "r");
+            }
+            reader.seek(readOffset);
+            int payloadLength = reader.readInt();
+            int crc = reader.readInt();
+            if (payloadLength < 0 || payloadLength > length - readOffset - FRAME_HEADER_SIZE) {
+                LOGGER.warn("spool segment {} is broken at {}, skip the rest", readSeq, readOffset);
+                skipSegment(active);
+                continue;
+            }
+            byte[] payload = new byte[payloadLength];
+            reader.readFully(payload);
+            if (crc32(payload) != crc) {
+                LOGGER.warn("spool segment {} crc error at {}, skip the rest", readSeq, readOffset);
+                skipSegment(active);
+                continue;
+            }
+            long offset = readOffset;
+            readOffset += FRAME_HEADER_SIZE + payloadLength;
+            try {
+                Entry entry = new Entry(decode(payload), readSeq, offset);
+                inFlight.addLast(entry);
+                return entry;
+            } catch (IOException e) {
+                LOGGER.warn("spool segment {} decode error at {}, skip the message", readSeq, readOffset, e);
+            }
+        }
+    }
+
+    /**
+     * ack a message read, the committed position moves past it once the messages read
+     * before it are acked as well
+     */
+    public synchronized void ack(Entry entry) throws IOException {
+        entry.acked = true;
+        while (!inFlight.isEmpty() && inFlight.peekFirst().acked) {
+            inFlight.pollFirst();
+        }
+        releaseSegments();
+    }
+
+    /**
+     * save the committed position
+     */
+    public synchronized void checkpoint() throws IOException {
+        File tmp = new File(dir, CHECKPOINT_FILE + ".tmp");
+        Files.write(tmp.toPath(), (committedSeq() + " " + committedOffset()).getBytes(StandardCharsets.UTF_8));
+        File checkpoint = new File(dir, CHECKPOINT_FILE);
+        if (!tmp.renameTo(checkpoint)) {
+            Files.copy(tmp.toPath(), checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized void close() throws IOException {
+        checkpoint();
+        writer.close();
+        closeReader();
+        // the active segment is not needed if empty or all acked
+        boolean acked = committedSeq() == writeSeq && committedOffset() >= writeSize;
+        if ((writeSize == 0 || acked) && segments.remove(writeSeq) != null) {
+            totalBytes -= writeSize;
+            Files.deleteIfExists(new File(dir, segmentName(writeSeq)).toPath());
+        }
+        dirLock.channel().close();
+    }
+
+    private static FileLock lockDir(File dir) throws IOException {
+        FileChannel channel = FileChannel.open(new File(dir, LOCK_FILE).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // locked by another spool of this process
+            lock = null;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException("spool dir " + dir + " is used by another sender, set a spool dir for each one");
+        }
+        return lock;
+    }
+
+    private void openWriter() throws IOException {
+        File file = new File(dir, segmentName(writeSeq));
+        writer = new FileOutputStream(file, true);
+        writeSize = file.length();
+        segments.put(writeSeq, file);
+    }
+
+    private void loadCheckpoint() {
+        File checkpoint = new File(dir, CHECKPOINT_FILE);
+        if (!checkpoint.isFile()) {
+            return;
+        }
+        try {
+            String[] position = new String(Files.readAllBytes(checkpoint.toPath()), StandardCharsets.UTF_8)
+                    .trim().split(" ");
+            long seq = Long.parseLong(position[0]);
+            if (segments.containsKey(seq)) {
+                readSeq = seq;
+                readOffset = Long.parseLong(position[1]);
+            } else {
+                // the segment of the checkpoint has been read and deleted
+                Long next = segments.higherKey(seq);
+                readSeq = next == null ? readSeq : next;
+                readOffset = 0;
+            }
+        } catch (Exception e) {
+            LOGGER.warn("load spool checkpoint {} error, read from the first segment", checkpoint, e);
+        }
+    }
+
+    private void moveTo(long seq, long offset) throws IOException {
+        closeReader();
+        readSeq = seq;
+        readOffset = offset;
+    }
+
+    private void skipSegment(boolean active) throws IOException {
+        if (active) {
+            readOffset = writeSize;
+        } else {
+            finishSegment();
+        }
+    }
+
+    /**
+     * move to the next segment, the segment read is deleted once its messages are acked
+     */
+    private void finishSegment() throws IOException {
+        closeReader();
+        Long next = segments.higherKey(readSeq);
+        moveTo(next == null ? writeSeq : next, 0);
+        if (readSeq == writeSeq && !segments.containsKey(writeSeq)) {
+            // the active segment is never deleted while being written
+            segments.put(writeSeq, new File(dir, segmentName(writeSeq)));
+        }
+        releaseSegments();
+    }
+
+    /**
+     * delete the segments before the committed position
+     */
+    private void releaseSegments() throws IOException {
+        long committedSeq = committedSeq();
+        while (!segments.isEmpty() && segments.firstKey() < committedSeq) {
+            File file = segments.pollFirstEntry().getValue();
+            totalBytes -= file.length();
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    private long committedSeq() {
+        return inFlight.isEmpty() ? readSeq : inFlight.peekFirst().seq;
+    }
+
+    private long committedOffset() {
+        return inFlight.isEmpty() ? readOffset : inFlight.peekFirst().offset;
+    }
+
+    private void closeReader() throws IOException {
+        if (reader != null) {
+            reader.close();
+            reader = null;
+        }
+    }
+
+    private static String segmentName(long seq) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX);
+    }
+
+    private static byte[] frame(byte[] payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(FRAME_HEADER_SIZE + payload.length);
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(payload.length);
+        output.writeInt(crc32(payload));
+        output.write(payload);
+        return bytes.toByteArray();
+    }
+
+    private static int crc32(byte[] payload) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload, 0, payload.length);
+        return (int) crc32.getValue();
+    }
+
+    static byte[] encode(EncodeObject encodeObject) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeByte(VERSION);
+        output.writeInt(encodeObject.getMsgtype());
+        output.writeBoolean(encodeObject.isCompress());
+        output.writeBoolean(encodeObject.isReport());
+        output.writeBoolean(encodeObject.isGroupIdTransfer());
+        output.writeBoolean(encodeObject.isSupportLF());
+        output.writeBoolean(encodeObject.isPacked());
+        output.writeLong(encodeObject.getDt());
+        output.writeInt(encodeObject.getCnt());
+        writeString(output, encodeObject.getGroupId());
+        writeString(output, encodeObject.getStreamId());
+        writeString(output, encodeObject.getCommonattr());
+        writeString(output, encodeObject.getMessageKey());
+        writeString(output, encodeObject.getProxyIp());
+        if (encodeObject.getBodyBytes() != null) {
+            output.writeByte(BODY_BYTES);
+            writeBytes(output, encodeObject.getBodyBytes());
+        } else {
+            List<byte[]> bodyList = encodeObject.getBodylist();
+            output.writeByte(BODY_LIST);
+            output.writeInt(bodyList.size());
+            for (byte[] body : bodyList) {
+                writeBytes(output, body);
+            }
+        }
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    static EncodeObject decode(byte[] payload) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+        byte version = input.readByte();
+        if (version != VERSION) {
+            throw new IOException("unknown spool message version " + version);
+        }
+        int msgtype = input.readInt();
+        boolean isCompress = input.readBoolean();
+        boolean isReport = input.readBoolean();
+        boolean isGroupIdTransfer = input.readBoolean();
+        boolean isSupportLF = input.readBoolean();
+        boolean isPacked = input.readBoolean();
+        long dt = input.readLong();
+        int cnt = input.readInt();
+        String groupId = readString(input);
+        String streamId = readString(input);
+        String commonattr = readString(input);
+        String messageKey = readString(input);
+        String proxyIp = readString(input);
+        EncodeObject encodeObject;
+        if (input.readByte() == BODY_BYTES) {
+            encodeObject = new EncodeObject(readBytes(input), msgtype, isCompress, isReport, isGroupIdTransfer,
+                    dt, 0, groupId, streamId, commonattr, messageKey, proxyIp);
+        } else {
+            int size = input.readInt();
+            List<byte[]> bodyList = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                bodyList.add(readBytes(input));
+            }
+            encodeObject = new EncodeObject(bodyList, msgtype, isCompress, isReport, isGroupIdTransfer,
+                    dt, 0, groupId, streamId, commonattr, messageKey, proxyIp);
+        }
+        // keep the report time of the first send
+        encodeObject.setCommonattr(commonattr);
+        encodeObject.setSupportLF(isSupportLF);
+        encodeObject.setPacked(isPacked);
+        encodeObject.setCnt(cnt);
+        return encodeObject;
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        writeBytes(output, value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        return new String(readBytes(input), StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream output, byte[] value) throws IOException {
+        output.writeInt(value.length);
+        output.write(value);
+    }
+
+    private static byte[] readBytes(DataInputStream input) throws IOException {
+        byte[] value = new byte[input.readInt()];
+        input.readFully(value);
+        return value;
+    }
+
+    /**
+     * a message read from the spool and its position
+     */
+    public static class Entry {
+
+        private final EncodeObject message;
+        private final long seq;
+        private final long offset;
+        private boolean acked = false;
+
+        private Entry(EncodeObject message, long seq, long offset) {
+            this.message = message;
+            this.seq = seq;
+            this.offset = offset;
+        }
+
+        public EncodeObject getMessage() {
+            return message;
+        }
+    }
+}
@@ -46,6 +46,7 @@ public class NettyClient {
     private Bootstrap bootstrap;
     private String serverIP;
     private int serverPort;
+    private final ClientLoad load = new ClientLoad();
 
     public String getServerIP() {
         return serverIP;
@@ -218,6 +219,10 @@ public class NettyClient {
         setState(ConnState.BUSY);
     }
 
+    public ClientLoad getLoad() {
+        return load;
+    }
+
     public double getWeight() {
         OperatingSystemMXBean operatingSystemMXBean =
                 (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
@@ -19,6 +19,8 @@ package org.apache.inlong.sdk.dataproxy.network;
 
 import org.apache.inlong.sdk.dataproxy.common.SendMessageCallback;
 
+import io.netty.util.Timeout;
+
 import java.util.concurrent.TimeUnit;
 
 public class QueueObject {
@@ -27,6 +29,11 @@ public class QueueObject {
     private final SendMessageCallback callback;
     private final long timeoutInMillis;
     private final int size;
+    // the timeout scheduled in the timer wheel, cancelled once the message is acked
+    private volatile Timeout timeoutHandle;
+    // the client the message is written to and the bytes accounted to its load
+    private NettyClient client;
+    private long bytes;
 
     public QueueObject(long sendTimeInMillis,
             SendMessageCallback callback,
@@ -63,4 +70,36 @@ public class QueueObject {
     public int getSize() {
         return size;
     }
+
+    public void setTimeoutHandle(Timeout timeoutHandle) {
+        this.timeoutHandle = timeoutHandle;
+    }
+
+    /**
+     * cancel the scheduled timeout, called when the message is acked or failed
+     */
+    public void cancelTimeout() {
+        Timeout handle = this.timeoutHandle;
+        if (handle != null) {
+            handle.cancel();
+        }
+    }
+
+    /**
+     * account the message to the load of the client it is written to
+     */
+    public void onSent(NettyClient client, long bytes) {
+        this.client = client;
+        this.bytes = bytes;
+        client.getLoad().onSend(bytes);
+    }
+
+    /**
+     * the message is acked, failed or timeout, release it from the load of the client
+     */
+    public void onDone(boolean success) {
+        if (client != null) {
+            client.getLoad().onAck(bytes, System.currentTimeMillis() - sendTimeInMillis, success);
+        }
+    }
 }
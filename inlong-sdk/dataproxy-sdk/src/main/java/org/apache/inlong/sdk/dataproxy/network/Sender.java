@@ -24,22 +24,24 @@ import org.apache.inlong.sdk.dataproxy.common.SendMessageCallback;
 import org.apache.inlong.sdk.dataproxy.common.SendResult;
 import org.apache.inlong.sdk.dataproxy.config.ProxyConfigEntry;
 import org.apache.inlong.sdk.dataproxy.threads.MetricWorkerThread;
+import org.apache.inlong.sdk.dataproxy.threads.SpoolReplayThread;
 import org.apache.inlong.sdk.dataproxy.threads.TimeoutScanThread;
 
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -54,10 +56,9 @@ public class Sender {
     private final ConcurrentHashMap<Channel, ConcurrentHashMap<String, QueueObject>> callbacks =
             new ConcurrentHashMap<>();
     /* Store the synchronous message sending invocations. */
-    private final ConcurrentHashMap<String, SyncMessageCallable> syncCallables = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SyncMessageFuture> syncCallables = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, NettyClient> chooseProxy = new ConcurrentHashMap<>();
     private final ReentrantLock stateLock = new ReentrantLock();
-    private final ExecutorService threadPool;
     private final int asyncCallbackMaxSize;
     private final AtomicInteger currentBufferSize = new AtomicInteger(0);
     private final TimeoutScanThread scanThread;
@@ -65,6 +66,9 @@ public class Sender {
     private final ProxyClientConfig configure;
     private final boolean isFile;
     private final MetricWorkerThread metricWorker;
+    // spool of the messages sent when no proxy is reachable, null if disabled
+    private final DiskSpool spool;
+    private final SpoolReplayThread replayThread;
     private int clusterId = -1;
 
     public Sender(ProxyClientConfig configure) throws Exception {
@@ -77,7 +81,6 @@ public class Sender {
     public Sender(ProxyClientConfig configure, ThreadFactory selfDefineFactory) throws Exception {
         this.configure = configure;
         this.asyncCallbackMaxSize = configure.getTotalAsyncCallbackSize();
-        this.threadPool = Executors.newCachedThreadPool();
         this.clientMgr = new ClientMgr(configure, this, selfDefineFactory);
         ProxyConfigEntry proxyConfigEntry = null;
         try {
@@ -104,6 +107,17 @@ public class Sender {
 
         metricWorker = new MetricWorkerThread(configure, this);
         metricWorker.start();
+
+        if (configure.isEnableSpool() && !isFile) {
+            spool = new DiskSpool(new File(configure.getSpoolDir()), configure.getSpoolMaxBytes(),
+                    configure.getSpoolSegmentBytes());
+            replayThread = new SpoolReplayThread(spool, this, configure.getSpoolReplayRate(),
+                    configure.getRequestTimeoutMillis());
+            replayThread.start();
+        } else {
+            spool = null;
+            replayThread = null;
+        }
         LOGGER.info("proxy sdk is starting!");
     }
 
@@ -128,11 +142,44 @@ public class Sender {
     public void close() {
         checkCallbackList();
         scanThread.shutDown();
+        if (replayThread != null) {
+            replayThread.shutDown();
+            try {
+                replayThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                LOGGER.error("wait for spool replay thread error", e);
+            }
+        }
         clientMgr.shutDown();
-        threadPool.shutdown();
+        if (spool != null) {
+            // the callbacks failed by the closed connections may spool their messages again
+            drainCallbacks();
+            try {
+                spool.close();
+            } catch (Exception e) {
+                LOGGER.error("close spool error", e);
+            }
+        }
         metricWorker.close();
     }
 
+    /**
+     * fail the callbacks left by the closed connections and wait for the running ones
+     */
+    private void drainCallbacks() {
+        for (Channel channel : callbacks.keySet()) {
+            notifyConnectionDisconnected(channel);
+        }
+        long deadline = System.currentTimeMillis() + configure.getRequestTimeoutMillis();
+        try {
+            while (currentBufferSize.get() > 0 && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+        } catch (InterruptedException e) {
+            LOGGER.warn("interrupted while draining callbacks");
+        }
+    }
+
     public String getExceptionStack(Throwable e) {
         StringWriter sw = new StringWriter();
         PrintWriter pw = new PrintWriter(sw);
@@ -167,6 +214,8 @@ public class Sender {
         if (callback == null) {
             return;
         }
+        callback.cancelTimeout();
+        callback.onDone(result == SendResult.OK);
         if (isFile) {
             String proxyip = channel.remoteAddress().toString();
             ((FileCallback) callback.getCallback()).onMessageAck(result.toString()
@@ -209,11 +258,64 @@ public class Sender {
             encodeObject.setEncryptEntry(false, null, null);
         }
         encodeObject.setMsgUUID(msgUUID);
-        SyncMessageCallable callable = new SyncMessageCallable(client, encodeObject, timeout, timeUnit);
-        syncCallables.put(encodeObject.getMessageId(), callable);
+        return waitSyncResult(client, encodeObject, timeout, timeUnit);
+    }
+
+    /**
+     * write the message and wait for the ack in the calling thread, the future is completed
+     * by the ack handler of the channel
+     */
+    private SendResult waitSyncResult(NettyClient client, EncodeObject encodeObject,
+            long timeout, TimeUnit timeUnit) throws ExecutionException, InterruptedException, TimeoutException {
+        SyncMessageFuture future = new SyncMessageFuture(client);
+        long bytes = messageBytes(encodeObject);
+        long sendTime = System.currentTimeMillis();
+        client.getLoad().onSend(bytes);
+        future.whenComplete((result, e) -> client.getLoad().onAck(bytes,
+                System.currentTimeMillis() - sendTime, result == SendResult.OK));
+        String messageId = encodeObject.getMessageId();
+        syncCallables.put(messageId, future);
+        try {
+            ChannelFuture writeFuture = client.write(encodeObject);
+            if (writeFuture != null) {
+                writeFuture.addListener(result -> {
+                    if (!result.isSuccess()) {
+                        LOGGER.warn("write message {} error", messageId, result.cause());
+                        future.complete(SendResult.CONNECTION_BREAK);
+                    }
+                });
+            }
+            return future.get(timeout, timeUnit);
+        } catch (TimeoutException e) {
+            // count the timeout in the load of the client, a late ack is ignored
+            future.complete(SendResult.TIMEOUT);
+            Channel curChannel = client.getChannel();
+            if (curChannel != null) {
+                LOGGER.error("channel maybe busy {}", curChannel);
+                scanThread.addTimeoutChannel(curChannel);
+            }
+            throw e;
+        } finally {
+            // however the wait ends, complete the future so the bytes in flight are acked
+            future.complete(SendResult.UNKOWN_ERROR);
+            syncCallables.remove(messageId, future);
+        }
+    }
 
-        Future<SendResult> future = threadPool.submit(callable);
-        return future.get(timeout, timeUnit);
+    /**
+     * the bytes of the message body, accounted to the load of the client
+     */
+    private static long messageBytes(EncodeObject encodeObject) {
+        if (encodeObject.getBodyBytes() != null) {
+            return encodeObject.getBodyBytes().length;
+        }
+        long bytes = 0;
+        if (encodeObject.getBodylist() != null) {
+            for (byte[] body : encodeObject.getBodylist()) {
+                bytes += body.length;
+            }
+        }
+        return bytes;
     }
 
     /**
@@ -236,36 +338,20 @@ public class Sender {
         } catch (InterruptedException e) {
             // TODO Auto-generated catch block
             LOGGER.error("send message error {} ", getExceptionStack(e));
-            syncCallables.remove(encodeObject.getMessageId());
             return SendResult.THREAD_INTERRUPT;
         } catch (ExecutionException e) {
             // TODO Auto-generated catch block
             LOGGER.error("ExecutionException {} ", getExceptionStack(e));
-            syncCallables.remove(encodeObject.getMessageId());
             return SendResult.UNKOWN_ERROR;
         } catch (TimeoutException e) {
             // TODO Auto-generated catch block
             LOGGER.error("TimeoutException {} ", getExceptionStack(e));
-            // e.printStackTrace();
-            SyncMessageCallable syncMessageCallable = syncCallables.remove(encodeObject.getMessageId());
-            if (syncMessageCallable != null) {
-                NettyClient tmpClient = syncMessageCallable.getClient();
-                if (tmpClient != null) {
-                    Channel curChannel = tmpClient.getChannel();
-                    if (curChannel != null) {
-                        LOGGER.error("channel maybe busy {}", curChannel);
-                        scanThread.addTimeoutChannel(curChannel);
-                    }
-                }
-            }
             return SendResult.TIMEOUT;
         } catch (Throwable e) {
             LOGGER.error("syncSendMessage exception {} ", getExceptionStack(e));
-            syncCallables.remove(encodeObject.getMessageId());
             return SendResult.UNKOWN_ERROR;
         }
         if (message == null) {
-            syncCallables.remove(encodeObject.getMessageId());
             return SendResult.UNKOWN_ERROR;
         }
         if (client != null) {
@@ -309,11 +395,7 @@ public class Sender {
             encodeObject.setEncryptEntry(false, null, null);
         }
         encodeObject.setMsgUUID(msgUUID);
-        SyncMessageCallable callable = new SyncMessageCallable(client, encodeObject, timeout, timeUnit);
-        syncCallables.put(encodeObject.getMessageId(), callable);
-
-        Future<SendResult> future = threadPool.submit(callable);
-        return future.get(timeout, timeUnit);
+        return waitSyncResult(client, encodeObject, timeout, timeUnit);
     }
 
     /**
@@ -344,39 +426,23 @@ public class Sender {
             } catch (InterruptedException e) {
                 // TODO Auto-generated catch block
                 LOGGER.error("send message error {}", getExceptionStack(e));
-                syncCallables.remove(encodeObject.getMessageId());
                 return SendResult.THREAD_INTERRUPT.toString();
             } catch (ExecutionException e) {
                 // TODO Auto-generated catch block
                 LOGGER.error("ExecutionException {}", getExceptionStack(e));
-                syncCallables.remove(encodeObject.getMessageId());
                 return SendResult.UNKOWN_ERROR.toString();
             } catch (TimeoutException e) {
                 // TODO Auto-generated catch block
                 LOGGER.error("TimeoutException {}", getExceptionStack(e));
-                // e.printStackTrace();
-                SyncMessageCallable syncMessageCallable = syncCallables.remove(encodeObject.getMessageId());
-                if (syncMessageCallable != null) {
-                    NettyClient tmpClient = syncMessageCallable.getClient();
-                    if (tmpClient != null) {
-                        Channel curChannel = tmpClient.getChannel();
-                        if (curChannel != null) {
-                            LOGGER.error("channel maybe busy {}", curChannel);
-                            scanThread.addTimeoutChannel(curChannel);
-                        }
-                    }
-                }
                 return SendResult.TIMEOUT.toString();
             } catch (Throwable e) {
                 LOGGER.error("syncSendMessage exception {}", getExceptionStack(e));
-                syncCallables.remove(encodeObject.getMessageId());
                 return SendResult.UNKOWN_ERROR.toString();
             }
             scanThread.resetTimeoutChannel(client.getChannel());
             return message.toString() + "=" + client.getServerIP();
         } catch (Exception e) {
             LOGGER.error("agent send error {}", getExceptionStack(e));
-            syncCallables.remove(encodeObject.getMessageId());
             return SendResult.UNKOWN_ERROR.toString();
         }
     }
@@ -435,8 +501,13 @@ public class Sender {
         if (msgQueueMap == null) {
             msgQueueMap = tmpCallBackMap;
         }
-        msgQueueMap.put(encodeObject.getMessageId(), new QueueObject(System.currentTimeMillis(),
-                callback, size, timeout, timeUnit));
+        QueueObject indexQueueObject = new QueueObject(System.currentTimeMillis(), callback, size, timeout, timeUnit);
+        QueueObject replaced = msgQueueMap.put(encodeObject.getMessageId(), indexQueueObject);
+        if (replaced != null) {
+            replaced.cancelTimeout();
+        }
+        indexQueueObject.onSent(client, messageBytes(encodeObject));
+        scanThread.scheduleTimeout(client.getChannel(), encodeObject.getMessageId(), indexQueueObject);
         if (encodeObject.getMsgtype() == 7) {
             int groupIdnum = 0;
             int streamIdnum = 0;
@@ -510,6 +581,43 @@ public class Sender {
      */
     public void asyncSendMessage(EncodeObject encodeObject, SendMessageCallback callback, String msgUUID,
             long timeout, TimeUnit timeUnit) throws ProxysdkException {
+        asyncSendMessage(encodeObject, callback, msgUUID, timeout, timeUnit, true);
+    }
+
+    /**
+     * send a message read from the spool, it is not spooled again if no proxy is reachable
+     */
+    public void replayMessage(EncodeObject encodeObject, SendMessageCallback callback,
+            long timeout, TimeUnit timeUnit) throws ProxysdkException {
+        asyncSendMessage(encodeObject, callback, null, timeout, timeUnit, false);
+    }
+
+    /**
+     * write the message to the spool when no proxy is reachable, the callback is acked
+     * once the message is written
+     *
+     * @return false if the spool is disabled or full
+     */
+    private boolean spoolMessage(EncodeObject encodeObject, SendMessageCallback callback) {
+        if (spool == null) {
+            return false;
+        }
+        try {
+            if (!spool.append(encodeObject)) {
+                return false;
+            }
+        } catch (IOException e) {
+            LOGGER.error("spool message {} error", encodeObject.getMessageId(), e);
+            return false;
+        }
+        if (callback != null) {
+            callback.onMessageAck(SendResult.OK);
+        }
+        return true;
+    }
+
+    private void asyncSendMessage(EncodeObject encodeObject, SendMessageCallback callback, String msgUUID,
+            long timeout, TimeUnit timeUnit, boolean spoolable) throws ProxysdkException {
         metricWorker.recordNumByKey(encodeObject.getMessageId(), encodeObject.getGroupId(),
                 encodeObject.getStreamId(), Utils.getLocalIp(), encodeObject.getPackageTime(),
                 encodeObject.getDt(), encodeObject.getRealCnt());
@@ -518,6 +626,9 @@ public class Sender {
 
         NettyClient client = clientMgr.getClient(clientMgr.getLoadBalance(), encodeObject);
         if (client == null) {
+            if (spoolable && spoolMessage(encodeObject, callback)) {
+                return;
+            }
             throw new ProxysdkException(SendResult.NO_CONNECTION.toString());
         }
         if (currentBufferSize.get() >= asyncCallbackMaxSize) {
@@ -550,11 +661,16 @@ public class Sender {
         }
         ConcurrentHashMap<String, QueueObject> msgQueueMap =
                 callbacks.computeIfAbsent(client.getChannel(), (k) -> new ConcurrentHashMap<>());
-        QueueObject queueObject = msgQueueMap.putIfAbsent(encodeObject.getMessageId(),
-                new QueueObject(System.currentTimeMillis(), callback, size, timeout, timeUnit));
+        QueueObject newQueueObject = new QueueObject(System.currentTimeMillis(), callback, size, timeout, timeUnit);
+        QueueObject queueObject = msgQueueMap.putIfAbsent(encodeObject.getMessageId(), newQueueObject);
         if (queueObject != null) {
+            // the ack of the message in flight would resolve this callback, so never send it
             LOGGER.warn("message id {} has existed.", encodeObject.getMessageId());
+            currentBufferSize.addAndGet(-size);
+            throw new ProxysdkException("MESSAGE_ID_EXISTED");
         }
+        newQueueObject.onSent(client, messageBytes(encodeObject));
+        scanThread.scheduleTimeout(client.getChannel(), encodeObject.getMessageId(), newQueueObject);
         if (encodeObject.getMsgtype() == 7) {
             int groupIdnum = 0;
             int streamIdnum = 0;
@@ -582,15 +698,15 @@ public class Sender {
     public void notifyFeedback(Channel channel, EncodeObject response) {
         String messageId = response.getMessageId();
         chooseProxy.remove(messageId);
-        SyncMessageCallable callable = syncCallables.remove(messageId);
+        SyncMessageFuture syncFuture = syncCallables.remove(messageId);
         SendResult result = response.getSendResult();
         if (result == SendResult.OK) {
             metricWorker.recordSuccessByMessageId(messageId);
         } else {
             LOGGER.error("{} exception happens, error message {}", channel, response.getErrMsg());
         }
-        if (callable != null) { // for syncSend
-            callable.update(result);
+        if (syncFuture != null) { // for syncSend
+            syncFuture.complete(result);
         }
         notifyCallback(channel, messageId, result); // for asyncSend
     }
@@ -611,6 +727,8 @@ public class Sender {
                     if (queueObject == null) {
                         continue;
                     }
+                    queueObject.cancelTimeout();
+                    queueObject.onDone(false);
                     if (isFile) {
                         ((FileCallback) queueObject.getCallback())
                                 .onMessageAck(SendResult.CONNECTION_BREAK.toString());
@@ -627,15 +745,9 @@ public class Sender {
         }
 
         try {
-            for (String messageId : syncCallables.keySet()) {
-                if (messageId == null) {
-                    continue;
-                }
-                SyncMessageCallable messageCallable = syncCallables.get(messageId);
-                if (messageCallable == null) {
-                    continue;
-                }
-                NettyClient nettyClient = messageCallable.getClient();
+            // fail all the sync sends waiting on the channel
+            for (Map.Entry<String, SyncMessageFuture> entry : syncCallables.entrySet()) {
+                NettyClient nettyClient = entry.getValue().getClient();
                 if (nettyClient == null) {
                     continue;
                 }
@@ -644,9 +756,8 @@ public class Sender {
                     continue;
                 }
                 if (netChannel1.id().equals(channel.id())) {
-                    messageCallable.update(SendResult.CONNECTION_BREAK);
-                    syncCallables.remove(messageId);
-                    break;
+                    syncCallables.remove(entry.getKey());
+                    entry.getValue().complete(SendResult.CONNECTION_BREAK);
                 }
             }
         } catch (Throwable e) {
@@ -685,6 +796,12 @@ public class Sender {
     }
 
     public void clearCallBack() {
+        for (ConcurrentHashMap<String, QueueObject> msgQueueMap : callbacks.values()) {
+            for (QueueObject queueObject : msgQueueMap.values()) {
+                queueObject.cancelTimeout();
+                queueObject.onDone(false);
+            }
+        }
         currentBufferSize.set(0);
         callbacks.clear();
     }
@@ -710,7 +827,7 @@ public class Sender {
             return false;
         }
         // used by sync send
-        for (SyncMessageCallable syncCallBack : syncCallables.values()) {
+        for (SyncMessageFuture syncCallBack : syncCallables.values()) {
             if (ObjectUtils.equals(client, syncCallBack.getClient())) {
                 return false;
             }
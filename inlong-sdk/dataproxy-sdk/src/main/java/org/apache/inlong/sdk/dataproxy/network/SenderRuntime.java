@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy.network;
+
+import org.apache.inlong.sdk.dataproxy.ProxyClientConfig;
+import org.apache.inlong.sdk.dataproxy.utils.EventLoopUtil;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The io threads shared by the senders of the process.
+ *
+ * A sender with the shared runtime enabled takes its event loops from here instead of
+ * creating its own, so a process sending to many groups keeps a fixed number of io
+ * threads. The runtime is created by the first sender acquiring it, and shut down once
+ * the last one releases it.
+ *
+ * Only the event loops are shared. Each sender still opens its own connections, as the
+ * handler of a connection hands the acks to the sender which opened it, and its client
+ * manager picks the proxies of its own group. Each sender also still runs its own timeout
+ * scan, metric, heartbeat and proxy config threads, so a process with many senders still
+ * runs four threads per sender besides the io threads. The timeout wheel, the manager
+ * fetcher and the message ids are the only other parts shared by the process.
+ */
+public class SenderRuntime {
+
+    private static final Logger logger = LoggerFactory.getLogger(SenderRuntime.class);
+    private static final Object LOCK = new Object();
+    private static SenderRuntime instance;
+
+    private final EventLoopGroup eventLoopGroup;
+    private int refCount = 0;
+
+    private SenderRuntime(ProxyClientConfig configure) {
+        this.eventLoopGroup = EventLoopUtil.newEventLoopGroup(configure.getSharedIoThreadNum(),
+                configure.isEnableBusyWait(), new DefaultThreadFactory("inlong-sender-shared-io", true));
+    }
+
+    /**
+     * Get the runtime of the process, create it if no sender is using it
+     *
+     * @param configure the config of the sender, the runtime is created by the config of the first sender
+     * @return the runtime, must be released by the sender once closed
+     */
+    public static SenderRuntime acquire(ProxyClientConfig configure) {
+        synchronized (LOCK) {
+            if (instance == null) {
+                instance = new SenderRuntime(configure);
+                logger.info("create shared sender runtime with {} io threads", configure.getSharedIoThreadNum());
+            }
+            instance.refCount++;
+            return instance;
+        }
+    }
+
+    /**
+     * Release the runtime, it is shut down once no sender is using it
+     */
+    public void release() {
+        synchronized (LOCK) {
+            if (refCount <= 0) {
+                return;
+            }
+            refCount--;
+            if (refCount > 0) {
+                return;
+            }
+            if (instance == this) {
+                instance = null;
+            }
+        }
+        logger.info("shut down shared sender runtime");
+        eventLoopGroup.shutdownGracefully();
+    }
+
+    public EventLoopGroup getEventLoopGroup() {
+        return eventLoopGroup;
+    }
+
+    public int getRefCount() {
+        synchronized (LOCK) {
+            return refCount;
+        }
+    }
+}
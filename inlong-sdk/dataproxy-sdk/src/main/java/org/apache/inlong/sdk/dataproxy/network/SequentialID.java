@@ -22,6 +22,8 @@ import java.util.concurrent.atomic.AtomicLong;
 public class SequentialID {
 
     private static final long maxId = 2000000000;
+    // shared by all the senders of the process, so the ids of a channel never collide
+    private static final SequentialID SHARED = new SequentialID(Utils.getLocalIp());
     private String ip = null;
     private AtomicLong id = new AtomicLong(0);
 
@@ -29,6 +31,10 @@ public class SequentialID {
         ip = theIp;
     }
 
+    public static SequentialID getShared() {
+        return SHARED;
+    }
+
     public synchronized String getNextId() {
         if (id.get() > maxId) {
             id.set(0);
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy.threads;
+
+import org.apache.inlong.sdk.dataproxy.codec.EncodeObject;
+import org.apache.inlong.sdk.dataproxy.common.SendMessageCallback;
+import org.apache.inlong.sdk.dataproxy.common.SendResult;
+import org.apache.inlong.sdk.dataproxy.network.DiskSpool;
+import org.apache.inlong.sdk.dataproxy.network.ProxysdkException;
+import org.apache.inlong.sdk.dataproxy.network.Sender;
+import org.apache.inlong.sdk.dataproxy.network.SequentialID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Daemon thread to replay the messages spooled on disk once the proxies are reachable.
+ *
+ * The messages are sent in order at the replay rate, a message failing with timeout or
+ * connection break is appended to the spool again. A message is acked to the spool once
+ * its result is known, the messages still in flight at shutdown are read again by the
+ * next run. The replay stops for a while when no proxy can be connected or the callback
+ * buffer is full.
+ */
+public class SpoolReplayThread extends Thread {
+
+    private static final long RETRY_INTERVAL_MS = 1000;
+    private static final long CHECKPOINT_INTERVAL_MS = 1000;
+    private final Logger logger = LoggerFactory.getLogger(SpoolReplayThread.class);
+    private final SequentialID idGenerator = SequentialID.getShared();
+    private final DiskSpool spool;
+    private final Sender sender;
+    private final long intervalNanos;
+    private final long timeoutMs;
+    private volatile boolean bShutDown = false;
+
+    public SpoolReplayThread(DiskSpool spool, Sender sender, int replayRate, long timeoutMs) {
+        this.spool = spool;
+        this.sender = sender;
+        this.intervalNanos = replayRate > 0 ? TimeUnit.SECONDS.toNanos(1) / replayRate : 0;
+        this.timeoutMs = timeoutMs;
+        this.setDaemon(true);
+        this.setName("SpoolReplayThread");
+    }
+
+    public void shutDown() {
+        logger.info("begin to shut down SpoolReplayThread!");
+        bShutDown = true;
+        this.interrupt();
+    }
+
+    @Override
+    public void run() {
+        logger.info("SpoolReplayThread started, spool bytes {}", spool.getTotalBytes());
+        DiskSpool.Entry pending = null;
+        long nextSendTime = System.nanoTime();
+        long lastCheckpoint = System.currentTimeMillis();
+        while (!bShutDown) {
+            try {
+                if (System.currentTimeMillis() - lastCheckpoint >= CHECKPOINT_INTERVAL_MS) {
+                    spool.checkpoint();
+                    lastCheckpoint = System.currentTimeMillis();
+                }
+                if (pending == null) {
+                    pending = spool.poll();
+                }
+                if (pending == null) {
+                    TimeUnit.MILLISECONDS.sleep(RETRY_INTERVAL_MS);
+                    continue;
+                }
+                long waitNanos = nextSendTime - System.nanoTime();
+                if (waitNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                }
+                nextSendTime = Math.max(nextSendTime, System.nanoTime() - intervalNanos) + intervalNanos;
+                pending.getMessage().setMessageId(String.valueOf(idGenerator.getNextInt()));
+                sender.replayMessage(pending.getMessage(), new ReplayCallback(pending), timeoutMs,
+                        TimeUnit.MILLISECONDS);
+                pending = null;
+            } catch (ProxysdkException e) {
+                // no proxy, too many messages in flight or the id in use, retry the message later
+                logger.debug("replay spooled message error {}", e.getMessage());
+                sleepQuietly();
+            } catch (InterruptedException e) {
+                if (!bShutDown) {
+                    logger.warn("SpoolReplayThread interrupted");
+                }
+            } catch (Throwable e) {
+                logger.error("SpoolReplayThread exception", e);
+                sleepQuietly();
+            }
+        }
+        // the message not sent yet is not acked, so it is read again by the next run
+        logger.info("SpoolReplayThread exited, spool bytes {}", spool.getTotalBytes());
+    }
+
+    private void sleepQuietly() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(RETRY_INTERVAL_MS);
+        } catch (InterruptedException e) {
+            // shut down
+        }
+    }
+
+    private void appendQuietly(EncodeObject encodeObject) {
+        try {
+            if (!spool.append(encodeObject)) {
+                logger.warn("spool is full, drop the message {}", encodeObject.getMessageId());
+            }
+        } catch (Throwable e) {
+            logger.error("spool message {} error", encodeObject.getMessageId(), e);
+        }
+    }
+
+    private void ackQuietly(DiskSpool.Entry entry) {
+        try {
+            spool.ack(entry);
+        } catch (Throwable e) {
+            logger.error("ack spooled message {} error", entry.getMessage().getMessageId(), e);
+        }
+    }
+
+    /**
+     * spool the message again if it is not acked by the proxy, then ack it to the spool
+     */
+    private class ReplayCallback implements SendMessageCallback {
+
+        private final DiskSpool.Entry entry;
+
+        private ReplayCallback(DiskSpool.Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public void onMessageAck(SendResult result) {
+            EncodeObject encodeObject = entry.getMessage();
+            if (result == SendResult.TIMEOUT || result == SendResult.CONNECTION_BREAK) {
+                appendQuietly(encodeObject);
+            } else if (result != SendResult.OK) {
+                logger.warn("replay spooled message {} failed {}", encodeObject.getMessageId(), result);
+            }
+            ackQuietly(entry);
+        }
+
+        @Override
+        public void onException(Throwable e) {
+            appendQuietly(entry.getMessage());
+            ackQuietly(entry);
+        }
+    }
+}
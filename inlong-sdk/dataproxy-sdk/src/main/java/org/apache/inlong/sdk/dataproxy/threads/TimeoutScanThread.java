@@ -25,19 +25,33 @@ import org.apache.inlong.sdk.dataproxy.network.QueueObject;
 import org.apache.inlong.sdk.dataproxy.network.TimeScanObject;
 
 import io.netty.channel.Channel;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Daemon threads to check timeout for asynchronous callback.
+ * Timeout of the asynchronous callbacks.
+ *
+ * Each message waiting for the ack is scheduled in a timer wheel shared by the senders,
+ * the timeout fires in constant time and is cancelled when the ack arrives, so the
+ * messages in flight are never scanned. The timeouts of a channel are counted as they
+ * fire, the channel is set busy once the count exceeds the max timeout count. The
+ * daemon thread only drops the stale channel counts.
  */
 public class TimeoutScanThread extends Thread {
 
     private static final int MAX_CHANNEL_TIMEOUT = 5 * 60 * 1000;
+    private static final long TICK_DURATION_MS = 20;
+    private static final int TICKS_PER_WHEEL = 1024;
+    private static final HashedWheelTimer TIMER = new HashedWheelTimer(
+            new DefaultThreadFactory("inlong-sdk-timeout", true),
+            TICK_DURATION_MS, TimeUnit.MILLISECONDS, TICKS_PER_WHEEL);
     private final Logger logger = LoggerFactory.getLogger(TimeoutScanThread.class);
     private final ConcurrentHashMap<Channel, ConcurrentHashMap<String, QueueObject>> callbacks;
     private final AtomicInteger currentBufferSize;
@@ -62,24 +76,40 @@ public class TimeoutScanThread extends Thread {
     public void shutDown() {
         logger.info("begin to shut down TimeoutScanThread!");
         bShutDown = true;
+        // the messages still waiting will not be acked any more
+        for (Map<String, QueueObject> msgQueueMap : callbacks.values()) {
+            for (QueueObject queueObject : msgQueueMap.values()) {
+                queueObject.cancelTimeout();
+            }
+        }
+    }
+
+    /**
+     * schedule the timeout of a message added to the callbacks of the channel
+     *
+     * @param channel the channel the message is sent on
+     * @param messageId the message id
+     * @param queueObject the callback of the message
+     */
+    public void scheduleTimeout(Channel channel, String messageId, QueueObject queueObject) {
+        queueObject.setTimeoutHandle(TIMER.newTimeout(timeout -> onTimeout(channel, messageId, queueObject),
+                Math.max(0, queueObject.getTimeoutInMillis()), TimeUnit.MILLISECONDS));
     }
 
     /**
-     * add timeout channel
+     * add timeout channel, set the channel busy if timeout too many times
      *
      * @param channel
      */
     public void addTimeoutChannel(Channel channel) {
         if (channel != null) {
-            TimeScanObject timeScanObject = timeoutChannelStat.get(channel);
-            if (timeScanObject == null) {
-                TimeScanObject tmpTimeObj = new TimeScanObject();
-                timeScanObject = timeoutChannelStat.putIfAbsent(channel, tmpTimeObj);
-                if (timeScanObject == null) {
-                    timeScanObject = tmpTimeObj;
-                }
+            TimeScanObject timeScanObject = timeoutChannelStat.computeIfAbsent(channel, k -> new TimeScanObject());
+            if (timeScanObject.incrementAndGet() > config.getMaxTimeoutCnt()
+                    && timeoutChannelStat.remove(channel, timeScanObject)
+                    && channel.isOpen() && channel.isActive()) {
+                clientMgr.setConnectionBusy(channel);
+                logger.error("this client {} is busy!", channel);
             }
-            timeScanObject.incrementAndGet();
         }
     }
 
@@ -98,62 +128,35 @@ public class TimeoutScanThread extends Thread {
     }
 
     /**
-     * check timeout
+     * remove the channels not timeout for more than 5 minutes
      */
     private void checkTimeoutChannel() {
-        // if timeout >3,set channel busy
-        for (Channel tmpChannel : timeoutChannelStat.keySet()) {
-            TimeScanObject timeScanObject = tmpChannel != null ? timeoutChannelStat.get(tmpChannel) : null;
-            if (timeScanObject == null) {
-                continue;
-            }
-
-            // If the channel exists in the list for more than 5 minutes,
-            // and does not reach the maximum number of timeouts, it will be removed
-            if (System.currentTimeMillis() - timeScanObject.getTime() > MAX_CHANNEL_TIMEOUT) {
-                timeoutChannelStat.remove(tmpChannel);
-            } else {
-
-                if (timeScanObject.getCurTimeoutCount() > config.getMaxTimeoutCnt()) {
-                    timeoutChannelStat.remove(tmpChannel);
-                    if (tmpChannel.isOpen() && tmpChannel.isActive()) {
-                        clientMgr.setConnectionBusy(tmpChannel);
-                        logger.error("this client {} is busy!", tmpChannel);
-                    }
-                }
-            }
-        }
+        long now = System.currentTimeMillis();
+        timeoutChannelStat.entrySet().removeIf(entry -> now - entry.getValue().getTime() > MAX_CHANNEL_TIMEOUT);
     }
 
     /**
-     * check message id
-     *
-     * @param channel
-     * @param messageIdCallbacks
+     * call back the message as timeout if it is still waiting for the ack
      */
-    private void checkMessageIdBasedCallbacks(Channel channel,
-            ConcurrentHashMap<String, QueueObject> messageIdCallbacks) {
-        for (String messageId : messageIdCallbacks.keySet()) {
-            QueueObject queueObject = messageId != null ? messageIdCallbacks.get(messageId) : null;
-            if (queueObject == null) {
-                continue;
-            }
-            // if queueObject timeout
-            if (System.currentTimeMillis() - queueObject.getSendTimeInMillis() >= queueObject.getTimeoutInMillis()) {
-                // remove it before callback
-                QueueObject queueObject1 = messageIdCallbacks.remove(messageId);
-                if (queueObject1 != null) {
-                    if (config.isFile()) {
-                        ((FileCallback) queueObject1.getCallback()).onMessageAck(SendResult.TIMEOUT.toString());
-                        currentBufferSize.addAndGet(-queueObject1.getSize());
-                    } else {
-                        queueObject1.getCallback().onMessageAck(SendResult.TIMEOUT);
-                        currentBufferSize.decrementAndGet();
-                    }
-                }
-                addTimeoutChannel(channel);
+    private void onTimeout(Channel channel, String messageId, QueueObject queueObject) {
+        ConcurrentHashMap<String, QueueObject> messageIdCallbacks = callbacks.get(channel);
+        // remove it before callback, it may have been acked
+        if (messageIdCallbacks == null || !messageIdCallbacks.remove(messageId, queueObject)) {
+            return;
+        }
+        queueObject.onDone(false);
+        try {
+            if (config.isFile()) {
+                ((FileCallback) queueObject.getCallback()).onMessageAck(SendResult.TIMEOUT.toString());
+                currentBufferSize.addAndGet(-queueObject.getSize());
+            } else {
+                queueObject.getCallback().onMessageAck(SendResult.TIMEOUT);
+                currentBufferSize.decrementAndGet();
             }
+        } catch (Throwable e) {
+            logger.error("timeout callback of message {} error", messageId, e);
         }
+        addTimeoutChannel(channel);
     }
 
     @Override
@@ -161,14 +164,6 @@ public class TimeoutScanThread extends Thread {
         logger.info("TimeoutScanThread Thread=" + Thread.currentThread().getId() + " started !");
         while (!bShutDown) {
             try {
-                for (Channel channel : callbacks.keySet()) {
-                    ConcurrentHashMap<String, QueueObject> msgQueueMap =
-                            channel != null ? callbacks.get(channel) : null;
-                    if (msgQueueMap == null) {
-                        continue;
-                    }
-                    checkMessageIdBasedCallbacks(channel, msgQueueMap);
-                }
                 checkTimeoutChannel();
                 TimeUnit.SECONDS.sleep(1);
             } catch (Throwable e) {
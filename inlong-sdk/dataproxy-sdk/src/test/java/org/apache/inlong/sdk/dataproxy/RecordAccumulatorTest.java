@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy;
+
+import org.apache.inlong.sdk.dataproxy.common.SendMessageCallback;
+import org.apache.inlong.sdk.dataproxy.common.SendResult;
+import org.apache.inlong.sdk.dataproxy.network.ProxysdkException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.api.mockito.PowerMockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+
+public class RecordAccumulatorTest {
+
+    private static final long NO_LINGER = TimeUnit.MINUTES.toMillis(10);
+
+    private final ConcurrentLinkedQueue<Integer> sentCounts = new ConcurrentLinkedQueue<>();
+    private DefaultMessageSender sender;
+    private RecordAccumulator accumulator;
+
+    @Before
+    public void setUp() throws Exception {
+        sender = PowerMockito.mock(DefaultMessageSender.class);
+        // ack each batch at once
+        PowerMockito.doAnswer(invocation -> {
+            sentCounts.add(invocation.getArgument(2));
+            ((SendMessageCallback) invocation.getArgument(0)).onMessageAck(SendResult.OK);
+            return null;
+        }).when(sender).asyncSendPacked(any(), any(), anyInt(), anyString(), anyString(), anyLong(),
+                anyString(), any(), anyLong(), any());
+    }
+
+    @After
+    public void tearDown() {
+        if (accumulator != null) {
+            accumulator.close();
+        }
+    }
+
+    private void append(SendMessageCallback callback, int size, String streamId) throws ProxysdkException {
+        accumulator.append(callback, new byte[size], "group", streamId, 1700000000000L, "a=b",
+                10, TimeUnit.SECONDS);
+    }
+
+    private static int sum(Iterable<Integer> counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    @Test
+    public void testFlushOnSize() throws Exception {
+        accumulator = new RecordAccumulator(sender, NO_LINGER, 100, 1024 * 1024);
+        for (int i = 0; i < 11; i++) {
+            append(null, 10, "stream");
+        }
+        // the batch reaching the batch bytes is sent at once
+        Assert.assertEquals(1, sentCounts.size());
+        Assert.assertEquals(10, (int) sentCounts.peek());
+        Assert.assertEquals(10, accumulator.getBufferedBytes());
+    }
+
+    @Test
+    public void testFlushOnLinger() throws Exception {
+        accumulator = new RecordAccumulator(sender, 50, 1024 * 1024, 1024 * 1024);
+        for (int i = 0; i < 3; i++) {
+            append(null, 10, "stream");
+        }
+        append(null, 10, "other");
+        long deadline = System.currentTimeMillis() + 10000;
+        while (sentCounts.size() < 2 && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        Assert.assertEquals(2, sentCounts.size());
+        Assert.assertEquals(4, sum(sentCounts));
+        Assert.assertEquals(0, accumulator.getBufferedBytes());
+    }
+
+    @Test
+    public void testMaxMessagesOfBatch() throws Exception {
+        accumulator = new RecordAccumulator(sender, NO_LINGER, Integer.MAX_VALUE, Long.MAX_VALUE);
+        for (int i = 0; i <= RecordAccumulator.MAX_BATCH_MESSAGES; i++) {
+            append(null, 0, "stream");
+        }
+        // the message count of a frame fits in 2 bytes
+        Assert.assertEquals(1, sentCounts.size());
+        Assert.assertEquals(RecordAccumulator.MAX_BATCH_MESSAGES, (int) sentCounts.peek());
+        accumulator.close();
+        Assert.assertEquals(2, sentCounts.size());
+        Assert.assertEquals(RecordAccumulator.MAX_BATCH_MESSAGES + 1, sum(sentCounts));
+    }
+
+    @Test
+    public void testConcurrentAppends() throws Exception {
+        accumulator = new RecordAccumulator(sender, 5, 1000, 1024 * 1024);
+        int threadNum = 4;
+        int count = 10000;
+        AtomicInteger acked = new AtomicInteger();
+        SendMessageCallback callback = new SendMessageCallback() {
+
+            @Override
+            public void onMessageAck(SendResult result) {
+                Assert.assertEquals(SendResult.OK, result);
+                acked.incrementAndGet();
+            }
+
+            @Override
+            public void onException(Throwable e) {
+                Assert.fail();
+            }
+        };
+        AtomicInteger failed = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadNum; i++) {
+            // two threads append to each stream
+            String streamId = "stream" + i % 2;
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < count; j++) {
+                    try {
+                        append(callback, 10, streamId);
+                    } catch (ProxysdkException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        accumulator.close();
+        Assert.assertEquals(0, failed.get());
+        Assert.assertEquals(threadNum * count, sum(sentCounts));
+        Assert.assertEquals(threadNum * count, acked.get());
+        Assert.assertEquals(0, accumulator.getBufferedBytes());
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        accumulator = new RecordAccumulator(sender, NO_LINGER, 1024, 100);
+        append(null, 60, "stream");
+        try {
+            append(null, 60, "stream");
+            Assert.fail();
+        } catch (ProxysdkException e) {
+            Assert.assertEquals(SendResult.ASYNC_CALLBACK_BUFFER_FULL.toString(), e.getMessage());
+        }
+        Assert.assertTrue(sentCounts.isEmpty());
+        // the batches left are sent once closed
+        accumulator.close();
+        Assert.assertEquals(1, sentCounts.size());
+        Assert.assertEquals(0, accumulator.getBufferedBytes());
+        try {
+            append(null, 10, "stream");
+            Assert.fail();
+        } catch (ProxysdkException e) {
+            Assert.assertEquals("accumulator is closed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testAppendWhileClosing() throws Exception {
+        accumulator = new RecordAccumulator(sender, NO_LINGER, 1024 * 1024, Long.MAX_VALUE);
+        AtomicInteger appended = new AtomicInteger();
+        AtomicInteger acked = new AtomicInteger();
+        SendMessageCallback callback = new SendMessageCallback() {
+
+            @Override
+            public void onMessageAck(SendResult result) {
+                acked.incrementAndGet();
+            }
+
+            @Override
+            public void onException(Throwable e) {
+                Assert.fail();
+            }
+        };
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String streamId = "stream" + i;
+            Thread thread = new Thread(() -> {
+                for (int j = 0;; j++) {
+                    try {
+                        // a new batch every few messages, so the close races with the batches created
+                        append(callback, 10, streamId + "-" + j / 8);
+                        appended.incrementAndGet();
+                    } catch (ProxysdkException e) {
+                        return;
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        TimeUnit.MILLISECONDS.sleep(50);
+        accumulator.close();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // every message appended is sent and called back, none is left once closed
+        Assert.assertEquals(appended.get(), acked.get());
+        Assert.assertEquals(appended.get(), sum(sentCounts));
+        Assert.assertEquals(0, accumulator.getBufferedBytes());
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy.codec;
+
+import io.netty.buffer.ByteBuf;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode the frames of msgtype 5 and of msgtype 7 with a single body, a body list and a
+ * packed body, with and without compression.
+ *
+ * Run with the gc profiler to see the bytes allocated per frame:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *  -Dexec.mainClass=org.apache.inlong.sdk.dataproxy.codec.ProtocolEncoderBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ProtocolEncoderBenchmark {
+
+    private static final int BODY_SIZE = 512;
+    private static final int LIST_SIZE = 100;
+
+    @Param({"5", "7", "7-list", "7-packed"})
+    private String msgType;
+
+    @Param({"true", "false"})
+    private boolean compress;
+
+    private final ProtocolEncoder encoder = new ProtocolEncoder();
+    private final List<Object> out = new ArrayList<>(1);
+    private byte[] body;
+    private List<byte[]> bodyList;
+    private byte[] packedBody;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Random random = new Random(0);
+        bodyList = new ArrayList<>(LIST_SIZE);
+        for (int i = 0; i < LIST_SIZE; i++) {
+            byte[] data = new byte[BODY_SIZE];
+            for (int j = 0; j < BODY_SIZE; j++) {
+                // text like data, so compression works as on real records
+                data[j] = (byte) ('a' + random.nextInt(16));
+            }
+            bodyList.add(data);
+        }
+        body = bodyList.get(0);
+        packedBody = ProtocolEncoder.packBodyList(bodyList, false, compress);
+    }
+
+    @Benchmark
+    public int encode() throws Exception {
+        EncodeObject object;
+        switch (msgType) {
+            case "5":
+                object = new EncodeObject(bodyList, "groupId=g&streamId=s&dt=1700000000000", "1", 5, compress, "g");
+                break;
+            case "7":
+                object = new EncodeObject(body, 7, compress, false, false, 1700000000L, 1, "g", "s", "");
+                break;
+            case "7-list":
+                object = new EncodeObject(bodyList, 7, compress, false, false, 1700000000L, 1, "g", "s", "");
+                break;
+            default:
+                object = new EncodeObject(packedBody, 7, compress, false, false, 1700000000L, 1, "g", "s", "");
+                object.setPacked(true);
+                object.setCnt(LIST_SIZE);
+                break;
+        }
+        encoder.encode(null, object, out);
+        ByteBuf buf = (ByteBuf) out.remove(0);
+        int length = buf.readableBytes();
+        buf.release();
+        return length;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ProtocolEncoderBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
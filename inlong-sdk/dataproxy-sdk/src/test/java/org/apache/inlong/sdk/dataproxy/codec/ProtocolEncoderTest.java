@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy.codec;
+
+import org.apache.inlong.common.msg.AttributeConstants;
+import org.apache.inlong.sdk.dataproxy.config.EncryptConfigEntry;
+import org.apache.inlong.sdk.dataproxy.config.EncryptInfo;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import org.junit.Assert;
+import org.junit.Test;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.reflect.Whitebox;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ProtocolEncoderTest {
+
+    private static final byte[] BODY = "body of the message".getBytes(StandardCharsets.UTF_8);
+    private static final List<byte[]> BODY_LIST = Arrays.asList("first body".getBytes(StandardCharsets.UTF_8),
+            "second body".getBytes(StandardCharsets.UTF_8), "third body".getBytes(StandardCharsets.UTF_8));
+    private static final byte[] AES_KEY = "0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+    private static final String REPORT_TIME = AttributeConstants.MSG_RPT_TIME + "=1700000000000";
+
+    /**
+     * The frames below were encoded by the encoder before the bodies were written straight
+     * into the frame buffer, the protocol must not change.
+     */
+    @Test
+    public void testMsgType3Frames() throws Exception {
+        assertFrame("000000620300000013626f6479206f6620746865206d6573736167650000004667726f757049643d74657374"
+                + "5f67726f75702673747265616d49643d746573745f73747265616d266d65737361676549643d312672746d73"
+                + "3d31373030303030303030303030",
+                attrMessage(3, false, false));
+        assertFrame("000000710300000022666972737420626f64790a7365636f6e6420626f64790a746869726420626f64790a00"
+                + "00004667726f757049643d746573745f67726f75702673747265616d49643d746573745f73747265616d266d"
+                + "65737361676549643d312672746d733d31373030303030303030303030",
+                attrMessage(3, true, false));
+        assertFrame("0000007003000000212240666972737420626f64790a7365636f6e64090c28746869726420626f64790a0000"
+                + "004667726f757049643d746573745f67726f75702673747265616d49643d746573745f73747265616d266d65"
+                + "737361676549643d312672746d733d31373030303030303030303030",
+                attrMessage(3, true, true));
+        assertFrame("000000a543000000204024d5ecfa00cd31ba03fcbf00b0fda41ca5f8114e7191de0a1ea0530c04ff76000000"
+                + "7c67726f757049643d746573745f67726f75702673747265616d49643d746573745f73747265616d266d6573"
+                + "7361676549643d312672746d733d31373030303030303030303030265f757365724e616d653d746573745f75"
+                + "736572265f656e637956657273696f6e3d31265f656e63794165734b65793d7273614b6579",
+                encrypt(attrMessage(3, false, true)));
+        assertFrame("000000830300000022666972737420626f64790a7365636f6e6420626f64790a746869726420626f64790a00"
+                + "00005867726f757049643d746573745f67726f75702673747265616d49643d746573745f73747265616d266d"
+                + "65737361676549643d312672746d733d31373030303030303030303030266d7367555549443d746573742d75"
+                + "756964",
+                withUUID(attrMessage(3, true, false)));
+    }
+
+    @Test
+    public void testMsgType5Frames() throws Exception {
+        assertFrame("00000066050000001700000013626f6479206f6620746865206d6573736167650000004667726f757049643d"
+                + "746573745f67726f75702673747265616d49643d746573745f73747265616d266d65737361676549643d3126"
+                + "72746d733d31373030303030303030303030",
+                attrMessage(5, false, false));
+        assertFrame("0000007a050000002b0000000a666972737420626f64790000000b7365636f6e6420626f64790000000a7468"
+                + "69726420626f64790000004667726f757049643d746573745f67726f75702673747265616d49643d74657374"
+                + "5f73747265616d266d65737361676549643d312672746d733d31373030303030303030303030",
+                attrMessage(5, true, false));
+        assertFrame("0000007705000000282b5c0000000a666972737420626f64790000000b7365636f6e64110f280a7468697264"
+                + "20626f64790000004667726f757049643d746573745f67726f75702673747265616d49643d746573745f7374"
+                + "7265616d266d65737361676549643d312672746d733d31373030303030303030303030",
+                attrMessage(5, true, true));
+        assertFrame("000000b54500000030171ae8a176d0088f25ab27a78144d526c81b88c55786555a6deedd2f671231ae2604bd"
+                + "ec689bdecce47a2264ef2a52f60000007c67726f757049643d746573745f67726f75702673747265616d4964"
+                + "3d746573745f73747265616d266d65737361676549643d312672746d733d3137303030303030303030303026"
+                + "5f757365724e616d653d746573745f75736572265f656e637956657273696f6e3d31265f656e63794165734b"
+                + "65793d7273614b6579",
+                encrypt(attrMessage(5, true, false)));
+        assertFrame("00000078050000001700000013626f6479206f6620746865206d6573736167650000005867726f757049643d"
+                + "746573745f67726f75702673747265616d49643d746573745f73747265616d266d65737361676549643d3126"
+                + "72746d733d31373030303030303030303030266d7367555549443d746573742d75756964",
+                withUUID(attrMessage(5, false, false)));
+    }
+
+    @Test
+    public void testMsgType7Frames() throws Exception {
+        assertFrame("00000071070000000000046553f1000001000000010000001700000013626f6479206f6620746865206d6573"
+                + "736167650041617474723d312672746d733d313730303030303030303030302667726f757049643d74657374"
+                + "5f67726f75702673747265616d49643d746573745f73747265616dee01",
+                binMessage(false, false, false, false));
+        assertFrame("00000085070000000000046553f1000003000000010000002b0000000a666972737420626f64790000000b73"
+                + "65636f6e6420626f64790000000a746869726420626f64790041617474723d312672746d733d313730303030"
+                + "303030303030302667726f757049643d746573745f67726f75702673747265616d49643d746573745f737472"
+                + "65616dee01",
+                binMessage(true, false, false, false));
+        assertFrame("0000007f070000000000246553f1000003000000010000002500000021666972737420626f64790a7365636f"
+                + "6e6420626f64790a746869726420626f64790041617474723d312672746d733d313730303030303030303030"
+                + "302667726f757049643d746573745f67726f75702673747265616d49643d746573745f73747265616dee01",
+                binMessage(true, false, true, false));
+        assertFrame("00000073270000000000046553f10000010000000100000019175800000013626f6479206f6620746865206d"
+                + "6573736167650041617474723d312672746d733d313730303030303030303030302667726f757049643d7465"
+                + "73745f67726f75702673747265616d49643d746573745f73747265616dee01",
+                binMessage(false, true, false, false));
+        assertFrame("00000082270000000000046553f100000300000001000000282b5c0000000a666972737420626f6479000000"
+                + "0b7365636f6e64110f280a746869726420626f64790041617474723d312672746d733d313730303030303030"
+                + "303030302667726f757049643d746573745f67726f75702673747265616d49643d746573745f73747265616d"
+                + "ee01",
+                binMessage(true, true, false, false));
+        assertFrame("0000007e270000000000246553f10000030000000100000024255000000021666972737420626f64790a7365"
+                + "636f6e64090c24746869726420626f64790041617474723d312672746d733d31373030303030303030303030"
+                + "2667726f757049643d746573745f67726f75702673747265616d49643d746573745f73747265616dee01",
+                binMessage(true, true, true, false));
+        assertFrame("000000c0670000000000246553f10000030000000100000030168fb631c3631dccb2ddb6e5e8590e479ef617"
+                + "15d4c06515f81823b4686ffbc08512e2d44efc45ca7e3a7b2033e5c5950077617474723d312672746d733d31"
+                + "373030303030303030303030265f757365724e616d653d746573745f75736572265f656e637956657273696f"
+                + "6e3d31265f656e63794165734b65793d7273614b65792667726f757049643d746573745f67726f7570267374"
+                + "7265616d49643d746573745f73747265616dee01",
+                encrypt(binMessage(true, true, true, false)));
+        assertFrame("00000083070000000000046553f1000001000000010000001700000013626f6479206f6620746865206d6573"
+                + "736167650053617474723d312672746d733d313730303030303030303030302667726f757049643d74657374"
+                + "5f67726f75702673747265616d49643d746573745f73747265616d266d7367555549443d746573742d757569"
+                + "64ee01",
+                withUUID(binMessage(false, false, false, false)));
+        assertFrame("0000005d070003000400006553f1000003000000010000002b0000000a666972737420626f64790000000b73"
+                + "65636f6e6420626f64790000000a746869726420626f64790019617474723d312672746d733d313730303030"
+                + "30303030303030ee01",
+                binMessage(true, false, false, true));
+    }
+
+    @Test
+    public void testPackedBodyList() throws Exception {
+        List<byte[]> bodyList = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            bodyList.add(("message of the packed body " + i).getBytes(StandardCharsets.UTF_8));
+        }
+        for (boolean isCompress : new boolean[]{true, false}) {
+            for (boolean isSupportLF : new boolean[]{true, false}) {
+                EncodeObject listObject = new EncodeObject(bodyList, 7, isCompress, false, false,
+                        1700000000L, 1L, "groupId", "streamId", "attr=1");
+                listObject.setSupportLF(isSupportLF);
+                byte[] packedBody = ProtocolEncoder.packBodyList(bodyList, isSupportLF, isCompress);
+                EncodeObject packedObject = new EncodeObject(packedBody, 7, isCompress, false, false,
+                        1700000000L, 1L, "groupId", "streamId", "attr=1");
+                packedObject.setSupportLF(isSupportLF);
+                packedObject.setPacked(true);
+                packedObject.setCnt(bodyList.size());
+                // the report time is added at creation
+                packedObject.setCommonattr(listObject.getCommonattr());
+                Assert.assertEquals(bodyList.size(), packedObject.getRealCnt());
+                // the packed body is encoded the same as the body list
+                Assert.assertArrayEquals(encode(listObject), encode(packedObject));
+            }
+        }
+    }
+
+    private static EncodeObject attrMessage(int msgtype, boolean isList, boolean isCompress) {
+        String attributes = "groupId=test_group&streamId=test_stream";
+        EncodeObject object = isList
+                ? new EncodeObject(BODY_LIST, attributes, "1", msgtype, isCompress, "test_group")
+                : new EncodeObject(BODY, attributes, "1", msgtype, isCompress, "test_group");
+        // the report time is added at creation
+        Whitebox.setInternalState(object, "attributes", attributes + "&messageId=1&" + REPORT_TIME);
+        return object;
+    }
+
+    private static EncodeObject binMessage(boolean isList, boolean isCompress, boolean isSupportLF,
+            boolean isGroupIdTransfer) {
+        EncodeObject object = isList
+                ? new EncodeObject(BODY_LIST, 7, isCompress, false, isGroupIdTransfer, 1700000000L, 1L,
+                        "test_group", "test_stream", "attr=1")
+                : new EncodeObject(BODY, 7, isCompress, false, isGroupIdTransfer, 1700000000L, 1L,
+                        "test_group", "test_stream", "attr=1");
+        object.setSupportLF(isSupportLF);
+        object.setCommonattr("attr=1&" + REPORT_TIME);
+        if (isGroupIdTransfer) {
+            object.setGroupIdNum(3);
+            object.setStreamIdNum(4);
+        }
+        return object;
+    }
+
+    private static EncodeObject encrypt(EncodeObject object) {
+        EncryptConfigEntry encryptEntry = PowerMockito.mock(EncryptConfigEntry.class);
+        PowerMockito.when(encryptEntry.getRsaEncryptInfo()).thenReturn(new EncryptInfo("1", "rsaKey", AES_KEY));
+        object.setEncryptEntry(true, "test_user", encryptEntry);
+        return object;
+    }
+
+    private static EncodeObject withUUID(EncodeObject object) {
+        object.setMsgUUID("test-uuid");
+        return object;
+    }
+
+    private void assertFrame(String expectedHex, EncodeObject object) throws Exception {
+        Assert.assertEquals(expectedHex, ByteBufUtil.hexDump(encode(object)));
+    }
+
+    private byte[] encode(EncodeObject object) throws Exception {
+        List<Object> out = new ArrayList<>();
+        new ProtocolEncoder().encode(null, object, out);
+        Assert.assertEquals(1, out.size());
+        ByteBuf buf = (ByteBuf) out.get(0);
+        byte[] bytes = ByteBufUtil.getBytes(buf);
+        buf.release();
+        return bytes;
+    }
+}
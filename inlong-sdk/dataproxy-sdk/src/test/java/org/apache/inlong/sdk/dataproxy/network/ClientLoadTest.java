@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy.network;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClientLoadTest {
+
+    @Test
+    public void testCostFollowsLoad() {
+        ClientLoad fast = new ClientLoad();
+        ClientLoad slow = new ClientLoad();
+        for (int i = 0; i < 10; i++) {
+            fast.onSend(1024);
+            fast.onAck(1024, 2, true);
+            slow.onSend(1024);
+            slow.onAck(1024, 200, true);
+        }
+        Assert.assertEquals(0, fast.getInFlightBytes());
+        // a slow ack raises the latency at once
+        Assert.assertTrue(slow.getCost() > fast.getCost());
+
+        // the bytes in flight raise the cost of the fast client
+        fast.onSend(64 * 1024 * 1024);
+        Assert.assertTrue(fast.getCost() > slow.getCost());
+        fast.onAck(64 * 1024 * 1024, 2, true);
+
+        // a failure counts as a slow ack
+        ClientLoad failed = new ClientLoad();
+        failed.onSend(1024);
+        failed.onAck(1024, 1, false);
+        Assert.assertTrue(failed.getRttMs() >= 1000);
+        Assert.assertTrue(failed.getCost() > slow.getCost());
+    }
+}
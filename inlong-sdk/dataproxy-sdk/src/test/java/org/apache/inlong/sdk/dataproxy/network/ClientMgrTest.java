@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy.network;
+
+import org.apache.inlong.sdk.dataproxy.ProxyClientConfig;
+import org.apache.inlong.sdk.dataproxy.config.ProxyConfigManager;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.reflect.Whitebox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ClientMgrTest {
+
+    private static NettyClient newClient(boolean active) {
+        NettyClient client = PowerMockito.mock(NettyClient.class);
+        PowerMockito.when(client.isActive()).thenReturn(active);
+        PowerMockito.when(client.getLoad()).thenReturn(new ClientLoad());
+        return client;
+    }
+
+    private static ClientMgr newClientMgr(NettyClient... clients) {
+        // a client manager without the connections and the threads of the constructor
+        ClientMgr clientMgr = PowerMockito.mock(ClientMgr.class);
+        PowerMockito.when(clientMgr.getClientByLeastLoad()).thenCallRealMethod();
+        Whitebox.setInternalState(clientMgr, "clientList", new ArrayList<>(Arrays.asList(clients)));
+        return clientMgr;
+    }
+
+    @Test
+    public void testLeastLoad() {
+        Assert.assertNull(newClientMgr().getClientByLeastLoad());
+        NettyClient inactive = newClient(false);
+        Assert.assertNull(newClientMgr(inactive).getClientByLeastLoad());
+        NettyClient single = newClient(true);
+        Assert.assertSame(single, newClientMgr(inactive, single).getClientByLeastLoad());
+
+        NettyClient busy = newClient(true);
+        NettyClient first = newClient(true);
+        NettyClient second = newClient(true);
+        busy.getLoad().onSend(64 * 1024 * 1024);
+        ClientMgr clientMgr = newClientMgr(busy, inactive, first, second);
+        int firstCount = 0;
+        for (int i = 0; i < 1000; i++) {
+            NettyClient client = clientMgr.getClientByLeastLoad();
+            // two different active clients are compared, the busy one always loses
+            Assert.assertTrue(client == first || client == second);
+            if (client == first) {
+                firstCount++;
+            }
+        }
+        Assert.assertTrue(firstCount > 0 && firstCount < 1000);
+
+        // a slow ack moves the traffic away
+        first.getLoad().onSend(1024);
+        first.getLoad().onAck(1024, 500, true);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertNotSame(first, newClientMgr(first, second).getClientByLeastLoad());
+        }
+    }
+
+    @Test
+    public void testShutDownReleasesRuntimeOnce() throws Exception {
+        ProxyClientConfig configure = new ProxyClientConfig("127.0.0.1", false, "127.0.0.1", 8083,
+                "test_group", "test", "123456");
+        configure.setEnableSharedRuntime(true);
+        configure.setSharedIoThreadNum(1);
+        SenderRuntime other = SenderRuntime.acquire(configure);
+        SenderRuntime runtime = SenderRuntime.acquire(configure);
+        Assert.assertSame(other, runtime);
+
+        ClientMgr clientMgr = newClientMgr();
+        PowerMockito.doCallRealMethod().when(clientMgr).shutDown();
+        Class<?> hbThreadClass = Class.forName(ClientMgr.class.getName() + "$SendHBThread");
+        Whitebox.setInternalState(clientMgr, "sendHBThread",
+                Whitebox.invokeConstructor(hbThreadClass, new Class<?>[]{ClientMgr.class}, new Object[]{clientMgr}));
+        Whitebox.setInternalState(clientMgr, "ipManager", PowerMockito.mock(ProxyConfigManager.class));
+        Whitebox.setInternalState(clientMgr, "sender", PowerMockito.mock(Sender.class));
+        Whitebox.setInternalState(clientMgr, "configure", configure);
+        Whitebox.setInternalState(clientMgr, "runtime", runtime);
+        for (String field : new String[]{"clientMap", "clientMapData", "clientMapHB",
+                "channelLoadMapData", "channelLoadMapHB"}) {
+            Whitebox.setInternalState(clientMgr, field, new ConcurrentHashMap<>());
+        }
+
+        clientMgr.shutDown();
+        clientMgr.shutDown();
+        // the runtime is still used by the other sender
+        Assert.assertEquals(1, runtime.getRefCount());
+        Assert.assertFalse(runtime.getEventLoopGroup().isShuttingDown());
+        other.release();
+        Assert.assertTrue(runtime.getEventLoopGroup().isShuttingDown());
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy.network;
+
+import org.apache.inlong.sdk.dataproxy.codec.EncodeObject;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.powermock.reflect.Whitebox;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class DiskSpoolTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAppendAndReplayInOrder() throws Exception {
+        File dir = folder.newFolder("spool");
+        DiskSpool spool = new DiskSpool(dir, 1024 * 1024, 1024);
+        for (int i = 0; i < 50; i++) {
+            Assert.assertTrue(spool.append(message(i)));
+        }
+        for (int i = 0; i < 20; i++) {
+            spool.ack(assertMessage(i, spool.poll()));
+        }
+        spool.checkpoint();
+        // crash without checkpoint, the message is read again after restart
+        spool.ack(assertMessage(20, spool.poll()));
+        crash(spool);
+
+        spool = new DiskSpool(dir, 1024 * 1024, 1024);
+        for (int i = 20; i < 50; i++) {
+            spool.ack(assertMessage(i, spool.poll()));
+        }
+        Assert.assertNull(spool.poll());
+        Assert.assertTrue(spool.append(message(50)));
+        spool.ack(assertMessage(50, spool.poll()));
+        spool.close();
+        // the segments read are deleted
+        Assert.assertEquals(0, dir.list((d, name) -> name.endsWith(".seg")).length);
+    }
+
+    @Test
+    public void testReplayFailure() throws Exception {
+        File dir = folder.newFolder("spool");
+        DiskSpool spool = new DiskSpool(dir, 1024 * 1024, 256);
+        for (int i = 0; i < 20; i++) {
+            Assert.assertTrue(spool.append(message(i)));
+        }
+        int segmentCount = dir.list((d, name) -> name.endsWith(".seg")).length;
+        Assert.assertTrue(segmentCount > 2);
+        assertMessage(0, spool.poll());
+        for (int i = 1; i < 10; i++) {
+            spool.ack(assertMessage(i, spool.poll()));
+        }
+        // the segments read are kept while the first message is in flight
+        spool.checkpoint();
+        Assert.assertEquals(segmentCount, dir.list((d, name) -> name.endsWith(".seg")).length);
+
+        // crash before the first message is acked, all are read again
+        crash(spool);
+        spool = new DiskSpool(dir, 1024 * 1024, 256);
+        DiskSpool.Entry first = assertMessage(0, spool.poll());
+        DiskSpool.Entry second = assertMessage(1, spool.poll());
+        for (int i = 2; i < 10; i++) {
+            spool.ack(assertMessage(i, spool.poll()));
+        }
+        spool.ack(first);
+        spool.checkpoint();
+        // the failed message is spooled again then acked
+        Assert.assertTrue(spool.append(second.getMessage()));
+        spool.ack(second);
+        Assert.assertTrue(dir.list((d, name) -> name.endsWith(".seg")).length < segmentCount);
+        spool.close();
+
+        spool = new DiskSpool(dir, 1024 * 1024, 256);
+        for (int i = 10; i < 20; i++) {
+            spool.ack(assertMessage(i, spool.poll()));
+        }
+        spool.ack(assertMessage(1, spool.poll()));
+        Assert.assertNull(spool.poll());
+        spool.close();
+        Assert.assertEquals(0, dir.list((d, name) -> name.endsWith(".seg")).length);
+    }
+
+    @Test
+    public void testSpoolFullAndBrokenFrame() throws Exception {
+        File dir = folder.newFolder("spool");
+        DiskSpool spool = new DiskSpool(dir, 300, 1024 * 1024);
+        int count = 0;
+        while (spool.append(message(count))) {
+            count++;
+        }
+        Assert.assertTrue(count > 0);
+        Assert.assertTrue(spool.getTotalBytes() <= 300);
+        spool.close();
+
+        // break the payload of the second message
+        File segment = dir.listFiles((d, name) -> name.endsWith(".seg"))[0];
+        int frameSize = (int) (segment.length() / count);
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(frameSize + frameSize - 1);
+            file.write(0xff);
+        }
+        spool = new DiskSpool(dir, 300, 1024 * 1024);
+        assertMessage(0, spool.poll());
+        // the rest of the broken segment is skipped
+        Assert.assertNull(spool.poll());
+        spool.close();
+    }
+
+    @Test
+    public void testDirLocked() throws Exception {
+        File dir = folder.newFolder("spool");
+        DiskSpool spool = new DiskSpool(dir, 1024 * 1024, 1024);
+        try {
+            new DiskSpool(dir, 1024 * 1024, 1024);
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().contains("used by another sender"));
+        }
+        spool.close();
+        // the dir can be opened again once closed
+        spool = new DiskSpool(dir, 1024 * 1024, 1024);
+        spool.close();
+    }
+
+    /**
+     * the lock of the spool dir is released by the process exiting
+     */
+    private static void crash(DiskSpool spool) throws IOException {
+        FileLock dirLock = Whitebox.getInternalState(spool, "dirLock");
+        dirLock.channel().close();
+    }
+
+    private static EncodeObject message(int index) {
+        EncodeObject encodeObject = new EncodeObject(
+                Arrays.asList(("body " + index).getBytes(StandardCharsets.UTF_8)), 7, false, false, false,
+                1700000000L + index, index, "groupId", "streamId" + index, "attr=" + index);
+        encodeObject.setSupportLF(index % 2 == 0);
+        return encodeObject;
+    }
+
+    private static DiskSpool.Entry assertMessage(int index, DiskSpool.Entry entry) {
+        Assert.assertNotNull(entry);
+        EncodeObject encodeObject = entry.getMessage();
+        Assert.assertEquals(7, encodeObject.getMsgtype());
+        Assert.assertEquals(1700000000L + index, encodeObject.getDt());
+        Assert.assertEquals("streamId" + index, encodeObject.getStreamId());
+        Assert.assertTrue(encodeObject.getCommonattr().startsWith("attr=" + index + "&"));
+        Assert.assertEquals(index % 2 == 0, encodeObject.isSupportLF());
+        Assert.assertEquals("body " + index, new String(encodeObject.getBodylist().get(0), StandardCharsets.UTF_8));
+        return entry;
+    }
+}
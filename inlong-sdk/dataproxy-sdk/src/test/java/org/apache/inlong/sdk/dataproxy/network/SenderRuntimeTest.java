@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy.network;
+
+import org.apache.inlong.sdk.dataproxy.ProxyClientConfig;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SenderRuntimeTest {
+
+    @Test
+    public void testSharedUntilLastRelease() throws Exception {
+        ProxyClientConfig configure = new ProxyClientConfig("127.0.0.1", false, "127.0.0.1", 8083,
+                "test_group", "test", "123456");
+        configure.setEnableSharedRuntime(true);
+        configure.setSharedIoThreadNum(2);
+
+        SenderRuntime first = SenderRuntime.acquire(configure);
+        SenderRuntime second = SenderRuntime.acquire(configure);
+        Assert.assertSame(first, second);
+        Assert.assertEquals(2, first.getRefCount());
+
+        first.release();
+        Assert.assertFalse(first.getEventLoopGroup().isShuttingDown());
+        second.release();
+        Assert.assertTrue(first.getEventLoopGroup().isShuttingDown());
+        // released more times than acquired
+        second.release();
+        Assert.assertEquals(0, first.getRefCount());
+
+        SenderRuntime third = SenderRuntime.acquire(configure);
+        Assert.assertNotSame(first, third);
+        Assert.assertFalse(third.getEventLoopGroup().isShuttingDown());
+        third.release();
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy.network;
+
+import org.apache.inlong.common.msg.AttributeConstants;
+import org.apache.inlong.sdk.dataproxy.LoadBalance;
+import org.apache.inlong.sdk.dataproxy.ProxyClientConfig;
+import org.apache.inlong.sdk.dataproxy.codec.EncodeObject;
+import org.apache.inlong.sdk.dataproxy.common.SendMessageCallback;
+import org.apache.inlong.sdk.dataproxy.common.SendResult;
+import org.apache.inlong.sdk.dataproxy.threads.MetricWorkerThread;
+import org.apache.inlong.sdk.dataproxy.threads.SpoolReplayThread;
+import org.apache.inlong.sdk.dataproxy.threads.TimeoutScanThread;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.reflect.Whitebox;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+
+public class SenderTest {
+
+    private static final byte[] BODY = new byte[100];
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private Sender sender;
+    private TimeoutScanThread scanThread;
+    private NettyClient client;
+    private EmbeddedChannel channel;
+    private Map<String, SyncMessageFuture> syncCallables;
+    private ClientMgr clientMgr;
+
+    @Before
+    public void setUp() {
+        // a sender without the proxy config fetching and the worker threads of the constructor
+        sender = PowerMockito.mock(Sender.class);
+        PowerMockito.when(sender.syncSendMessage(any(), anyString(), anyLong(), any())).thenCallRealMethod();
+        PowerMockito.when(sender.isIdleClient(any())).thenCallRealMethod();
+        scanThread = PowerMockito.mock(TimeoutScanThread.class);
+        channel = new EmbeddedChannel();
+        client = PowerMockito.mock(NettyClient.class);
+        PowerMockito.when(client.getLoad()).thenReturn(new ClientLoad());
+        PowerMockito.when(client.getChannel()).thenReturn(channel);
+        clientMgr = PowerMockito.mock(ClientMgr.class);
+        PowerMockito.when(clientMgr.getLoadBalance()).thenReturn(LoadBalance.LEAST_LOAD);
+        PowerMockito.when(clientMgr.getClient(any(), any())).thenReturn(client);
+        syncCallables = new ConcurrentHashMap<>();
+        Whitebox.setInternalState(sender, "callbacks", new ConcurrentHashMap<>());
+        Whitebox.setInternalState(sender, "syncCallables", syncCallables);
+        Whitebox.setInternalState(sender, "scanThread", scanThread);
+        Whitebox.setInternalState(sender, "clientMgr", clientMgr);
+        Whitebox.setInternalState(sender, "configure", PowerMockito.mock(ProxyClientConfig.class));
+        Whitebox.setInternalState(sender, "metricWorker", PowerMockito.mock(MetricWorkerThread.class));
+    }
+
+    private static EncodeObject newMessage(String messageId) {
+        return new EncodeObject(BODY, "a=b", messageId, 5, false, "test_group");
+    }
+
+    private void assertAcked() {
+        Assert.assertEquals(0, client.getLoad().getInFlightBytes());
+        Assert.assertTrue(syncCallables.isEmpty());
+        Assert.assertTrue(sender.isIdleClient(client));
+    }
+
+    @Test
+    public void testAcked() throws Exception {
+        Thread ackThread = new Thread(() -> {
+            SyncMessageFuture future;
+            while ((future = syncCallables.get("msg-1")) == null) {
+                Thread.yield();
+            }
+            future.complete(SendResult.OK);
+        });
+        ackThread.start();
+        Assert.assertEquals(SendResult.OK, sender.syncSendMessage(newMessage("msg-1"), "uuid", 10, TimeUnit.SECONDS));
+        // the load is acked by the thread completing the future
+        ackThread.join();
+        assertAcked();
+        Mockito.verify(scanThread).resetTimeoutChannel(channel);
+    }
+
+    @Test
+    public void testWriteFailure() {
+        ChannelPromise promise = channel.newPromise();
+        promise.setFailure(new IOException("connection reset"));
+        PowerMockito.when(client.write(any())).thenReturn(promise);
+        Assert.assertEquals(SendResult.CONNECTION_BREAK,
+                sender.syncSendMessage(newMessage("msg-1"), "uuid", 10, TimeUnit.SECONDS));
+        assertAcked();
+    }
+
+    @Test
+    public void testTimeout() {
+        Assert.assertEquals(SendResult.TIMEOUT,
+                sender.syncSendMessage(newMessage("msg-1"), "uuid", 10, TimeUnit.MILLISECONDS));
+        assertAcked();
+        Mockito.verify(scanThread).addTimeoutChannel(channel);
+        // a failed send counts as a slow ack
+        Assert.assertTrue(client.getLoad().getRttMs() >= 1000);
+    }
+
+    @Test
+    public void testAckAfterTimeout() {
+        PowerMockito.doCallRealMethod().when(sender).notifyFeedback(any(), any());
+        Whitebox.setInternalState(sender, "chooseProxy", new ConcurrentHashMap<>());
+        Assert.assertEquals(SendResult.TIMEOUT,
+                sender.syncSendMessage(newMessage("msg-1"), "uuid", 10, TimeUnit.MILLISECONDS));
+        double rttMs = client.getLoad().getRttMs();
+        // the late ack finds nothing to complete and leaves the load as it is
+        sender.notifyFeedback(channel, new EncodeObject(AttributeConstants.MESSAGE_ID + "=msg-1"));
+        assertAcked();
+        Assert.assertEquals(rttMs, client.getLoad().getRttMs(), 0);
+    }
+
+    @Test
+    public void testInterrupted() {
+        Thread.currentThread().interrupt();
+        try {
+            Assert.assertEquals(SendResult.THREAD_INTERRUPT,
+                    sender.syncSendMessage(newMessage("msg-1"), "uuid", 10, TimeUnit.SECONDS));
+        } finally {
+            Thread.interrupted();
+        }
+        assertAcked();
+    }
+
+    @Test
+    public void testDuplicateMessageId() throws Exception {
+        PowerMockito.doCallRealMethod().when(sender).asyncSendMessage(any(), any(), anyString(), anyLong(), any());
+        Whitebox.setInternalState(sender, "asyncCallbackMaxSize", 100);
+        AtomicInteger bufferSize = new AtomicInteger(0);
+        Whitebox.setInternalState(sender, "currentBufferSize", bufferSize);
+        SendMessageCallback callback = PowerMockito.mock(SendMessageCallback.class);
+        sender.asyncSendMessage(newMessage("msg-1"), callback, "uuid", 10, TimeUnit.SECONDS);
+        // the id of a message in flight on the channel is never sent again
+        try {
+            sender.asyncSendMessage(newMessage("msg-1"), callback, "uuid", 10, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ProxysdkException e) {
+            Assert.assertEquals("MESSAGE_ID_EXISTED", e.getMessage());
+        }
+        Assert.assertEquals(1, bufferSize.get());
+        Mockito.verify(client, Mockito.times(1)).write(any());
+        Mockito.verify(scanThread, Mockito.times(1)).scheduleTimeout(any(), anyString(), any());
+    }
+
+    @Test
+    public void testCloseAfterConnections() throws Exception {
+        File dir = folder.newFolder("spool");
+        DiskSpool spool = new DiskSpool(dir, 1024 * 1024, 1024 * 1024);
+        PowerMockito.doCallRealMethod().when(sender).close();
+        PowerMockito.doCallRealMethod().when(sender).notifyConnectionDisconnected(any());
+        Whitebox.setInternalState(sender, "spool", spool);
+        Whitebox.setInternalState(sender, "replayThread", new SpoolReplayThread(spool, sender, 0, 1000));
+        Whitebox.setInternalState(sender, "currentBufferSize", new AtomicInteger(0));
+        // a message failed by the connection closed at shutdown
+        PowerMockito.doAnswer(invocation -> {
+            Assert.assertTrue(spool.append(spoolMessage(0)));
+            return null;
+        }).when(clientMgr).shutDown();
+        // a message still waiting for its ack, failed once the connections are closed
+        SendMessageCallback callback = new SendMessageCallback() {
+
+            @Override
+            public void onMessageAck(SendResult result) {
+                Assert.assertEquals(SendResult.CONNECTION_BREAK, result);
+                try {
+                    Assert.assertTrue(spool.append(spoolMessage(1)));
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            }
+
+            @Override
+            public void onException(Throwable e) {
+                Assert.fail();
+            }
+        };
+        Map<Channel, ConcurrentHashMap<String, QueueObject>> callbacks =
+                Whitebox.getInternalState(sender, "callbacks");
+        callbacks.computeIfAbsent(channel, k -> new ConcurrentHashMap<>())
+                .put("msg-1", new QueueObject(System.currentTimeMillis(), callback, 1000, TimeUnit.MILLISECONDS));
+
+        sender.close();
+        Assert.assertTrue(callbacks.isEmpty());
+        DiskSpool reopened = new DiskSpool(dir, 1024 * 1024, 1024 * 1024);
+        Assert.assertEquals("stream-0", reopened.poll().getMessage().getStreamId());
+        Assert.assertEquals("stream-1", reopened.poll().getMessage().getStreamId());
+        Assert.assertNull(reopened.poll());
+        reopened.close();
+    }
+
+    private static EncodeObject spoolMessage(int index) {
+        return new EncodeObject(Collections.singletonList(BODY), 7, false, false, false,
+                System.currentTimeMillis(), index, "test_group", "stream-" + index, "a=b");
+    }
+}
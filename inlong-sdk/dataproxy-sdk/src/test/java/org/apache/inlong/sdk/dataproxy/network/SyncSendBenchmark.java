@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy.network;
+
+import org.apache.inlong.common.msg.AttributeConstants;
+import org.apache.inlong.sdk.dataproxy.LoadBalance;
+import org.apache.inlong.sdk.dataproxy.ProxyClientConfig;
+import org.apache.inlong.sdk.dataproxy.codec.EncodeObject;
+import org.apache.inlong.sdk.dataproxy.common.SendResult;
+import org.apache.inlong.sdk.dataproxy.threads.MetricWorkerThread;
+import org.apache.inlong.sdk.dataproxy.threads.TimeoutScanThread;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.powermock.reflect.Whitebox;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+
+/**
+ * Compare the sync send of the sender, waiting in the caller thread on a future completed
+ * by the ack handler, with the former one handing each message to a pool thread which
+ * sends it and waits for the ack.
+ *
+ * The sender is built without its proxy config fetching and worker threads, its client
+ * writes to a local channel whose peer acks each message, the ack is handed to the
+ * feedback of the sender by the handler of the channel, as the proxy acks do. Run with
+ * more caller threads to see how the sync throughput scales:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *  -Dexec.mainClass=org.apache.inlong.sdk.dataproxy.network.SyncSendBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class SyncSendBenchmark {
+
+    private static final long TIMEOUT_MS = 10000;
+    private static final int[] CALLER_THREADS = {1, 4, 16, 64};
+    private static final byte[] BODY = new byte[100];
+
+    private final AtomicLong messageIds = new AtomicLong();
+    private EventLoopGroup group;
+    private Channel channel;
+    private ExecutorService threadPool;
+    private Sender sender;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        group = new DefaultEventLoopGroup(2);
+        threadPool = Executors.newCachedThreadPool();
+        // the sender, client manager and config are mocked only on the caller side, the acks
+        // run the real feedback of the sender on the event loop
+        sender = Whitebox.newInstance(Sender.class);
+        ProxyClientConfig configure = Mockito.mock(ProxyClientConfig.class);
+        LocalAddress address = new LocalAddress("sync-send-benchmark");
+        new ServerBootstrap().group(group).channel(LocalServerChannel.class)
+                .childHandler(new ChannelInboundHandlerAdapter() {
+
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        String messageId = ((EncodeObject) msg).getMessageId();
+                        ctx.writeAndFlush(new EncodeObject(AttributeConstants.MESSAGE_ID + "=" + messageId));
+                    }
+                }).bind(address).sync();
+        channel = new Bootstrap().group(group).channel(LocalChannel.class)
+                .handler(new ChannelInboundHandlerAdapter() {
+
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        sender.notifyFeedback(ctx.channel(), (EncodeObject) msg);
+                    }
+                }).connect(address).sync().channel();
+        NettyClient client = new NettyClient(null, "127.0.0.1", 0, configure);
+        client.setChannel(channel);
+        ClientMgr clientMgr = Mockito.mock(ClientMgr.class);
+        Mockito.when(clientMgr.getLoadBalance()).thenReturn(LoadBalance.LEAST_LOAD);
+        Mockito.when(clientMgr.getClient(any(), any())).thenReturn(client);
+        Whitebox.setInternalState(sender, "callbacks", new ConcurrentHashMap<>());
+        Whitebox.setInternalState(sender, "syncCallables", new ConcurrentHashMap<>());
+        Whitebox.setInternalState(sender, "chooseProxy", new ConcurrentHashMap<>());
+        Whitebox.setInternalState(sender, "scanThread", Mockito.mock(TimeoutScanThread.class));
+        Whitebox.setInternalState(sender, "clientMgr", clientMgr);
+        Whitebox.setInternalState(sender, "configure", configure);
+        Whitebox.setInternalState(sender, "metricWorker", new MetricWorkerThread(configure, sender));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        channel.close();
+        group.shutdownGracefully();
+        threadPool.shutdownNow();
+    }
+
+    @Benchmark
+    public SendResult sendByFuture() {
+        return sender.syncSendMessage(newMessage(), "uuid", TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The sync send before the future, each message sent and waited by a pool thread,
+     * kept as the baseline.
+     */
+    @Benchmark
+    public SendResult sendByPoolThread() throws Exception {
+        EncodeObject encodeObject = newMessage();
+        return threadPool.submit(() -> sender.syncSendMessage(encodeObject, "uuid", TIMEOUT_MS,
+                TimeUnit.MILLISECONDS)).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private EncodeObject newMessage() {
+        return new EncodeObject(BODY, "a=b", String.valueOf(messageIds.incrementAndGet()), 5, false, "test_group");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : CALLER_THREADS) {
+            Options options = new OptionsBuilder()
+                    .include(SyncSendBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.dataproxy.threads;
+
+import org.apache.inlong.sdk.dataproxy.ProxyClientConfig;
+import org.apache.inlong.sdk.dataproxy.common.SendMessageCallback;
+import org.apache.inlong.sdk.dataproxy.common.SendResult;
+import org.apache.inlong.sdk.dataproxy.network.ClientMgr;
+import org.apache.inlong.sdk.dataproxy.network.QueueObject;
+
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TimeoutScanThreadTest {
+
+    private final ConcurrentHashMap<Channel, ConcurrentHashMap<String, QueueObject>> callbacks =
+            new ConcurrentHashMap<>();
+    private final AtomicInteger currentBufferSize = new AtomicInteger(0);
+    private final BlockingQueue<SendResult> results = new ArrayBlockingQueue<>(16);
+    private ClientMgr clientMgr;
+    private EmbeddedChannel channel;
+    private TimeoutScanThread scanThread;
+
+    @Before
+    public void setUp() throws Exception {
+        ProxyClientConfig config = new ProxyClientConfig("127.0.0.1", false, "127.0.0.1", 8083,
+                "test_group", "test", "123456");
+        config.setMaxTimeoutCnt(3);
+        clientMgr = PowerMockito.mock(ClientMgr.class);
+        channel = new EmbeddedChannel();
+        scanThread = new TimeoutScanThread(callbacks, currentBufferSize, config, clientMgr);
+    }
+
+    @After
+    public void tearDown() {
+        scanThread.shutDown();
+        channel.finishAndReleaseAll();
+    }
+
+    private QueueObject send(String messageId, long timeoutMs) {
+        QueueObject queueObject = new QueueObject(System.currentTimeMillis(), new SendMessageCallback() {
+
+            @Override
+            public void onMessageAck(SendResult result) {
+                results.add(result);
+            }
+
+            @Override
+            public void onException(Throwable e) {
+                Assert.fail();
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        currentBufferSize.incrementAndGet();
+        callbacks.computeIfAbsent(channel, k -> new ConcurrentHashMap<>()).put(messageId, queueObject);
+        scanThread.scheduleTimeout(channel, messageId, queueObject);
+        return queueObject;
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        send("msg-1", 50);
+        Assert.assertEquals(SendResult.TIMEOUT, results.poll(10, TimeUnit.SECONDS));
+        Assert.assertTrue(callbacks.get(channel).isEmpty());
+        // released once the callback returns
+        long deadline = System.currentTimeMillis() + 10000;
+        while (currentBufferSize.get() > 0 && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        Assert.assertEquals(0, currentBufferSize.get());
+    }
+
+    @Test
+    public void testCancelOnAck() throws Exception {
+        QueueObject queueObject = send("msg-1", 200);
+        // acked before the timeout, as done by the sender
+        Assert.assertTrue(callbacks.get(channel).remove("msg-1", queueObject));
+        queueObject.cancelTimeout();
+        Assert.assertNull(results.poll(500, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(1, currentBufferSize.get());
+
+        // a late timeout does not call back a message acked
+        send("msg-2", 0);
+        Assert.assertEquals(SendResult.TIMEOUT, results.poll(10, TimeUnit.SECONDS));
+        Assert.assertNull(results.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testChannelBusy() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            scanThread.addTimeoutChannel(channel);
+        }
+        Mockito.verify(clientMgr, Mockito.never()).setConnectionBusy(channel);
+        // a later ack resets the count of the channel
+        TimeUnit.MILLISECONDS.sleep(10);
+        scanThread.resetTimeoutChannel(channel);
+        for (int i = 0; i < 3; i++) {
+            scanThread.addTimeoutChannel(channel);
+        }
+        Mockito.verify(clientMgr, Mockito.never()).setConnectionBusy(channel);
+
+        // the timeouts fired count as well
+        send("msg-1", 0);
+        Assert.assertEquals(SendResult.TIMEOUT, results.poll(10, TimeUnit.SECONDS));
+        Mockito.verify(clientMgr, Mockito.timeout(10000)).setConnectionBusy(channel);
+    }
+}
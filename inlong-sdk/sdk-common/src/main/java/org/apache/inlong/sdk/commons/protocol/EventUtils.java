@@ -26,9 +26,14 @@ import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessagePackHeader;
 import org.apache.inlong.sdk.commons.utils.GzipUtils;
 
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnsafeByteOperations;
+import com.google.protobuf.WireFormat;
 import org.xerial.snappy.Snappy;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -135,6 +140,114 @@ public class EventUtils {
         return events;
     }
 
+    /**
+     * parseSdkPack, the compressBytes of the returned pack is a slice of the
+     * pack buffer instead of a copy.
+     *
+     * @param  packBuffer the serialized MessagePack bytes
+     * @return MessagePack
+     * @throws IOException
+     */
+    public static MessagePack parseSdkPack(ByteBuffer packBuffer) throws IOException {
+        CodedInputStream input = UnsafeByteOperations.unsafeWrap(packBuffer).newCodedInput();
+        input.enableAliasing(true);
+        return MessagePack.parseFrom(input);
+    }
+
+    /**
+     * decodeSdkPackLazily
+     *
+     * Parse MessageObjs field by field without building MessageObj objects, the bodies
+     * of the returned events are slices of the uncompressed bytes; for the uncompressed
+     * pack, the bodies slice the pack buffer itself only when aliasPack is true.
+     *
+     * @param  packObject the pack parsed by parseSdkPack
+     * @param  aliasPack whether the events may share memory with the pack buffer
+     * @return List,ProxyEvent
+     * @throws IOException
+     */
+    public static List<ProxyEvent> decodeSdkPackLazily(MessagePack packObject, boolean aliasPack)
+            throws IOException {
+        MessagePackHeader header = packObject.getHeader();
+        ByteString compressBytes = packObject.getCompressBytes();
+        ByteString srcBytes = null;
+        switch (header.getCompressType()) {
+            case INLONG_SNAPPY:
+                srcBytes = UnsafeByteOperations.unsafeWrap(Snappy.uncompress(compressBytes.toByteArray()));
+                break;
+            case INLONG_GZ:
+                srcBytes = UnsafeByteOperations.unsafeWrap(GzipUtils.decompress(compressBytes.toByteArray()));
+                break;
+            case INLONG_NO_COMPRESS:
+            default:
+                srcBytes = aliasPack ? compressBytes : ByteString.copyFrom(compressBytes.asReadOnlyByteBuffer());
+                break;
+        }
+        // decode
+        String inlongGroupId = header.getInlongGroupId();
+        String inlongStreamId = header.getInlongStreamId();
+        List<ProxyEvent> events = new ArrayList<>();
+        CodedInputStream input = srcBytes.newCodedInput();
+        input.enableAliasing(true);
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            if (WireFormat.getTagFieldNumber(tag) != MessageObjs.MSGS_FIELD_NUMBER) {
+                input.skipField(tag);
+                continue;
+            }
+            int oldLimit = input.pushLimit(input.readRawVarint32());
+            events.add(decodeLazyEvent(inlongGroupId, inlongStreamId, input));
+            input.popLimit(oldLimit);
+        }
+        return events;
+    }
+
+    /**
+     * isPackAliased, whether the events decoded by decodeSdkPackLazily with aliasPack may
+     * slice the pack buffer, a compressed pack is decompressed into new arrays.
+     *
+     * @param  packObject the pack parsed by parseSdkPack
+     * @return true if the events may slice the pack buffer
+     */
+    public static boolean isPackAliased(MessagePack packObject) {
+        INLONG_COMPRESSED_TYPE compressType = packObject.getHeader().getCompressType();
+        return compressType != INLONG_COMPRESSED_TYPE.INLONG_SNAPPY
+                && compressType != INLONG_COMPRESSED_TYPE.INLONG_GZ;
+    }
+
+    /**
+     * decode one MessageObj into LazyProxyEvent
+     */
+    private static LazyProxyEvent decodeLazyEvent(String inlongGroupId, String inlongStreamId,
+            CodedInputStream input) throws IOException {
+        long msgTime = 0L;
+        ByteString sourceIp = null;
+        ByteString body = null;
+        boolean hasMsgTime = false;
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case MessageObj.MSGTIME_FIELD_NUMBER:
+                    msgTime = input.readInt64();
+                    hasMsgTime = true;
+                    break;
+                case MessageObj.SOURCEIP_FIELD_NUMBER:
+                    sourceIp = input.readBytes();
+                    break;
+                case MessageObj.BODY_FIELD_NUMBER:
+                    body = input.readBytes();
+                    break;
+                default:
+                    input.skipField(tag);
+                    break;
+            }
+        }
+        if (!hasMsgTime || sourceIp == null || body == null) {
+            throw new InvalidProtocolBufferException("MessageObj missing required fields");
+        }
+        return new LazyProxyEvent(inlongGroupId, inlongStreamId, msgTime, sourceIp, body);
+    }
+
     /**
      * encodeCacheMessageBody
      * 
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.commons.protocol;
+
+import com.google.protobuf.ByteString;
+
+import java.util.Map;
+
+/**
+ * LazyProxyEvent
+ *
+ * ProxyEvent whose body is a slice of the decoded pack buffer, the body array,
+ * the source ip string and the header map are only built on first access.
+ *
+ * Notice: the slice shares memory with the pack buffer, the owner of the buffer
+ * must keep it valid until the event is consumed.
+ */
+public class LazyProxyEvent extends ProxyEvent {
+
+    private ByteString bodySlice;
+    private ByteString sourceIpSlice;
+    private byte[] bodyBytes;
+    private boolean headersFilled = false;
+
+    /**
+     * Constructor
+     *
+     * @param inlongGroupId the group id
+     * @param inlongStreamId the stream id
+     * @param msgTime the message time
+     * @param sourceIpSlice the source ip bytes
+     * @param bodySlice the body slice
+     */
+    public LazyProxyEvent(String inlongGroupId, String inlongStreamId,
+            long msgTime, ByteString sourceIpSlice, ByteString bodySlice) {
+        this.inlongGroupId = inlongGroupId;
+        this.inlongStreamId = inlongStreamId;
+        this.uid = InlongId.generateUid(inlongGroupId, inlongStreamId);
+        this.msgTime = msgTime;
+        this.sourceIpSlice = sourceIpSlice;
+        this.bodySlice = bodySlice;
+        this.sourceTime = System.currentTimeMillis();
+    }
+
+    /**
+     * get body, copy the body slice into an array on first call
+     *
+     * @return the body
+     */
+    @Override
+    public byte[] getBody() {
+        if (bodyBytes == null) {
+            bodyBytes = bodySlice.toByteArray();
+        }
+        return bodyBytes;
+    }
+
+    /**
+     * set body
+     *
+     * @param body the body to set
+     */
+    @Override
+    public void setBody(byte[] body) {
+        super.setBody(body);
+        this.bodyBytes = body;
+        this.bodySlice = null;
+    }
+
+    /**
+     * get body length without materializing the body
+     *
+     * @return the body length
+     */
+    @Override
+    public int getBodyLength() {
+        if (bodyBytes != null) {
+            return bodyBytes.length;
+        }
+        return bodySlice.size();
+    }
+
+    /**
+     * get body as ByteString without copying
+     *
+     * @return the body slice
+     */
+    @Override
+    public ByteString getBodyByteString() {
+        if (bodySlice != null) {
+            return bodySlice;
+        }
+        return super.getBodyByteString();
+    }
+
+    /**
+     * get sourceIp, decode it from the slice on first call
+     *
+     * @return the sourceIp
+     */
+    @Override
+    public String getSourceIp() {
+        if (sourceIp == null && sourceIpSlice != null) {
+            sourceIp = sourceIpSlice.toStringUtf8();
+            sourceIpSlice = null;
+        }
+        return sourceIp;
+    }
+
+    /**
+     * get headers, fill the required headers on first call
+     *
+     * @return the headers
+     */
+    @Override
+    public Map<String, String> getHeaders() {
+        Map<String, String> headers = super.getHeaders();
+        if (!headersFilled) {
+            headersFilled = true;
+            headers.put(EventConstants.INLONG_GROUP_ID, inlongGroupId);
+            headers.put(EventConstants.INLONG_STREAM_ID, inlongStreamId);
+            headers.put(EventConstants.HEADER_KEY_MSG_TIME, String.valueOf(msgTime));
+            headers.put(EventConstants.HEADER_KEY_SOURCE_IP, getSourceIp());
+            headers.put(EventConstants.HEADER_KEY_SOURCE_TIME, String.valueOf(sourceTime));
+        }
+        return headers;
+    }
+
+    /**
+     * set headers
+     *
+     * @param headers the headers to set
+     */
+    @Override
+    public void setHeaders(Map<String, String> headers) {
+        super.setHeaders(headers);
+        this.headersFilled = true;
+    }
+
+}
@@ -19,6 +19,8 @@ package org.apache.inlong.sdk.commons.protocol;
 
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObj;
 
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import org.apache.commons.lang3.math.NumberUtils;
 
 import java.util.Map;
@@ -120,6 +122,24 @@ public class ProxyEvent extends SdkEvent {
         return sourceTime;
     }
 
+    /**
+     * get body length
+     *
+     * @return the body length
+     */
+    public int getBodyLength() {
+        return getBody().length;
+    }
+
+    /**
+     * get body as ByteString, the body array is wrapped without copying
+     *
+     * @return the body ByteString
+     */
+    public ByteString getBodyByteString() {
+        return UnsafeByteOperations.unsafeWrap(getBody());
+    }
+
     /**
      * get topic
      * 
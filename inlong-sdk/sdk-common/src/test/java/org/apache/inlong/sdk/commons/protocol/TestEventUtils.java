@@ -23,6 +23,7 @@ import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessagePack;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -73,6 +74,35 @@ public class TestEventUtils {
         }
     }
 
+    @Test
+    public void testDecodeSdkPackLazily() throws Exception {
+        SdkEvent event = new SdkEvent(INLONG_GROUP_ID, INLONG_STREAM_ID, BODY);
+        event.setSourceIp(SOURCE_IP);
+        List<SdkEvent> eventList = new ArrayList<>();
+        eventList.add(event);
+        eventList.add(event);
+        for (INLONG_COMPRESSED_TYPE compressedType : INLONG_COMPRESSED_TYPE.values()) {
+            MessagePack packObj = EventUtils.encodeSdkEvents(INLONG_GROUP_ID, INLONG_STREAM_ID, compressedType,
+                    eventList);
+            byte[] packBytes = packObj.toByteArray();
+            ByteBuffer packBuffer = ByteBuffer.allocateDirect(packBytes.length);
+            packBuffer.put(packBytes).flip();
+            MessagePack packObject = EventUtils.parseSdkPack(packBuffer);
+            List<ProxyEvent> proxyEventList = EventUtils.decodeSdkPackLazily(packObject, true);
+            assertEquals(compressedType == INLONG_COMPRESSED_TYPE.INLONG_NO_COMPRESS,
+                    EventUtils.isPackAliased(packObject));
+            assertEquals(2, proxyEventList.size());
+            ProxyEvent proxyEvent = proxyEventList.get(0);
+            assertEquals(BODY.length(), proxyEvent.getBodyLength());
+            assertEquals(BODY, new String(proxyEvent.getBody()));
+            assertEquals(SOURCE_IP, proxyEvent.getSourceIp());
+            assertEquals(INLONG_GROUP_ID, proxyEvent.getHeaders().get(EventConstants.INLONG_GROUP_ID));
+            assertEquals(SOURCE_IP, proxyEvent.getHeaders().get(EventConstants.HEADER_KEY_SOURCE_IP));
+            assertEquals(String.valueOf(event.getMsgTime()),
+                    proxyEvent.getHeaders().get(EventConstants.HEADER_KEY_MSG_TIME));
+        }
+    }
+
     @Test
     public void testEncodeCacheMessageBody() {
         try {
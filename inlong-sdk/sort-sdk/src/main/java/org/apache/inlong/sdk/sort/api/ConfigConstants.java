@@ -24,6 +24,11 @@ public class ConfigConstants {
 
     public static final String CALLBACK_QUEUE_SIZE = "callbackQueueSize";
     public static final String PULSAR_RECEIVE_QUEUE_SIZE = "pulsarReceiveQueueSize";
+    public static final String PULSAR_BATCH_RECEIVE_MAX_MESSAGES = "pulsarBatchReceiveMaxMessages";
+    public static final String PULSAR_BATCH_RECEIVE_MAX_BYTES = "pulsarBatchReceiveMaxBytes";
+    public static final String PULSAR_BATCH_RECEIVE_TIMEOUT_MS = "pulsarBatchReceiveTimeoutMs";
+    public static final String PULSAR_ACK_GROUP_TIME_MS = "pulsarAckGroupTimeMs";
+    public static final String PULSAR_DECODE_THREAD_NUM = "pulsarDecodeThreadNum";
     public static final String STATS_INTERVAL_SECONDS = "statsIntervalSeconds";
     public static final String KAFKA_FETCH_WAIT_MS = "kafkaFetchWaitMs";
     public static final String KAFKA_FETCH_SIZE_BYTES = "kafkaFetchSizeBytes";
@@ -60,4 +65,6 @@ public class ConfigConstants {
 
     public static final String THREAD_POOL_SIZE = "threadPoolSize";
 
+    public static final String IS_LAZY_DECODE_ENABLED = "isLazyDecodeEnabled";
+
 }
@@ -40,6 +40,15 @@ public class SortClientConfig implements Serializable {
     private ReadCallback callback;
     private int callbackQueueSize = 100;
     private int pulsarReceiveQueueSize = 2000;
+    // the batch receive policy of pulsar, not set if not positive
+    private int pulsarBatchReceiveMaxMessages = -1;
+    private int pulsarBatchReceiveMaxBytes = -1;
+    private int pulsarBatchReceiveTimeoutMs = -1;
+    // the acks are grouped and sent every this time, the default of pulsar if negative
+    private long pulsarAckGroupTimeMs = -1;
+    // decode and callback in the fetch thread if not positive, otherwise decode in these threads
+    // and callback one batch at a time, so the callback need not be thread safe
+    private int pulsarDecodeThreadNum = 0;
     private long statsIntervalSeconds = -1;
     private int kafkaFetchWaitMs = 5000;
     private int kafkaFetchSizeBytes = 3 * 1024 * 1024;
@@ -77,6 +86,9 @@ public class SortClientConfig implements Serializable {
 
     private int threadPoolSize = 50;
 
+    // decode the message bodies and params only when they are read
+    private boolean lazyDecodeEnabled = false;
+
     public SortClientConfig(
             String sortTaskId,
             String sortClusterName,
@@ -198,6 +210,46 @@ public class SortClientConfig implements Serializable {
         this.pulsarReceiveQueueSize = pulsarReceiveQueueSize;
     }
 
+    public int getPulsarBatchReceiveMaxMessages() {
+        return pulsarBatchReceiveMaxMessages;
+    }
+
+    public void setPulsarBatchReceiveMaxMessages(int pulsarBatchReceiveMaxMessages) {
+        this.pulsarBatchReceiveMaxMessages = pulsarBatchReceiveMaxMessages;
+    }
+
+    public int getPulsarBatchReceiveMaxBytes() {
+        return pulsarBatchReceiveMaxBytes;
+    }
+
+    public void setPulsarBatchReceiveMaxBytes(int pulsarBatchReceiveMaxBytes) {
+        this.pulsarBatchReceiveMaxBytes = pulsarBatchReceiveMaxBytes;
+    }
+
+    public int getPulsarBatchReceiveTimeoutMs() {
+        return pulsarBatchReceiveTimeoutMs;
+    }
+
+    public void setPulsarBatchReceiveTimeoutMs(int pulsarBatchReceiveTimeoutMs) {
+        this.pulsarBatchReceiveTimeoutMs = pulsarBatchReceiveTimeoutMs;
+    }
+
+    public long getPulsarAckGroupTimeMs() {
+        return pulsarAckGroupTimeMs;
+    }
+
+    public void setPulsarAckGroupTimeMs(long pulsarAckGroupTimeMs) {
+        this.pulsarAckGroupTimeMs = pulsarAckGroupTimeMs;
+    }
+
+    public int getPulsarDecodeThreadNum() {
+        return pulsarDecodeThreadNum;
+    }
+
+    public void setPulsarDecodeThreadNum(int pulsarDecodeThreadNum) {
+        this.pulsarDecodeThreadNum = pulsarDecodeThreadNum;
+    }
+
     public long getStatsIntervalSeconds() {
         return statsIntervalSeconds;
     }
@@ -408,6 +460,14 @@ public class SortClientConfig implements Serializable {
         this.threadPoolSize = threadPoolSize;
     }
 
+    public boolean isLazyDecodeEnabled() {
+        return lazyDecodeEnabled;
+    }
+
+    public void setLazyDecodeEnabled(boolean lazyDecodeEnabled) {
+        this.lazyDecodeEnabled = lazyDecodeEnabled;
+    }
+
     /**
      * ConsumeStrategy
      */
@@ -438,6 +498,16 @@ public class SortClientConfig implements Serializable {
                 callbackQueueSize);
         this.pulsarReceiveQueueSize = NumberUtils.toInt(sortSdkParams.get(ConfigConstants.PULSAR_RECEIVE_QUEUE_SIZE),
                 pulsarReceiveQueueSize);
+        this.pulsarBatchReceiveMaxMessages = NumberUtils.toInt(
+                sortSdkParams.get(ConfigConstants.PULSAR_BATCH_RECEIVE_MAX_MESSAGES), pulsarBatchReceiveMaxMessages);
+        this.pulsarBatchReceiveMaxBytes = NumberUtils.toInt(
+                sortSdkParams.get(ConfigConstants.PULSAR_BATCH_RECEIVE_MAX_BYTES), pulsarBatchReceiveMaxBytes);
+        this.pulsarBatchReceiveTimeoutMs = NumberUtils.toInt(
+                sortSdkParams.get(ConfigConstants.PULSAR_BATCH_RECEIVE_TIMEOUT_MS), pulsarBatchReceiveTimeoutMs);
+        this.pulsarAckGroupTimeMs = NumberUtils.toLong(sortSdkParams.get(ConfigConstants.PULSAR_ACK_GROUP_TIME_MS),
+                pulsarAckGroupTimeMs);
+        this.pulsarDecodeThreadNum = NumberUtils.toInt(sortSdkParams.get(ConfigConstants.PULSAR_DECODE_THREAD_NUM),
+                pulsarDecodeThreadNum);
         this.statsIntervalSeconds = NumberUtils.toLong(sortSdkParams.get(ConfigConstants.STATS_INTERVAL_SECONDS),
                 statsIntervalSeconds);
         this.kafkaFetchWaitMs = NumberUtils.toInt(sortSdkParams.get(ConfigConstants.KAFKA_FETCH_WAIT_MS),
@@ -505,6 +575,9 @@ public class SortClientConfig implements Serializable {
                 NumberUtils.toInt(sortSdkParams.get(ConfigConstants.START_OFFLINE_CHECK_THRESHOLD),
                         startOfflineTopicCheckThreshold);
         this.threadPoolSize = NumberUtils.toInt(sortSdkParams.get(ConfigConstants.THREAD_POOL_SIZE), threadPoolSize);
+        String strLazyDecodeEnabled = sortSdkParams.getOrDefault(ConfigConstants.IS_LAZY_DECODE_ENABLED,
+                Boolean.toString(lazyDecodeEnabled));
+        this.lazyDecodeEnabled = StringUtils.equalsIgnoreCase(strLazyDecodeEnabled, Boolean.TRUE.toString());
     }
 
     public List<InLongTopic> getConsumerSubset(List<InLongTopic> totalTopics) {
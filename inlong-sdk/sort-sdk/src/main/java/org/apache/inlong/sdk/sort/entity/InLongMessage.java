@@ -17,6 +17,7 @@
 
 package org.apache.inlong.sdk.sort.entity;
 
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 public class InLongMessage {
@@ -55,6 +56,15 @@ public class InLongMessage {
         return body;
     }
 
+    /**
+     * get the body without copying it, the buffer must not be modified
+     *
+     * @return the body as a read only buffer
+     */
+    public ByteBuffer getBodyBuffer() {
+        return ByteBuffer.wrap(getBody()).asReadOnlyBuffer();
+    }
+
     public Map<String, String> getParams() {
         return params;
     }
@@ -27,6 +27,7 @@ import org.apache.inlong.sdk.sort.entity.InLongMessage;
 import org.apache.inlong.sdk.sort.entity.InLongTopic;
 import org.apache.inlong.sdk.sort.entity.MessageRecord;
 import org.apache.inlong.sdk.sort.fetcher.pulsar.PulsarMultiTopicsFetcher;
+import org.apache.inlong.sdk.sort.util.OffsetAckWindow;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
@@ -52,7 +53,6 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -63,7 +63,7 @@ public class KafkaMultiTopicsFetcher extends MultiTopicsFetcher {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PulsarMultiTopicsFetcher.class);
     private final ConcurrentHashMap<TopicPartition, OffsetAndMetadata> commitOffsetMap;
-    private final ConcurrentHashMap<TopicPartition, ConcurrentSkipListMap<Long, Boolean>> ackOffsetMap;
+    private final ConcurrentHashMap<TopicPartition, OffsetAckWindow> ackOffsetMap;
     private final String bootstrapServers;
     private ConsumerRebalanceListener listener;
     private KafkaConsumer<byte[], byte[]> consumer;
@@ -137,7 +137,7 @@ public class KafkaMultiTopicsFetcher extends MultiTopicsFetcher {
 
     @Override
     public void ack(String msgOffset) throws Exception {
-        LOGGER.info("ack {}", msgOffset);
+        LOGGER.debug("ack {}", msgOffset);
         // the format of multi topic kafka fetcher msg offset is topic:partitionId:offset, such as topic1:20:1746839
         String[] offset = msgOffset.split(":");
         if (offset.length != 3) {
@@ -149,18 +149,12 @@ public class KafkaMultiTopicsFetcher extends MultiTopicsFetcher {
         TopicPartition topicPartition = new TopicPartition(offset[0], Integer.parseInt(offset[1]));
         long ackOffset = Long.parseLong(offset[2]);
 
-        // ack
-        if (!ackOffsetMap.containsKey(topicPartition) || !ackOffsetMap.get(topicPartition).containsKey(ackOffset)) {
+        // mark this offset has been ack.
+        OffsetAckWindow ackWindow = ackOffsetMap.get(topicPartition);
+        // the window may be removed by AckOffsetOnRebalance::onPartitionsRevoked
+        if (Objects.isNull(ackWindow) || !ackWindow.ack(ackOffset)) {
             LOGGER.warn("did not find offsetMap to ack offset of {}, offset {}, just ignore it",
                     topicPartition, ackOffset);
-            return;
-        }
-
-        // mark this offset has been ack.
-        ConcurrentSkipListMap<Long, Boolean> tpOffsetMap = ackOffsetMap.get(topicPartition);
-        // to prevent race condition in AckOffsetOnRebalance::onPartitionsRevoked
-        if (Objects.nonNull(tpOffsetMap)) {
-            tpOffsetMap.put(ackOffset, true);
         }
     }
 
@@ -227,25 +221,12 @@ public class KafkaMultiTopicsFetcher extends MultiTopicsFetcher {
     }
 
     private void prepareCommit() {
-        List<Long> removeOffsets = new ArrayList<>();
-        ackOffsetMap.forEach((topicPartition, tpOffsetMap) -> {
-            // get the remove list
-            long commitOffset = -1;
-            for (Long ackOffset : tpOffsetMap.keySet()) {
-                if (!tpOffsetMap.get(ackOffset)) {
-                    break;
-                }
-                removeOffsets.add(ackOffset);
-                commitOffset = ackOffset;
-            }
+        ackOffsetMap.forEach((topicPartition, ackWindow) -> {
+            long commitOffset = ackWindow.advance();
             // the first haven't ack, do nothing
-            if (CollectionUtils.isEmpty(removeOffsets)) {
+            if (commitOffset < 0) {
                 return;
             }
-
-            // remove offset and commit offset
-            removeOffsets.forEach(tpOffsetMap::remove);
-            removeOffsets.clear();
             commitOffsetMap.put(topicPartition, new OffsetAndMetadata(commitOffset));
         });
     }
@@ -306,7 +287,7 @@ public class KafkaMultiTopicsFetcher extends MultiTopicsFetcher {
 
         private String getOffset(String topic, int partitionId, long offset) {
             TopicPartition topicPartition = new TopicPartition(topic, partitionId);
-            ackOffsetMap.computeIfAbsent(topicPartition, k -> new ConcurrentSkipListMap<>()).put(offset, false);
+            ackOffsetMap.computeIfAbsent(topicPartition, k -> new OffsetAckWindow()).register(offset);
             return topic + ":" + partitionId + ":" + offset;
         }
 
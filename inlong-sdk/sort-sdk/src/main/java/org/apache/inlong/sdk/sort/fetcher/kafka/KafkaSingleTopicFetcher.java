@@ -26,6 +26,7 @@ import org.apache.inlong.sdk.sort.api.SortClientConfig;
 import org.apache.inlong.sdk.sort.entity.InLongMessage;
 import org.apache.inlong.sdk.sort.entity.InLongTopic;
 import org.apache.inlong.sdk.sort.entity.MessageRecord;
+import org.apache.inlong.sdk.sort.util.OffsetAckWindow;
 
 import com.google.gson.Gson;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
@@ -58,6 +59,7 @@ public class KafkaSingleTopicFetcher extends SingleTopicFetcher {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(KafkaSingleTopicFetcher.class);
     private final ConcurrentHashMap<TopicPartition, OffsetAndMetadata> commitOffsetMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<TopicPartition, OffsetAckWindow> ackOffsetMap = new ConcurrentHashMap<>();
     private String bootstrapServers;
     private KafkaConsumer<byte[], byte[]> consumer;
 
@@ -80,7 +82,7 @@ public class KafkaSingleTopicFetcher extends SingleTopicFetcher {
                 this.seeker = SeekerFactory.createKafkaSeeker(consumer, topic);
                 consumer.subscribe(Collections.singletonList(topic.getTopic()),
                         new AckOffsetOnRebalance(this.topic.getInLongCluster().getClusterId(), seeker,
-                                commitOffsetMap, consumer));
+                                commitOffsetMap, ackOffsetMap, consumer));
             } else {
                 LOGGER.info("consumer is null");
                 return false;
@@ -103,8 +105,12 @@ public class KafkaSingleTopicFetcher extends SingleTopicFetcher {
         String[] offset = msgOffset.split(":");
         if (offset.length == 2) {
             TopicPartition topicPartition = new TopicPartition(topic.getTopic(), Integer.parseInt(offset[0]));
-            OffsetAndMetadata offsetAndMetadata = new OffsetAndMetadata(Long.parseLong(offset[1]));
-            commitOffsetMap.put(topicPartition, offsetAndMetadata);
+            long ackOffset = Long.parseLong(offset[1]);
+            OffsetAckWindow ackWindow = ackOffsetMap.get(topicPartition);
+            if (ackWindow == null || !ackWindow.ack(ackOffset)) {
+                LOGGER.warn("did not find offsetMap to ack offset of {}, offset {}, just ignore it",
+                        topicPartition, ackOffset);
+            }
         } else {
             throw new Exception("offset is illegal, the correct format is int:long ,the error offset is:" + msgOffset);
         }
@@ -195,6 +201,12 @@ public class KafkaSingleTopicFetcher extends SingleTopicFetcher {
     public class Fetcher implements Runnable {
 
         private void commitKafkaOffset() {
+            ackOffsetMap.forEach((topicPartition, ackWindow) -> {
+                long commitOffset = ackWindow.advance();
+                if (commitOffset >= 0) {
+                    commitOffsetMap.put(topicPartition, new OffsetAndMetadata(commitOffset));
+                }
+            });
             if (consumer != null && commitOffsetMap.size() > 0) {
                 try {
                     consumer.commitSync(commitOffsetMap);
@@ -225,6 +237,8 @@ public class KafkaSingleTopicFetcher extends SingleTopicFetcher {
         }
 
         private String getOffset(int partitionId, long offset) {
+            TopicPartition topicPartition = new TopicPartition(topic.getTopic(), partitionId);
+            ackOffsetMap.computeIfAbsent(topicPartition, k -> new OffsetAckWindow()).register(offset);
             return partitionId + ":" + offset;
         }
 
@@ -31,7 +31,9 @@ import org.apache.inlong.sdk.sort.entity.MessageRecord;
 import com.google.common.base.Preconditions;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.pulsar.client.api.BatchReceivePolicy;
 import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.ConsumerBuilder;
 import org.apache.pulsar.client.api.Message;
 import org.apache.pulsar.client.api.MessageId;
 import org.apache.pulsar.client.api.Messages;
@@ -49,6 +51,10 @@ import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -61,6 +67,11 @@ public class PulsarMultiTopicsFetcher extends MultiTopicsFetcher {
     private PulsarConsumer currentConsumer;
     private List<PulsarConsumer> toBeRemovedConsumers = new LinkedList<>();
     private PulsarClient pulsarClient;
+    // decode and callback the messages of a topic partition in the same worker to keep their order
+    private ExecutorService[] decodeWorkers;
+    private final List<Future<?>> dispatchedTasks = new ArrayList<>();
+    // the decode workers decode in parallel, but the callback is called by one thread at a time
+    private final Object callbackLock = new Object();
 
     public PulsarMultiTopicsFetcher(
             List<InLongTopic> topics,
@@ -85,6 +96,14 @@ public class PulsarMultiTopicsFetcher extends MultiTopicsFetcher {
         this.seeker = SeekerFactory.createPulsarSeeker(newConsumer, firstTopic);
         String threadName = String.format("sort_sdk_pulsar_multi_topic_fetch_thread_%s_%s",
                 firstTopic.getInLongCluster().getClusterId(), this.fetchKey);
+        int decodeThreadNum = context.getConfig().getPulsarDecodeThreadNum();
+        if (decodeThreadNum > 0) {
+            this.decodeWorkers = new ExecutorService[decodeThreadNum];
+            for (int i = 0; i < decodeThreadNum; i++) {
+                String workerName = threadName + "_decode_" + i;
+                this.decodeWorkers[i] = Executors.newSingleThreadExecutor(r -> new Thread(r, workerName));
+            }
+        }
         this.fetchThread = new Thread(new PulsarMultiTopicsFetcher.Fetcher(), threadName);
         this.fetchThread.start();
         this.executor.scheduleWithFixedDelay(this::clearRemovedConsumerList,
@@ -163,15 +182,23 @@ public class PulsarMultiTopicsFetcher extends MultiTopicsFetcher {
             List<String> topicNames = newTopics.stream()
                     .map(InLongTopic::getTopic)
                     .collect(Collectors.toList());
-            Consumer<byte[]> consumer = pulsarClient.newConsumer(Schema.BYTES)
+            ConsumerBuilder<byte[]> consumerBuilder = pulsarClient.newConsumer(Schema.BYTES)
                     .topics(topicNames)
                     .subscriptionName(context.getConfig().getSortTaskId())
                     .subscriptionType(SubscriptionType.Shared)
                     .startMessageIdInclusive()
                     .subscriptionInitialPosition(position)
                     .ackTimeout(context.getConfig().getAckTimeoutSec(), TimeUnit.SECONDS)
-                    .receiverQueueSize(context.getConfig().getPulsarReceiveQueueSize())
-                    .subscribe();
+                    .receiverQueueSize(context.getConfig().getPulsarReceiveQueueSize());
+            BatchReceivePolicy batchReceivePolicy = createBatchReceivePolicy(context.getConfig());
+            if (Objects.nonNull(batchReceivePolicy)) {
+                consumerBuilder.batchReceivePolicy(batchReceivePolicy);
+            }
+            if (context.getConfig().getPulsarAckGroupTimeMs() >= 0) {
+                consumerBuilder.acknowledgmentGroupTime(context.getConfig().getPulsarAckGroupTimeMs(),
+                        TimeUnit.MILLISECONDS);
+            }
+            Consumer<byte[]> consumer = consumerBuilder.subscribe();
             LOGGER.info("create consumer for topics {}", topicNames);
             return consumer;
         } catch (Exception e) {
@@ -180,6 +207,25 @@ public class PulsarMultiTopicsFetcher extends MultiTopicsFetcher {
         }
     }
 
+    private BatchReceivePolicy createBatchReceivePolicy(SortClientConfig config) {
+        if (config.getPulsarBatchReceiveMaxMessages() <= 0 && config.getPulsarBatchReceiveMaxBytes() <= 0
+                && config.getPulsarBatchReceiveTimeoutMs() <= 0) {
+            return null;
+        }
+        BatchReceivePolicy defaultPolicy = BatchReceivePolicy.DEFAULT_POLICY;
+        return BatchReceivePolicy.builder()
+                .maxNumMessages(config.getPulsarBatchReceiveMaxMessages() > 0
+                        ? config.getPulsarBatchReceiveMaxMessages()
+                        : defaultPolicy.getMaxNumMessages())
+                .maxNumBytes(config.getPulsarBatchReceiveMaxBytes() > 0
+                        ? config.getPulsarBatchReceiveMaxBytes()
+                        : (int) defaultPolicy.getMaxNumBytes())
+                .timeout(config.getPulsarBatchReceiveTimeoutMs() > 0
+                        ? config.getPulsarBatchReceiveTimeoutMs()
+                        : (int) defaultPolicy.getTimeoutMs(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
     @Override
     public void ack(String msgOffset) throws Exception {
         if (StringUtils.isBlank(msgOffset)) {
@@ -268,6 +314,11 @@ public class PulsarMultiTopicsFetcher extends MultiTopicsFetcher {
                         }
                     });
             toBeRemovedConsumers.clear();
+            if (Objects.nonNull(decodeWorkers)) {
+                for (ExecutorService worker : decodeWorkers) {
+                    worker.shutdownNow();
+                }
+            }
             try {
                 pulsarClient.close();
             } catch (PulsarClientException e) {
@@ -320,7 +371,9 @@ public class PulsarMultiTopicsFetcher extends MultiTopicsFetcher {
             long start = System.currentTimeMillis();
             try {
                 context.addCallBack(topic, -1);
-                context.getConfig().getCallback().onFinishedBatch(messageRecords);
+                synchronized (callbackLock) {
+                    context.getConfig().getCallback().onFinishedBatch(messageRecords);
+                }
                 context.addCallBackSuccess(topic, -1, messageRecords.size(),
                         System.currentTimeMillis() - start);
             } catch (Exception e) {
@@ -335,6 +388,10 @@ public class PulsarMultiTopicsFetcher extends MultiTopicsFetcher {
         }
 
         private void processPulsarMsg(Messages<byte[]> messages, long fetchTimeCost) throws Exception {
+            if (Objects.nonNull(decodeWorkers)) {
+                dispatchPulsarMsg(messages, fetchTimeCost);
+                return;
+            }
             for (Message<byte[]> msg : messages) {
                 String topicName = msg.getTopicName();
                 InLongTopic topic = onlineTopics.get(topicName);
@@ -349,7 +406,59 @@ public class PulsarMultiTopicsFetcher extends MultiTopicsFetcher {
                 }
                 String offsetKey = getOffset(msg.getMessageId());
                 currentConsumer.put(offsetKey, topic, msg.getMessageId());
+                handlePulsarMsg(msg, topic, offsetKey, fetchTimeCost);
+            }
+        }
 
+        /**
+         * hand the messages to the decode workers, the messages of a topic partition go to the same
+         * worker in order, the fetch thread waits for the former batch only, so the next batch is
+         * received while the workers handle the current one
+         */
+        private void dispatchPulsarMsg(Messages<byte[]> messages, long fetchTimeCost) throws Exception {
+            List<List<Runnable>> workerTasks = new ArrayList<>(decodeWorkers.length);
+            for (int i = 0; i < decodeWorkers.length; i++) {
+                workerTasks.add(new ArrayList<>());
+            }
+            for (Message<byte[]> msg : messages) {
+                String topicName = msg.getTopicName();
+                InLongTopic topic = onlineTopics.get(topicName);
+                if (Objects.isNull(topic)) {
+                    LOGGER.error("got a message with topic {}, which is not subscribe", topicName);
+                    continue;
+                }
+                // if need seek
+                if (msg.getPublishTime() < seeker.getSeekTime()) {
+                    seeker.seek();
+                    break;
+                }
+                String offsetKey = getOffset(msg.getMessageId());
+                currentConsumer.put(offsetKey, topic, msg.getMessageId());
+                int workerIndex = (topicName.hashCode() & Integer.MAX_VALUE) % decodeWorkers.length;
+                workerTasks.get(workerIndex).add(() -> handlePulsarMsg(msg, topic, offsetKey, fetchTimeCost));
+            }
+            waitDispatchedTasks();
+            for (int i = 0; i < decodeWorkers.length; i++) {
+                List<Runnable> tasks = workerTasks.get(i);
+                if (!tasks.isEmpty()) {
+                    dispatchedTasks.add(decodeWorkers[i].submit(() -> tasks.forEach(Runnable::run)));
+                }
+            }
+        }
+
+        private void waitDispatchedTasks() throws InterruptedException {
+            for (Future<?> task : dispatchedTasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    LOGGER.error("failed to handle pulsar msg in decode worker: ", e.getCause());
+                }
+            }
+            dispatchedTasks.clear();
+        }
+
+        private void handlePulsarMsg(Message<byte[]> msg, InLongTopic topic, String offsetKey, long fetchTimeCost) {
+            try {
                 // deserialize
                 List<InLongMessage> inLongMessages = deserializer
                         .deserialize(context, topic, msg.getProperties(), msg.getData());
@@ -360,7 +469,7 @@ public class PulsarMultiTopicsFetcher extends MultiTopicsFetcher {
                 inLongMessages = interceptor.intercept(inLongMessages);
                 if (inLongMessages.isEmpty()) {
                     ack(offsetKey);
-                    continue;
+                    return;
                 }
                 int filterSize = originSize - inLongMessages.size();
                 context.addConsumeFilter(topic, -1, filterSize);
@@ -370,6 +479,9 @@ public class PulsarMultiTopicsFetcher extends MultiTopicsFetcher {
                         inLongMessages,
                         offsetKey, System.currentTimeMillis()));
                 handleAndCallbackMsg(msgs, topic);
+            } catch (Exception e) {
+                context.addConsumeError(topic, -1, fetchTimeCost);
+                LOGGER.error("failed to handle pulsar msg ", e);
             }
         }
 
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.sort.impl.decode;
+
+import org.apache.inlong.sdk.commons.protocol.ProxySdk.MapFieldEntry;
+import org.apache.inlong.sdk.sort.entity.InLongMessage;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A message decoded from a MessageObj in place.
+ *
+ * The message keeps the range of the MessageObj in the decompressed payload, shared by all
+ * the messages of the payload. The body is copied out and the params are parsed only when
+ * they are read, so a message filtered out costs nothing more than its msgTime and sourceIp.
+ */
+class LazyInLongMessage extends InLongMessage {
+
+    static final int FIELD_MSG_TIME = 1;
+    static final int FIELD_SOURCE_IP = 2;
+    static final int FIELD_BODY = 3;
+    static final int FIELD_PARAMS = 4;
+
+    private final byte[] buffer;
+    private final int offset;
+    private final int length;
+    private final int bodyOffset;
+    private final int bodyLength;
+    private volatile byte[] body;
+    private volatile Map<String, String> params;
+
+    LazyInLongMessage(String inlongGroupId, String inlongStreamId, long msgTime, String sourceIp,
+            byte[] buffer, int offset, int length, int bodyOffset, int bodyLength) {
+        super(inlongGroupId, inlongStreamId, msgTime, sourceIp, null, null);
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        this.bodyOffset = bodyOffset;
+        this.bodyLength = bodyLength;
+    }
+
+    @Override
+    public byte[] getBody() {
+        byte[] result = body;
+        if (result == null) {
+            result = Arrays.copyOfRange(buffer, bodyOffset, bodyOffset + bodyLength);
+            body = result;
+        }
+        return result;
+    }
+
+    @Override
+    public ByteBuffer getBodyBuffer() {
+        return ByteBuffer.wrap(buffer, bodyOffset, bodyLength).slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    public Map<String, String> getParams() {
+        Map<String, String> result = params;
+        if (result == null) {
+            result = parseParams();
+            params = result;
+        }
+        return result;
+    }
+
+    private Map<String, String> parseParams() {
+        Map<String, String> result = new HashMap<>();
+        try {
+            CodedInputStream input = CodedInputStream.newInstance(buffer, offset, length);
+            int tag;
+            while ((tag = input.readTag()) != 0) {
+                if (WireFormat.getTagFieldNumber(tag) == FIELD_PARAMS) {
+                    MapFieldEntry entry = input.readMessage(MapFieldEntry.parser(),
+                            ExtensionRegistryLite.getEmptyRegistry());
+                    result.put(entry.getKey(), entry.getValue());
+                } else {
+                    input.skipField(tag);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to parse the params of message", e);
+        }
+        return result;
+    }
+}
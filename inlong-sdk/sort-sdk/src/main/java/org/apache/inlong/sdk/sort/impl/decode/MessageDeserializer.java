@@ -30,8 +30,15 @@ import org.apache.inlong.sdk.sort.api.Deserializer;
 import org.apache.inlong.sdk.sort.entity.InLongMessage;
 import org.apache.inlong.sdk.sort.entity.InLongTopic;
 
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -39,6 +46,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 public class MessageDeserializer implements Deserializer {
 
@@ -62,6 +70,10 @@ public class MessageDeserializer implements Deserializer {
 
     private static final String PARSE_ATTR_ERROR_STRING = "Could not find %s in attributes!";
 
+    private static final int FIELD_MSGS = 1;
+    private static final int GZIP_BUFFER_SIZE = 8192;
+    private static final int MAX_GZIP_SIZE_HINT = 64 * 1024 * 1024;
+
     public MessageDeserializer() {
     }
 
@@ -113,6 +125,9 @@ public class MessageDeserializer implements Deserializer {
         int compressType = Integer.parseInt(headers.getOrDefault(COMPRESS_TYPE_KEY, "0"));
         String inlongGroupId = headers.getOrDefault(INLONG_GROUPID_KEY, "");
         String inlongStreamId = headers.getOrDefault(INLONG_STREAMID_KEY, "");
+        if (isLazyDecodeEnabled(context)) {
+            return decodePBLazily(decompress(compressType, msgBytes), inlongGroupId, inlongStreamId);
+        }
         switch (compressType) {
             case COMPRESS_TYPE_NONE: {
                 return transformMessageObjs(context, inLongTopic, MessageObjs.parseFrom(msgBytes), inlongGroupId,
@@ -161,6 +176,114 @@ public class MessageDeserializer implements Deserializer {
         return inLongMessages;
     }
 
+    private boolean isLazyDecodeEnabled(ClientContext context) {
+        return context != null && context.getConfig() != null && context.getConfig().isLazyDecodeEnabled();
+    }
+
+    /**
+     * uncompress the payload, the uncompressed bytes are in the returned buffer from 0 to its limit
+     */
+    private ByteBuffer decompress(int compressType, byte[] msgBytes) throws IOException {
+        switch (compressType) {
+            case COMPRESS_TYPE_NONE:
+                return ByteBuffer.wrap(msgBytes);
+            case COMPRESS_TYPE_SNAPPY:
+                return ByteBuffer.wrap(Utils.snappyDecompress(msgBytes, 0, msgBytes.length));
+            case COMPRESS_TYPE_GZIP:
+                return gzipDecompress(msgBytes);
+            default:
+                throw new IllegalArgumentException("Unknown compress type:" + compressType);
+        }
+    }
+
+    /**
+     * uncompress gzip bytes into a buffer sized by the length in the gzip trailer, the buffer
+     * is not trimmed to the uncompressed length as the messages only refer to ranges of it
+     */
+    private ByteBuffer gzipDecompress(byte[] msgBytes) throws IOException {
+        int sizeHint = GZIP_BUFFER_SIZE;
+        if (msgBytes.length >= 4) {
+            int trailerSize = ByteBuffer.wrap(msgBytes, msgBytes.length - 4, 4)
+                    .order(ByteOrder.LITTLE_ENDIAN).getInt();
+            if (trailerSize > 0 && trailerSize <= MAX_GZIP_SIZE_HINT) {
+                // one more byte to see the end of stream without growing
+                sizeHint = trailerSize + 1;
+            }
+        }
+        byte[] buf = new byte[sizeHint];
+        int length = 0;
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(msgBytes), GZIP_BUFFER_SIZE)) {
+            int readNum;
+            while ((readNum = gzip.read(buf, length, buf.length - length)) != -1) {
+                length += readNum;
+                if (length == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                }
+            }
+        }
+        ByteBuffer result = ByteBuffer.wrap(buf);
+        result.limit(length);
+        return result;
+    }
+
+    /**
+     * decode the MessageObjs in place, only the msgTime, the sourceIp and the ranges of the
+     * bodies are read, the bodies and the params are decoded when they are read
+     */
+    private List<InLongMessage> decodePBLazily(
+            ByteBuffer payload,
+            String inlongGroupId,
+            String inlongStreamId) throws IOException {
+        byte[] buffer = payload.array();
+        List<InLongMessage> inLongMessages = new ArrayList<>();
+        CodedInputStream input = CodedInputStream.newInstance(buffer, 0, payload.limit());
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            if (WireFormat.getTagFieldNumber(tag) != FIELD_MSGS
+                    || WireFormat.getTagWireType(tag) != WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                input.skipField(tag);
+                continue;
+            }
+            int length = input.readRawVarint32();
+            int offset = input.getTotalBytesRead();
+            inLongMessages.add(decodeMessageObj(buffer, offset, length, inlongGroupId, inlongStreamId));
+            input.skipRawBytes(length);
+        }
+        return inLongMessages;
+    }
+
+    private InLongMessage decodeMessageObj(
+            byte[] buffer, int offset, int length,
+            String inlongGroupId,
+            String inlongStreamId) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(buffer, offset, length);
+        long msgTime = 0L;
+        String sourceIp = "";
+        int bodyOffset = offset;
+        int bodyLength = 0;
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case LazyInLongMessage.FIELD_MSG_TIME:
+                    msgTime = input.readInt64();
+                    break;
+                case LazyInLongMessage.FIELD_SOURCE_IP:
+                    sourceIp = input.readString();
+                    break;
+                case LazyInLongMessage.FIELD_BODY:
+                    bodyLength = input.readRawVarint32();
+                    bodyOffset = offset + input.getTotalBytesRead();
+                    input.skipRawBytes(bodyLength);
+                    break;
+                default:
+                    // the params are parsed when they are read
+                    input.skipField(tag);
+            }
+        }
+        return new LazyInLongMessage(inlongGroupId, inlongStreamId, msgTime, sourceIp,
+                buffer, offset, length, bodyOffset, bodyLength);
+    }
+
     private List<InLongMessage> decodeInlongMsg(
             ClientContext context,
             InLongTopic inLongTopic,
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.sort.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The ack state of the offsets of a partition, from the lowest offset not committed yet.
+ *
+ * The offsets are kept as bits in a ring of long words. The low half of a word holds one
+ * bit per offset, set once the offset is acked, the high half holds the index of the word
+ * in the current round. The offsets are registered by the fetch thread in increasing order,
+ * the offsets skipped between two registered ones, such as the compacted ones, are taken as
+ * acked. Advancing moves the low watermark over the leading acked offsets.
+ *
+ * An ack takes no lock and allocates nothing, and can be called from any thread. It sets
+ * its bit with a CAS which also checks the index of the word, so a late ack never lands in
+ * a word reused by a later round. Registering and advancing are serialized, they replace
+ * the ring only between two changes of the version, and an ack seeing the version changed
+ * sets its bit again in the new ring.
+ *
+ * The ring grows when the registered offsets go beyond it, which happens only when the
+ * acks fall far behind the fetch.
+ */
+public class OffsetAckWindow {
+
+    private static final int WORD_SHIFT = 5;
+    private static final int WORD_BITS = 1 << WORD_SHIFT;
+    private static final long INDEX_MASK = 0xFFFFFFFF00000000L;
+    private static final int DEFAULT_WORDS = 128;
+
+    private volatile AtomicLongArray words;
+    // odd while the ring is replaced
+    private volatile int version = 0;
+    // the lowest offset not acked yet, -1 before the first offset is registered
+    private volatile long base = -1;
+    // the offset after the highest one registered
+    private volatile long next = -1;
+    // the highest word indexed in the ring, only used by register
+    private long lastWord = -1;
+
+    public OffsetAckWindow() {
+        this(DEFAULT_WORDS);
+    }
+
+    public OffsetAckWindow(int initialWords) {
+        int size = Integer.highestOneBit(Math.max(1, initialWords - 1)) << 1;
+        this.words = new AtomicLongArray(size);
+    }
+
+    /**
+     * Register an offset to be acked, called by the fetch thread
+     *
+     * @param offset the offset fetched
+     */
+    public synchronized void register(long offset) {
+        if (base < 0 || offset < base) {
+            // the first offset, or the consumer has been seeked back
+            reset(offset);
+        } else if (offset < next) {
+            // fetched again, it is tracked already
+            return;
+        }
+        long wordsNeeded = wordOf(offset) - wordOf(base) + 1;
+        if (wordsNeeded > words.length()) {
+            grow(wordsNeeded);
+        }
+        AtomicLongArray current = words;
+        for (long word = wordOf(next); word <= wordOf(offset); word++) {
+            long wordStart = word << WORD_SHIFT;
+            if (word > lastWord) {
+                // the word is reused from the former round, the acks of that round no longer match its index
+                current.set(slotOf(current, wordStart), indexOf(word));
+                lastWord = word;
+            }
+            // the offsets skipped are taken as acked
+            long fillStart = Math.max(wordStart, next);
+            long fillEnd = Math.min(wordStart + WORD_BITS, offset);
+            if (fillStart < fillEnd) {
+                setBits(current, fillStart, (int) (fillEnd - fillStart));
+            }
+        }
+        next = offset + 1;
+    }
+
+    /**
+     * Ack an offset, may be called by any thread
+     *
+     * @param offset the offset acked
+     * @return false if the offset is not in the window, such as not registered or committed
+     */
+    public boolean ack(long offset) {
+        while (true) {
+            int expectedVersion = version;
+            if ((expectedVersion & 1) != 0) {
+                // the ring is being replaced
+                Thread.yield();
+                continue;
+            }
+            AtomicLongArray current = words;
+            if (offset < base || offset >= next || !setBit(current, offset)) {
+                return false;
+            }
+            if (version == expectedVersion) {
+                return true;
+            }
+            // the ring has been replaced, the bit may have been set after it was copied
+        }
+    }
+
+    /**
+     * Move the low watermark over the leading acked offsets
+     *
+     * @return the last offset acked in order, or -1 if the low watermark does not move
+     */
+    public synchronized long advance() {
+        long newBase = scan();
+        if (newBase == base) {
+            return -1;
+        }
+        base = newBase;
+        return newBase - 1;
+    }
+
+    /**
+     * @return true if some registered offset is not acked yet
+     */
+    public synchronized boolean hasPending() {
+        return scan() < next;
+    }
+
+    /**
+     * @return the lowest offset not acked yet, -1 if nothing has been registered
+     */
+    public long getBase() {
+        return base;
+    }
+
+    private long scan() {
+        long offset = base;
+        long end = next;
+        AtomicLongArray current = words;
+        while (offset < end) {
+            int bit = bitOf(offset);
+            int acked = Integer.numberOfTrailingZeros(~((int) current.get(slotOf(current, offset)) >>> bit));
+            offset += acked;
+            if (acked < WORD_BITS - bit) {
+                break;
+            }
+        }
+        return Math.min(offset, end);
+    }
+
+    private void reset(long offset) {
+        version++;
+        words = new AtomicLongArray(words.length());
+        base = offset;
+        next = offset;
+        lastWord = wordOf(offset) - 1;
+        version++;
+    }
+
+    private void grow(long wordsNeeded) {
+        int size = words.length();
+        while (size < wordsNeeded) {
+            size <<= 1;
+        }
+        version++;
+        AtomicLongArray former = words;
+        AtomicLongArray larger = new AtomicLongArray(size);
+        for (long word = wordOf(base); word <= lastWord; word++) {
+            larger.set((int) (word & (size - 1)), former.get((int) (word & (former.length() - 1))));
+        }
+        words = larger;
+        version++;
+    }
+
+    /**
+     * set the bit of an offset if its word is still indexed for it
+     */
+    private static boolean setBit(AtomicLongArray current, long offset) {
+        int slot = slotOf(current, offset);
+        long index = indexOf(wordOf(offset));
+        long mask = 1L << bitOf(offset);
+        while (true) {
+            long word = current.get(slot);
+            if ((word & INDEX_MASK) != index) {
+                return false;
+            }
+            if ((word & mask) != 0 || current.compareAndSet(slot, word, word | mask)) {
+                return true;
+            }
+        }
+    }
+
+    private static void setBits(AtomicLongArray current, long offset, int count) {
+        int slot = slotOf(current, offset);
+        long mask = (count == WORD_BITS ? 0xFFFFFFFFL : (1L << count) - 1) << bitOf(offset);
+        while (true) {
+            long word = current.get(slot);
+            if ((word & mask) == mask || current.compareAndSet(slot, word, word | mask)) {
+                return;
+            }
+        }
+    }
+
+    private static long wordOf(long offset) {
+        return offset >>> WORD_SHIFT;
+    }
+
+    private static long indexOf(long word) {
+        return word << 32;
+    }
+
+    private static int bitOf(long offset) {
+        return (int) (offset & (WORD_BITS - 1));
+    }
+
+    private static int slotOf(AtomicLongArray current, long offset) {
+        return (int) (wordOf(offset) & (current.length() - 1));
+    }
+}
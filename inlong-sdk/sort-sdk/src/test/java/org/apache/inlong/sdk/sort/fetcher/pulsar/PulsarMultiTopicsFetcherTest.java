@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.sort.fetcher.pulsar;
+
+import org.apache.inlong.sdk.sort.api.ClientContext;
+import org.apache.inlong.sdk.sort.api.Deserializer;
+import org.apache.inlong.sdk.sort.api.Interceptor;
+import org.apache.inlong.sdk.sort.api.ReadCallback;
+import org.apache.inlong.sdk.sort.api.Seeker;
+import org.apache.inlong.sdk.sort.api.SortClientConfig;
+import org.apache.inlong.sdk.sort.entity.InLongMessage;
+import org.apache.inlong.sdk.sort.entity.InLongTopic;
+import org.apache.inlong.sdk.sort.entity.MessageRecord;
+import org.apache.inlong.sdk.sort.impl.ClientContextImpl;
+
+import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.api.Messages;
+import org.apache.pulsar.client.api.PulsarClient;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.reflect.Whitebox;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+@PowerMockIgnore("javax.management.*")
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ClientContext.class})
+public class PulsarMultiTopicsFetcherTest {
+
+    private static final List<String> TOPICS = Arrays.asList("topic-0", "topic-1", "topic-2");
+
+    private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger inCallback = new AtomicInteger();
+    private final AtomicInteger maxInCallback = new AtomicInteger();
+    private final Map<String, CountDownLatch> blocked = new HashMap<>();
+    private PulsarMultiTopicsFetcher fetcher;
+    private PulsarMultiTopicsFetcher.Fetcher fetchTask;
+    private ExecutorService[] decodeWorkers;
+    private Seeker seeker;
+    private int sequence = 0;
+
+    @Before
+    public void setUp() throws Exception {
+        System.setProperty("log4j2.disable.jmx", Boolean.TRUE.toString());
+        List<InLongTopic> topics = new ArrayList<>();
+        for (String name : TOPICS) {
+            InLongTopic topic = new InLongTopic();
+            topic.setTopic(name);
+            topic.setTopicType("pulsar");
+            topics.add(topic);
+        }
+        ClientContext context = PowerMockito.mock(ClientContextImpl.class);
+        SortClientConfig config = PowerMockito.mock(SortClientConfig.class);
+        when(context.getConfig()).thenReturn(config);
+        when(config.getCallback()).thenReturn(new ReadCallback() {
+
+            @Override
+            public void onFinished(MessageRecord messageRecord) {
+            }
+
+            @Override
+            public void onFinishedBatch(List<MessageRecord> messageRecords) {
+                maxInCallback.accumulateAndGet(inCallback.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(1L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (MessageRecord record : messageRecords) {
+                    for (InLongMessage msg : record.getMsgs()) {
+                        received.add(new String(msg.getBody(), StandardCharsets.UTF_8));
+                    }
+                }
+                inCallback.decrementAndGet();
+            }
+        });
+        Interceptor interceptor = PowerMockito.mock(Interceptor.class);
+        when(interceptor.intercept(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        Deserializer deserializer = PowerMockito.mock(Deserializer.class);
+        when(deserializer.deserialize(any(), any(), any(), any())).thenAnswer(invocation -> {
+            byte[] data = invocation.getArgument(3);
+            CountDownLatch latch = blocked.get(new String(data, StandardCharsets.UTF_8));
+            if (latch != null) {
+                latch.await();
+            }
+            return Collections.singletonList(new InLongMessage(data, new HashMap<>()));
+        });
+
+        fetcher = new PulsarMultiTopicsFetcher(topics, context, interceptor, deserializer,
+                PowerMockito.mock(PulsarClient.class), "fetchKey");
+        decodeWorkers = new ExecutorService[2];
+        for (int i = 0; i < decodeWorkers.length; i++) {
+            decodeWorkers[i] = Executors.newSingleThreadExecutor();
+        }
+        seeker = PowerMockito.mock(Seeker.class);
+        Whitebox.setInternalState(fetcher, "decodeWorkers", decodeWorkers);
+        Whitebox.setInternalState(fetcher, "currentConsumer", new PulsarConsumer(PowerMockito.mock(Consumer.class)));
+        Whitebox.setInternalState(fetcher, "seeker", seeker);
+        fetchTask = fetcher.new Fetcher();
+    }
+
+    @After
+    public void tearDown() {
+        for (ExecutorService worker : decodeWorkers) {
+            worker.shutdownNow();
+        }
+    }
+
+    private Message<byte[]> newMessage(String topic, String body, long publishTime) {
+        MessageId messageId = PowerMockito.mock(MessageId.class);
+        byte[] id = String.valueOf(sequence++).getBytes(StandardCharsets.UTF_8);
+        when(messageId.toByteArray()).thenReturn(id);
+        Message<byte[]> msg = PowerMockito.mock(Message.class);
+        when(msg.getTopicName()).thenReturn(topic);
+        when(msg.getPublishTime()).thenReturn(publishTime);
+        when(msg.getMessageId()).thenReturn(messageId);
+        when(msg.getProperties()).thenReturn(new HashMap<>());
+        when(msg.getData()).thenReturn(body.getBytes(StandardCharsets.UTF_8));
+        return msg;
+    }
+
+    private Messages<byte[]> newBatch(List<Message<byte[]>> batch) {
+        Messages<byte[]> messages = PowerMockito.mock(Messages.class);
+        when(messages.iterator()).thenAnswer(invocation -> batch.iterator());
+        when(messages.size()).thenReturn(batch.size());
+        return messages;
+    }
+
+    private void dispatch(List<Message<byte[]>> batch) throws Exception {
+        Whitebox.invokeMethod(fetchTask, "processPulsarMsg", newBatch(batch), 0L);
+    }
+
+    private void waitDispatched() throws Exception {
+        Whitebox.invokeMethod(fetchTask, "waitDispatchedTasks");
+    }
+
+    @Test
+    public void testPartitionOrder() throws Exception {
+        int batchNum = 5;
+        int perTopic = 20;
+        for (int batch = 0; batch < batchNum; batch++) {
+            List<Message<byte[]>> messages = new ArrayList<>();
+            for (int i = 0; i < perTopic; i++) {
+                for (String topic : TOPICS) {
+                    messages.add(newMessage(topic, topic + ":" + (batch * perTopic + i), 1L));
+                }
+            }
+            dispatch(messages);
+        }
+        waitDispatched();
+        Assert.assertEquals(batchNum * perTopic * TOPICS.size(), received.size());
+        // the messages of a partition are called back in order, one batch at a time
+        Map<String, Integer> next = new HashMap<>();
+        for (String body : received) {
+            String[] parts = body.split(":");
+            int expected = next.getOrDefault(parts[0], 0);
+            Assert.assertEquals(expected, Integer.parseInt(parts[1]));
+            next.put(parts[0], expected + 1);
+        }
+        Assert.assertEquals(1, maxInCallback.get());
+    }
+
+    @Test
+    public void testWaitFormerBatch() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        blocked.put("topic-0:0", latch);
+        dispatch(Arrays.asList(newMessage("topic-0", "topic-0:0", 1L),
+                newMessage("topic-1", "topic-1:0", 1L)));
+        // the fetch thread does not wait for the batch it dispatched
+        Thread second = new Thread(() -> {
+            try {
+                dispatch(Arrays.asList(newMessage("topic-0", "topic-0:1", 1L),
+                        newMessage("topic-1", "topic-1:1", 1L)));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        second.start();
+        // but the next batch is not dispatched until the former one is handled
+        second.join(200L);
+        Assert.assertTrue(second.isAlive());
+        Assert.assertFalse(received.contains("topic-0:1"));
+        Assert.assertFalse(received.contains("topic-1:1"));
+
+        latch.countDown();
+        second.join(TimeUnit.SECONDS.toMillis(10));
+        Assert.assertFalse(second.isAlive());
+        waitDispatched();
+        Assert.assertEquals(4, received.size());
+        Assert.assertTrue(received.indexOf("topic-0:0") < received.indexOf("topic-0:1"));
+        Assert.assertTrue(received.indexOf("topic-1:0") < received.indexOf("topic-1:1"));
+    }
+
+    @Test
+    public void testSeekWhileDispatching() throws Exception {
+        when(seeker.getSeekTime()).thenReturn(100L);
+        dispatch(Arrays.asList(newMessage("topic-0", "topic-0:0", 200L),
+                newMessage("topic-1", "topic-1:0", 300L),
+                newMessage("topic-2", "topic-2:0", 50L),
+                newMessage("topic-0", "topic-0:1", 400L)));
+        waitDispatched();
+        // the messages before the seek are handled, the rest of the batch is dropped
+        Mockito.verify(seeker, Mockito.times(1)).seek();
+        Assert.assertEquals(2, received.size());
+        Assert.assertTrue(received.containsAll(Arrays.asList("topic-0:0", "topic-1:0")));
+    }
+}
@@ -23,6 +23,7 @@ import org.apache.inlong.sdk.commons.protocol.ProxySdk.MapFieldEntry;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObj;
 import org.apache.inlong.sdk.commons.protocol.ProxySdk.MessageObjs;
 import org.apache.inlong.sdk.sort.api.ClientContext;
+import org.apache.inlong.sdk.sort.api.SortClientConfig;
 import org.apache.inlong.sdk.sort.entity.CacheZoneCluster;
 import org.apache.inlong.sdk.sort.entity.InLongMessage;
 import org.apache.inlong.sdk.sort.entity.InLongTopic;
@@ -181,6 +182,34 @@ public class MessageDeserializerTest {
         }
     }
 
+    @Test
+    public void testDeserializeLazily() throws Exception {
+        setUp();
+        SortClientConfig config = new SortClientConfig("sortTaskId", "sortClusterName", null,
+                SortClientConfig.ConsumeStrategy.earliest, "127.0.0.1");
+        config.setLazyDecodeEnabled(true);
+        PowerMockito.when(context.getConfig()).thenReturn(config);
+        prepareTestMessageObjs();
+        byte[] payload = messageObjs.toByteArray();
+        byte[][] compressed = {payload, Utils.compressGZip(payload), Utils.snappyCompress(payload)};
+        for (int compressType = 0; compressType < compressed.length; compressType++) {
+            headers.put("compressType", String.valueOf(compressType));
+            List<InLongMessage> deserialize = messageDeserializer
+                    .deserialize(context, inLongTopic, headers, compressed[compressType]);
+            Assert.assertEquals(2, deserialize.size());
+            for (int i = 0; i < deserialize.size(); i++) {
+                InLongMessage message = deserialize.get(i);
+                MessageObj expected = messageObjs.getMsgs(i);
+                Assert.assertEquals(expected.getMsgTime(), message.getMsgTime());
+                Assert.assertEquals(expected.getSourceIp(), message.getSourceIp());
+                Assert.assertEquals(testData, new String(message.getBody()));
+                Assert.assertEquals(expected.getBody().asReadOnlyByteBuffer(), message.getBodyBuffer());
+                Assert.assertEquals("val", message.getParams().get("key"));
+                Assert.assertEquals(1, message.getParams().size());
+            }
+        }
+    }
+
     private void prepareTestMessageObjs() {
         headers.put("version", "1");
         testData = "test data";
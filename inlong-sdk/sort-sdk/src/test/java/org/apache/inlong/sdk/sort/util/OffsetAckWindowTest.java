@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.inlong.sdk.sort.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class OffsetAckWindowTest {
+
+    @Test
+    public void testAdvanceInOrder() {
+        OffsetAckWindow window = new OffsetAckWindow();
+        for (long offset = 100; offset < 110; offset++) {
+            window.register(offset);
+        }
+        Assert.assertEquals(-1, window.advance());
+        Assert.assertTrue(window.ack(101));
+        Assert.assertTrue(window.ack(102));
+        Assert.assertEquals(-1, window.advance());
+        Assert.assertTrue(window.hasPending());
+
+        Assert.assertTrue(window.ack(100));
+        Assert.assertEquals(102, window.advance());
+        Assert.assertEquals(103, window.getBase());
+        Assert.assertFalse(window.ack(100));
+        Assert.assertFalse(window.ack(110));
+
+        for (long offset = 103; offset < 110; offset++) {
+            window.ack(offset);
+        }
+        Assert.assertFalse(window.hasPending());
+        Assert.assertEquals(109, window.advance());
+    }
+
+    @Test
+    public void testSkippedOffsets() {
+        OffsetAckWindow window = new OffsetAckWindow();
+        window.register(10);
+        window.register(15);
+        window.register(300);
+        window.ack(10);
+        Assert.assertEquals(14, window.advance());
+        window.ack(15);
+        Assert.assertEquals(299, window.advance());
+        window.ack(300);
+        Assert.assertEquals(300, window.advance());
+    }
+
+    @Test
+    public void testGrowAndWrap() {
+        OffsetAckWindow window = new OffsetAckWindow(1);
+        long acked = -1;
+        for (long offset = 0; offset < 10000; offset++) {
+            window.register(offset);
+            // leave the oldest offsets un-acked for a while so the ring grows
+            if (offset >= 500) {
+                window.ack(offset - 500);
+                acked = offset - 500;
+            }
+            if (offset % 100 == 0) {
+                long commit = window.advance();
+                Assert.assertTrue(commit == -1 || commit == acked);
+            }
+        }
+        Assert.assertEquals(acked, window.advance());
+    }
+
+    @Test
+    public void testSeekBack() {
+        OffsetAckWindow window = new OffsetAckWindow();
+        window.register(100);
+        window.ack(100);
+        Assert.assertEquals(100, window.advance());
+        window.register(50);
+        Assert.assertEquals(50, window.getBase());
+        window.ack(50);
+        Assert.assertEquals(50, window.advance());
+    }
+
+    @Test
+    public void testConcurrentAck() throws Exception {
+        OffsetAckWindow window = new OffsetAckWindow(1);
+        int count = 100000;
+        List<Long> offsets = new ArrayList<>();
+        for (long offset = 0; offset < count; offset++) {
+            window.register(offset);
+            offsets.add(offset);
+        }
+        Collections.shuffle(offsets);
+        int threadNum = 4;
+        CountDownLatch done = new CountDownLatch(threadNum);
+        AtomicLong failed = new AtomicLong();
+        for (int i = 0; i < threadNum; i++) {
+            List<Long> part = offsets.subList(i * count / threadNum, (i + 1) * count / threadNum);
+            new Thread(() -> {
+                for (Long offset : part) {
+                    if (!window.ack(offset)) {
+                        failed.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        while (done.getCount() > 0) {
+            window.advance();
+        }
+        window.advance();
+        Assert.assertEquals(0, failed.get());
+        Assert.assertEquals(count, window.getBase());
+        Assert.assertFalse(window.hasPending());
+    }
+
+    @Test
+    public void testAckWhileGrowing() throws Exception {
+        OffsetAckWindow window = new OffsetAckWindow(1);
+        int count = 200000;
+        AtomicLong registered = new AtomicLong();
+        AtomicLong cursor = new AtomicLong(1);
+        AtomicLong failed = new AtomicLong();
+        // the first offset is acked last, so the ring grows while the others are acked
+        Thread fetcher = new Thread(() -> {
+            for (long offset = 0; offset < count; offset++) {
+                window.register(offset);
+                registered.set(offset + 1);
+            }
+        });
+        List<Thread> ackers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ackers.add(new Thread(() -> {
+                long offset;
+                while ((offset = cursor.getAndIncrement()) < count) {
+                    while (offset >= registered.get()) {
+                        Thread.yield();
+                    }
+                    if (!window.ack(offset)) {
+                        failed.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        fetcher.start();
+        ackers.forEach(Thread::start);
+        while (fetcher.isAlive()) {
+            Assert.assertEquals(-1, window.advance());
+        }
+        for (Thread acker : ackers) {
+            acker.join();
+        }
+        Assert.assertEquals(0, failed.get());
+        Assert.assertEquals(0, window.getBase());
+        Assert.assertTrue(window.ack(0));
+        // no ack is lost by the ring replaced
+        Assert.assertEquals(count - 1, window.advance());
+        Assert.assertFalse(window.hasPending());
+    }
+
+    @Test
+    public void testLateAckOnReusedWord() {
+        OffsetAckWindow window = new OffsetAckWindow(1);
+        for (long offset = 0; offset < 32; offset++) {
+            window.register(offset);
+            window.ack(offset);
+        }
+        Assert.assertEquals(31, window.advance());
+        // the same slot now holds the next round
+        for (long offset = 32; offset < 64; offset++) {
+            window.register(offset);
+        }
+        // acks of the former round are out of the window and leave the new round untouched
+        Assert.assertFalse(window.ack(0));
+        Assert.assertFalse(window.ack(31));
+        Assert.assertEquals(-1, window.advance());
+        Assert.assertTrue(window.hasPending());
+    }
+
+    @Test
+    public void testConcurrentDuplicateAck() throws Exception {
+        OffsetAckWindow window = new OffsetAckWindow(1);
+        int count = 100000;
+        long held = count / 2;
+        AtomicLong registered = new AtomicLong();
+        // every offset but the held one is acked twice, the second ack may come after the advance
+        Thread fetcher = new Thread(() -> {
+            for (long offset = 0; offset < count; offset++) {
+                window.register(offset);
+                registered.set(offset + 1);
+            }
+        });
+        List<Thread> ackers = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            ackers.add(new Thread(() -> {
+                for (long offset = 0; offset < count; offset++) {
+                    while (offset >= registered.get()) {
+                        Thread.yield();
+                    }
+                    if (offset != held) {
+                        window.ack(offset);
+                    }
+                }
+            }));
+        }
+        fetcher.start();
+        ackers.forEach(Thread::start);
+        while (fetcher.isAlive() || ackers.stream().anyMatch(Thread::isAlive)) {
+            Assert.assertTrue(window.advance() < held);
+        }
+        window.advance();
+        Assert.assertEquals(held, window.getBase());
+        Assert.assertTrue(window.ack(held));
+        Assert.assertEquals(count - 1, window.advance());
+        Assert.assertFalse(window.hasPending());
+    }
+}